@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.client;
+
+import org.apache.ratis.RaftConfigKeys;
+import org.apache.ratis.client.impl.ClientImplUtils;
+import org.apache.ratis.conf.Parameters;
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.protocol.ClientId;
+import org.apache.ratis.protocol.RaftGroup;
+import org.apache.ratis.protocol.RaftGroupId;
+import org.apache.ratis.protocol.RaftPeerId;
+import org.apache.ratis.protocol.exceptions.GroupMismatchException;
+import org.apache.ratis.retry.RetryPolicies;
+import org.apache.ratis.retry.RetryPolicy;
+import org.apache.ratis.rpc.RpcType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * A client who sends requests to multiple raft groups.
+ *
+ * All the groups share the same {@link ClientId} and the same {@link RaftClientRpc}
+ * and, therefore, the same connection to each server.
+ * The per-group state, such as the sliding windows of the ordered requests, is created lazily.
+ * The requests are routed by group to the leader recorded for the group.
+ * The leader of a group is updated by the {@link org.apache.ratis.protocol.exceptions.NotLeaderException}s
+ * received in the group or by {@link #refreshLeader(RaftGroupId)}.
+ */
+public interface MultiRaftClient extends Closeable {
+  /** @return the id of this client. */
+  ClientId getId();
+
+  /** @return the {@link RaftClientRpc} shared by all the groups. */
+  RaftClientRpc getClientRpc();
+
+  /**
+   * Add the given group, or update the peers of the group if it already exists.
+   *
+   * @return the {@link RaftClient} for sending requests to the group.
+   *         Closing it only removes the group from this client; it does not close the shared {@link RaftClientRpc}.
+   */
+  RaftClient addGroup(RaftGroup group, RaftPeerId leaderId);
+
+  /** The same as addGroup(group, null). */
+  default RaftClient addGroup(RaftGroup group) {
+    return addGroup(group, null);
+  }
+
+  /** @return the {@link RaftClient} for the given group. */
+  RaftClient getClient(RaftGroupId groupId) throws GroupMismatchException;
+
+  /** @return the leader recorded for the given group. */
+  RaftPeerId getLeaderId(RaftGroupId groupId) throws GroupMismatchException;
+
+  /**
+   * Query the group info from the servers in the given group
+   * and then update the leader recorded for the group.
+   *
+   * @return the updated leader, or null if no servers know the leader.
+   */
+  RaftPeerId refreshLeader(RaftGroupId groupId) throws IOException;
+
+  /** @return a {@link Builder}. */
+  static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /** To build {@link MultiRaftClient} objects. */
+  class Builder {
+    private ClientId clientId;
+    private RaftClientRpc clientRpc;
+    private RaftProperties properties;
+    private Parameters parameters;
+    private RetryPolicy retryPolicy = RetryPolicies.retryForeverNoSleep();
+
+    private Builder() {}
+
+    /** @return a {@link MultiRaftClient} object. */
+    public MultiRaftClient build() {
+      if (clientId == null) {
+        clientId = ClientId.randomId();
+      }
+      if (properties != null) {
+        if (clientRpc == null) {
+          final RpcType rpcType = RaftConfigKeys.Rpc.type(properties, RaftClient.LOG::debug);
+          final ClientFactory factory = ClientFactory.cast(rpcType.newFactory(parameters));
+          clientRpc = factory.newRaftClientRpc(clientId, properties);
+        }
+      }
+      return ClientImplUtils.newMultiRaftClient(clientId,
+          Objects.requireNonNull(clientRpc, "The 'clientRpc' field is not initialized."),
+          properties, retryPolicy);
+    }
+
+    /** Set {@link MultiRaftClient} ID. */
+    public Builder setClientId(ClientId clientId) {
+      this.clientId = clientId;
+      return this;
+    }
+
+    /** Set {@link RaftClientRpc}. */
+    public Builder setClientRpc(RaftClientRpc clientRpc) {
+      this.clientRpc = clientRpc;
+      return this;
+    }
+
+    /** Set {@link RaftProperties}. */
+    public Builder setProperties(RaftProperties properties) {
+      this.properties = properties;
+      return this;
+    }
+
+    /** Set {@link Parameters}. */
+    public Builder setParameters(Parameters parameters) {
+      this.parameters = parameters;
+      return this;
+    }
+
+    /** Set {@link RetryPolicy}. */
+    public Builder setRetryPolicy(RetryPolicy retryPolicy) {
+      this.retryPolicy = retryPolicy;
+      return this;
+    }
+  }
+}
@@ -77,6 +77,103 @@ public interface RaftClientConfigKeys {
       setInt(properties::setInt, OUTSTANDING_REQUESTS_MAX_KEY, outstandingRequests);
     }
 
+    /** Pack small concurrent write requests into a single batch request. */
+    interface Batch {
+      String PREFIX = Async.PREFIX + ".batch";
+
+      String ENABLED_KEY = PREFIX + ".enabled";
+      boolean ENABLED_DEFAULT = false;
+      static boolean enabled(RaftProperties properties) {
+        return getBoolean(properties::getBoolean, ENABLED_KEY, ENABLED_DEFAULT, getDefaultLog());
+      }
+      static void setEnabled(RaftProperties properties, boolean enabled) {
+        setBoolean(properties::setBoolean, ENABLED_KEY, enabled);
+      }
+
+      /** The max time to wait for more requests before sending a batch. */
+      String LINGER_KEY = PREFIX + ".linger";
+      TimeDuration LINGER_DEFAULT = TimeDuration.valueOf(1, TimeUnit.MILLISECONDS);
+      static TimeDuration linger(RaftProperties properties) {
+        return getTimeDuration(properties.getTimeDuration(LINGER_DEFAULT.getUnit()),
+            LINGER_KEY, LINGER_DEFAULT, getDefaultLog());
+      }
+      static void setLinger(RaftProperties properties, TimeDuration linger) {
+        setTimeDuration(properties::setTimeDuration, LINGER_KEY, linger);
+      }
+
+      String ELEMENT_LIMIT_KEY = PREFIX + ".element-limit";
+      int ELEMENT_LIMIT_DEFAULT = 64;
+      static int elementLimit(RaftProperties properties) {
+        return getInt(properties::getInt, ELEMENT_LIMIT_KEY, ELEMENT_LIMIT_DEFAULT, getDefaultLog(), requireMin(1));
+      }
+      static void setElementLimit(RaftProperties properties, int elementLimit) {
+        setInt(properties::setInt, ELEMENT_LIMIT_KEY, elementLimit);
+      }
+
+      String BYTE_LIMIT_KEY = PREFIX + ".byte-limit";
+      SizeInBytes BYTE_LIMIT_DEFAULT = SizeInBytes.valueOf("64KB");
+      static SizeInBytes byteLimit(RaftProperties properties) {
+        return getSizeInBytes(properties::getSizeInBytes,
+            BYTE_LIMIT_KEY, BYTE_LIMIT_DEFAULT, getDefaultLog());
+      }
+      static void setByteLimit(RaftProperties properties, SizeInBytes byteLimit) {
+        setSizeInBytes(properties::set, BYTE_LIMIT_KEY, byteLimit);
+      }
+    }
+
+    /** Send a second stale-read request to another server if the first server is slow. */
+    interface HedgedRead {
+      String PREFIX = Async.PREFIX + ".hedged-read";
+
+      /** The hedge delay is this percentile of the recent stale-read latencies. */
+      String PERCENTILE_KEY = PREFIX + ".percentile";
+      int PERCENTILE_DEFAULT = 95;
+      static int percentile(RaftProperties properties) {
+        return getInt(properties::getInt, PERCENTILE_KEY, PERCENTILE_DEFAULT, getDefaultLog(),
+            requireMin(1), requireMax(100));
+      }
+      static void setPercentile(RaftProperties properties, int percentile) {
+        setInt(properties::setInt, PERCENTILE_KEY, percentile);
+      }
+
+      /** The hedge delay used before enough latencies are recorded. */
+      String DELAY_KEY = PREFIX + ".delay";
+      TimeDuration DELAY_DEFAULT = TimeDuration.valueOf(10, TimeUnit.MILLISECONDS);
+      static TimeDuration delay(RaftProperties properties) {
+        return getTimeDuration(properties.getTimeDuration(DELAY_DEFAULT.getUnit()),
+            DELAY_KEY, DELAY_DEFAULT, getDefaultLog());
+      }
+      static void setDelay(RaftProperties properties, TimeDuration delay) {
+        setTimeDuration(properties::setTimeDuration, DELAY_KEY, delay);
+      }
+    }
+
+    /**
+     * Adapt the limit of the outstanding requests, which is at most {@link #outstandingRequestsMax(RaftProperties)},
+     * according to the request latencies and the flow control hints from the leader.
+     */
+    interface AdaptiveLimit {
+      String PREFIX = Async.PREFIX + ".adaptive-limit";
+
+      String ENABLED_KEY = PREFIX + ".enabled";
+      boolean ENABLED_DEFAULT = false;
+      static boolean enabled(RaftProperties properties) {
+        return getBoolean(properties::getBoolean, ENABLED_KEY, ENABLED_DEFAULT, getDefaultLog());
+      }
+      static void setEnabled(RaftProperties properties, boolean enabled) {
+        setBoolean(properties::setBoolean, ENABLED_KEY, enabled);
+      }
+
+      String MIN_KEY = PREFIX + ".min";
+      int MIN_DEFAULT = 2;
+      static int min(RaftProperties properties) {
+        return getInt(properties::getInt, MIN_KEY, MIN_DEFAULT, getDefaultLog(), requireMin(1));
+      }
+      static void setMin(RaftProperties properties, int min) {
+        setInt(properties::setInt, MIN_KEY, min);
+      }
+    }
+
     interface Experimental {
       String PREFIX = Async.PREFIX + "." + JavaUtils.getClassSimpleName(Experimental.class).toLowerCase();
 
@@ -60,6 +60,20 @@ public interface AsyncApi {
    */
   CompletableFuture<RaftClientReply> sendStaleRead(Message message, long minIndex, RaftPeerId server);
 
+  /**
+   * Send the given stale-read message asynchronously to a server selected by the client.
+   * The request is first sent to the server with the highest known commit index.
+   * If there is no reply within the hedge delay,
+   * a second request is sent to another server, which is known to have committed the given min-index if possible.
+   * The first successful reply is returned and the other request is cancelled.
+   *
+   * @param message The request message.
+   * @param minIndex The minimum log index that the server log must have already committed.
+   * @return a future of the reply.
+   * @see org.apache.ratis.client.RaftClientConfigKeys.Async.HedgedRead
+   */
+  CompletableFuture<RaftClientReply> sendStaleRead(Message message, long minIndex);
+
   /**
    * Watch the given index asynchronously to satisfy the given replication level.
    *
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.client.impl;
+
+import org.apache.ratis.proto.RaftProtos.FlowControlHintProto;
+import org.apache.ratis.util.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An adaptive limit of the outstanding requests using additive-increase/multiplicative-decrease (AIMD).
+ *
+ * The limit starts at the min and is increased by one for each successful reply (slow start)
+ * until the first decrease; after that, it is increased by one for each limit of successful replies.
+ * The limit is not increased when the latency exceeds twice the min latency observed,
+ * i.e. the requests are being queued somewhere (similar to TCP Vegas).
+ * The limit is halved when the server is overloaded,
+ * i.e. it has no credit left or it has rejected a request with a
+ * {@link org.apache.ratis.protocol.exceptions.ResourceUnavailableException}.
+ *
+ * @see org.apache.ratis.client.RaftClientConfigKeys.Async.AdaptiveLimit
+ */
+class AdaptiveRequestLimit {
+  public static final Logger LOG = LoggerFactory.getLogger(AdaptiveRequestLimit.class);
+
+  private final String name;
+  private final int min;
+  private final int max;
+
+  /** The current limit; guarded by this. */
+  private double limit;
+  /** The number of outstanding requests; guarded by this. */
+  private int outstanding = 0;
+  /** Is it in slow start?  guarded by this. */
+  private boolean slowStart = true;
+  /** The min latency observed in nanoseconds; guarded by this. */
+  private long minLatency = Long.MAX_VALUE;
+  /** The time of the last decrease in nanoseconds; guarded by this. */
+  private long lastDecreaseTime = System.nanoTime();
+
+  AdaptiveRequestLimit(String name, int min, int max) {
+    Preconditions.assertTrue(min >= 1, () -> "min = " + min + " < 1");
+    Preconditions.assertTrue(max >= min, () -> "max = " + max + " < min = " + min);
+    this.name = name;
+    this.min = min;
+    this.max = max;
+    this.limit = min;
+  }
+
+  synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  synchronized int getOutstanding() {
+    return outstanding;
+  }
+
+  /** Acquire a permit, blocking until the number of outstanding requests is below the limit. */
+  synchronized void acquire() throws InterruptedException {
+    while (outstanding >= getLimit()) {
+      wait();
+    }
+    outstanding++;
+  }
+
+  synchronized void release() {
+    Preconditions.assertTrue(outstanding > 0, () -> name + ": outstanding = " + outstanding + " <= 0");
+    outstanding--;
+    notify();
+  }
+
+  /** Update the limit for a reply received after the given latency. */
+  synchronized void onReply(long latencyNanos, FlowControlHintProto hint) {
+    if (latencyNanos > 0) {
+      minLatency = Math.min(minLatency, latencyNanos);
+    }
+    if (hint != null && hint.getCredit() == 0) {
+      onOverload();
+      return;
+    }
+    if (latencyNanos / 2 > minLatency) {
+      return;
+    }
+    final int previous = getLimit();
+    limit = Math.min(max, slowStart ? limit + 1 : limit + 1 / limit);
+    if (getLimit() > previous) {
+      notifyAll();
+    }
+  }
+
+  /** Multiplicatively decrease the limit; decrease at most once per the min latency. */
+  synchronized void onOverload() {
+    final long now = System.nanoTime();
+    if (!slowStart && now - lastDecreaseTime < minLatency) {
+      return;
+    }
+    slowStart = false;
+    lastDecreaseTime = now;
+    limit = Math.max(min, limit / 2);
+    LOG.debug("{}: decreased limit to {}", name, getLimit());
+  }
+
+  @Override
+  public synchronized String toString() {
+    return name + ":limit=" + getLimit() + ", outstanding=" + outstanding;
+  }
+}
@@ -38,11 +38,15 @@ class AsyncImpl implements AsyncRpcApi {
 
   CompletableFuture<RaftClientReply> send(
       RaftClientRequest.Type type, Message message, RaftPeerId server) {
-    return client.getOrderedAsync().send(type, message, server);
+    return client.getOrderedAsync().send(client, type, message, server);
   }
 
   @Override
   public CompletableFuture<RaftClientReply> send(Message message) {
+    final BatchingAsync batching = client.getBatchingAsync();
+    if (batching != null) {
+      return batching.send(message);
+    }
     return send(RaftClientRequest.writeRequestType(), message, null);
   }
 
@@ -56,6 +60,11 @@ class AsyncImpl implements AsyncRpcApi {
     return send(RaftClientRequest.staleReadRequestType(minIndex), message, server);
   }
 
+  @Override
+  public CompletableFuture<RaftClientReply> sendStaleRead(Message message, long minIndex) {
+    return client.getHedgedStaleRead().send(message, minIndex);
+  }
+
   @Override
   public CompletableFuture<RaftClientReply> watch(long index, ReplicationLevel replication) {
     return UnorderedAsync.send(RaftClientRequest.watchRequestType(index, replication), client);
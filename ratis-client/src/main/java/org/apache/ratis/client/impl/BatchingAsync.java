@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.client.impl;
+
+import org.apache.ratis.client.RaftClientConfigKeys;
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.proto.RaftProtos.BatchMessageProto;
+import org.apache.ratis.proto.RaftProtos.BatchReplyEntryProto;
+import org.apache.ratis.proto.RaftProtos.CommitInfoProto;
+import org.apache.ratis.protocol.Message;
+import org.apache.ratis.protocol.RaftClientReply;
+import org.apache.ratis.protocol.RaftClientRequest;
+import org.apache.ratis.protocol.exceptions.AlreadyClosedException;
+import org.apache.ratis.thirdparty.com.google.protobuf.InvalidProtocolBufferException;
+import org.apache.ratis.util.Daemon;
+import org.apache.ratis.util.JavaUtils;
+import org.apache.ratis.util.MemoizedSupplier;
+import org.apache.ratis.util.TimeDuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pack concurrent asynchronous write requests into batch requests.
+ * A batch is sent when either the element limit or the byte limit is reached,
+ * or when the linger time of the first request in the batch has elapsed.
+ *
+ * The batching is only at the RPC layer:
+ * a batch is sent as a single ordered request but each message in the batch has its own call id.
+ * The server submits the messages as separate write requests in order,
+ * so that each message has its own transaction, log entry and retry cache entry.
+ * The batch reply is split back to the individual requests.
+ *
+ * @see RaftClientConfigKeys.Async.Batch
+ */
+final class BatchingAsync {
+  public static final Logger LOG = LoggerFactory.getLogger(BatchingAsync.class);
+
+  static final class PendingMessage {
+    private final Message message;
+    private final CompletableFuture<RaftClientReply> replyFuture = new CompletableFuture<>();
+
+    PendingMessage(Message message) {
+      this.message = Objects.requireNonNull(message, "message == null");
+    }
+  }
+
+  private final RaftClientImpl client;
+  private final TimeDuration linger;
+  private final int elementLimit;
+  private final long byteLimit;
+  /** For sending the batches on linger timeout; it must not block the scheduler. */
+  private final MemoizedSupplier<ExecutorService> lingerExecutor;
+
+  /** The batch being filled; guarded by this. */
+  private List<PendingMessage> batch = new ArrayList<>();
+  private long batchBytes = 0;
+  /** The number of batches taken so far; guarded by this. */
+  private long numBatches = 0;
+
+  BatchingAsync(RaftClientImpl client, RaftProperties properties) {
+    this.client = Objects.requireNonNull(client, "client == null");
+    this.linger = RaftClientConfigKeys.Async.Batch.linger(properties);
+    this.elementLimit = RaftClientConfigKeys.Async.Batch.elementLimit(properties);
+    this.byteLimit = RaftClientConfigKeys.Async.Batch.byteLimit(properties).getSize();
+    this.lingerExecutor = JavaUtils.memoize(() -> Executors.newSingleThreadExecutor(
+        r -> new Daemon(r, client.getId() + "-" + JavaUtils.getClassSimpleName(getClass()))));
+  }
+
+  CompletableFuture<RaftClientReply> send(Message message) {
+    final PendingMessage pending = new PendingMessage(message);
+    final List<PendingMessage> toSend;
+    synchronized (this) {
+      if (batch.isEmpty()) {
+        final long batchId = numBatches;
+        client.getScheduler().onTimeout(linger, () -> lingerExecutor.get().submit(() -> sendOnLinger(batchId)),
+            LOG, () -> client.getId() + ": Failed to schedule batch #" + batchId);
+      }
+      batch.add(pending);
+      batchBytes += message.size();
+      toSend = batch.size() >= elementLimit || batchBytes >= byteLimit ? takeBatch() : null;
+    }
+    sendBatch(toSend);
+    return pending.replyFuture;
+  }
+
+  private synchronized List<PendingMessage> takeBatch() {
+    final List<PendingMessage> taken = batch;
+    batch = new ArrayList<>();
+    batchBytes = 0;
+    numBatches++;
+    return taken;
+  }
+
+  private void sendOnLinger(long batchId) {
+    final List<PendingMessage> toSend;
+    synchronized (this) {
+      // the batch may have already been sent due to the limits.
+      toSend = batchId == numBatches && !batch.isEmpty() ? takeBatch() : null;
+    }
+    sendBatch(toSend);
+  }
+
+  private void sendBatch(List<PendingMessage> toSend) {
+    if (toSend == null) {
+      return;
+    }
+    if (toSend.size() == 1) {
+      final PendingMessage p = toSend.get(0);
+      client.async().send(RaftClientRequest.writeRequestType(), p.message, null)
+          .whenComplete((reply, e) -> complete(p, reply, e));
+      return;
+    }
+
+    final List<Message> messages = new ArrayList<>(toSend.size());
+    final long[] callIds = new long[toSend.size()];
+    for (int i = 0; i < callIds.length; i++) {
+      messages.add(toSend.get(i).message);
+      callIds[i] = client.newUnackedCallId();
+    }
+    LOG.debug("{}: send a batch of {} messages", client.getId(), messages.size());
+    client.async().send(RaftClientRequest.batchWriteRequestType(),
+            ClientProtoUtils.toBatchRequestMessage(messages, callIds), null)
+        .whenComplete((reply, e) -> {
+          for (long callId : callIds) {
+            client.acknowledge(callId);
+          }
+          if (e != null) {
+            toSend.forEach(p -> complete(p, null, e));
+            return;
+          }
+          final BatchMessageProto replies;
+          try {
+            replies = ClientProtoUtils.toBatchMessageProto(reply.getMessage());
+          } catch (InvalidProtocolBufferException ipbe) {
+            toSend.forEach(p -> complete(p, null, ipbe));
+            return;
+          }
+          if (replies.getRepliesCount() != callIds.length) {
+            final IllegalStateException ise = new IllegalStateException(client.getId()
+                + ": Unexpected batch reply with " + replies.getRepliesCount()
+                + " replies for a batch of " + callIds.length + " messages");
+            toSend.forEach(p -> complete(p, null, ise));
+            return;
+          }
+          for (int i = 0; i < callIds.length; i++) {
+            complete(toSend.get(i), replies.getReplies(i), reply.getCommitInfos());
+          }
+        });
+  }
+
+  /** Complete the given message with its result in the batch reply. */
+  private static void complete(PendingMessage p, BatchReplyEntryProto result, Collection<CommitInfoProto> commitInfos) {
+    final Throwable e = ClientProtoUtils.toBatchReplyException(result);
+    if (e != null) {
+      complete(p, null, e);
+      return;
+    }
+    final RaftClientReply r = ClientProtoUtils.toRaftClientReply(result.getReply());
+    final RaftClientReply reply = RaftClientReply.newBuilder()
+        .setClientId(r.getClientId())
+        .setServerId(r.getServerId())
+        .setGroupId(r.getRaftGroupId())
+        .setCallId(r.getCallId())
+        .setSuccess(r.isSuccess())
+        .setMessage(r.getMessage())
+        .setException(r.getException())
+        .setLogIndex(r.getLogIndex())
+        .setCommitInfos(commitInfos)
+        .build();
+    // the same as the replies of the non-batched requests, see OrderedAsync
+    complete(p, reply, Optional.ofNullable(reply.getException()).map(CompletionException::new).orElse(null));
+  }
+
+  private static void complete(PendingMessage p, RaftClientReply reply, Throwable e) {
+    if (e != null) {
+      p.replyFuture.completeExceptionally(e);
+    } else {
+      p.replyFuture.complete(reply);
+    }
+  }
+
+  void close() {
+    final List<PendingMessage> unsent = takeBatch();
+    if (!unsent.isEmpty()) {
+      final AlreadyClosedException e = new AlreadyClosedException(client.getId() + " is closed.");
+      unsent.forEach(p -> complete(p, null, e));
+    }
+    if (lingerExecutor.isInitialized()) {
+      lingerExecutor.get().shutdown();
+    }
+  }
+}
@@ -36,7 +36,6 @@ import org.apache.ratis.protocol.exceptions.LeaderSteppingDownException;
 import org.apache.ratis.protocol.exceptions.StateMachineException;
 import org.apache.ratis.protocol.exceptions.TransferLeadershipException;
 import org.apache.ratis.retry.RetryPolicy;
-import org.apache.ratis.rpc.CallId;
 import org.apache.ratis.util.TimeDuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -78,8 +77,12 @@ class BlockingImpl implements BlockingApi {
       Objects.requireNonNull(message, "message == null");
     }
 
-    final long callId = CallId.getAndIncrement();
-    return sendRequestWithRetry(() -> client.newRaftClientRequest(server, callId, message, type, null));
+    final long callId = client.newUnackedCallId();
+    try {
+      return sendRequestWithRetry(() -> client.newRaftClientRequest(server, callId, message, type, null));
+    } finally {
+      client.acknowledge(callId);
+    }
   }
 
   RaftClientReply sendRequestWithRetry(Supplier<RaftClientRequest> supplier) throws IOException {
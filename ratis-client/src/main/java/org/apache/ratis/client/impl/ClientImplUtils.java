@@ -19,6 +19,7 @@ package org.apache.ratis.client.impl;
 
 import org.apache.ratis.client.DataStreamClient;
 import org.apache.ratis.client.DataStreamClientRpc;
+import org.apache.ratis.client.MultiRaftClient;
 import org.apache.ratis.client.RaftClient;
 import org.apache.ratis.client.RaftClientRpc;
 import org.apache.ratis.conf.RaftProperties;
@@ -38,6 +39,11 @@ public interface ClientImplUtils {
         retryPolicy);
   }
 
+  static MultiRaftClient newMultiRaftClient(ClientId clientId, RaftClientRpc clientRpc, RaftProperties properties,
+      RetryPolicy retryPolicy) {
+    return new MultiRaftClientImpl(clientId, clientRpc, properties, retryPolicy);
+  }
+
   static DataStreamClient newDataStreamClient(ClientId clientId, RaftGroupId groupId, RaftPeer primaryDataStreamServer,
       DataStreamClientRpc dataStreamClientRpc, RaftProperties properties) {
     return new DataStreamClientImpl(clientId, groupId, primaryDataStreamServer, dataStreamClientRpc, properties);
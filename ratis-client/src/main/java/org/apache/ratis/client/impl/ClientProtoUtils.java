@@ -17,6 +17,7 @@
  */
 package org.apache.ratis.client.impl;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Optional;
 
@@ -35,6 +36,7 @@ import org.apache.ratis.rpc.CallId;
 import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
 import org.apache.ratis.thirdparty.com.google.protobuf.InvalidProtocolBufferException;
 import org.apache.ratis.proto.RaftProtos.*;
+import org.apache.ratis.util.Preconditions;
 import org.apache.ratis.util.ProtoUtils;
 import org.apache.ratis.util.ReflectionUtils;
 
@@ -161,6 +163,7 @@ public interface ClientProtoUtils {
         .setSlidingWindowEntry(request.getSlidingWindowEntry())
         .setRoutingTable(getRoutingTable(request))
         .setTimeoutMs(request.getTimeoutMs())
+        .setFirstUnackedCallId(p.getFirstUnackedCallId())
         .build();
   }
 
@@ -170,7 +173,8 @@ public interface ClientProtoUtils {
 
   static RaftClientRequestProto toRaftClientRequestProto(RaftClientRequest request) {
     final RaftClientRequestProto.Builder b = RaftClientRequestProto.newBuilder()
-        .setRpcRequest(toRaftRpcRequestProtoBuilder(request));
+        .setRpcRequest(toRaftRpcRequestProtoBuilder(request))
+        .setFirstUnackedCallId(request.getFirstUnackedCallId());
     if (request.getMessage() != null) {
       b.setMessage(toClientMessageEntryProtoBuilder(request.getMessage()));
     }
@@ -244,6 +248,7 @@ public interface ClientProtoUtils {
         b.setMessage(toClientMessageEntryProtoBuilder(reply.getMessage()));
       }
       ProtoUtils.addCommitInfos(reply.getCommitInfos(), b::addCommitInfos);
+      Optional.ofNullable(reply.getFlowControlHint()).ifPresent(b::setFlowControlHint);
 
       final NotLeaderException nle = reply.getNotLeaderException();
       if (nle != null) {
@@ -395,6 +400,7 @@ public interface ClientProtoUtils {
         .setException(e)
         .setLogIndex(replyProto.getLogIndex())
         .setCommitInfos(replyProto.getCommitInfosList())
+        .setFlowControlHint(replyProto.hasFlowControlHint()? replyProto.getFlowControlHint(): null)
         .build();
   }
 
@@ -487,6 +493,54 @@ public interface ClientProtoUtils {
     return toClientMessageEntryProtoBuilder(message.getContent());
   }
 
+  /** Pack the given messages, each with its own call id, into a batch request message. */
+  static Message toBatchRequestMessage(List<Message> messages, long[] callIds) {
+    Preconditions.assertTrue(messages.size() == callIds.length,
+        () -> "#messages = " + messages.size() + " != #callIds = " + callIds.length);
+    final BatchMessageProto.Builder b = BatchMessageProto.newBuilder();
+    for (int i = 0; i < callIds.length; i++) {
+      b.addMessages(messages.get(i).getContent()).addCallIds(callIds[i]);
+    }
+    return Message.valueOf(b.build().toByteString(), () -> "Batch" + callIds.length);
+  }
+
+  /**
+   * @return the result of a message in a batch reply, which is either the given reply or the given exception.
+   *         The commit infos are not included since they are in the batch reply.
+   */
+  static BatchReplyEntryProto toBatchReplyEntryProto(RaftClientReply reply, Throwable exception) {
+    final BatchReplyEntryProto.Builder b = BatchReplyEntryProto.newBuilder();
+    if (exception != null) {
+      b.setException(ProtoUtils.toThrowableProto(exception));
+    } else {
+      b.setReply(toRaftClientReplyProto(reply).toBuilder().clearCommitInfos().clearFlowControlHint());
+    }
+    return b.build();
+  }
+
+  /** Pack the given results, one for each message in the batch request, into a batch reply message. */
+  static Message toBatchReplyMessage(List<BatchReplyEntryProto> replies) {
+    final BatchMessageProto proto = BatchMessageProto.newBuilder().addAllReplies(replies).build();
+    return Message.valueOf(proto.toByteString(), () -> "BatchReply" + replies.size());
+  }
+
+  /** @return the exception of the given batch reply entry, or null if the entry has a reply. */
+  static Throwable toBatchReplyException(BatchReplyEntryProto entry) {
+    if (!entry.hasException()) {
+      return null;
+    }
+    final ThrowableProto proto = entry.getException();
+    try {
+      return ProtoUtils.toThrowable(proto, ReflectionUtils.getClass(proto.getClassName(), Throwable.class));
+    } catch (RuntimeException e) {
+      return new IOException(proto.getClassName() + ": " + proto.getErrorMessage(), e);
+    }
+  }
+
+  static BatchMessageProto toBatchMessageProto(Message batch) throws InvalidProtocolBufferException {
+    return BatchMessageProto.parseFrom(batch.getContent());
+  }
+
   static SetConfigurationRequest toSetConfigurationRequest(
       SetConfigurationRequestProto p) {
     final RaftRpcRequestProto m = p.getRpcRequest();
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.client.impl;
+
+import org.apache.ratis.client.RaftClientConfigKeys;
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.protocol.Message;
+import org.apache.ratis.protocol.RaftClientReply;
+import org.apache.ratis.protocol.RaftClientRequest;
+import org.apache.ratis.protocol.RaftPeer;
+import org.apache.ratis.protocol.RaftPeerId;
+import org.apache.ratis.util.TimeDuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hedged stale reads:
+ * send a stale-read request to the server with the highest known commit index and,
+ * if there is no reply within the hedge delay, send a second request to another server.
+ * When the commit indices are known, the hedge is skipped if no other server has committed the min index.
+ * The first successful reply wins and the other request is cancelled.
+ *
+ * The hedge delay is a percentile of the recent stale-read latencies.
+ *
+ * @see RaftClientConfigKeys.Async.HedgedRead
+ */
+final class HedgedStaleRead {
+  public static final Logger LOG = LoggerFactory.getLogger(HedgedStaleRead.class);
+
+  /** The number of recent latencies for computing the percentile. */
+  private static final int MAX_LATENCIES = 128;
+  /** Use the default delay until there are enough latencies. */
+  private static final int MIN_LATENCIES = 16;
+
+  private final RaftClientImpl client;
+  private final int percentile;
+  private final TimeDuration defaultDelay;
+
+  /** A ring buffer of the recent latencies in nanoseconds; guarded by this. */
+  private final long[] latencies = new long[MAX_LATENCIES];
+  /** The total number of latencies recorded; guarded by this. */
+  private long numLatencies = 0;
+
+  HedgedStaleRead(RaftClientImpl client, RaftProperties properties) {
+    this.client = Objects.requireNonNull(client, "client == null");
+    this.percentile = RaftClientConfigKeys.Async.HedgedRead.percentile(properties);
+    this.defaultDelay = RaftClientConfigKeys.Async.HedgedRead.delay(properties);
+  }
+
+  private synchronized void addLatency(long nanos) {
+    latencies[(int) (numLatencies++ % MAX_LATENCIES)] = nanos;
+  }
+
+  synchronized TimeDuration getDelay() {
+    final int n = (int) Math.min(numLatencies, MAX_LATENCIES);
+    if (n < MIN_LATENCIES) {
+      return defaultDelay;
+    }
+    final long[] sorted = Arrays.copyOf(latencies, n);
+    Arrays.sort(sorted);
+    final int i = Math.max(0, (int) Math.ceil(percentile * n / 100.0) - 1);
+    return TimeDuration.valueOf(sorted[i], TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @return the servers sorted by their known commit indices in descending order.
+   *         When the commit indices are known, a server other than the first one is included
+   *         only if it is known to have committed minIndex, so that the hedge is not sent to a stale server.
+   */
+  private List<RaftPeerId> sortServers(long minIndex) {
+    final List<RaftPeerId> servers = new ArrayList<>();
+    for (RaftPeer peer : client.getPeers()) {
+      servers.add(peer.getId());
+    }
+    servers.sort(Comparator.comparingLong(client::getCommitIndex).reversed());
+    if (servers.isEmpty() || client.getCommitIndex(servers.get(0)) < 0) {
+      return servers; // the commit indices are unknown
+    }
+    for (int i = 1; i < servers.size(); i++) {
+      if (client.getCommitIndex(servers.get(i)) < minIndex) {
+        // the servers are sorted, so the remaining servers have not committed minIndex either
+        servers.subList(i, servers.size()).clear();
+        break;
+      }
+    }
+    return servers;
+  }
+
+  CompletableFuture<RaftClientReply> send(Message message, long minIndex) {
+    final HedgedRequest request = new HedgedRequest(message, minIndex, sortServers(minIndex));
+    request.sendNext();
+    if (request.maxAttempts > 1) {
+      final TimeDuration delay = getDelay();
+      client.getScheduler().onTimeout(delay, request::sendNext, LOG,
+          () -> client.getId() + ": Failed to hedge " + request);
+    }
+    return request.result.thenApply(reply -> RaftClientImpl.handleRaftException(reply, CompletionException::new));
+  }
+
+  private final class HedgedRequest {
+    private final Message message;
+    private final long minIndex;
+    private final List<RaftPeerId> servers;
+    private final int maxAttempts;
+    private final CompletableFuture<RaftClientReply> result = new CompletableFuture<>();
+
+    /** The attempts sent; guarded by this. */
+    private final List<CompletableFuture<RaftClientReply>> attempts = new ArrayList<>(2);
+    /** The number of failed attempts; guarded by this. */
+    private int numFailed = 0;
+
+    HedgedRequest(Message message, long minIndex, List<RaftPeerId> servers) {
+      this.message = message;
+      this.minIndex = minIndex;
+      this.servers = servers;
+      this.maxAttempts = Math.min(2, servers.size());
+    }
+
+    /** Send to the next server unless the result is done or all the attempts are already sent. */
+    void sendNext() {
+      final long startTime = System.nanoTime();
+      final RaftPeerId server;
+      final CompletableFuture<RaftClientReply> attempt;
+      synchronized (this) {
+        if (result.isDone() || attempts.size() >= maxAttempts) {
+          return;
+        }
+        server = servers.get(attempts.size());
+        LOG.debug("{}: send attempt #{} of {} to {}", client.getId(), attempts.size(), this, server);
+        attempt = UnorderedAsync.send(RaftClientRequest.staleReadRequestType(minIndex), message, server, client);
+        attempts.add(attempt);
+      }
+      attempt.whenComplete((reply, e) -> onReply(reply, e, startTime));
+    }
+
+    private void onReply(RaftClientReply reply, Throwable e, long startTime) {
+      if (e == null && reply != null && reply.isSuccess()) {
+        addLatency(System.nanoTime() - startTime);
+        if (result.complete(reply)) {
+          cancelOthers();
+        }
+        return;
+      }
+
+      final boolean allFailed;
+      synchronized (this) {
+        numFailed++;
+        allFailed = numFailed == maxAttempts;
+      }
+      if (!allFailed) {
+        // do not wait for the hedge delay
+        sendNext();
+      } else if (e != null) {
+        result.completeExceptionally(e);
+      } else {
+        result.complete(reply);
+      }
+    }
+
+    private void cancelOthers() {
+      final List<CompletableFuture<RaftClientReply>> sent;
+      synchronized (this) {
+        sent = new ArrayList<>(attempts);
+      }
+      for (CompletableFuture<RaftClientReply> attempt : sent) {
+        attempt.cancel(false);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "HedgedStaleRead(minIndex=" + minIndex + ", servers=" + servers + ")";
+    }
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.client.impl;
+
+import org.apache.ratis.client.MultiRaftClient;
+import org.apache.ratis.client.RaftClient;
+import org.apache.ratis.client.RaftClientRpc;
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.proto.RaftProtos.RaftPeerRole;
+import org.apache.ratis.proto.RaftProtos.RoleInfoProto;
+import org.apache.ratis.protocol.ClientId;
+import org.apache.ratis.protocol.GroupInfoReply;
+import org.apache.ratis.protocol.RaftGroup;
+import org.apache.ratis.protocol.RaftGroupId;
+import org.apache.ratis.protocol.RaftPeer;
+import org.apache.ratis.protocol.RaftPeerId;
+import org.apache.ratis.protocol.exceptions.AlreadyClosedException;
+import org.apache.ratis.protocol.exceptions.GroupMismatchException;
+import org.apache.ratis.retry.RetryPolicy;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.apache.ratis.util.CollectionUtils;
+import org.apache.ratis.util.JavaUtils;
+import org.apache.ratis.util.MemoizedSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link MultiRaftClient} keeping a lightweight {@link RaftClientImpl} for each group.
+ * A group client only keeps the peers and the leader of the group;
+ * all the group clients share the same {@link ClientId}, the same {@link RaftClientRpc}
+ * and the same {@link OrderedAsync}, which creates the sliding windows of a group lazily.
+ * The leader map is the leaders recorded in the group clients.
+ */
+final class MultiRaftClientImpl implements MultiRaftClient {
+  public static final Logger LOG = LoggerFactory.getLogger(MultiRaftClientImpl.class);
+
+  private final ClientId clientId;
+  private final RaftClientRpc clientRpc;
+  private final RaftProperties properties;
+  private final RetryPolicy retryPolicy;
+
+  /** Shared by all the groups. */
+  private final MemoizedSupplier<OrderedAsync> orderedAsync;
+  private final ConcurrentMap<RaftGroupId, RaftClientImpl> clients = new ConcurrentHashMap<>();
+  private final AtomicBoolean closed = new AtomicBoolean();
+
+  MultiRaftClientImpl(ClientId clientId, RaftClientRpc clientRpc, RaftProperties properties,
+      RetryPolicy retryPolicy) {
+    this.clientId = Objects.requireNonNull(clientId, "clientId == null");
+    this.clientRpc = Objects.requireNonNull(clientRpc, "clientRpc == null");
+    this.properties = properties;
+    this.retryPolicy = Objects.requireNonNull(retryPolicy, "retryPolicy == null");
+    this.orderedAsync = JavaUtils.memoize(() -> new OrderedAsync(clientId, properties));
+  }
+
+  @Override
+  public ClientId getId() {
+    return clientId;
+  }
+
+  @Override
+  public RaftClientRpc getClientRpc() {
+    return clientRpc;
+  }
+
+  @Override
+  public RaftClient addGroup(RaftGroup group, RaftPeerId leaderId) {
+    if (closed.get()) {
+      throw new IllegalStateException(new AlreadyClosedException(this + " is closed."));
+    }
+    final RaftGroupId groupId = group.getGroupId();
+    final RaftClientImpl existing = clients.get(groupId);
+    if (existing != null) {
+      existing.refreshPeers(group.getPeers());
+      existing.setLeaderId(leaderId);
+      return existing;
+    }
+    return clients.computeIfAbsent(groupId, id -> newClient(group, leaderId));
+  }
+
+  private RaftClientImpl newClient(RaftGroup group, RaftPeerId leaderId) {
+    final Collection<RaftPeer> peers = group.getPeers();
+    final RaftPeer primaryDataStreamServer = peers.isEmpty()? null: peers.iterator().next();
+    LOG.debug("{}: add group {}", clientId, group);
+    // closing a group client removes it from the map but keeps the shared rpc open
+    return new RaftClientImpl(clientId, group, leaderId, primaryDataStreamServer, clientRpc, orderedAsync,
+        c -> clients.remove(c.getGroupId(), c), properties, retryPolicy);
+  }
+
+  @Override
+  public RaftClientImpl getClient(RaftGroupId groupId) throws GroupMismatchException {
+    final RaftClientImpl client = clients.get(groupId);
+    if (client == null) {
+      throw new GroupMismatchException(clientId + ": group " + groupId + " not found");
+    }
+    return client;
+  }
+
+  @Override
+  public RaftPeerId getLeaderId(RaftGroupId groupId) throws GroupMismatchException {
+    return getClient(groupId).getLeaderId();
+  }
+
+  @Override
+  public RaftPeerId refreshLeader(RaftGroupId groupId) throws IOException {
+    final RaftClientImpl client = getClient(groupId);
+
+    // ask the recorded leader first and then the other peers
+    final List<RaftPeerId> ids = new ArrayList<>();
+    final RaftPeerId recorded = client.getLeaderId();
+    if (recorded != null) {
+      ids.add(recorded);
+    }
+    for (RaftPeerId id : CollectionUtils.as(client.getPeers(), RaftPeer::getId)) {
+      if (!id.equals(recorded)) {
+        ids.add(id);
+      }
+    }
+
+    IOException lastException = null;
+    boolean replied = false;
+    for (RaftPeerId id : ids) {
+      final GroupInfoReply reply;
+      try {
+        reply = client.getGroupManagementApi(id).info(groupId);
+      } catch (IOException e) {
+        LOG.debug("{}: failed to get group info from {}", clientId, id, e);
+        lastException = e;
+        continue;
+      }
+      replied = true;
+      final RaftPeerId leader = getLeaderId(reply.getRoleInfoProto());
+      if (leader != null) {
+        client.refreshPeers(reply.getGroup().getPeers());
+        client.setLeaderId(leader);
+        return leader;
+      }
+    }
+    if (!replied && lastException != null) {
+      throw lastException;
+    }
+    return null;
+  }
+
+  private static RaftPeerId getLeaderId(RoleInfoProto roleInfo) {
+    if (roleInfo.getRole() == RaftPeerRole.LEADER) {
+      return RaftPeerId.valueOf(roleInfo.getSelf().getId());
+    } else if (roleInfo.hasFollowerInfo()) {
+      final ByteString leader = roleInfo.getFollowerInfo().getLeaderInfo().getId().getId();
+      return leader.isEmpty()? null: RaftPeerId.valueOf(leader);
+    }
+    return null;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!closed.compareAndSet(false, true)) {
+      return;
+    }
+    for (RaftClientImpl client : new ArrayList<>(clients.values())) {
+      client.close();
+    }
+    clientRpc.close();
+  }
+
+  @Override
+  public String toString() {
+    return clientId + ":" + JavaUtils.getClassSimpleName(getClass());
+  }
+}
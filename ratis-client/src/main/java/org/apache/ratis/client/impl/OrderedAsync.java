@@ -23,14 +23,16 @@ import org.apache.ratis.client.impl.RaftClientImpl.PendingClientRequest;
 import org.apache.ratis.conf.RaftProperties;
 import org.apache.ratis.proto.RaftProtos.RaftClientRequestProto.TypeCase;
 import org.apache.ratis.proto.RaftProtos.SlidingWindowEntry;
+import org.apache.ratis.protocol.ClientId;
 import org.apache.ratis.protocol.exceptions.GroupMismatchException;
 import org.apache.ratis.protocol.Message;
 import org.apache.ratis.protocol.exceptions.NotLeaderException;
+import org.apache.ratis.protocol.exceptions.ResourceUnavailableException;
 import org.apache.ratis.protocol.RaftClientReply;
 import org.apache.ratis.protocol.RaftClientRequest;
+import org.apache.ratis.protocol.RaftGroupId;
 import org.apache.ratis.protocol.RaftPeerId;
 import org.apache.ratis.retry.RetryPolicy;
-import org.apache.ratis.rpc.CallId;
 import org.apache.ratis.util.IOUtils;
 import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.Preconditions;
@@ -52,19 +54,29 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.function.LongFunction;
 
-/** Send ordered asynchronous requests to a raft service. */
+/**
+ * Send ordered asynchronous requests to a raft service.
+ *
+ * An {@link OrderedAsync} may be shared by the clients of multiple groups,
+ * see {@link MultiRaftClientImpl}.
+ * In such case, the clients share the outstanding request limit
+ * and each group has its own {@link SlidingWindow}s, which are created lazily.
+ */
 public final class OrderedAsync {
   public static final Logger LOG = LoggerFactory.getLogger(OrderedAsync.class);
 
   static class PendingOrderedRequest extends PendingClientRequest
       implements SlidingWindow.ClientSideRequest<RaftClientReply> {
+    /** The client of the group of this request. */
+    private final RaftClientImpl client;
     private final long callId;
     private final long seqNum;
     private final AtomicReference<Function<SlidingWindowEntry, RaftClientRequest>> requestConstructor;
     private volatile boolean isFirst = false;
 
-    PendingOrderedRequest(long callId, long seqNum,
+    PendingOrderedRequest(RaftClientImpl client, long callId, long seqNum,
         Function<SlidingWindowEntry, RaftClientRequest> requestConstructor) {
+      this.client = client;
       this.callId = callId;
       this.seqNum = seqNum;
       this.requestConstructor = new AtomicReference<>(requestConstructor);
@@ -111,24 +123,50 @@ public final class OrderedAsync {
   }
 
   static OrderedAsync newInstance(RaftClientImpl client, RaftProperties properties) {
-    final OrderedAsync ordered = new OrderedAsync(client, properties);
+    final OrderedAsync ordered = new OrderedAsync(client.getId(), properties);
     // send a dummy watch request to establish the connection
     // TODO: this is a work around, it is better to fix the underlying RPC implementation
     if (RaftClientConfigKeys.Async.Experimental.sendDummyRequest(properties)) {
-      ordered.send(RaftClientRequest.watchRequestType(), null, null);
+      ordered.send(client, RaftClientRequest.watchRequestType(), null, null);
     }
     return ordered;
   }
 
-  private final RaftClientImpl client;
-  /** Map: id -> {@link SlidingWindow}, in order to support async calls to the Raft service or individual servers. */
+  private final ClientId clientId;
+  /**
+   * Map: id -> {@link SlidingWindow}, in order to support async calls to the Raft service or individual servers
+   * in each group.
+   */
   private final ConcurrentMap<String, SlidingWindow.Client<PendingOrderedRequest, RaftClientReply>> slidingWindows
       = new ConcurrentHashMap<>();
   private final Semaphore requestSemaphore;
+  /** The adaptive limit, or null if it is disabled; see {@link RaftClientConfigKeys.Async.AdaptiveLimit}. */
+  private final AdaptiveRequestLimit adaptiveLimit;
+
+  OrderedAsync(ClientId clientId, RaftProperties properties) {
+    this.clientId = Objects.requireNonNull(clientId, "clientId == null");
+    final int outstandingRequestsMax = RaftClientConfigKeys.Async.outstandingRequestsMax(properties);
+    this.requestSemaphore = new Semaphore(outstandingRequestsMax);
+    this.adaptiveLimit = !RaftClientConfigKeys.Async.AdaptiveLimit.enabled(properties)? null
+        : new AdaptiveRequestLimit(clientId + "-" + JavaUtils.getClassSimpleName(getClass()),
+            Math.min(RaftClientConfigKeys.Async.AdaptiveLimit.min(properties), outstandingRequestsMax),
+            outstandingRequestsMax);
+  }
+
+  private void acquirePermit() throws InterruptedException {
+    if (adaptiveLimit != null) {
+      adaptiveLimit.acquire();
+    } else {
+      requestSemaphore.acquire();
+    }
+  }
 
-  private OrderedAsync(RaftClientImpl client, RaftProperties properties) {
-    this.client = Objects.requireNonNull(client, "client == null");
-    this.requestSemaphore = new Semaphore(RaftClientConfigKeys.Async.outstandingRequestsMax(properties));
+  private void releasePermit() {
+    if (adaptiveLimit != null) {
+      adaptiveLimit.release();
+    } else {
+      requestSemaphore.release();
+    }
   }
 
   private void resetSlidingWindow(RaftClientRequest request) {
@@ -136,41 +174,47 @@ public final class OrderedAsync {
   }
 
   private SlidingWindow.Client<PendingOrderedRequest, RaftClientReply> getSlidingWindow(RaftClientRequest request) {
-    return getSlidingWindow(request.is(TypeCase.STALEREAD) ? request.getServerId() : null);
+    return getSlidingWindow(request.getRaftGroupId(), request.is(TypeCase.STALEREAD) ? request.getServerId() : null);
   }
 
-  private SlidingWindow.Client<PendingOrderedRequest, RaftClientReply> getSlidingWindow(RaftPeerId target) {
-    final String id = target != null ? target.toString() : "RAFT";
-    return slidingWindows.computeIfAbsent(id, key -> new SlidingWindow.Client<>(client.getId() + "->" + key));
+  private SlidingWindow.Client<PendingOrderedRequest, RaftClientReply> getSlidingWindow(
+      RaftGroupId groupId, RaftPeerId target) {
+    final String id = groupId + "->" + (target != null ? target.toString() : "RAFT");
+    return slidingWindows.computeIfAbsent(id, key -> new SlidingWindow.Client<>(clientId + ":" + key));
   }
 
   private void failAllAsyncRequests(RaftClientRequest request, Throwable t) {
     getSlidingWindow(request).fail(request.getSlidingWindowEntry().getSeqNum(), t);
   }
 
-  private void handleAsyncRetryFailure(ClientRetryEvent event) {
+  private void handleAsyncRetryFailure(RaftClientImpl client, ClientRetryEvent event) {
     failAllAsyncRequests(event.getRequest(), client.noMoreRetries(event));
   }
 
-  CompletableFuture<RaftClientReply> send(RaftClientRequest.Type type, Message message, RaftPeerId server) {
+  /** Send an ordered request to the group of the given client. */
+  CompletableFuture<RaftClientReply> send(RaftClientImpl client, RaftClientRequest.Type type, Message message,
+      RaftPeerId server) {
     if (!type.is(TypeCase.WATCH) && !type.is(TypeCase.MESSAGESTREAM)) {
       Objects.requireNonNull(message, "message == null");
     }
     try {
-      requestSemaphore.acquire();
+      acquirePermit();
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
       return JavaUtils.completeExceptionally(IOUtils.toInterruptedIOException(
           "Interrupted when sending " + type + ", message=" + message, e));
     }
 
-    final long callId = CallId.getAndIncrement();
-    final LongFunction<PendingOrderedRequest> constructor = seqNum -> new PendingOrderedRequest(callId, seqNum,
+    final long callId = client.newUnackedCallId();
+    final LongFunction<PendingOrderedRequest> constructor = seqNum -> new PendingOrderedRequest(client, callId, seqNum,
         slidingWindowEntry -> client.newRaftClientRequest(server, callId, message, type, slidingWindowEntry));
-    return getSlidingWindow(server).submitNewRequest(constructor, this::sendRequestWithRetry
+    return getSlidingWindow(client.getGroupId(), server).submitNewRequest(constructor, this::sendRequestWithRetry
     ).getReplyFuture(
     ).thenApply(reply -> RaftClientImpl.handleRaftException(reply, CompletionException::new)
-    ).whenComplete((r, e) -> requestSemaphore.release());
+    ).whenComplete((r, e) -> {
+      client.acknowledge(callId);
+      releasePermit();
+    });
   }
 
   private void sendRequestWithRetry(PendingOrderedRequest pending) {
@@ -185,7 +229,7 @@ public final class OrderedAsync {
       return;
     }
 
-    final RetryPolicy retryPolicy = client.getRetryPolicy();
+    final RetryPolicy retryPolicy = pending.client.getRetryPolicy();
     sendRequest(pending).thenAccept(reply -> {
       if (f.isDone()) {
         return;
@@ -210,7 +254,7 @@ public final class OrderedAsync {
       RaftClientRequest request, RetryPolicy retryPolicy, Throwable e) {
     final int attempt = pending.getAttemptCount();
     final ClientRetryEvent event = new ClientRetryEvent(request, e, pending);
-    final TimeDuration sleepTime = client.getEffectiveSleepTime(e,
+    final TimeDuration sleepTime = pending.client.getEffectiveSleepTime(e,
         retryPolicy.handleAttemptFailure(event).getSleepTime());
     LOG.debug("schedule* attempt #{} with sleep {} and policy {} for {}", attempt, sleepTime, retryPolicy, request);
     scheduleWithTimeout(pending, sleepTime, getSlidingWindow(request));
@@ -218,23 +262,27 @@ public final class OrderedAsync {
 
   private void scheduleWithTimeout(PendingOrderedRequest pending, TimeDuration sleepTime,
       SlidingWindow.Client<PendingOrderedRequest, RaftClientReply> slidingWindow) {
-    client.getScheduler().onTimeout(sleepTime,
+    pending.client.getScheduler().onTimeout(sleepTime,
         () -> slidingWindow.retry(pending, this::sendRequestWithRetry),
         LOG, () -> "Failed* to retry " + pending);
   }
 
   private CompletableFuture<RaftClientReply> sendRequest(PendingOrderedRequest pending) {
+    final RaftClientImpl client = pending.client;
     final RetryPolicy retryPolicy = client.getRetryPolicy();
     final CompletableFuture<RaftClientReply> f;
     final RaftClientRequest request;
-    if (getSlidingWindow((RaftPeerId) null).isFirst(pending.getSeqNum())) {
+    if (getSlidingWindow(client.getGroupId(), null).isFirst(pending.getSeqNum())) {
       pending.setFirstRequest();
     }
     request = pending.newRequest();
     LOG.debug("{}: send* {}", client.getId(), request);
+    final long startTime = System.nanoTime();
     f = client.getClientRpc().sendRequestAsync(request);
     return f.thenApply(reply -> {
       LOG.debug("{}: receive* {}", client.getId(), reply);
+      client.updateCommitInfos(reply);
+      updateAdaptiveLimit(reply, System.nanoTime() - startTime);
       getSlidingWindow(request).receiveReply(
           request.getSlidingWindowEntry().getSeqNum(), reply, this::sendRequestWithRetry);
       return reply;
@@ -249,7 +297,7 @@ public final class OrderedAsync {
         pending.incrementExceptionCount(e);
         final ClientRetryEvent event = new ClientRetryEvent(request, e, pending);
         if (!retryPolicy.handleAttemptFailure(event).shouldRetry()) {
-          handleAsyncRetryFailure(event);
+          handleAsyncRetryFailure(client, event);
         } else {
           if (e instanceof NotLeaderException) {
             NotLeaderException nle = (NotLeaderException)e;
@@ -265,6 +313,22 @@ public final class OrderedAsync {
     });
   }
 
+  private void updateAdaptiveLimit(RaftClientReply reply, long latencyNanos) {
+    if (adaptiveLimit == null || reply == null) {
+      return;
+    }
+    if (reply.getException() instanceof ResourceUnavailableException) {
+      adaptiveLimit.onOverload();
+    } else {
+      adaptiveLimit.onReply(latencyNanos, reply.getFlowControlHint());
+    }
+  }
+
+  /** @return the current adaptive limit, or -1 if it is disabled. */
+  int getAdaptiveLimit() {
+    return adaptiveLimit != null? adaptiveLimit.getLimit(): -1;
+  }
+
   void assertRequestSemaphore(int expectedAvailablePermits, int expectedQueueLength) {
     Preconditions.assertTrue(requestSemaphore.availablePermits() == expectedAvailablePermits);
     Preconditions.assertTrue(requestSemaphore.getQueueLength() == expectedQueueLength);
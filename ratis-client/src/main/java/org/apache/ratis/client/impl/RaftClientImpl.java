@@ -19,10 +19,12 @@ package org.apache.ratis.client.impl;
 
 import org.apache.ratis.client.DataStreamClient;
 import org.apache.ratis.client.RaftClient;
+import org.apache.ratis.client.RaftClientConfigKeys;
 import org.apache.ratis.client.RaftClientRpc;
 import org.apache.ratis.client.api.DataStreamApi;
 import org.apache.ratis.client.retry.ClientRetryEvent;
 import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.proto.RaftProtos.CommitInfoProto;
 import org.apache.ratis.proto.RaftProtos.SlidingWindowEntry;
 import org.apache.ratis.protocol.ClientId;
 import org.apache.ratis.protocol.Message;
@@ -38,11 +40,13 @@ import org.apache.ratis.protocol.exceptions.RaftException;
 import org.apache.ratis.protocol.exceptions.RaftRetryFailureException;
 import org.apache.ratis.protocol.exceptions.ResourceUnavailableException;
 import org.apache.ratis.retry.RetryPolicy;
+import org.apache.ratis.rpc.CallId;
 import org.apache.ratis.util.CollectionUtils;
 import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.MemoizedSupplier;
 import org.apache.ratis.util.TimeDuration;
 import org.apache.ratis.util.TimeoutScheduler;
+import org.apache.ratis.util.function.CheckedConsumer;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -51,8 +55,10 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -117,15 +123,24 @@ public final class RaftClientImpl implements RaftClient {
 
   private final ClientId clientId;
   private final RaftClientRpc clientRpc;
+  /** To close the {@link #clientRpc}, which may be shared with other clients. */
+  private final CheckedConsumer<RaftClientImpl, IOException> closeRpc;
   private final RaftPeerList peers = new RaftPeerList();
   private final RaftGroupId groupId;
   private final RetryPolicy retryPolicy;
 
   private volatile RaftPeerId leaderId;
+  /** The known commit index of each server, learned from the commit infos in the replies. */
+  private final ConcurrentMap<RaftPeerId, Long> commitIndices = new ConcurrentHashMap<>();
+  /** The call ids not yet acknowledged, guarded by itself; see {@link #getFirstUnackedCallId()}. */
+  private final NavigableSet<Long> unackedCallIds = new TreeSet<>();
 
   private final TimeoutScheduler scheduler = TimeoutScheduler.getInstance();
 
   private final Supplier<OrderedAsync> orderedAsync;
+  /** Non-null only if batching is enabled. */
+  private final MemoizedSupplier<BatchingAsync> batchingAsync;
+  private final Supplier<HedgedStaleRead> hedgedStaleRead;
   private final Supplier<AsyncImpl> asyncApi;
   private final Supplier<BlockingImpl> blockingApi;
   private final Supplier<MessageStreamImpl> messageStreamApi;
@@ -136,7 +151,19 @@ public final class RaftClientImpl implements RaftClient {
 
   RaftClientImpl(ClientId clientId, RaftGroup group, RaftPeerId leaderId, RaftPeer primaryDataStreamServer,
       RaftClientRpc clientRpc, RaftProperties properties, RetryPolicy retryPolicy) {
+    this(clientId, group, leaderId, primaryDataStreamServer, clientRpc, null, c -> c.getClientRpc().close(),
+        properties, retryPolicy);
+  }
+
+  /**
+   * @param sharedOrderedAsync the {@link OrderedAsync} shared with the clients of the other groups;
+   *                           null means that this client creates its own {@link OrderedAsync}.
+   */
+  RaftClientImpl(ClientId clientId, RaftGroup group, RaftPeerId leaderId, RaftPeer primaryDataStreamServer,
+      RaftClientRpc clientRpc, Supplier<OrderedAsync> sharedOrderedAsync,
+      CheckedConsumer<RaftClientImpl, IOException> closeRpc, RaftProperties properties, RetryPolicy retryPolicy) {
     this.clientId = clientId;
+    this.closeRpc = Objects.requireNonNull(closeRpc, "closeRpc == null");
     this.peers.set(group.getPeers());
     this.groupId = group.getGroupId();
     this.leaderId = leaderId != null? leaderId : getHighestPriorityPeerId();
@@ -145,8 +172,12 @@ public final class RaftClientImpl implements RaftClient {
     clientRpc.addRaftPeers(group.getPeers());
     this.clientRpc = clientRpc;
 
-    this.orderedAsync = JavaUtils.memoize(() -> OrderedAsync.newInstance(this, properties));
+    this.orderedAsync = sharedOrderedAsync != null? sharedOrderedAsync
+        : JavaUtils.memoize(() -> OrderedAsync.newInstance(this, properties));
+    this.batchingAsync = RaftClientConfigKeys.Async.Batch.enabled(properties)?
+        JavaUtils.memoize(() -> new BatchingAsync(this, properties)): null;
     this.messageStreamApi = JavaUtils.memoize(() -> MessageStreamImpl.newInstance(this, properties));
+    this.hedgedStaleRead = JavaUtils.memoize(() -> new HedgedStaleRead(this, properties));
     this.asyncApi = JavaUtils.memoize(() -> new AsyncImpl(this));
     this.blockingApi = JavaUtils.memoize(() -> new BlockingImpl(this));
     this.dataStreamApi = JavaUtils.memoize(() -> DataStreamClient.newBuilder()
@@ -162,15 +193,43 @@ public final class RaftClientImpl implements RaftClient {
     return leaderId;
   }
 
+  /** Set the leader, e.g. when it is learned from a group info reply. */
+  void setLeaderId(RaftPeerId newLeader) {
+    final RaftPeerId oldLeader = leaderId;
+    if (newLeader != null && !newLeader.equals(oldLeader)) {
+      LOG.debug("{} {}: set Leader from {} to {}", groupId, clientId, oldLeader, newLeader);
+      this.leaderId = newLeader;
+    }
+  }
+
   RaftGroupId getGroupId() {
     return groupId;
   }
 
+  void updateCommitInfos(RaftClientReply reply) {
+    if (reply == null) {
+      return;
+    }
+    for (CommitInfoProto info : reply.getCommitInfos()) {
+      commitIndices.merge(RaftPeerId.valueOf(info.getServer().getId()), info.getCommitIndex(), Math::max);
+    }
+  }
+
+  /** @return the known commit index of the given server, or -1 if it is unknown. */
+  long getCommitIndex(RaftPeerId server) {
+    return commitIndices.getOrDefault(server, -1L);
+  }
+
+  Iterable<RaftPeer> getPeers() {
+    return peers;
+  }
+
   private RaftPeerId getHighestPriorityPeerId() {
     int maxPriority = Integer.MIN_VALUE;
     RaftPeerId highestPriorityPeerId = null;
     for (RaftPeer peer : peers) {
-      if (maxPriority < peer.getPriority()) {
+      // a listener or a witness never becomes the leader
+      if (!peer.isListener() && !peer.isWitness() && maxPriority < peer.getPriority()) {
         maxPriority = peer.getPriority();
         highestPriorityPeerId = peer.getId();
       }
@@ -201,6 +260,41 @@ public final class RaftClientImpl implements RaftClient {
     return orderedAsync.get();
   }
 
+  HedgedStaleRead getHedgedStaleRead() {
+    return hedgedStaleRead.get();
+  }
+
+  /** @return the {@link BatchingAsync} if batching is enabled; otherwise, return null. */
+  BatchingAsync getBatchingAsync() {
+    return batchingAsync != null? batchingAsync.get(): null;
+  }
+
+  /** @return a new call id, which remains unacknowledged until {@link #acknowledge(long)} is called. */
+  long newUnackedCallId() {
+    synchronized (unackedCallIds) {
+      final long callId = CallId.getAndIncrement();
+      unackedCallIds.add(callId);
+      return callId;
+    }
+  }
+
+  /** The reply of the given call is either received or given up, so that the servers may discard it. */
+  void acknowledge(long callId) {
+    synchronized (unackedCallIds) {
+      unackedCallIds.remove(callId);
+    }
+  }
+
+  /**
+   * @return the smallest unacknowledged call id, if there is any;
+   *         otherwise, return the next call id.
+   */
+  long getFirstUnackedCallId() {
+    synchronized (unackedCallIds) {
+      return unackedCallIds.isEmpty()? CallId.get(): unackedCallIds.first();
+    }
+  }
+
   RaftClientRequest newRaftClientRequest(
       RaftPeerId server, long callId, Message message, RaftClientRequest.Type type,
       SlidingWindowEntry slidingWindowEntry) {
@@ -212,6 +306,8 @@ public final class RaftClientImpl implements RaftClient {
         .setMessage(message)
         .setType(type)
         .setSlidingWindowEntry(slidingWindowEntry)
+        // a request never acknowledges its own call
+        .setFirstUnackedCallId(Math.min(callId, getFirstUnackedCallId()))
         .build();
   }
 
@@ -271,6 +367,7 @@ public final class RaftClientImpl implements RaftClient {
    * otherwise return the same reply.
    */
   RaftClientReply handleLeaderException(RaftClientRequest request, RaftClientReply reply) {
+    updateCommitInfos(reply);
     if (reply == null || reply.getException() instanceof LeaderNotReadyException) {
       return null;
     }
@@ -290,7 +387,7 @@ public final class RaftClientImpl implements RaftClient {
     return null;
   }
 
-  private void refreshPeers(Collection<RaftPeer> newPeers) {
+  void refreshPeers(Collection<RaftPeer> newPeers) {
     if (newPeers != null && newPeers.size() > 0) {
       peers.set(newPeers);
       // also refresh the rpc proxies for these peers
@@ -344,8 +441,11 @@ public final class RaftClientImpl implements RaftClient {
 
   @Override
   public void close() throws IOException {
+    if (batchingAsync != null && batchingAsync.isInitialized()) {
+      batchingAsync.get().close();
+    }
     scheduler.close();
-    clientRpc.close();
+    closeRpc.accept(this);
     if (dataStreamApi.isInitialized()) {
       dataStreamApi.get().close();
     }
@@ -31,6 +31,16 @@ public interface RaftClientTestUtil {
     ((RaftClientImpl) client).getOrderedAsync().assertRequestSemaphore(expectedAvailablePermits, expectedQueueLength);
   }
 
+  /** @return the current adaptive limit of the ordered async requests, or -1 if it is disabled. */
+  static int getAdaptiveRequestLimit(RaftClient client) {
+    return ((RaftClientImpl) client).getOrderedAsync().getAdaptiveLimit();
+  }
+
+  /** @return true iff the given clients share the same {@link OrderedAsync}. */
+  static boolean isOrderedAsyncShared(RaftClient left, RaftClient right) {
+    return ((RaftClientImpl) left).getOrderedAsync() == ((RaftClientImpl) right).getOrderedAsync();
+  }
+
   static ClientInvocationId getClientInvocationId(RaftClient client) {
     return ClientInvocationId.valueOf(client.getId(), CallId.get());
   }
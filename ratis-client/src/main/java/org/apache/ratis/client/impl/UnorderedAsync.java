@@ -20,13 +20,14 @@ package org.apache.ratis.client.impl;
 import org.apache.ratis.client.retry.ClientRetryEvent;
 import org.apache.ratis.client.impl.RaftClientImpl.PendingClientRequest;
 import org.apache.ratis.protocol.ClientId;
+import org.apache.ratis.protocol.Message;
 import org.apache.ratis.protocol.exceptions.GroupMismatchException;
 import org.apache.ratis.protocol.exceptions.NotLeaderException;
 import org.apache.ratis.protocol.RaftClientReply;
 import org.apache.ratis.protocol.RaftClientRequest;
+import org.apache.ratis.protocol.RaftPeerId;
 import org.apache.ratis.protocol.exceptions.RaftException;
 import org.apache.ratis.retry.RetryPolicy;
-import org.apache.ratis.rpc.CallId;
 import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.TimeDuration;
 import org.slf4j.Logger;
@@ -55,14 +56,30 @@ public interface UnorderedAsync {
   }
 
   static CompletableFuture<RaftClientReply> send(RaftClientRequest.Type type, RaftClientImpl client) {
-    final long callId = CallId.getAndIncrement();
+    final long callId = client.newUnackedCallId();
     final PendingClientRequest pending = new PendingUnorderedRequest(
         () -> client.newRaftClientRequest(null, callId, null, type, null));
     sendRequestWithRetry(pending, client);
     return pending.getReplyFuture()
+        .whenComplete((r, e) -> client.acknowledge(callId))
         .thenApply(reply -> RaftClientImpl.handleRaftException(reply, CompletionException::new));
   }
 
+  /**
+   * Send the request to the given server.
+   * Unlike {@link #send(RaftClientRequest.Type, RaftClientImpl)},
+   * the returned future is not converted, so that cancelling it also stops the retries.
+   */
+  static CompletableFuture<RaftClientReply> send(RaftClientRequest.Type type, Message message, RaftPeerId server,
+      RaftClientImpl client) {
+    final long callId = client.newUnackedCallId();
+    final PendingClientRequest pending = new PendingUnorderedRequest(
+        () -> client.newRaftClientRequest(server, callId, message, type, null));
+    pending.getReplyFuture().whenComplete((r, e) -> client.acknowledge(callId));
+    sendRequestWithRetry(pending, client);
+    return pending.getReplyFuture();
+  }
+
   static void sendRequestWithRetry(PendingClientRequest pending, RaftClientImpl client) {
     final CompletableFuture<RaftClientReply> f = pending.getReplyFuture();
     if (f.isDone()) {
@@ -18,6 +18,7 @@
 package org.apache.ratis.protocol;
 
 import org.apache.ratis.proto.RaftProtos.CommitInfoProto;
+import org.apache.ratis.proto.RaftProtos.FlowControlHintProto;
 import org.apache.ratis.protocol.exceptions.AlreadyClosedException;
 import org.apache.ratis.protocol.exceptions.DataStreamException;
 import org.apache.ratis.protocol.exceptions.LeaderNotReadyException;
@@ -54,10 +55,11 @@ public class RaftClientReply extends RaftClientMessage {
 
     private long logIndex;
     private Collection<CommitInfoProto> commitInfos;
+    private FlowControlHintProto flowControlHint;
 
     public RaftClientReply build() {
       return new RaftClientReply(clientId, serverId, groupId, callId,
-          success, message, exception, logIndex, commitInfos);
+          success, message, exception, logIndex, commitInfos, flowControlHint);
     }
 
     public Builder setClientId(ClientId clientId) {
@@ -109,6 +111,11 @@ public class RaftClientReply extends RaftClientMessage {
       return this;
     }
 
+    public Builder setFlowControlHint(FlowControlHintProto flowControlHint) {
+      this.flowControlHint = flowControlHint;
+      return this;
+    }
+
     public Builder setServerId(RaftGroupMemberId serverId) {
       return setServerId(serverId.getPeerId())
           .setGroupId(serverId.getGroupId());
@@ -150,17 +157,27 @@ public class RaftClientReply extends RaftClientMessage {
   private final long logIndex;
   /** The commit information when the reply is created. */
   private final Collection<CommitInfoProto> commitInfos;
+  /** The load of the leader when the reply is created; null if the reply is not from a leader. */
+  private final FlowControlHintProto flowControlHint;
 
   @SuppressWarnings("parameternumber")
   RaftClientReply(ClientId clientId, RaftPeerId serverId, RaftGroupId groupId,
       long callId, boolean success, Message message, RaftException exception,
       long logIndex, Collection<CommitInfoProto> commitInfos) {
+    this(clientId, serverId, groupId, callId, success, message, exception, logIndex, commitInfos, null);
+  }
+
+  @SuppressWarnings("parameternumber")
+  RaftClientReply(ClientId clientId, RaftPeerId serverId, RaftGroupId groupId,
+      long callId, boolean success, Message message, RaftException exception,
+      long logIndex, Collection<CommitInfoProto> commitInfos, FlowControlHintProto flowControlHint) {
     super(clientId, serverId, groupId, callId);
     this.success = success;
     this.message = message;
     this.exception = exception;
     this.logIndex = logIndex;
     this.commitInfos = commitInfos != null? commitInfos: Collections.emptyList();
+    this.flowControlHint = flowControlHint;
 
     if (exception != null) {
       Preconditions.assertTrue(!success,
@@ -184,6 +201,11 @@ public class RaftClientReply extends RaftClientMessage {
     return commitInfos;
   }
 
+  /** @return the flow control hint if the reply is from a leader; otherwise, return null. */
+  public FlowControlHintProto getFlowControlHint() {
+    return flowControlHint;
+  }
+
   @Override
   public final boolean isRequest() {
     return false;
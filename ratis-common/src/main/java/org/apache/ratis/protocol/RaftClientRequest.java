@@ -32,6 +32,7 @@ public class RaftClientRequest extends RaftClientMessage {
   private static final Type DATA_STREAM_DEFAULT = new Type(DataStreamRequestTypeProto.getDefaultInstance());
   private static final Type FORWARD_DEFAULT = new Type(ForwardRequestTypeProto.getDefaultInstance());
   private static final Type WRITE_DEFAULT = new Type(WriteRequestTypeProto.getDefaultInstance());
+  private static final Type WRITE_BATCH = new Type(WriteRequestTypeProto.newBuilder().setBatch(true).build());
   private static final Type WATCH_DEFAULT = new Type(
       WatchRequestTypeProto.newBuilder().setIndex(0L).setReplication(ReplicationLevel.MAJORITY).build());
 
@@ -42,6 +43,11 @@ public class RaftClientRequest extends RaftClientMessage {
     return WRITE_DEFAULT;
   }
 
+  /** @return the type of a write request with a message packing multiple client messages. */
+  public static Type batchWriteRequestType() {
+    return WRITE_BATCH;
+  }
+
   public static Type dataStreamRequestType() {
     return DATA_STREAM_DEFAULT;
   }
@@ -77,7 +83,7 @@ public class RaftClientRequest extends RaftClientMessage {
   /** The type of a request (oneof write, read, staleRead, watch; see the message RaftClientRequestProto). */
   public static final class Type {
     public static Type valueOf(WriteRequestTypeProto write) {
-      return WRITE_DEFAULT;
+      return write.getBatch()? WRITE_BATCH: WRITE_DEFAULT;
     }
 
     public static Type valueOf(DataStreamRequestTypeProto dataStream) {
@@ -205,7 +211,7 @@ public class RaftClientRequest extends RaftClientMessage {
     public String toString() {
       switch (typeCase) {
         case WRITE:
-          return "RW";
+          return getWrite().getBatch()? "RW-batch": "RW";
         case DATASTREAM:
           return "DataStream";
         case FORWARD:
@@ -238,10 +244,11 @@ public class RaftClientRequest extends RaftClientMessage {
     private SlidingWindowEntry slidingWindowEntry;
     private RoutingTable routingTable;
     private long timeoutMs;
+    private long firstUnackedCallId;
 
     public RaftClientRequest build() {
-      return new RaftClientRequest(
-          clientId, serverId, groupId, callId, message, type, slidingWindowEntry, routingTable, timeoutMs);
+      return new RaftClientRequest(clientId, serverId, groupId, callId, message, type, slidingWindowEntry,
+          routingTable, timeoutMs, firstUnackedCallId);
     }
 
     public Builder setClientId(ClientId clientId) {
@@ -288,6 +295,11 @@ public class RaftClientRequest extends RaftClientMessage {
       this.timeoutMs = timeoutMs;
       return this;
     }
+
+    public Builder setFirstUnackedCallId(long firstUnackedCallId) {
+      this.firstUnackedCallId = firstUnackedCallId;
+      return this;
+    }
   }
 
   public static Builder newBuilder() {
@@ -304,6 +316,7 @@ public class RaftClientRequest extends RaftClientMessage {
         .setMessage(message)
         .setType(RaftClientRequest.writeRequestType())
         .setSlidingWindowEntry(r.getSlidingWindowEntry())
+        .setFirstUnackedCallId(r.getFirstUnackedCallId())
         .build();
   }
 
@@ -316,26 +329,29 @@ public class RaftClientRequest extends RaftClientMessage {
 
   private final long timeoutMs;
 
+  private final long firstUnackedCallId;
+
   protected RaftClientRequest(ClientId clientId, RaftPeerId serverId, RaftGroupId groupId, long callId, Type type) {
-    this(clientId, serverId, groupId, callId, null, type, null, null, 0);
+    this(clientId, serverId, groupId, callId, null, type, null, null, 0, 0);
   }
 
   protected RaftClientRequest(ClientId clientId, RaftPeerId serverId, RaftGroupId groupId, long callId, Type type,
       long timeoutMs) {
-    this(clientId, serverId, groupId, callId, null, type, null, null, timeoutMs);
+    this(clientId, serverId, groupId, callId, null, type, null, null, timeoutMs, 0);
   }
 
   @SuppressWarnings("parameternumber")
   private RaftClientRequest(
       ClientId clientId, RaftPeerId serverId, RaftGroupId groupId,
       long callId, Message message, Type type, SlidingWindowEntry slidingWindowEntry,
-      RoutingTable routingTable, long timeoutMs) {
+      RoutingTable routingTable, long timeoutMs, long firstUnackedCallId) {
     super(clientId, serverId, groupId, callId);
     this.message = message;
     this.type = type;
     this.slidingWindowEntry = slidingWindowEntry != null? slidingWindowEntry: SlidingWindowEntry.getDefaultInstance();
     this.routingTable = routingTable;
     this.timeoutMs = timeoutMs;
+    this.firstUnackedCallId = firstUnackedCallId;
   }
 
   @Override
@@ -367,6 +383,15 @@ public class RaftClientRequest extends RaftClientMessage {
     return timeoutMs;
   }
 
+  /**
+   * @return the first call id not yet acknowledged by the client,
+   *         i.e. the client has received or given up the replies of all its calls with smaller ids;
+   *         or 0 if it is unknown.
+   */
+  public long getFirstUnackedCallId() {
+    return firstUnackedCallId;
+  }
+
   @Override
   public String toString() {
     return super.toString() + ", seq=" + ProtoUtils.toString(slidingWindowEntry) + ", "
@@ -18,6 +18,7 @@
 package org.apache.ratis.protocol;
 
 import org.apache.ratis.proto.RaftProtos.RaftPeerProto;
+import org.apache.ratis.proto.RaftProtos.RaftPeerRole;
 import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
 import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.NetUtils;
@@ -65,7 +66,8 @@ public final class RaftPeer {
         .setAdminAddress(peer.getAdminAddress())
         .setClientAddress(peer.getClientAddress())
         .setDataStreamAddress(peer.getDataStreamAddress())
-        .setPriority(peer.getPriority());
+        .setPriority(peer.getPriority())
+        .setStartupRole(peer.getStartupRole());
   }
 
   public static class Builder {
@@ -75,6 +77,7 @@ public final class RaftPeer {
     private String clientAddress;
     private String dataStreamAddress;
     private int priority;
+    private RaftPeerRole startupRole = RaftPeerRole.FOLLOWER;
 
     public Builder setId(RaftPeerId id) {
       this.id = id;
@@ -133,10 +136,26 @@ public final class RaftPeer {
       return this;
     }
 
+    /**
+     * Set the role of the peer in the configuration:
+     * {@link RaftPeerRole#FOLLOWER} for a voting member (the default),
+     * {@link RaftPeerRole#LISTENER} for a non-voting member
+     * or {@link RaftPeerRole#WITNESS} for a voting member storing only the log entry headers.
+     */
+    public Builder setStartupRole(RaftPeerRole startupRole) {
+      if (startupRole != RaftPeerRole.FOLLOWER && startupRole != RaftPeerRole.LISTENER
+          && startupRole != RaftPeerRole.WITNESS) {
+        throw new IllegalArgumentException("Unsupported startupRole " + startupRole + ", it must be one of "
+            + RaftPeerRole.FOLLOWER + ", " + RaftPeerRole.LISTENER + " and " + RaftPeerRole.WITNESS);
+      }
+      this.startupRole = startupRole;
+      return this;
+    }
+
     public RaftPeer build() {
       return new RaftPeer(
           Objects.requireNonNull(id, "The 'id' field is not initialized."),
-          address, adminAddress, clientAddress, dataStreamAddress, priority);
+          address, adminAddress, clientAddress, dataStreamAddress, priority, startupRole);
     }
   }
 
@@ -150,18 +169,21 @@ public final class RaftPeer {
   private final String dataStreamAddress;
   /** The priority of the peer. */
   private final int priority;
+  /** The role of the peer in the configuration, either FOLLOWER, LISTENER or WITNESS. */
+  private final RaftPeerRole startupRole;
 
   private final Supplier<RaftPeerProto> raftPeerProto;
 
   private RaftPeer(RaftPeerId id,
       String address, String adminAddress, String clientAddress, String dataStreamAddress,
-      int priority) {
+      int priority, RaftPeerRole startupRole) {
     this.id = Objects.requireNonNull(id, "id == null");
     this.address = address;
     this.dataStreamAddress = dataStreamAddress;
     this.adminAddress = adminAddress;
     this.clientAddress = clientAddress;
     this.priority = priority;
+    this.startupRole = startupRole;
     this.raftPeerProto = JavaUtils.memoize(this::buildRaftPeerProto);
   }
 
@@ -173,6 +195,7 @@ public final class RaftPeer {
     Optional.ofNullable(getClientAddress()).ifPresent(builder::setClientAddress);
     Optional.ofNullable(getAdminAddress()).ifPresent(builder::setAdminAddress);
     builder.setPriority(priority);
+    builder.setStartupRole(startupRole);
     return builder.build();
   }
 
@@ -208,6 +231,21 @@ public final class RaftPeer {
     return priority;
   }
 
+  /** @return The role of the peer in the configuration, either FOLLOWER, LISTENER or WITNESS. */
+  public RaftPeerRole getStartupRole() {
+    return startupRole;
+  }
+
+  /** @return true iff this peer is a non-voting member. */
+  public boolean isListener() {
+    return startupRole == RaftPeerRole.LISTENER;
+  }
+
+  /** @return true iff this peer is a witness, i.e. a voting member storing only the log entry headers. */
+  public boolean isWitness() {
+    return startupRole == RaftPeerRole.WITNESS;
+  }
+
   public RaftPeerProto getRaftPeerProto() {
     return raftPeerProto.get();
   }
@@ -221,7 +259,8 @@ public final class RaftPeer {
         ? "|client:" + clientAddress : "";
     final String data = dataStreamAddress != null? "|dataStream:" + dataStreamAddress: "";
     final String p = "|priority:" +  priority;
-    return id + rpc + admin + client + data + p;
+    final String listener = startupRole != RaftPeerRole.FOLLOWER? "|" + startupRole: "";
+    return id + rpc + admin + client + data + p + listener;
   }
 
   @Override
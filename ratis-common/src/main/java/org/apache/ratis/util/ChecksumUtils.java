@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+/**
+ * Checksum related utility methods.
+ *
+ * {@link #newCrc32C()} returns java.util.zip.CRC32C, which uses the hardware instructions, when it is available
+ * (Java 9 or above); otherwise, it falls back to {@link PureJavaCrc32C}.
+ * Since this project is compiled for Java 8, the Java 9 APIs are accessed by {@link MethodHandle}s.
+ */
+public final class ChecksumUtils {
+  static final Logger LOG = LoggerFactory.getLogger(ChecksumUtils.class);
+
+  private ChecksumUtils() {
+    // Utility class, cannot instantiate
+  }
+
+  private static final int BUFFER_SIZE = 4096;
+  private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+  /** The constructor of java.util.zip.CRC32C, or null if it is unavailable. */
+  private static final MethodHandle CRC32C_CONSTRUCTOR = findCrc32CConstructor();
+  /** The method Checksum.update(ByteBuffer), or null if it is unavailable. */
+  private static final MethodHandle UPDATE_BYTE_BUFFER = findUpdateByteBuffer();
+
+  private static MethodHandle findCrc32CConstructor() {
+    try {
+      final Class<?> clazz = Class.forName("java.util.zip.CRC32C");
+      final MethodHandle constructor = MethodHandles.publicLookup().findConstructor(
+          clazz, MethodType.methodType(void.class));
+      return constructor.asType(MethodType.methodType(Checksum.class));
+    } catch (ReflectiveOperationException e) {
+      LOG.debug("java.util.zip.CRC32C is unavailable, use {}", PureJavaCrc32C.class.getSimpleName(), e);
+      return null;
+    }
+  }
+
+  private static MethodHandle findUpdateByteBuffer() {
+    try {
+      return MethodHandles.publicLookup().findVirtual(Checksum.class, "update",
+          MethodType.methodType(void.class, ByteBuffer.class));
+    } catch (ReflectiveOperationException e) {
+      LOG.debug("Checksum.update(ByteBuffer) is unavailable", e);
+      return null;
+    }
+  }
+
+  /** @return true iff {@link #newCrc32C()} returns the JDK implementation. */
+  public static boolean isJdkCrc32CAvailable() {
+    return CRC32C_CONSTRUCTOR != null;
+  }
+
+  /** @return a new CRC32C {@link Checksum}. */
+  public static Checksum newCrc32C() {
+    if (CRC32C_CONSTRUCTOR != null) {
+      try {
+        return (Checksum) CRC32C_CONSTRUCTOR.invokeExact();
+      } catch (Throwable t) {
+        throw new IllegalStateException("Failed to create java.util.zip.CRC32C", t);
+      }
+    }
+    return new PureJavaCrc32C();
+  }
+
+  /**
+   * Update the checksum with the remaining bytes of the given buffer.
+   * The position of the buffer is unchanged.
+   *
+   * For a direct buffer, the bytes are checksummed without copying
+   * when Checksum.update(ByteBuffer) is available (Java 9 or above).
+   */
+  public static void update(Checksum checksum, ByteBuffer buffer) {
+    if (buffer.hasArray()) {
+      checksum.update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    } else if (UPDATE_BYTE_BUFFER != null) {
+      try {
+        UPDATE_BYTE_BUFFER.invokeExact(checksum, buffer.duplicate());
+      } catch (Throwable t) {
+        throw new IllegalStateException("Failed to update " + checksum, t);
+      }
+    } else {
+      final byte[] array = BUFFERS.get();
+      final ByteBuffer duplicated = buffer.duplicate();
+      while (duplicated.hasRemaining()) {
+        final int n = Math.min(duplicated.remaining(), array.length);
+        duplicated.get(array, 0, n);
+        checksum.update(array, 0, n);
+      }
+    }
+  }
+}
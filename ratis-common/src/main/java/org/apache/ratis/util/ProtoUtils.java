@@ -25,6 +25,7 @@ import org.apache.ratis.proto.RaftProtos.RaftGroupIdProto;
 import org.apache.ratis.proto.RaftProtos.RaftGroupMemberIdProto;
 import org.apache.ratis.proto.RaftProtos.RaftGroupProto;
 import org.apache.ratis.proto.RaftProtos.RaftPeerProto;
+import org.apache.ratis.proto.RaftProtos.RaftPeerRole;
 import org.apache.ratis.proto.RaftProtos.RaftRpcReplyProto;
 import org.apache.ratis.proto.RaftProtos.RaftRpcRequestProto;
 import org.apache.ratis.proto.RaftProtos.SlidingWindowEntry;
@@ -120,9 +121,21 @@ public interface ProtoUtils {
         .setClientAddress(p.getClientAddress())
         .setAdminAddress(p.getAdminAddress())
         .setPriority(p.getPriority())
+        .setStartupRole(toStartupRole(p.getStartupRole()))
         .build();
   }
 
+  static RaftPeerRole toStartupRole(RaftPeerRole role) {
+    switch (role) {
+      case LISTENER:
+      case WITNESS:
+        return role;
+      default:
+        // the default value of an unset startupRole is LEADER; treat it (and any other role) as a FOLLOWER
+        return RaftPeerRole.FOLLOWER;
+    }
+  }
+
   static List<RaftPeer> toRaftPeers(List<RaftPeerProto> protos) {
     return protos.stream().map(ProtoUtils::toRaftPeer).collect(Collectors.toList());
   }
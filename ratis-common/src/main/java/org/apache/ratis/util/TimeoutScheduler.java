@@ -22,14 +22,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
-import java.util.Collection;
 import java.util.Optional;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.ThreadFactory;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 import java.util.function.Supplier;
 
 public final class TimeoutScheduler implements Closeable {
@@ -47,13 +49,72 @@ public final class TimeoutScheduler implements Closeable {
     return new TimeoutScheduler();
   }
 
+  /** A scheduled task, which can be cancelled before it runs. */
+  public static final class Timeout {
+    private static final int INIT = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE
+        = AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+    private final TimerWheel wheel;
+    private final Runnable task;
+    /** Run when this timeout is cancelled. */
+    private final Runnable onCancel;
+    private final long deadlineNanos;
+    private volatile int state = INIT;
+
+    /** The remaining rounds of the wheel, only accessed by the wheel thread. */
+    private long remainingRounds;
+    /** The next timeout in the same bucket, only accessed by the wheel thread. */
+    private Timeout next;
+
+    private Timeout(TimerWheel wheel, Runnable task, Runnable onCancel, long deadlineNanos) {
+      this.wheel = wheel;
+      this.task = task;
+      this.onCancel = onCancel;
+      this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Cancel this timeout if the task has not yet run.
+     * The cancelled timeout is removed from the wheel lazily.
+     *
+     * @return true iff this timeout is cancelled by this call.
+     */
+    public boolean cancel() {
+      if (!STATE.compareAndSet(this, INIT, CANCELLED)) {
+        return false;
+      }
+      wheel.numTimeouts.decrementAndGet();
+      onCancel.run();
+      return true;
+    }
+
+    public boolean isCancelled() {
+      return state == CANCELLED;
+    }
+
+    private void expire() {
+      if (!STATE.compareAndSet(this, INIT, EXPIRED)) {
+        return;
+      }
+      wheel.numTimeouts.decrementAndGet();
+      try {
+        task.run();
+      } catch (Throwable t) {
+        LOG.error("Failed to run {}", task, t);
+      }
+    }
+  }
+
   static class ShutdownTask {
     private final int sid;
-    private final ScheduledFuture<?> future;
+    private final Timeout timeout;
 
-    ShutdownTask(int sid, ScheduledFuture<?> future) {
+    ShutdownTask(int sid, Timeout timeout) {
       this.sid = sid;
-      this.future = future;
+      this.timeout = timeout;
     }
 
     int getSid() {
@@ -61,37 +122,189 @@ public final class TimeoutScheduler implements Closeable {
     }
 
     void cancel() {
-      future.cancel(false);
+      timeout.cancel();
+    }
+  }
+
+  /**
+   * A hashed timer wheel driven by a single daemon thread.
+   * The timeouts are rounded up to the tick duration.
+   * Scheduling and cancelling a timeout are O(1);
+   * the thread sleeps until the next tick with a non-empty bucket.
+   *
+   * After {@link #shutdown()}, no more timeouts can be scheduled
+   * and the thread terminates once all the scheduled timeouts have expired or been cancelled.
+   * Scheduling and cancelling do not acquire any locks.
+   */
+  private static final class TimerWheel implements Runnable {
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int WHEEL_SIZE = 512;
+    private static final int MASK = WHEEL_SIZE - 1;
+    /** Limit the timeouts to avoid overflow. */
+    private static final long MAX_TIMEOUT_NANOS = Long.MAX_VALUE / 4;
+
+    /** The buckets of timeouts, only accessed by the wheel thread. */
+    private final Timeout[] buckets = new Timeout[WHEEL_SIZE];
+    /** The timeouts newly scheduled, to be moved to the buckets by the wheel thread. */
+    private final Queue<Timeout> newTimeouts = new ConcurrentLinkedQueue<>();
+    /** The number of timeouts neither expired nor cancelled. */
+    private final AtomicInteger numTimeouts = new AtomicInteger();
+    private final long startTime = System.nanoTime();
+    private final Thread thread = new Daemon(this, JavaUtils.getClassSimpleName(TimeoutScheduler.class));
+
+    /** The next tick to be processed, only accessed by the wheel thread. */
+    private long tick = 0;
+    private volatile boolean sleeping = false;
+    private volatile long wakeUpTime;
+    private volatile boolean shutdown = false;
+
+    TimerWheel() {
+      LOG.debug("new {}", thread.getName());
+      thread.start();
+    }
+
+    int getNumTimeouts() {
+      return numTimeouts.get();
+    }
+
+    /** @return the scheduled timeout, or null if this wheel is already shutdown. */
+    Timeout schedule(Runnable task, Runnable onCancel, TimeDuration time) {
+      // increment before checking shutdown so that the thread does not terminate with this timeout
+      numTimeouts.incrementAndGet();
+      if (shutdown) {
+        numTimeouts.decrementAndGet();
+        return null;
+      }
+      final long nanos = Math.min(Math.max(0L, time.toLong(TimeUnit.NANOSECONDS)), MAX_TIMEOUT_NANOS);
+      final long deadline = System.nanoTime() + nanos;
+      final Timeout timeout = new Timeout(this, task, onCancel, deadline);
+      newTimeouts.offer(timeout);
+      if (sleeping && deadline - wakeUpTime < 0) {
+        LockSupport.unpark(thread);
+      }
+      return timeout;
+    }
+
+    void shutdown() {
+      shutdown = true;
+      LockSupport.unpark(thread);
+    }
+
+    @Override
+    public void run() {
+      for(;;) {
+        final long now = System.nanoTime();
+        moveNewTimeoutsToBuckets();
+        for(final long current = (now - startTime) / TICK_NANOS; tick <= current; tick++) {
+          expire(tick);
+        }
+        if (shutdown && numTimeouts.get() == 0) {
+          LOG.debug("terminate {}", thread.getName());
+          return;
+        }
+        sleep(now);
+      }
+    }
+
+    private void moveNewTimeoutsToBuckets() {
+      for(Timeout t; (t = newTimeouts.poll()) != null; ) {
+        if (t.isCancelled()) {
+          continue;
+        }
+        // round up the deadline to a tick
+        final long target = Math.max(tick, (t.deadlineNanos - startTime + TICK_NANOS - 1) / TICK_NANOS);
+        t.remainingRounds = (target - tick) / WHEEL_SIZE;
+        final int b = (int) target & MASK;
+        t.next = buckets[b];
+        buckets[b] = t;
+      }
+    }
+
+    private void expire(long currentTick) {
+      final int b = (int) currentTick & MASK;
+      Timeout previous = null;
+      for(Timeout t = buckets[b]; t != null; ) {
+        final Timeout next = t.next;
+        if (t.isCancelled() || t.remainingRounds <= 0) {
+          // remove t from the bucket
+          if (previous == null) {
+            buckets[b] = next;
+          } else {
+            previous.next = next;
+          }
+          t.next = null;
+          t.expire();
+        } else {
+          t.remainingRounds--;
+          previous = t;
+        }
+        t = next;
+      }
+    }
+
+    private void sleep(long now) {
+      // find the next non-empty bucket
+      long wakeUpTick = -1;
+      for(int d = 0; d < WHEEL_SIZE; d++) {
+        if (buckets[(int) (tick + d) & MASK] != null) {
+          wakeUpTick = tick + d;
+          break;
+        }
+      }
+      final long nanos = wakeUpTick >= 0? startTime + wakeUpTick * TICK_NANOS - now
+          : numTimeouts.get() > 0 ? WHEEL_SIZE * TICK_NANOS: Long.MAX_VALUE / 2;
+      if (nanos <= 0) {
+        return;
+      }
+      wakeUpTime = now + nanos;
+      sleeping = true;
+      if (newTimeouts.isEmpty() && !(shutdown && numTimeouts.get() == 0)) {
+        LockSupport.parkNanos(this, nanos);
+      }
+      sleeping = false;
+    }
+
+    @Override
+    public String toString() {
+      return thread.getName();
     }
   }
 
   private static class Scheduler {
-    private final AtomicReference<ScheduledThreadPoolExecutor> executor = new AtomicReference<>();
+    private final AtomicReference<TimerWheel> wheel = new AtomicReference<>();
 
     boolean hasExecutor() {
-      return executor.get() != null;
+      return wheel.get() != null;
     }
 
     int getQueueSize() {
-      return Optional.ofNullable(executor.get())
-          .map(ScheduledThreadPoolExecutor::getQueue)
-          .map(Collection::size).orElse(0);
+      return Optional.ofNullable(wheel.get()).map(TimerWheel::getNumTimeouts).orElse(0);
     }
 
-    ScheduledFuture<?> schedule(Runnable task, Supplier<String> name, TimeDuration time) {
-      return executor.updateAndGet(e -> Optional.ofNullable(e).orElseGet(Scheduler::newExecutor))
-          .schedule(LogUtils.newRunnable(LOG, task, name), time.getDuration(), time.getUnit());
+    Timeout schedule(Runnable task, Runnable onCancel, TimeDuration time) {
+      for(;;) {
+        final TimerWheel w = getOrCreateWheel();
+        final Timeout timeout = w.schedule(task, onCancel, time);
+        if (timeout != null) {
+          return timeout;
+        }
+        // the wheel is shutdown concurrently, retry with a new wheel.
+        wheel.compareAndSet(w, null);
+      }
     }
 
-    private static ScheduledThreadPoolExecutor newExecutor() {
-      LOG.debug("new ScheduledThreadPoolExecutor");
-      final ScheduledThreadPoolExecutor e = new ScheduledThreadPoolExecutor(1, (ThreadFactory) Daemon::new);
-      e.setRemoveOnCancelPolicy(true);
-      return e;
+    private TimerWheel getOrCreateWheel() {
+      final TimerWheel w = wheel.get();
+      if (w != null) {
+        return w;
+      }
+      synchronized (this) {
+        return wheel.updateAndGet(current -> current != null? current: new TimerWheel());
+      }
     }
 
     void shutdown() {
-      Optional.ofNullable(executor.getAndSet(null)).ifPresent(ScheduledThreadPoolExecutor::shutdown);
+      Optional.ofNullable(wheel.getAndSet(null)).ifPresent(TimerWheel::shutdown);
     }
   }
 
@@ -99,10 +312,11 @@ public final class TimeoutScheduler implements Closeable {
   private final AtomicReference<TimeDuration> gracePeriod = new AtomicReference<>(DEFAULT_GRACE_PERIOD);
 
   /** The number of scheduled tasks. */
-  private int numTasks = 0;
+  private final AtomicInteger numTasks = new AtomicInteger();
   /** The scheduleID for each task */
-  private int scheduleID = 0;
+  private final AtomicInteger scheduleID = new AtomicInteger();
 
+  /** Guarded by this. */
   private ShutdownTask shutdownTask = null;
 
   private final Scheduler scheduler = new Scheduler();
@@ -132,10 +346,11 @@ public final class TimeoutScheduler implements Closeable {
    * @param timeout the timeout value.
    * @param task the task to run when timeout.
    * @param errorHandler to handle the error, if there is any.
+   * @return the {@link Timeout}, which can be cancelled before the task runs.
    */
-  public <THROWABLE extends Throwable> void onTimeout(
+  public <THROWABLE extends Throwable> Timeout onTimeout(
       TimeDuration timeout, CheckedRunnable<THROWABLE> task, Consumer<THROWABLE> errorHandler) {
-    onTimeout(timeout, sid -> {
+    return onTimeout(timeout, sid -> {
       LOG.debug("run a task: sid {}", sid);
       try {
         task.run();
@@ -147,19 +362,27 @@ public final class TimeoutScheduler implements Closeable {
     });
   }
 
-  private synchronized void onTimeout(TimeDuration timeout, Consumer<Integer> toSchedule) {
-    numTasks++;
-    final int sid = scheduleID++;
+  private Timeout onTimeout(TimeDuration timeout, IntConsumer toSchedule) {
+    numTasks.incrementAndGet();
+    final int sid = scheduleID.getAndIncrement();
 
     LOG.debug("schedule a task: timeout {}, sid {}", timeout, sid);
-    scheduler.schedule(() -> toSchedule.accept(sid), () -> "task #" + sid, timeout);
+    return scheduler.schedule(() -> toSchedule.accept(sid), this::onTaskCompleted, timeout);
+  }
+
+  private void onTaskCompleted() {
+    if (numTasks.decrementAndGet() > 0) {
+      return;
+    }
+    scheduleShutdownTask();
   }
 
-  private synchronized void onTaskCompleted() {
-    if (--numTasks > 0) {
+  /** Schedule a task to shutdown the scheduler if there are no new tasks within the grace period. */
+  private synchronized void scheduleShutdownTask() {
+    if (numTasks.get() > 0) {
       return;
     }
-    final int sid = scheduleID;
+    final int sid = scheduleID.get();
     if (shutdownTask != null) {
       if (shutdownTask.getSid() == sid) {
         // the shutdown task is still valid
@@ -171,13 +394,12 @@ public final class TimeoutScheduler implements Closeable {
 
     final TimeDuration grace = getGracePeriod();
     LOG.debug("Schedule a shutdown task: grace {}, sid {}", grace, sid);
-    final ScheduledFuture<?> future = scheduler.schedule(() -> tryShutdownScheduler(sid),
-        () -> "shutdown task #" + sid, grace);
-    shutdownTask = new ShutdownTask(sid, future);
+    final Timeout timeout = scheduler.schedule(() -> tryShutdownScheduler(sid), () -> {}, grace);
+    shutdownTask = new ShutdownTask(sid, timeout);
   }
 
   private synchronized void tryShutdownScheduler(int sid) {
-    if (sid == scheduleID) {
+    if (sid == scheduleID.get()) {
       // No new tasks submitted, shutdown the scheduler.
       LOG.debug("shutdown scheduler: sid {}", sid);
       scheduler.shutdown();
@@ -187,12 +409,12 @@ public final class TimeoutScheduler implements Closeable {
   }
 
   /** When timeout, run the task.  Log the error, if there is any. */
-  public void onTimeout(TimeDuration timeout, CheckedRunnable<?> task, Logger log, Supplier<String> errorMessage) {
-    onTimeout(timeout, task, t -> log.error(errorMessage.get(), t));
+  public Timeout onTimeout(TimeDuration timeout, CheckedRunnable<?> task, Logger log, Supplier<String> errorMessage) {
+    return onTimeout(timeout, task, t -> log.error(errorMessage.get(), t));
   }
 
   @Override
-  public synchronized void close() {
-    tryShutdownScheduler(scheduleID);
+  public void close() {
+    tryShutdownScheduler(scheduleID.get());
   }
 }
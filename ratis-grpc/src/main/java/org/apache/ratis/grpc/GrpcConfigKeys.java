@@ -134,6 +134,28 @@ public interface GrpcConfigKeys {
       setInt(properties::setInt, PORT_KEY, port);
     }
 
+    /** The number of channels (connections) from a client to a server. */
+    String CHANNEL_POOL_SIZE_KEY = PREFIX + ".channel.pool.size";
+    int CHANNEL_POOL_SIZE_DEFAULT = 1;
+    static int channelPoolSize(RaftProperties properties) {
+      return getInt(properties::getInt, CHANNEL_POOL_SIZE_KEY,
+          CHANNEL_POOL_SIZE_DEFAULT, getDefaultLog(), requireMin(1));
+    }
+    static void setChannelPoolSize(RaftProperties properties, int size) {
+      setInt(properties::setInt, CHANNEL_POOL_SIZE_KEY, size);
+    }
+
+    /** Should the clients in the same JVM share the channels to the same server? */
+    String SHARED_CHANNELS_ENABLED_KEY = PREFIX + ".shared.channels.enabled";
+    boolean SHARED_CHANNELS_ENABLED_DEFAULT = false;
+    static boolean sharedChannelsEnabled(RaftProperties properties) {
+      return getBoolean(properties::getBoolean, SHARED_CHANNELS_ENABLED_KEY,
+          SHARED_CHANNELS_ENABLED_DEFAULT, getDefaultLog());
+    }
+    static void setSharedChannelsEnabled(RaftProperties properties, boolean enabled) {
+      setBoolean(properties::setBoolean, SHARED_CHANNELS_ENABLED_KEY, enabled);
+    }
+
     String TLS_CONF_PARAMETER = PREFIX + ".tls.conf";
     Class<GrpcTlsConfig> TLS_CONF_CLASS = TLS.CONF_CLASS;
     static GrpcTlsConfig tlsConf(Parameters parameters) {
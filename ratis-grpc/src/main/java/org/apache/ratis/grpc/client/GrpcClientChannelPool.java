@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.grpc.client;
+
+import org.apache.ratis.grpc.GrpcTlsConfig;
+import org.apache.ratis.grpc.GrpcUtil;
+import org.apache.ratis.thirdparty.io.grpc.ManagedChannel;
+import org.apache.ratis.thirdparty.io.grpc.netty.GrpcSslContexts;
+import org.apache.ratis.thirdparty.io.grpc.netty.NegotiationType;
+import org.apache.ratis.thirdparty.io.grpc.netty.NettyChannelBuilder;
+import org.apache.ratis.thirdparty.io.netty.handler.ssl.SslContextBuilder;
+import org.apache.ratis.util.Preconditions;
+import org.apache.ratis.util.SizeInBytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of {@link ManagedChannel}s connecting to the same address.
+ * The requests are sent over the least loaded channel,
+ * where the load of a channel is the number of its outstanding requests
+ * and the ties are broken in a round-robin manner,
+ * so that the calls of a single client are spread over all the channels.
+ *
+ * When sharing is enabled, the pools are cached and reference counted
+ * so that all the clients in the same JVM use the same connections to a server.
+ *
+ * @see org.apache.ratis.grpc.GrpcConfigKeys.Client#channelPoolSize
+ * @see org.apache.ratis.grpc.GrpcConfigKeys.Client#sharedChannelsEnabled
+ */
+final class GrpcClientChannelPool {
+  public static final Logger LOG = LoggerFactory.getLogger(GrpcClientChannelPool.class);
+
+  /** The key of a shared pool; the channels in a pool must be built with the same settings. */
+  private static final class Key {
+    private final String address;
+    private final GrpcTlsConfig tlsConf;
+    private final int flowControlWindow;
+    private final int maxMessageSize;
+    private final int size;
+
+    private Key(String address, GrpcTlsConfig tlsConf, int flowControlWindow, int maxMessageSize, int size) {
+      this.address = address;
+      this.tlsConf = tlsConf;
+      this.flowControlWindow = flowControlWindow;
+      this.maxMessageSize = maxMessageSize;
+      this.size = size;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      } else if (!(obj instanceof Key)) {
+        return false;
+      }
+      final Key that = (Key) obj;
+      return address.equals(that.address)
+          && Objects.equals(tlsConf, that.tlsConf)
+          && flowControlWindow == that.flowControlWindow
+          && maxMessageSize == that.maxMessageSize
+          && size == that.size;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(address, tlsConf, flowControlWindow, maxMessageSize, size);
+    }
+
+    @Override
+    public String toString() {
+      return address + "(size=" + size + ")";
+    }
+  }
+
+  /** The shared pools; guarded by itself. */
+  private static final Map<Key, GrpcClientChannelPool> SHARED_POOLS = new HashMap<>();
+
+  static GrpcClientChannelPool get(String address, GrpcTlsConfig tlsConf,
+      SizeInBytes flowControlWindow, SizeInBytes maxMessageSize, int size, boolean shared) {
+    final Key key = new Key(address, tlsConf, flowControlWindow.getSizeInt(), maxMessageSize.getSizeInt(), size);
+    if (!shared) {
+      return new GrpcClientChannelPool(key, false);
+    }
+    synchronized (SHARED_POOLS) {
+      final GrpcClientChannelPool pool = SHARED_POOLS.computeIfAbsent(key, k -> new GrpcClientChannelPool(k, true));
+      pool.references++;
+      return pool;
+    }
+  }
+
+  private final Key key;
+  private final boolean shared;
+  private final ManagedChannel[] channels;
+  private final AtomicInteger[] loads;
+  /** For breaking the ties among the least loaded channels. */
+  private final AtomicInteger next = new AtomicInteger();
+  /** The number of clients using this pool; guarded by {@link #SHARED_POOLS}. */
+  private int references = 0;
+
+  private GrpcClientChannelPool(Key key, boolean shared) {
+    Preconditions.assertTrue(key.size > 0, () -> "Non-positive pool size " + key.size);
+    this.key = key;
+    this.shared = shared;
+    this.channels = new ManagedChannel[key.size];
+    this.loads = new AtomicInteger[key.size];
+    for (int i = 0; i < key.size; i++) {
+      channels[i] = buildChannel(key);
+      loads[i] = new AtomicInteger();
+    }
+    LOG.debug("New {}channel pool {}", shared? "shared ": "", key);
+  }
+
+  private static ManagedChannel buildChannel(Key key) {
+    NettyChannelBuilder channelBuilder =
+        NettyChannelBuilder.forTarget(key.address);
+
+    final GrpcTlsConfig tlsConf = key.tlsConf;
+    if (tlsConf != null) {
+      SslContextBuilder sslContextBuilder = GrpcSslContexts.forClient();
+      if (tlsConf.isFileBasedConfig()) {
+        sslContextBuilder.trustManager(tlsConf.getTrustStoreFile());
+      } else {
+        sslContextBuilder.trustManager(tlsConf.getTrustStore());
+      }
+      if (tlsConf.getMtlsEnabled()) {
+        if (tlsConf.isFileBasedConfig()) {
+          sslContextBuilder.keyManager(tlsConf.getCertChainFile(),
+              tlsConf.getPrivateKeyFile());
+        } else {
+          sslContextBuilder.keyManager(tlsConf.getPrivateKey(),
+              tlsConf.getCertChain());
+        }
+      }
+      try {
+        channelBuilder.useTransportSecurity().sslContext(
+            sslContextBuilder.build());
+      } catch (Exception ex) {
+        throw new RuntimeException(ex);
+      }
+    } else {
+      channelBuilder.negotiationType(NegotiationType.PLAINTEXT);
+    }
+
+    return channelBuilder.flowControlWindow(key.flowControlWindow)
+        .maxInboundMessageSize(key.maxMessageSize)
+        .build();
+  }
+
+  /** @return the first channel, which is used for the low volume calls such as admin calls. */
+  ManagedChannel getFirstChannel() {
+    return channels[0];
+  }
+
+  int getSize() {
+    return channels.length;
+  }
+
+  ManagedChannel getChannel(int index) {
+    return channels[index];
+  }
+
+  /** @return the number of the outstanding requests of the channel at the given index. */
+  int getLoad(int index) {
+    return loads[index].get();
+  }
+
+  /** @return the index of the least loaded channel. */
+  int getLeastLoaded() {
+    final int start = Math.floorMod(next.getAndIncrement(), loads.length);
+    int min = start;
+    for (int k = 1; k < loads.length; k++) {
+      final int i = (start + k) % loads.length;
+      if (loads[i].get() < loads[min].get()) {
+        min = i;
+      }
+    }
+    return min;
+  }
+
+  /** A request is sent over the channel at the given index. */
+  void incrementLoad(int index) {
+    loads[index].incrementAndGet();
+  }
+
+  /** A request sent over the channel at the given index is done. */
+  void decrementLoad(int index) {
+    loads[index].decrementAndGet();
+  }
+
+  /** Release this pool; the channels are shut down once the pool is no longer used by any client. */
+  void release() {
+    if (shared) {
+      synchronized (SHARED_POOLS) {
+        if (--references > 0) {
+          return;
+        }
+        SHARED_POOLS.remove(key);
+      }
+      LOG.debug("Close shared channel pool {}", key);
+    }
+    for (ManagedChannel channel : channels) {
+      GrpcUtil.shutdownManagedChannel(channel);
+    }
+  }
+}
@@ -35,8 +35,6 @@ import org.apache.ratis.proto.RaftProtos.SetConfigurationRequestProto;
 import org.apache.ratis.proto.RaftProtos.TransferLeadershipRequestProto;
 import org.apache.ratis.protocol.exceptions.LeaderNotReadyException;
 import org.apache.ratis.protocol.exceptions.TimeoutIOException;
-import org.apache.ratis.thirdparty.io.grpc.netty.GrpcSslContexts;
-import org.apache.ratis.thirdparty.io.netty.handler.ssl.SslContextBuilder;
 import org.apache.ratis.proto.grpc.AdminProtocolServiceGrpc;
 import org.apache.ratis.proto.grpc.AdminProtocolServiceGrpc.AdminProtocolServiceBlockingStub;
 import org.apache.ratis.proto.grpc.RaftClientProtocolServiceGrpc;
@@ -46,11 +44,10 @@ import org.apache.ratis.protocol.ClientId;
 import org.apache.ratis.protocol.exceptions.NotLeaderException;
 import org.apache.ratis.protocol.RaftClientReply;
 import org.apache.ratis.protocol.RaftClientRequest;
+import org.apache.ratis.protocol.RaftGroupId;
 import org.apache.ratis.protocol.RaftPeer;
-import org.apache.ratis.thirdparty.io.grpc.ManagedChannel;
+import org.apache.ratis.thirdparty.io.grpc.ClientInterceptors;
 import org.apache.ratis.thirdparty.io.grpc.StatusRuntimeException;
-import org.apache.ratis.thirdparty.io.grpc.netty.NegotiationType;
-import org.apache.ratis.thirdparty.io.grpc.netty.NettyChannelBuilder;
 import org.apache.ratis.thirdparty.io.grpc.stub.StreamObserver;
 import org.apache.ratis.util.CollectionUtils;
 import org.apache.ratis.util.JavaUtils;
@@ -71,7 +68,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
-import java.util.function.Function;
+import java.util.function.BiFunction;
 import java.util.function.Supplier;
 
 public class GrpcClientProtocolClient implements Closeable {
@@ -79,19 +76,20 @@ public class GrpcClientProtocolClient implements Closeable {
 
   private final Supplier<String> name;
   private final RaftPeer target;
-  private final ManagedChannel clientChannel;
-  private final ManagedChannel adminChannel;
+  private final GrpcClientChannelPool clientChannels;
+  private final GrpcClientChannelPool adminChannels;
 
   private final TimeDuration requestTimeoutDuration;
   private final TimeDuration watchRequestTimeoutDuration;
   private final TimeoutScheduler scheduler = TimeoutScheduler.getInstance();
 
-  private final RaftClientProtocolServiceStub asyncStub;
   private final AdminProtocolServiceBlockingStub adminBlockingStub;
 
-  private final AtomicReference<AsyncStreamObservers> orderedStreamObservers = new AtomicReference<>();
+  /** An ordered stream is bound to a group in the server side, so there is a stream for each group. */
+  private final Map<RaftGroupId, AsyncStreamObservers> orderedStreamObservers = new ConcurrentHashMap<>();
 
-  private final AtomicReference<AsyncStreamObservers> unorderedStreamObservers = new AtomicReference<>();
+  /** Each unordered request is sent over the least loaded channel, so there is a stream for each channel. */
+  private final Map<Integer, AsyncStreamObservers> unorderedStreamObservers = new ConcurrentHashMap<>();
   private final MetricClientInterceptor metricClientInterceptor;
 
   GrpcClientProtocolClient(ClientId id, RaftPeer target, RaftProperties properties,
@@ -108,55 +106,24 @@ public class GrpcClientProtocolClient implements Closeable {
         .filter(x -> !x.isEmpty()).orElse(target.getAddress());
     final boolean separateAdminChannel = !Objects.equals(clientAddress, adminAddress);
 
-    clientChannel = buildChannel(clientAddress, clientTlsConfig,
-        flowControlWindow, maxMessageSize);
-    adminChannel = separateAdminChannel
-        ? buildChannel(adminAddress, adminTlsConfig,
-            flowControlWindow, maxMessageSize)
-        : clientChannel;
+    final boolean shared = GrpcConfigKeys.Client.sharedChannelsEnabled(properties);
+    clientChannels = GrpcClientChannelPool.get(clientAddress, clientTlsConfig, flowControlWindow, maxMessageSize,
+        GrpcConfigKeys.Client.channelPoolSize(properties), shared);
+    adminChannels = separateAdminChannel
+        ? GrpcClientChannelPool.get(adminAddress, adminTlsConfig, flowControlWindow, maxMessageSize, 1, shared)
+        : clientChannels;
 
-    asyncStub = RaftClientProtocolServiceGrpc.newStub(clientChannel);
-    adminBlockingStub = AdminProtocolServiceGrpc.newBlockingStub(adminChannel);
+    adminBlockingStub = AdminProtocolServiceGrpc.newBlockingStub(
+        ClientInterceptors.intercept(adminChannels.getFirstChannel(), metricClientInterceptor));
     this.requestTimeoutDuration = RaftClientConfigKeys.Rpc.requestTimeout(properties);
     this.watchRequestTimeoutDuration =
         RaftClientConfigKeys.Rpc.watchRequestTimeout(properties);
   }
 
-  private ManagedChannel buildChannel(String address, GrpcTlsConfig tlsConf,
-      SizeInBytes flowControlWindow, SizeInBytes maxMessageSize) {
-    NettyChannelBuilder channelBuilder =
-        NettyChannelBuilder.forTarget(address);
-
-    if (tlsConf != null) {
-      SslContextBuilder sslContextBuilder = GrpcSslContexts.forClient();
-      if (tlsConf.isFileBasedConfig()) {
-        sslContextBuilder.trustManager(tlsConf.getTrustStoreFile());
-      } else {
-        sslContextBuilder.trustManager(tlsConf.getTrustStore());
-      }
-      if (tlsConf.getMtlsEnabled()) {
-        if (tlsConf.isFileBasedConfig()) {
-          sslContextBuilder.keyManager(tlsConf.getCertChainFile(),
-              tlsConf.getPrivateKeyFile());
-        } else {
-          sslContextBuilder.keyManager(tlsConf.getPrivateKey(),
-              tlsConf.getCertChain());
-        }
-      }
-      try {
-        channelBuilder.useTransportSecurity().sslContext(
-            sslContextBuilder.build());
-      } catch (Exception ex) {
-        throw new RuntimeException(ex);
-      }
-    } else {
-      channelBuilder.negotiationType(NegotiationType.PLAINTEXT);
-    }
-
-    return channelBuilder.flowControlWindow(flowControlWindow.getSizeInt())
-        .maxInboundMessageSize(maxMessageSize.getSizeInt())
-        .intercept(metricClientInterceptor)
-        .build();
+  /** Create a stub using the channel at the given index. */
+  private RaftClientProtocolServiceStub newAsyncStub(int channel) {
+    return RaftClientProtocolServiceGrpc.newStub(
+        ClientInterceptors.intercept(clientChannels.getChannel(channel), metricClientInterceptor));
   }
 
   String getName() {
@@ -165,11 +132,15 @@ public class GrpcClientProtocolClient implements Closeable {
 
   @Override
   public void close() {
-    Optional.ofNullable(orderedStreamObservers.getAndSet(null)).ifPresent(AsyncStreamObservers::close);
-    Optional.ofNullable(unorderedStreamObservers.getAndSet(null)).ifPresent(AsyncStreamObservers::close);
-    GrpcUtil.shutdownManagedChannel(clientChannel);
-    if (clientChannel != adminChannel) {
-      GrpcUtil.shutdownManagedChannel(adminChannel);
+    for (RaftGroupId groupId : orderedStreamObservers.keySet()) {
+      Optional.ofNullable(orderedStreamObservers.remove(groupId)).ifPresent(AsyncStreamObservers::close);
+    }
+    for (Integer channel : unorderedStreamObservers.keySet()) {
+      Optional.ofNullable(unorderedStreamObservers.remove(channel)).ifPresent(AsyncStreamObservers::close);
+    }
+    clientChannels.release();
+    if (clientChannels != adminChannels) {
+      adminChannels.release();
     }
     scheduler.close();
     metricClientInterceptor.close();
@@ -220,22 +191,54 @@ public class GrpcClientProtocolClient implements Closeable {
   }
 
   StreamObserver<RaftClientRequestProto> ordered(StreamObserver<RaftClientReplyProto> responseHandler) {
-    return asyncStub.ordered(responseHandler);
+    final int channel = clientChannels.getLeastLoaded();
+    return newAsyncStub(channel).ordered(countLoad(channel, responseHandler));
   }
 
   StreamObserver<RaftClientRequestProto> orderedWithTimeout(StreamObserver<RaftClientReplyProto> responseHandler) {
-    return asyncStub.withDeadlineAfter(requestTimeoutDuration.getDuration(), requestTimeoutDuration.getUnit())
-        .unordered(responseHandler);
+    final int channel = clientChannels.getLeastLoaded();
+    return newAsyncStub(channel)
+        .withDeadlineAfter(requestTimeoutDuration.getDuration(), requestTimeoutDuration.getUnit())
+        .unordered(countLoad(channel, responseHandler));
+  }
+
+  /** Count the given stream as an outstanding request of the channel until the reply stream is done. */
+  private StreamObserver<RaftClientReplyProto> countLoad(
+      int channel, StreamObserver<RaftClientReplyProto> responseHandler) {
+    clientChannels.incrementLoad(channel);
+    return new StreamObserver<RaftClientReplyProto>() {
+      @Override
+      public void onNext(RaftClientReplyProto reply) {
+        responseHandler.onNext(reply);
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        clientChannels.decrementLoad(channel);
+        responseHandler.onError(t);
+      }
+
+      @Override
+      public void onCompleted() {
+        clientChannels.decrementLoad(channel);
+        responseHandler.onCompleted();
+      }
+    };
   }
 
-  AsyncStreamObservers getOrderedStreamObservers() {
-    return orderedStreamObservers.updateAndGet(
-        a -> a != null? a : new AsyncStreamObservers(this::ordered));
+  /** An ordered stream stays on the channel which is the least loaded when the stream is created. */
+  AsyncStreamObservers getOrderedStreamObservers(RaftGroupId groupId) {
+    return orderedStreamObservers.computeIfAbsent(groupId, id -> new AsyncStreamObservers(
+        clientChannels.getLeastLoaded(), RaftClientProtocolServiceStub::ordered));
   }
 
   AsyncStreamObservers getUnorderedAsyncStreamObservers() {
-    return unorderedStreamObservers.updateAndGet(
-        a -> a != null? a : new AsyncStreamObservers(asyncStub::unordered));
+    return unorderedStreamObservers.computeIfAbsent(clientChannels.getLeastLoaded(),
+        channel -> new AsyncStreamObservers(channel, RaftClientProtocolServiceStub::unordered));
+  }
+
+  GrpcClientChannelPool getClientChannels() {
+    return clientChannels;
   }
 
   public RaftPeer getTarget() {
@@ -331,10 +334,14 @@ public class GrpcClientProtocolClient implements Closeable {
         completeReplyExceptionally(null, "completed");
       }
     };
+    /** The index of the channel of this stream. */
+    private final int channel;
     private final RequestStreamer requestStreamer;
 
-    AsyncStreamObservers(Function<StreamObserver<RaftClientReplyProto>, StreamObserver<RaftClientRequestProto>> f) {
-      this.requestStreamer = new RequestStreamer(f.apply(replyStreamObserver));
+    AsyncStreamObservers(int channel, BiFunction<RaftClientProtocolServiceStub,
+        StreamObserver<RaftClientReplyProto>, StreamObserver<RaftClientRequestProto>> f) {
+      this.channel = channel;
+      this.requestStreamer = new RequestStreamer(f.apply(newAsyncStub(channel), replyStreamObserver));
     }
 
     CompletableFuture<RaftClientReply> onNext(RaftClientRequest request) {
@@ -343,6 +350,8 @@ public class GrpcClientProtocolClient implements Closeable {
       if (f == null) {
         return JavaUtils.completeExceptionally(new AlreadyClosedException(getName() + " is closed."));
       }
+      clientChannels.incrementLoad(channel);
+      f.whenComplete((reply, e) -> clientChannels.decrementLoad(channel));
       try {
         if (!requestStreamer.onNext(ClientProtoUtils.toRaftClientRequestProto(request))) {
           return JavaUtils.completeExceptionally(new AlreadyClosedException(getName() + ": the stream is closed."));
@@ -352,15 +361,12 @@ public class GrpcClientProtocolClient implements Closeable {
         return f;
       }
 
-      if (RaftClientRequestProto.TypeCase.WATCH.equals(request.getType().getTypeCase())) {
-        scheduler.onTimeout(watchRequestTimeoutDuration, () ->
-                timeoutCheck(callId, watchRequestTimeoutDuration), LOG,
-            () -> "Timeout check failed for client request #" + callId);
-      } else {
-        scheduler.onTimeout(requestTimeoutDuration,
-            () -> timeoutCheck(callId, requestTimeoutDuration), LOG,
-            () -> "Timeout check failed for client request #" + callId);
-      }
+      final TimeDuration timeout = RaftClientRequestProto.TypeCase.WATCH.equals(request.getType().getTypeCase())?
+          watchRequestTimeoutDuration: requestTimeoutDuration;
+      final TimeoutScheduler.Timeout timeoutCheck = scheduler.onTimeout(timeout,
+          () -> timeoutCheck(callId, timeout), LOG, () -> "Timeout check failed for client request #" + callId);
+      // cancel the timeout check once the reply is received
+      f.whenComplete((reply, e) -> timeoutCheck.cancel());
       return f;
     }
 
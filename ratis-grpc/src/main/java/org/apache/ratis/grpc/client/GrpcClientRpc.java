@@ -66,7 +66,7 @@ public class GrpcClientRpc extends RaftClientRpcWithProxy<GrpcClientProtocolClie
     try {
       final GrpcClientProtocolClient proxy = getProxies().getProxy(serverId);
       // Reuse the same grpc stream for all async calls.
-      return proxy.getOrderedStreamObservers().onNext(request);
+      return proxy.getOrderedStreamObservers(request.getRaftGroupId()).onNext(request);
     } catch (Exception e) {
       return JavaUtils.completeExceptionally(e);
     }
@@ -231,10 +231,11 @@ public class GrpcLogAppender extends LogAppenderBase {
     CodeInjectionForTesting.execute(GrpcService.GRPC_SEND_SERVER_REQUEST,
         getServer().getId(), null, proto);
     request.startRequestTimer();
-    s.onNext(proto);
-    scheduler.onTimeout(requestTimeoutDuration,
+    // set the timeout before sending so that a fast reply can cancel it
+    request.setTimeout(scheduler.onTimeout(requestTimeoutDuration,
         () -> timeoutAppendRequest(request.getCallId(), request.isHeartbeat()),
-        LOG, () -> "Timeout check failed for append entry request: " + request);
+        LOG, () -> "Timeout check failed for append entry request: " + request));
+    s.onNext(proto);
     getFollower().updateLastRpcSendTime();
   }
 
@@ -276,6 +277,7 @@ public class GrpcLogAppender extends LogAppenderBase {
       AppendEntriesRequest request = pendingRequests.remove(reply);
       if (request != null) {
         request.stopRequestTimer(); // Update completion time
+        request.cancelTimeout();
       }
 
       if (LOG.isDebugEnabled()) {
@@ -304,7 +306,9 @@ public class GrpcLogAppender extends LogAppenderBase {
         case SUCCESS:
           grpcServerMetrics.onRequestSuccess(getFollowerId().toString(), reply.getIsHearbeat());
           getLeaderState().onFollowerCommitIndex(getFollower(), reply.getFollowerCommit());
-          if (getFollower().updateMatchIndex(reply.getMatchIndex())) {
+          final boolean durableUpdated = reply.getEarlyAck()
+              && getFollower().updateDurableIndex(reply.getDurableIndex());
+          if (getFollower().updateMatchIndex(reply.getMatchIndex()) || durableUpdated) {
             getLeaderState().onFollowerSuccessAppendEntries(getFollower());
           }
           break;
@@ -595,6 +599,8 @@ public class GrpcLogAppender extends LogAppenderBase {
     private final int entriesCount;
 
     private final TermIndex lastEntry;
+    /** For cancelling the timeout check when the reply is received. */
+    private volatile TimeoutScheduler.Timeout timeout;
 
     AppendEntriesRequest(AppendEntriesRequestProto proto, RaftPeerId followerId, GrpcServerMetrics grpcServerMetrics) {
       this.callId = proto.getServerRequest().getCallId();
@@ -622,6 +628,14 @@ public class GrpcLogAppender extends LogAppenderBase {
       timerContext.stop();
     }
 
+    void setTimeout(TimeoutScheduler.Timeout timeout) {
+      this.timeout = timeout;
+    }
+
+    void cancelTimeout() {
+      Optional.ofNullable(timeout).ifPresent(TimeoutScheduler.Timeout::cancel);
+    }
+
     boolean isHeartbeat() {
       return entriesCount == 0;
     }
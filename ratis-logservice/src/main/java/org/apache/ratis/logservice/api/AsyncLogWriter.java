@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.logservice.api;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous client interface to write to a LogStream.
+ *
+ * Records written individually are grouped into batches by the number of records, the size and the linger time.
+ * Many batches can be outstanding at the same time.
+ * The records are appended to the LogStream in the order they are written.
+ */
+public interface AsyncLogWriter extends AutoCloseable {
+
+  /**
+   * Appends the given data as a record in the LogStream.
+   * The data is copied before this method returns.
+   *
+   * @param data The record to append
+   * @return A future of the recordId for the record written
+   */
+  CompletableFuture<Long> write(ByteBuffer data);
+
+  /**
+   * Appends each entry of data as a new record in the LogStream in a single request.
+   * Either all of the records or none of them are written.
+   *
+   * @param records Records to append
+   * @return A future of the recordIds assigned to the records written
+   */
+  CompletableFuture<List<Long>> write(List<ByteBuffer> records);
+
+  /**
+   * Sends the records pending in the current batch without waiting for the linger time.
+   */
+  void flush();
+
+  /**
+   * Guarantees that all previous data appended by this writer are persisted
+   * and durable in the LogStream.
+   *
+   * @return A future of the recordId prior to which all records are durable
+   */
+  CompletableFuture<Long> sync();
+
+  /**
+   * Flushes the pending records and waits for all the outstanding writes.
+   */
+  void close() throws IOException;
+}
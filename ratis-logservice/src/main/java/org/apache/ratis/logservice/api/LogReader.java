@@ -38,7 +38,7 @@ public interface LogReader extends AutoCloseable {
    * Reads the next record from the LogStream at the current position and advances the current position
    * to after the record which was just returned.
    *
-   * @return The data for the next record.
+   * @return The data for the next record, as a read-only buffer.
    */
   ByteBuffer readNext() throws IOException;
 
@@ -58,7 +58,7 @@ public interface LogReader extends AutoCloseable {
    * may return fewer than requested records if the LogStream does not have sufficient records to return.
    *
    * @param numRecords The number of records to return
-   * @return The records, no more than the requested {@code numRecords} amount.
+   * @return The records as read-only buffers, no more than the requested {@code numRecords} amount.
    */
   List<ByteBuffer> readBulk(int numRecords) throws IOException;
 
@@ -69,9 +69,10 @@ public interface LogReader extends AutoCloseable {
    * filled.
    *
    * Each provided buffer must be capable of holding one complete record from the Log. If the provided buffer is
-   * too small, an exception will be thrown.
+   * too small, an exception will be thrown. The records are copied into the provided buffers as
+   * {@link #readNext(ByteBuffer)} does; a null element is set to a read-only buffer of the record.
    *
-   * @param buffers A non-empty array of non-null ByteBuffers.
+   * @param buffers A non-empty array of ByteBuffers.
    * @return The number of records returns, equivalent to the number of filled buffers.
    */
   int readBulk(ByteBuffer[] buffers) throws IOException;
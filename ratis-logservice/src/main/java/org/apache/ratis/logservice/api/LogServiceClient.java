@@ -102,7 +102,7 @@ public class LogServiceClient implements AutoCloseable {
             throw MetaServiceProtoUtil.toMetaServiceException(message.getException());
         }
         LogInfo info = MetaServiceProtoUtil.toLogInfo(message.getLog());
-        return new LogStreamImpl(logName, getRaftClient(info), config);
+        return new LogStreamImpl(logName, getRaftClient(info), config, () -> getRaftClient(info));
     }
 
     /**
@@ -112,7 +112,8 @@ public class LogServiceClient implements AutoCloseable {
      * @throws IOException
      */
     public LogStream getLog(LogName logName) throws IOException {
-        return new LogStreamImpl(logName, getRaftClient(getLogInfo(logName)), config);
+        final LogInfo info = getLogInfo(logName);
+        return new LogStreamImpl(logName, getRaftClient(info), config, () -> getRaftClient(info));
     }
 
     /**
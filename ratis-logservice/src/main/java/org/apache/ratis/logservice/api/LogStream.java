@@ -89,6 +89,13 @@ public interface LogStream extends AutoCloseable{
    */
   LogWriter createWriter();
 
+  /**
+   * Creates an asynchronous writer to write to this LogStream.
+   *
+   * @return An asynchronous writer
+   */
+  AsyncLogWriter createAsyncWriter();
+
   /**
    * Returns the recordId of the last record in this LogStream. For an empty log, the recordId is {@code 0}.
    * @throws IOException
@@ -112,11 +119,19 @@ public interface LogStream extends AutoCloseable{
   LogServiceConfiguration getConfiguration();
 
   /**
-   * Add new log record listener
+   * Add new log record listener, which receives the records written after it is added.
    * @param listener listener
    */
   void addRecordListener(RecordListener listener);
 
+  /**
+   * Add new log record listener, which receives the records starting at the given recordId.
+   * The records are pushed to the listener as they are committed.
+   * @param listener listener
+   * @param startRecordId the recordId of the first record to be received
+   */
+  void addRecordListener(RecordListener listener, long startRecordId) throws IOException;
+
 
   /**
    * Remove record listener
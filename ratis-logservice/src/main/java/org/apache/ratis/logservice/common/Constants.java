@@ -43,6 +43,17 @@ public final class Constants {
         "logservice.metaserver.groupid";
     public static final String LOG_SERVICE_LOG_SERVER_GROUPID_KEY = "logservice.logserver.groupid";
     public static final String LOG_SERVICE_ARCHIVAL_LOCATION_KEY = "logservice.archival.location";
+    // the ArchiveLogWriter implementation, which must have a default constructor
+    public static final String LOG_SERVICE_ARCHIVE_WRITER_CLASS_KEY = "logservice.archive.writer.class";
+    public static final String LOG_SERVICE_ARCHIVE_READ_PARALLELISM_KEY =
+        "logservice.archive.read.parallelism";
+    public static final int DEFAULT_ARCHIVE_READ_PARALLELISM = 4;
+    public static final String LOG_SERVICE_ARCHIVE_READ_CHUNK_RECORDS_KEY =
+        "logservice.archive.read.chunk.records"; // in records
+    public static final int DEFAULT_ARCHIVE_READ_CHUNK_RECORDS = 4096;
+    public static final String LOG_SERVICE_ARCHIVE_BLOCK_CACHE_BYTES_KEY =
+        "logservice.archive.block.cache.bytes"; // in bytes
+    public static final long DEFAULT_ARCHIVE_BLOCK_CACHE_BYTES = 8 * 1024 * 1024L;// 8MB
     /*
      * Raft properties
      */
@@ -68,4 +79,38 @@ public final class Constants {
             "logservice.peer.failure.detection.period"; // in ms
     public static final long DEFAULT_PEER_FAILURE_DETECTION_PERIOD = 60000;// 1 min.
 
+    public static final String LOG_SERVICE_READER_SESSION_MAX_KEY =
+            "logservice.reader.session.max";
+    public static final int DEFAULT_READER_SESSION_MAX = 1024;
+
+    public static final String LOG_SERVICE_READER_SESSION_TIMEOUT_KEY =
+            "logservice.reader.session.timeout"; // in ms
+    public static final long DEFAULT_READER_SESSION_TIMEOUT = 60000;// 1 min.
+
+    public static final String LOG_SERVICE_READER_BATCH_SIZE_KEY =
+            "logservice.reader.batch.size"; // in records
+    public static final int DEFAULT_READER_BATCH_SIZE = 64;
+
+    // it must be smaller than the max message size of the rpc
+    public static final String LOG_SERVICE_READER_BATCH_BYTES_KEY =
+            "logservice.reader.batch.bytes"; // in bytes
+    public static final long DEFAULT_READER_BATCH_BYTES = 4 * 1024 * 1024L;// 4MB
+
+    // it must be smaller than the client request timeout
+    public static final String LOG_SERVICE_SUBSCRIPTION_WAIT_TIMEOUT_KEY =
+            "logservice.subscription.wait.timeout"; // in ms
+    public static final long DEFAULT_SUBSCRIPTION_WAIT_TIMEOUT = 1000;// 1 second
+
+    public static final String LOG_SERVICE_WRITER_BATCH_RECORDS_KEY =
+            "logservice.writer.batch.records"; // in records
+    public static final int DEFAULT_WRITER_BATCH_RECORDS = 128;
+
+    public static final String LOG_SERVICE_WRITER_BATCH_BYTES_KEY =
+            "logservice.writer.batch.bytes"; // in bytes
+    public static final long DEFAULT_WRITER_BATCH_BYTES = 1024 * 1024L;// 1MB
+
+    public static final String LOG_SERVICE_WRITER_LINGER_KEY =
+            "logservice.writer.linger"; // in ms
+    public static final long DEFAULT_WRITER_LINGER = 1;// 1 ms
+
 }
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.logservice.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+
+/**
+ * A LRU cache of the decoded record blocks of the archive files,
+ * which can be shared by the {@link ArchiveHdfsLogReader}s.
+ * The cache is bounded by the total number of bytes of the blocks.
+ *
+ * The key of a block includes the length and the modification time of the file
+ * so that a block of a rewritten file is not returned.
+ */
+public class ArchiveBlockCache {
+  private static final class Block {
+    private final List<ByteString> records;
+    private final long numBytes;
+
+    private Block(List<ByteString> records, long numBytes) {
+      this.records = records;
+      this.numBytes = numBytes;
+    }
+  }
+
+  private final long capacityBytes;
+  /** The total number of bytes of the cached blocks; guarded by this. */
+  private long numBytes = 0;
+  /** In access order. */
+  private final LinkedHashMap<String, Block> blocks = new LinkedHashMap<>(16, 0.75f, true);
+
+  public ArchiveBlockCache(long capacityBytes) {
+    this.capacityBytes = capacityBytes;
+  }
+
+  static String getKey(String path, long fileLength, long modificationTime, int block) {
+    return path + "@" + fileLength + "@" + modificationTime + "#" + block;
+  }
+
+  /** @return the cached records of the block, or null if the block is not cached. */
+  public synchronized List<ByteString> get(String key) {
+    final Block b = blocks.get(key);
+    return b == null ? null : b.records;
+  }
+
+  /** Cache the records of a block, which have the given number of bytes in total. */
+  public synchronized void put(String key, List<ByteString> records, long blockBytes) {
+    if (blockBytes > capacityBytes) {
+      return;
+    }
+    final Block previous = blocks.put(key, new Block(records, blockBytes));
+    numBytes += blockBytes - (previous == null ? 0 : previous.numBytes);
+    // evict the least recently used blocks
+    for (Iterator<Block> i = blocks.values().iterator(); numBytes > capacityBytes && i.hasNext(); ) {
+      numBytes -= i.next().numBytes;
+      i.remove();
+    }
+  }
+
+  public synchronized int size() {
+    return blocks.size();
+  }
+
+  public synchronized long getNumBytes() {
+    return numBytes;
+  }
+}
@@ -36,18 +36,61 @@ import org.apache.hadoop.fs.Path;
 import org.apache.ratis.logservice.api.ArchiveLogReader;
 import org.apache.ratis.logservice.util.LogServiceUtils;
 import org.apache.ratis.thirdparty.com.google.common.base.Preconditions;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.apache.ratis.thirdparty.com.google.protobuf.UnsafeByteOperations;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Read the archive files written by {@link ArchiveHdfsLogWriter}.
+ *
+ * The file containing a record is located by the recordIds in the names of the rolled files.
+ * If the file has a footer index, the record is located in the file by the index
+ * and the block of records containing it is read and decoded at once.
+ * The decoded blocks may be cached in an {@link ArchiveBlockCache} shared by the readers.
+ * The files without a footer are read sequentially.
+ */
 public class ArchiveHdfsLogReader implements ArchiveLogReader {
   public static final Logger LOG = LoggerFactory.getLogger(ArchiveHdfsLogReader.class);
+
+  /** The footer index of an archive file. */
+  private static final class FileIndex {
+    private final int stride;
+    /** The offsets of every stride records. */
+    private final long[] offsets;
+    private final long numRecords;
+    /** The end of the records, i.e. the start of the footer. */
+    private final long dataEnd;
+
+    private FileIndex(int stride, long[] offsets, long numRecords, long dataEnd) {
+      this.stride = stride;
+      this.offsets = offsets;
+      this.numRecords = numRecords;
+      this.dataEnd = dataEnd;
+    }
+  }
+
   private long fileLength;
   private List<FileStatus> files;
   private FileSystem hdfs;
   private FSDataInputStream is;
-  private byte[] currentRecord;
+  private ByteString currentRecord;
   private int fileCounter = 0;
-  private int currentRecordId;
+  private long currentRecordId;
+  /** The recordId after the last record of each file, in the order of the files. */
+  private long[] fileEndRecordIds;
+
+  /** The cache of the decoded blocks; null means no cache. */
+  private final ArchiveBlockCache cache;
+  /** The status of the current file. */
+  private FileStatus fileStatus;
+  /** The recordId of the first record in the current file. */
+  private long fileStartRecordId;
+  /** The footer index of the current file; null means the file has no footer. */
+  private FileIndex index;
+  /** The current block of the current file, and its index. */
+  private List<ByteString> block;
+  private int blockIndex = -1;
 
   public ArchiveHdfsLogReader(String archiveLocation) throws IOException {
     this(new Configuration(), archiveLocation);
@@ -55,8 +98,14 @@ public class ArchiveHdfsLogReader implements ArchiveLogReader {
 
   public ArchiveHdfsLogReader(Configuration configuration, String archiveLocation)
       throws IOException {
-    this.hdfs = FileSystem.get(configuration);
+    this(configuration, archiveLocation, null);
+  }
+
+  public ArchiveHdfsLogReader(Configuration configuration, String archiveLocation,
+      ArchiveBlockCache cache) throws IOException {
+    this.cache = cache;
     Path archiveLocationPath = new Path(archiveLocation);
+    this.hdfs = archiveLocationPath.getFileSystem(configuration);
     if (!hdfs.exists(archiveLocationPath)) {
       throw new FileNotFoundException(archiveLocation);
     }
@@ -70,23 +119,126 @@ public class ArchiveHdfsLogReader implements ArchiveLogReader {
               .compareTo(LogServiceUtils.getRecordIdFromRolledArchiveFile(o2.getPath()));
         }
       });
+      fileEndRecordIds = new long[files.size()];
+      for (int i = 0; i < fileEndRecordIds.length; i++) {
+        fileEndRecordIds[i] = LogServiceUtils.getRecordIdFromRolledArchiveFile(files.get(i).getPath());
+      }
       openNextFilePath();
       loadNext();
     }
   }
 
   private Path openNextFilePath() throws IOException {
+    if (this.is != null) {
+      this.is.close();
+    }
     Path filePath = files.get(fileCounter).getPath();
     this.is = this.hdfs.open(filePath);
-    this.fileLength = this.hdfs.getFileStatus(filePath).getLen();
+    this.fileStatus = this.hdfs.getFileStatus(filePath);
+    this.fileLength = fileStatus.getLen();
+    this.index = readFooter();
+    this.block = null;
+    this.blockIndex = -1;
     fileCounter++;
     return filePath;
+  }
 
+  /** @return the footer index of the current file, or null if the file has no footer. */
+  private FileIndex readFooter() throws IOException {
+    if (fileLength < ArchiveHdfsLogWriter.FOOTER_TRAILER_SIZE) {
+      return null;
+    }
+    is.seek(fileLength - ArchiveHdfsLogWriter.FOOTER_TRAILER_SIZE);
+    final int stride = is.readInt();
+    final int numOffsets = is.readInt();
+    final long numRecords = is.readLong();
+    final long dataEnd = is.readLong();
+    final long magic = is.readLong();
+    if (magic != ArchiveHdfsLogWriter.FOOTER_MAGIC
+        || dataEnd + 8L * numOffsets + ArchiveHdfsLogWriter.FOOTER_TRAILER_SIZE != fileLength) {
+      // a file without footer, e.g. written by an older version or still being written
+      is.seek(0);
+      return null;
+    }
+    is.seek(dataEnd);
+    final long[] offsets = new long[numOffsets];
+    for (int i = 0; i < numOffsets; i++) {
+      offsets[i] = is.readLong();
+    }
+    return new FileIndex(stride, offsets, numRecords, dataEnd);
   }
 
+  /**
+   * Seek using the recordIds in the names of the rolled files and then the footer index of the file.
+   * For a file without footer, only the records before the given recordId in the same file are skipped.
+   */
   @Override public void seek(long recordId) throws IOException {
-    while (currentRecordId < recordId && hasNext()) {
-      next();
+    if (files.isEmpty()) {
+      return;
+    }
+    final int file = getFileIndex(recordId);
+    if (file != fileCounter - 1 || (index == null && recordId < currentRecordId)) {
+      // open the file containing the recordId
+      fileCounter = file;
+      openNextFilePath();
+      fileStartRecordId = file == 0 ? 0 : fileEndRecordIds[file - 1];
+      currentRecordId = fileStartRecordId;
+      currentRecord = null;
+    } else if (index == null && currentRecord != null) {
+      // the stream is after the current record
+      if (currentRecordId == recordId) {
+        return;
+      }
+      currentRecordId++;
+      currentRecord = null;
+    }
+
+    if (index != null) {
+      currentRecordId = recordId;
+    } else {
+      // skip the records without reading them
+      for (; currentRecordId < recordId; currentRecordId++) {
+        final int length;
+        try {
+          length = is.readInt();
+        } catch (EOFException e) {
+          break;
+        }
+        skipFully(length);
+      }
+    }
+    loadNext();
+    // in case the file has less records than expected
+    while (currentRecord != null && currentRecordId < recordId) {
+      currentRecordId++;
+      loadNext();
+    }
+  }
+
+  /** @return the index of the file containing the given recordId. */
+  private int getFileIndex(long recordId) {
+    // the first file with the end recordId greater than the given recordId
+    int low = 0;
+    int high = fileEndRecordIds.length - 1;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (fileEndRecordIds[mid] > recordId) {
+        high = mid;
+      } else {
+        low = mid + 1;
+      }
+    }
+    return low;
+  }
+
+  private void skipFully(int length) throws IOException {
+    for (long remaining = length; remaining > 0; ) {
+      final long skipped = is.skip(remaining);
+      if (skipped <= 0) {
+        throw new EOFException(
+            "File seems to be corrupted, Encountered EOF before skipping the complete record");
+      }
+      remaining -= skipped;
     }
   }
 
@@ -95,7 +247,15 @@ public class ArchiveHdfsLogReader implements ArchiveLogReader {
   }
 
   @Override public byte[] next() throws IOException {
-    byte[] current = currentRecord;
+    final ByteString current = nextRecord();
+    return current == null ? null : current.toByteArray();
+  }
+
+  /**
+   * The same as {@link #next()} except that the record is not copied.
+   */
+  @Override public ByteString nextRecord() throws IOException {
+    ByteString current = currentRecord;
     currentRecord = null;
     if (current != null) {
       currentRecordId++;
@@ -110,37 +270,20 @@ public class ArchiveHdfsLogReader implements ArchiveLogReader {
   }
 
   @Override public ByteBuffer readNext() throws IOException {
-    byte[] current = next();
+    ByteString current = nextRecord();
     if (current == null) {
       throw new NoSuchElementException();
     }
-    return ByteBuffer.wrap(current);
-  }
-
-  private int readLength() throws IOException {
-    int length;
-    try {
-      length = is.readInt();
-    } catch (EOFException e) {
-      if (files.size() <= fileCounter) {
-        LOG.trace("EOF and no more file to read, throwing back", e);
-        throw e;
-      } else {
-        LOG.trace("EOF.. Opening next file: {}!!", files.get(fileCounter).getPath());
-        openNextFilePath();
-        length = is.readInt();
-      }
-    }
-    return length;
+    return current.asReadOnlyByteBuffer();
   }
 
   @Override public void readNext(ByteBuffer buffer) throws IOException {
     Preconditions.checkNotNull(buffer, "buffer is NULL");
-    byte[] current = next();
+    ByteString current = nextRecord();
     if (current == null) {
       throw new NoSuchElementException();
     }
-    buffer.put(current);
+    current.copyTo(buffer);
   }
 
 
@@ -188,20 +331,96 @@ public class ArchiveHdfsLogReader implements ArchiveLogReader {
     }
   }
 
+  /**
+   * Load the record of {@link #currentRecordId} as the {@link #currentRecord},
+   * or set it to null if there are no more records.
+   */
   private void loadNext() throws IOException {
-    int length;
-    try {
-      length = readLength();
-    } catch (EOFException e) {
-      currentRecord = null;
-      return;
+    currentRecord = null;
+    for (;;) {
+      if (index != null) {
+        final long i = currentRecordId - fileStartRecordId;
+        if (i >= 0 && i < index.numRecords) {
+          currentRecord = getIndexedRecord(i);
+          return;
+        }
+      } else {
+        int length = -1;
+        try {
+          length = is.readInt();
+        } catch (EOFException e) {
+          LOG.trace("EOF of the current file", e);
+        }
+        if (length >= 0) {
+          byte[] bytes = new byte[length];
+          try {
+            is.readFully(bytes);
+          } catch (EOFException e) {
+            throw new EOFException(
+                "File seems to be corrupted, Encountered EOF before reading the complete record");
+          }
+          currentRecord = UnsafeByteOperations.unsafeWrap(bytes);
+          return;
+        }
+      }
+
+      // end of the current file
+      if (files.size() <= fileCounter) {
+        LOG.trace("EOF and no more file to read");
+        return;
+      }
+      LOG.trace("EOF.. Opening next file: {}!!", files.get(fileCounter).getPath());
+      openNextFilePath();
+      fileStartRecordId = currentRecordId;
+    }
+  }
+
+  private ByteString getIndexedRecord(long i) throws IOException {
+    final int b = Math.toIntExact(i / index.stride);
+    if (b != blockIndex) {
+      block = loadBlock(b);
+      blockIndex = b;
+    }
+    final int j = Math.toIntExact(i - (long) b * index.stride);
+    if (j >= block.size()) {
+      throw new EOFException("File seems to be corrupted, block " + b + " of "
+          + fileStatus.getPath() + " has only " + block.size() + " records");
+    }
+    return block.get(j);
+  }
+
+  /** Read and decode the given block of the current file, or get it from the cache. */
+  private List<ByteString> loadBlock(int b) throws IOException {
+    final String key = cache == null ? null : ArchiveBlockCache.getKey(
+        fileStatus.getPath().toString(), fileLength, fileStatus.getModificationTime(), b);
+    if (key != null) {
+      final List<ByteString> cached = cache.get(key);
+      if (cached != null) {
+        return cached;
+      }
+    }
+
+    final long start = index.offsets[b];
+    final long end = b + 1 < index.offsets.length ? index.offsets[b + 1] : index.dataEnd;
+    final byte[] bytes = new byte[Math.toIntExact(end - start)];
+    is.readFully(start, bytes);
+
+    // the records refer to the block bytes
+    final List<ByteString> records = new ArrayList<>(index.stride);
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    while (buffer.hasRemaining()) {
+      final int length = buffer.remaining() < 4 ? -1 : buffer.getInt();
+      if (length < 0 || length > buffer.remaining()) {
+        throw new EOFException("File seems to be corrupted, block " + b + " of "
+            + fileStatus.getPath() + " has an incomplete record");
+      }
+      records.add(UnsafeByteOperations.unsafeWrap(bytes, buffer.position(), length));
+      buffer.position(buffer.position() + length);
     }
-    byte[] bytes = new byte[length];
-    if (is.read(bytes) != length) {
-      throw new EOFException(
-          "File seems to be corrupted, Encountered EOF before reading the complete record");
+    if (key != null) {
+      cache.put(key, records, bytes.length);
     }
-    currentRecord = bytes;
+    return records;
   }
 
   //Only for testing
@@ -30,13 +30,31 @@ import org.apache.ratis.logservice.api.ArchiveLogWriter;
 import org.apache.ratis.logservice.api.LogName;
 import org.apache.ratis.logservice.util.LogServiceUtils;
 
+/**
+ * Write the records to archive files as length-prefixed records.
+ *
+ * When a file is rolled or closed, a footer is appended to the file:
+ * the offsets of every {@link #INDEX_STRIDE} records followed by a fixed-size trailer,
+ * so that {@link ArchiveHdfsLogReader} can locate a record without reading the file from the beginning.
+ * <pre>
+ *   record*  offset(long)*  stride(int)  numOffsets(int)  numRecords(long)  dataEnd(long)  magic(long)
+ * </pre>
+ */
 public class ArchiveHdfsLogWriter implements ArchiveLogWriter {
+  /** The number of records between two indexed offsets, i.e. the number of records in a block. */
+  static final int INDEX_STRIDE = 256;
+  static final long FOOTER_MAGIC = 0x5241544953415243L; // "RATISARC"
+  static final int FOOTER_TRAILER_SIZE = 4 + 4 + 8 + 8 + 8;
+
   private final Configuration configuration;
   private FileSystem hdfs;
   private FSDataOutputStream os;
   private Path currentPath;
   private long currentRecordId;
   private long lastRollRecordId;
+  private final byte[] chunk = new byte[8192];
+  /** The offsets of every {@link #INDEX_STRIDE} records in the current file. */
+  private final List<Long> offsets = new ArrayList<>();
 
   public ArchiveHdfsLogWriter(Configuration conf) {
     this.configuration = conf;
@@ -47,8 +65,9 @@ public class ArchiveHdfsLogWriter implements ArchiveLogWriter {
   }
 
   @Override public void init(String archiveLocation, LogName logName) throws IOException {
-    hdfs = FileSystem.get(configuration);
     Path loc = new Path(LogServiceUtils.getArchiveLocationForLog(archiveLocation, logName));
+    // use the file system of the location, e.g. a file:// location is written to the local file system
+    hdfs = loc.getFileSystem(configuration);
     if (!hdfs.exists(loc)) {
       hdfs.mkdirs(loc);
     }
@@ -56,17 +75,26 @@ public class ArchiveHdfsLogWriter implements ArchiveLogWriter {
     os = hdfs.create(currentPath, true);
   }
 
+  /**
+   * Write the bytes from the beginning of the given buffer up to its limit as a record.
+   */
   @Override public long write(ByteBuffer buffer) throws IOException {
+    if ((currentRecordId - lastRollRecordId) % INDEX_STRIDE == 0) {
+      offsets.add(os.getPos());
+    }
+    int length = buffer.limit();
+    os.writeInt(length);
     if (buffer.hasArray()) {
-      int startIndex = buffer.arrayOffset();
-      int curIndex = buffer.arrayOffset() + buffer.position();
-      int endIndex = curIndex + buffer.remaining();
-      int length = endIndex - startIndex;
-      os.writeInt(length);
-      os.write(buffer.array(), startIndex, length);
+      os.write(buffer.array(), buffer.arrayOffset(), length);
     } else {
-      throw new IllegalArgumentException(
-          "Currently array backed byte buffer is only supported for archive write !!");
+      // e.g. a read-only or a direct buffer; copy it through the chunk buffer
+      ByteBuffer b = buffer.duplicate();
+      b.position(0);
+      while (b.hasRemaining()) {
+        int n = Math.min(b.remaining(), chunk.length);
+        b.get(chunk, 0, n);
+        os.write(chunk, 0, n);
+      }
     }
     currentRecordId++;
     return currentRecordId;
@@ -81,10 +109,25 @@ public class ArchiveHdfsLogWriter implements ArchiveLogWriter {
   }
 
   @Override public long sync() throws IOException {
-    return 0;
+    os.hflush();
+    return currentRecordId;
+  }
+
+  private void writeFooter() throws IOException {
+    final long dataEnd = os.getPos();
+    for (long offset : offsets) {
+      os.writeLong(offset);
+    }
+    os.writeInt(INDEX_STRIDE);
+    os.writeInt(offsets.size());
+    os.writeLong(currentRecordId - lastRollRecordId);
+    os.writeLong(dataEnd);
+    os.writeLong(FOOTER_MAGIC);
+    offsets.clear();
   }
 
   @Override public void close() throws IOException {
+    writeFooter();
     os.close();
     if (lastRollRecordId != currentRecordId) {
       hdfs.rename(currentPath, new Path(currentPath + "_recordId_" + currentRecordId));
@@ -94,6 +137,7 @@ public class ArchiveHdfsLogWriter implements ArchiveLogWriter {
   @Override public void rollWriter() throws IOException {
     if (lastRollRecordId != currentRecordId) {
       //close old file
+      writeFooter();
       os.close();
       hdfs.rename(currentPath,
           new Path(LogServiceUtils.getRolledPathForArchiveWriter(currentPath, currentRecordId)));
@@ -104,7 +148,6 @@ public class ArchiveHdfsLogWriter implements ArchiveLogWriter {
   }
 
   @Override public long getLastWrittenRecordId() throws IOException {
-    os.hflush();
     return currentRecordId;
   }
 
@@ -22,6 +22,7 @@ import java.util.Collection;
 
 import org.apache.ratis.client.RaftClient;
 import org.apache.ratis.logservice.api.ArchiveLogReader;
+import org.apache.ratis.logservice.api.AsyncLogWriter;
 import org.apache.ratis.logservice.api.LogName;
 import org.apache.ratis.logservice.api.LogServiceConfiguration;
 import org.apache.ratis.logservice.api.LogStream;
@@ -101,6 +102,11 @@ public class ArchivedLogStreamImpl implements LogStream {
     throw new UnsupportedOperationException("Archived log cannot be written");
   }
 
+  @Override
+  public AsyncLogWriter createAsyncWriter() {
+    throw new UnsupportedOperationException("Archived log cannot be written");
+  }
+
   @Override
   public long getLastRecordId() throws IOException {
     throw new UnsupportedOperationException("getLastRecordId()");
@@ -128,6 +134,10 @@ public class ArchivedLogStreamImpl implements LogStream {
     throw new UnsupportedOperationException("Add record listener");
   }
 
+  @Override public void addRecordListener(RecordListener listener, long startRecordId) {
+    throw new UnsupportedOperationException("Add record listener");
+  }
+
   @Override public boolean removeRecordListener(RecordListener listener) {
     throw new UnsupportedOperationException("remove record listener");
   }
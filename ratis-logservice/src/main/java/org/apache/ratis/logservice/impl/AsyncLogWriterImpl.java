@@ -0,0 +1,348 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.logservice.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.ratis.client.RaftClient;
+import org.apache.ratis.logservice.api.AsyncLogWriter;
+import org.apache.ratis.logservice.api.LogServiceConfiguration;
+import org.apache.ratis.logservice.api.LogStream;
+import org.apache.ratis.logservice.common.Constants;
+import org.apache.ratis.logservice.proto.LogServiceProtos.AppendLogEntryReplyProto;
+import org.apache.ratis.logservice.proto.LogServiceProtos.LogServiceException;
+import org.apache.ratis.logservice.proto.LogServiceProtos.LogServiceRequestProto;
+import org.apache.ratis.logservice.proto.LogServiceProtos.SyncLogReplyProto;
+import org.apache.ratis.logservice.util.LogServiceProtoUtil;
+import org.apache.ratis.protocol.Message;
+import org.apache.ratis.protocol.RaftClientReply;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.apache.ratis.util.Daemon;
+import org.apache.ratis.util.IOUtils;
+import org.apache.ratis.util.JavaUtils;
+import org.apache.ratis.util.MemoizedSupplier;
+import org.apache.ratis.util.Preconditions;
+import org.apache.ratis.util.TimeDuration;
+import org.apache.ratis.util.TimeoutScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link AsyncLogWriter} using the async api of the raft client.
+ * The requests are queued while holding the lock of this object
+ * and then sent in the queue order without holding the lock,
+ * so that the records are appended in the order they are written.
+ */
+public class AsyncLogWriterImpl implements AsyncLogWriter {
+  public static final Logger LOG = LoggerFactory.getLogger(AsyncLogWriterImpl.class);
+
+  /** The records to be sent in a single append request. */
+  private static class Batch {
+    private final List<ByteString> records = new ArrayList<>();
+    private final List<CompletableFuture<Long>> futures = new ArrayList<>();
+    private long numBytes = 0;
+
+    void add(ByteString record, CompletableFuture<Long> future) {
+      records.add(record);
+      futures.add(future);
+      numBytes += record.size();
+    }
+
+    void complete(List<Long> ids, Throwable e) {
+      if (e == null && ids.size() != futures.size()) {
+        e = new IOException("Unexpected number of recordIds: " + ids.size() + " != " + futures.size());
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        if (e != null) {
+          futures.get(i).completeExceptionally(e);
+        } else {
+          futures.get(i).complete(ids.get(i));
+        }
+      }
+    }
+  }
+
+  /** A request queued to be sent. */
+  private static class PendingRequest {
+    private final LogServiceRequestProto request;
+    private final CompletableFuture<RaftClientReply> replyFuture = new CompletableFuture<>();
+
+    PendingRequest(LogServiceRequestProto request) {
+      this.request = request;
+    }
+
+    void send(RaftClient client) {
+      final CompletableFuture<RaftClientReply> f;
+      try {
+        f = client.async().send(Message.valueOf(request.toByteString()));
+      } catch (RuntimeException e) {
+        replyFuture.completeExceptionally(e);
+        return;
+      }
+      f.whenComplete((reply, e) -> {
+        if (e != null) {
+          replyFuture.completeExceptionally(e);
+        } else {
+          replyFuture.complete(reply);
+        }
+      });
+    }
+  }
+
+  /*
+   * Parent log stream
+   */
+  private final LogStream parent;
+  /*
+   * Raft client
+   */
+  private final RaftClient raftClient;
+
+  private final int batchRecords;
+  private final long batchBytes;
+  private final TimeDuration linger;
+  /** For sending the batches on linger timeout; it must not block the scheduler. */
+  private final MemoizedSupplier<ExecutorService> lingerExecutor;
+
+  /*
+   * The current batch; guarded by this
+   */
+  private Batch batch;
+  /*
+   * Is this writer closed? guarded by this
+   */
+  private boolean closed = false;
+  /*
+   * The outstanding requests
+   */
+  private final Set<CompletableFuture<?>> outstanding = ConcurrentHashMap.newKeySet();
+  /*
+   * The requests to be sent, in the order they are written; added while holding the lock of this object
+   */
+  private final Queue<PendingRequest> pending = new ConcurrentLinkedQueue<>();
+  /*
+   * Is a thread sending the pending requests?
+   */
+  private final AtomicBoolean sending = new AtomicBoolean();
+
+  public AsyncLogWriterImpl(LogStream logStream) {
+    this.parent = logStream;
+    this.raftClient = logStream.getRaftClient();
+    final LogServiceConfiguration config = logStream.getConfiguration();
+    this.batchRecords = config.getInt(Constants.LOG_SERVICE_WRITER_BATCH_RECORDS_KEY,
+        Constants.DEFAULT_WRITER_BATCH_RECORDS);
+    this.batchBytes = config.getLong(Constants.LOG_SERVICE_WRITER_BATCH_BYTES_KEY,
+        Constants.DEFAULT_WRITER_BATCH_BYTES);
+    this.linger = TimeDuration.valueOf(config.getLong(Constants.LOG_SERVICE_WRITER_LINGER_KEY,
+        Constants.DEFAULT_WRITER_LINGER), TimeUnit.MILLISECONDS);
+    this.lingerExecutor = JavaUtils.memoize(() -> Executors.newSingleThreadExecutor(
+        r -> new Daemon(r, this + "-linger")));
+  }
+
+  @Override
+  public CompletableFuture<Long> write(ByteBuffer data) {
+    final CompletableFuture<Long> future = new CompletableFuture<>();
+    final ByteString record = ByteString.copyFrom(data.duplicate());
+    synchronized (this) {
+      if (closed) {
+        return JavaUtils.completeExceptionally(new IOException(this + " is already closed"));
+      }
+      if (batch == null) {
+        final Batch newBatch = new Batch();
+        batch = newBatch;
+        TimeoutScheduler.getInstance().onTimeout(linger, () -> flushOnLinger(newBatch),
+            LOG, () -> "Failed to flush " + this);
+      }
+      batch.add(record, future);
+      if (batch.records.size() >= batchRecords || batch.numBytes >= batchBytes) {
+        enqueueBatch();
+      }
+    }
+    sendPending();
+    return future;
+  }
+
+  @Override
+  public CompletableFuture<List<Long>> write(List<ByteBuffer> list) {
+    final List<ByteString> records = new ArrayList<>(list.size());
+    for (ByteBuffer data : list) {
+      records.add(ByteString.copyFrom(data.duplicate()));
+    }
+    final CompletableFuture<RaftClientReply> f;
+    synchronized (this) {
+      if (closed) {
+        return JavaUtils.completeExceptionally(new IOException(this + " is already closed"));
+      }
+      // enqueue the current batch first in order to preserve the order
+      enqueueBatch();
+      f = enqueue(LogServiceProtoUtil.toAppendByteStringEntryLogRequestProto(parent.getName(), records));
+    }
+    sendPending();
+    return f.thenApply(AsyncLogWriterImpl::toRecordIds);
+  }
+
+  private void flushOnLinger(Batch b) {
+    final ExecutorService executor = lingerExecutor.get();
+    if (!executor.isShutdown()) { // the batch is already sent if this writer is closed
+      executor.submit(() -> flush(b));
+    }
+  }
+
+  private void flush(Batch b) {
+    synchronized (this) {
+      if (batch == b) {
+        enqueueBatch();
+      }
+    }
+    sendPending();
+  }
+
+  @Override
+  public void flush() {
+    synchronized (this) {
+      enqueueBatch();
+    }
+    sendPending();
+  }
+
+  /** Enqueue the current batch, if there is any. */
+  private synchronized void enqueueBatch() {
+    final Batch b = batch;
+    if (b == null) {
+      return;
+    }
+    batch = null;
+    LOG.trace("{}: enqueue a batch of {} records, {} bytes", this, b.records.size(), b.numBytes);
+    enqueue(LogServiceProtoUtil.toAppendByteStringEntryLogRequestProto(parent.getName(), b.records))
+        .thenApply(AsyncLogWriterImpl::toRecordIds)
+        .whenComplete((ids, e) -> b.complete(ids, e == null ? null : JavaUtils.unwrapCompletionException(e)));
+  }
+
+  private synchronized CompletableFuture<RaftClientReply> enqueue(LogServiceRequestProto request) {
+    final PendingRequest p = new PendingRequest(request);
+    final CompletableFuture<RaftClientReply> f = p.replyFuture;
+    outstanding.add(f);
+    f.whenComplete((r, e) -> outstanding.remove(f));
+    pending.add(p);
+    return f;
+  }
+
+  /**
+   * Send the pending requests in the queue order.
+   * The send may block, so it must not be called while holding the lock of this object.
+   */
+  private void sendPending() {
+    Preconditions.assertTrue(!Thread.holdsLock(this), () -> this + ": sendPending is called while holding the lock");
+    // only one thread sends at a time; recheck the queue for the requests added during the send
+    while (!pending.isEmpty() && sending.compareAndSet(false, true)) {
+      try {
+        for (PendingRequest p; (p = pending.poll()) != null; ) {
+          p.send(raftClient);
+        }
+      } finally {
+        sending.set(false);
+      }
+    }
+  }
+
+  private static List<Long> toRecordIds(RaftClientReply reply) {
+    try {
+      checkReply(reply);
+      final AppendLogEntryReplyProto proto = AppendLogEntryReplyProto.parseFrom(reply.getMessage().getContent());
+      checkException(proto.hasException() ? proto.getException() : null);
+      return proto.getRecordIdList();
+    } catch (IOException e) {
+      throw new CompletionException(e);
+    }
+  }
+
+  @Override
+  public CompletableFuture<Long> sync() {
+    final CompletableFuture<RaftClientReply> f;
+    synchronized (this) {
+      enqueueBatch();
+      f = enqueue(LogServiceProtoUtil.toSyncLogRequestProto(parent.getName()));
+    }
+    sendPending();
+    return f.thenApply(reply -> {
+      try {
+        checkReply(reply);
+        final SyncLogReplyProto proto = SyncLogReplyProto.parseFrom(reply.getMessage().getContent());
+        checkException(proto.hasException() ? proto.getException() : null);
+        return proto.getLastRecordId();
+      } catch (IOException e) {
+        throw new CompletionException(e);
+      }
+    });
+  }
+
+  private static void checkReply(RaftClientReply reply) throws IOException {
+    if (reply.getException() != null) {
+      throw new IOException(reply.getException());
+    }
+  }
+
+  private static void checkException(LogServiceException e) throws IOException {
+    if (e != null) {
+      throw new IOException(e.getErrorMsg());
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      enqueueBatch();
+    }
+    sendPending();
+    if (lingerExecutor.isInitialized()) {
+      lingerExecutor.get().shutdown();
+    }
+    try {
+      CompletableFuture.allOf(outstanding.toArray(new CompletableFuture<?>[0])).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw IOUtils.toInterruptedIOException("Interrupted when closing " + this, e);
+    } catch (ExecutionException e) {
+      // the failure is already reported to the corresponding write futures
+      LOG.debug("{}: some outstanding writes have failed", this, e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return JavaUtils.getClassSimpleName(getClass()) + "-" + parent.getName();
+  }
+}
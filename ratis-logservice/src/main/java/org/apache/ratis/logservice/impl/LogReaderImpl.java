@@ -19,24 +19,31 @@ package org.apache.ratis.logservice.impl;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 
 import org.apache.ratis.client.RaftClient;
 import org.apache.ratis.logservice.api.LogReader;
 import org.apache.ratis.logservice.api.LogServiceConfiguration;
 import org.apache.ratis.logservice.api.LogStream;
+import org.apache.ratis.logservice.common.Constants;
 import org.apache.ratis.logservice.proto.LogServiceProtos.*;
 import org.apache.ratis.logservice.util.LogServiceProtoUtil;
 import org.apache.ratis.protocol.Message;
 import org.apache.ratis.protocol.RaftClientReply;
 import org.apache.ratis.thirdparty.com.google.common.base.Preconditions;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Log Reader implementation. This class is not thread-safe
  *
+ * The server keeps a reader session for the cursor returned by each read
+ * so that sequential reads continue from the session without seeking again.
+ * {@link #readNext()} lets the server choose the batch size and prefetches the extra records.
  */
 
 public class LogReaderImpl implements LogReader {
@@ -60,71 +67,118 @@ public class LogReaderImpl implements LogReader {
    */
   private long currentRecordId;
 
+  /*
+   * The cursor of the server reader session; 0 means no cursor
+   */
+  private long cursorId = 0;
+
+  /*
+   * The records prefetched from the server, starting at the current position
+   */
+  private final Deque<ByteString> prefetched = new ArrayDeque<>();
+
+  /*
+   * The max number of bytes in a read reply; 0 means the server default
+   */
+  private final long maxBytes;
+
   public LogReaderImpl(LogStream logStream) {
+    this(logStream, logStream.getRaftClient());
+  }
+
+  LogReaderImpl(LogStream logStream, RaftClient raftClient) {
     this.parent = logStream;
-    this.raftClient = logStream.getRaftClient();
+    this.raftClient = raftClient;
     this.config = logStream.getConfiguration();
+    this.maxBytes = config.getLong(Constants.LOG_SERVICE_READER_BATCH_BYTES_KEY, 0);
   }
 
   @Override
   public void seek(long recordId) throws IOException {
     Preconditions.checkArgument(recordId >= 0, "recordId must be >= 0");
     this.currentRecordId = recordId;
+    // The cursor is kept; the server starts a new session if the position does not match.
+    this.prefetched.clear();
   }
 
-  @Override
-  public ByteBuffer readNext() throws IOException {
-
-    try {
-      RaftClientReply reply =
-          raftClient
-              .io().sendReadOnly(Message.valueOf(LogServiceProtoUtil
-                  .toReadLogRequestProto(parent.getName(), currentRecordId, 1).toByteString()));
-      if (reply.getException() != null) {
-        throw new IOException(reply.getException());
+  /**
+   * Read the records starting at the current position, first from the prefetched records
+   * and then from the server reader session identified by the cursor.
+   *
+   * A bulk read may take more than one request since a reply is limited by the byte limit of the server.
+   *
+   * @param numRecords the max number of records to return
+   * @param prefetch let the server choose the batch size and keep the extra records for the subsequent reads?
+   * @param waitForRecords let the server wait for new records if there is no record to read?
+   * @return the records read, which may be fewer than the requested number.
+   */
+  private List<ByteString> read(int numRecords, boolean prefetch, boolean waitForRecords)
+      throws IOException {
+    final List<ByteString> records = new ArrayList<>();
+    while (records.size() < numRecords && !prefetched.isEmpty()) {
+      records.add(prefetched.poll());
+    }
+    long start = currentRecordId + records.size();
+    while (records.size() < numRecords) {
+      final int remaining = numRecords - records.size();
+      final ReadLogReplyProto proto;
+      try {
+        RaftClientReply reply = raftClient.io().sendReadOnly(Message.valueOf(LogServiceProtoUtil
+            .toReadLogRequestProto(parent.getName(), start, prefetch ? 0 : remaining, maxBytes, cursorId,
+                waitForRecords).toByteString()));
+        if (reply.getException() != null) {
+          throw new IOException(reply.getException());
+        }
+
+        // The records refer to the reply content so that they are not copied
+        proto = LogServiceProtoUtil.parseWithAliasing(
+            reply.getMessage().getContent(), ReadLogReplyProto.parser());
+        if (proto.hasException()) {
+          LogServiceException e = proto.getException();
+          throw new IOException(e.getErrorMsg());
+        }
+      } catch (Exception e) {
+        throw new IOException(e);
       }
-
-      ReadLogReplyProto proto = ReadLogReplyProto.parseFrom(reply.getMessage().getContent());
-      if (proto.hasException()) {
-        LogServiceException e = proto.getException();
-        throw new IOException(e.getErrorMsg());
+      cursorId = proto.getCursorId();
+      final int n = proto.getLogRecordCount();
+      for (int i = 0; i < n; i++) {
+        if (i < remaining) {
+          records.add(proto.getLogRecord(i));
+        } else {
+          prefetched.add(proto.getLogRecord(i));
+        }
+      }
+      if (prefetch || waitForRecords || !proto.getHasMore()) {
+        break;
       }
+      // the server has stopped at its limits; continue from the returned position
+      start = proto.getNextRecordId();
+    }
+    currentRecordId += records.size();
+    return records;
+  }
 
+  @Override
+  public ByteBuffer readNext() throws IOException {
+    final List<ByteString> records = read(1, true, false);
+    if (records.isEmpty()) {
       currentRecordId++;
-
-      if (proto.getLogRecordCount() > 0) {
-        return ByteBuffer.wrap(proto.getLogRecord(0).toByteArray());
-      } else {
-        return null;
-      }
-    } catch (Exception e) {
-      throw new IOException(e);
+      return null;
     }
+    return records.get(0).asReadOnlyByteBuffer();
   }
 
   @Override
   public void readNext(ByteBuffer buffer) throws IOException {
 
     Preconditions.checkNotNull(buffer, "buffer is NULL" );
-    try {
-      RaftClientReply reply = raftClient.io().sendReadOnly(Message.valueOf(LogServiceProtoUtil
-          .toReadLogRequestProto(parent.getName(), currentRecordId, 1).toByteString()));
-      if (reply.getException() != null) {
-        throw new IOException(reply.getException());
-      }
-
-      ReadLogReplyProto proto = ReadLogReplyProto.parseFrom(reply.getMessage().getContent());
-      if (proto.hasException()) {
-        LogServiceException e = proto.getException();
-        throw new IOException(e.getErrorMsg());
-      }
+    final List<ByteString> records = read(1, true, false);
+    if (records.isEmpty()) {
       currentRecordId++;
-      if (proto.getLogRecordCount() > 0) {
-        // TODO limits
-        buffer.put(proto.getLogRecord(0).toByteArray());
-      }
-    } catch (Exception e) {
-      throw new IOException(e);
+    } else {
+      // TODO limits
+      records.get(0).copyTo(buffer);
     }
   }
 
@@ -132,31 +186,12 @@ public class LogReaderImpl implements LogReader {
   public List<ByteBuffer> readBulk(int numRecords) throws IOException {
     Preconditions.checkArgument(numRecords > 0, "number of records must be greater than 0");
 
-    try {
-      RaftClientReply reply = raftClient
-          .io().sendReadOnly(Message.valueOf(LogServiceProtoUtil
-              .toReadLogRequestProto(parent.getName(), currentRecordId, numRecords).toByteString()));
-      if (reply.getException() != null) {
-        throw new IOException(reply.getException());
-      }
-
-      ReadLogReplyProto proto = ReadLogReplyProto.parseFrom(reply.getMessage().getContent());
-      if (proto.hasException()) {
-        LogServiceException e = proto.getException();
-        throw new IOException(e.getErrorMsg());
-      }
-      int n = proto.getLogRecordCount();
-
-      // TODO correct current record
-      currentRecordId += n;
-      List<ByteBuffer> ret = new ArrayList<ByteBuffer>();
-      for (int i = 0; i < n; i++) {
-        ret.add(ByteBuffer.wrap(proto.getLogRecord(i).toByteArray()));
-      }
-      return ret;
-    } catch (Exception e) {
-      throw new IOException(e);
+    final List<ByteString> records = read(numRecords, false, false);
+    List<ByteBuffer> ret = new ArrayList<ByteBuffer>();
+    for (ByteString record : records) {
+      ret.add(record.asReadOnlyByteBuffer());
     }
+    return ret;
   }
 
   @Override
@@ -164,28 +199,28 @@ public class LogReaderImpl implements LogReader {
     Preconditions.checkNotNull(buffers, "list of buffers is NULL" );
     Preconditions.checkArgument(buffers.length > 0, "list of buffers is empty");
 
-    try {
-      RaftClientReply reply = raftClient.io().sendReadOnly(Message.valueOf(LogServiceProtoUtil
-          .toReadLogRequestProto(parent.getName(), currentRecordId, buffers.length).toByteString()));
-      if (reply.getException() != null) {
-        throw new IOException(reply.getException());
-      }
-
-      ReadLogReplyProto proto = ReadLogReplyProto.parseFrom(reply.getMessage().getContent());
-      if (proto.hasException()) {
-        LogServiceException e = proto.getException();
-        throw new IOException(e.getErrorMsg());
-      }
-      // TODO correct current record
-      int n = proto.getLogRecordCount();
-      currentRecordId += n;
-      for (int i = 0; i < n; i++) {
-        buffers[i] = ByteBuffer.wrap(proto.getLogRecord(i).toByteArray());
+    final List<ByteString> records = read(buffers.length, false, false);
+    int n = records.size();
+    for (int i = 0; i < n; i++) {
+      if (buffers[i] == null) {
+        buffers[i] = records.get(i).asReadOnlyByteBuffer();
+      } else {
+        // fill the caller buffer directly
+        records.get(i).copyTo(buffers[i]);
       }
-      return n;
-    } catch (Exception e) {
-      throw new IOException(e);
     }
+    return n;
+  }
+
+  /**
+   * Read a server-chosen batch of records starting at the current position.
+   * If there is no record to read, the server waits for new records for a while before replying,
+   * so that a subscriber does not have to poll the server in a busy loop.
+   *
+   * @return the records read, which may be empty.
+   */
+  List<ByteString> readTail() throws IOException {
+    return read(Integer.MAX_VALUE, true, true);
   }
 
   @Override
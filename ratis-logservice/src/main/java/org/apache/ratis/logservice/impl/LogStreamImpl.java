@@ -21,9 +21,12 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ratis.client.RaftClient;
+import org.apache.ratis.logservice.api.AsyncLogWriter;
 import org.apache.ratis.logservice.api.LogName;
 import org.apache.ratis.logservice.api.LogReader;
 import org.apache.ratis.logservice.api.LogServiceConfiguration;
@@ -39,6 +42,7 @@ import org.apache.ratis.logservice.proto.LogServiceProtos.LogServiceException;
 import org.apache.ratis.logservice.util.LogServiceProtoUtil;
 import org.apache.ratis.protocol.Message;
 import org.apache.ratis.protocol.RaftClientReply;
+import org.apache.ratis.util.function.CheckedSupplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,6 +53,10 @@ public class LogStreamImpl implements LogStream {
    * Log stream listeners
    */
   private List<RecordListener> listeners;
+  /*
+   * Map: listener -> subscription, guarded by listeners
+   */
+  private final Map<RecordListener, RecordSubscription> subscriptions = new HashMap<>();
   /*
    * Log stream name
    */
@@ -61,6 +69,11 @@ public class LogStreamImpl implements LogStream {
    * Log stream configuration
    */
   private LogServiceConfiguration config;
+  /*
+   * Create a dedicated raft client for each subscription since a subscription read may be held
+   * by the server until new records are committed; null means sharing raftClient.
+   */
+  private final CheckedSupplier<RaftClient, IOException> subscriptionClients;
   /*
    * State
    */
@@ -73,16 +86,19 @@ public class LogStreamImpl implements LogStream {
 
 
   public LogStreamImpl(LogName name, RaftClient raftClient) {
-    this.raftClient = raftClient;
-    this.name = name;
-    this.config = LogServiceConfiguration.create();
-    init();
+    this(name, raftClient, LogServiceConfiguration.create());
   }
 
   public LogStreamImpl(LogName name, RaftClient raftClient, LogServiceConfiguration config) {
+    this(name, raftClient, config, null);
+  }
+
+  public LogStreamImpl(LogName name, RaftClient raftClient, LogServiceConfiguration config,
+      CheckedSupplier<RaftClient, IOException> subscriptionClients) {
     this.raftClient = raftClient;
     this.name = name;
     this.config = config;
+    this.subscriptionClients = subscriptionClients;
     init();
   }
 
@@ -151,6 +167,11 @@ public class LogStreamImpl implements LogStream {
     return new LogWriterImpl(this);
   }
 
+  @Override
+  public AsyncLogWriter createAsyncWriter() {
+    return new AsyncLogWriterImpl(this);
+  }
+
   @Override
   public long getLastRecordId() throws IOException {
     try {
@@ -208,22 +229,45 @@ public class LogStreamImpl implements LogStream {
   @Override
   public void close() throws Exception {
     // TODO Auto-generated method stub
+    synchronized (listeners) {
+      subscriptions.values().forEach(RecordSubscription::close);
+      subscriptions.clear();
+      listeners.clear();
+    }
     raftClient.close();
     state = State.CLOSED;
   }
 
   @Override
   public void addRecordListener(RecordListener listener) {
+    try {
+      addRecordListener(listener, getLength());
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to add listener " + listener.getName() + " to " + name, e);
+    }
+  }
+
+  @Override
+  public void addRecordListener(RecordListener listener, long startRecordId) throws IOException {
     synchronized (listeners) {
       if (!listeners.contains(listener)) {
         listeners.add(listener);
+        final RaftClient client = subscriptionClients != null ? subscriptionClients.get() : null;
+        subscriptions.put(listener,
+            new RecordSubscription(this, client, listener, startRecordId).start());
       }
     }
   }
 
   @Override
   public boolean removeRecordListener(RecordListener listener) {
-    return listeners.remove(listener);
+    synchronized (listeners) {
+      final RecordSubscription subscription = subscriptions.remove(listener);
+      if (subscription != null) {
+        subscription.close();
+      }
+      return listeners.remove(listener);
+    }
   }
 
   @Override
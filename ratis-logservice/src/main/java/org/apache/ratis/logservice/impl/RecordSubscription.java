@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.logservice.impl;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ratis.client.RaftClient;
+import org.apache.ratis.logservice.api.LogStream;
+import org.apache.ratis.logservice.api.RecordListener;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.apache.ratis.util.Daemon;
+import org.apache.ratis.util.TimeDuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A subscription to the tail of a {@link LogStream} for a {@link RecordListener}.
+ *
+ * The subscription keeps one outstanding read, which the server holds until new records are committed,
+ * and then passes the records to the listener before sending the next read.
+ * Therefore, a slow listener slows down the subscription instead of buffering unbounded records.
+ */
+class RecordSubscription implements AutoCloseable {
+  public static final Logger LOG = LoggerFactory.getLogger(RecordSubscription.class);
+
+  private static final TimeDuration RETRY_SLEEP = TimeDuration.valueOf(100, TimeUnit.MILLISECONDS);
+
+  private final String name;
+  private final RecordListener listener;
+  /** The dedicated client owned by this subscription, or null if it shares the stream client. */
+  private final RaftClient client;
+  private final LogReaderImpl reader;
+  private final Daemon daemon;
+  private volatile boolean running = true;
+
+  RecordSubscription(LogStream stream, RaftClient client, RecordListener listener, long startRecordId)
+      throws IOException {
+    this.name = stream.getName() + "-" + listener.getName() + "-subscription";
+    this.listener = listener;
+    this.client = client;
+    this.reader = new LogReaderImpl(stream, client != null ? client : stream.getRaftClient());
+    reader.seek(startRecordId);
+    this.daemon = new Daemon(this::run, name);
+  }
+
+  RecordSubscription start() {
+    daemon.start();
+    return this;
+  }
+
+  RecordListener getListener() {
+    return listener;
+  }
+
+  private void run() {
+    while (running) {
+      final List<ByteString> records;
+      try {
+        records = reader.readTail();
+      } catch (IOException e) {
+        if (!running) {
+          return;
+        }
+        LOG.warn("{}: Failed to read at position {}, retry after {}", name, reader.getPosition(), RETRY_SLEEP, e);
+        try {
+          RETRY_SLEEP.sleep();
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        continue;
+      }
+
+      for (ByteString record : records) {
+        if (!running) {
+          return;
+        }
+        try {
+          listener.accept(record.asReadOnlyByteBuffer());
+        } catch (RuntimeException e) {
+          LOG.warn("{}: Listener failed to accept a record", name, e);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    daemon.interrupt();
+    if (client != null) {
+      try {
+        client.close();
+      } catch (IOException e) {
+        LOG.warn("{}: Failed to close the client", name, e);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
@@ -24,6 +24,7 @@ import java.util.NoSuchElementException;
 import org.apache.ratis.logservice.proto.LogServiceProtos.AppendLogEntryRequestProto;
 import org.apache.ratis.logservice.proto.LogServiceProtos.LogServiceRequestProto;
 import org.apache.ratis.logservice.proto.LogServiceProtos.LogServiceRequestProto.RequestCase;
+import org.apache.ratis.logservice.util.LogServiceProtoUtil;
 import org.apache.ratis.proto.RaftProtos.LogEntryProto;
 import org.apache.ratis.server.raftlog.RaftLog;
 import org.apache.ratis.server.raftlog.RaftLogIOException;
@@ -40,6 +41,8 @@ import org.slf4j.LoggerFactory;
 public class LogServiceRaftLogReader implements  RaftLogReader{
   private static final Logger LOG = LoggerFactory.getLogger(LogServiceRaftLogReader.class);
   private final RaftLog raftLog;
+  /** The index for seeking; null means seeking from the start of the log. */
+  private final RecordIdIndex recordIdIndex;
 
   private long currentRecordId = -1;
   private long currentRaftIndex = -1;
@@ -48,7 +51,12 @@ public class LogServiceRaftLogReader implements  RaftLogReader{
   private ByteString currentRecord = null;
 
   public LogServiceRaftLogReader(RaftLog raftLog) {
+    this(raftLog, null);
+  }
+
+  public LogServiceRaftLogReader(RaftLog raftLog, RecordIdIndex recordIdIndex) {
     this.raftLog = requireNonNull(raftLog);
+    this.recordIdIndex = recordIdIndex;
   }
 
   /**
@@ -58,9 +66,17 @@ public class LogServiceRaftLogReader implements  RaftLogReader{
   @Override
   public void seek(long recordId) throws RaftLogIOException, InvalidProtocolBufferException {
     LOG.trace("Seeking to recordId={}", recordId);
-    // RaftLog starting index
-    currentRaftIndex = raftLog.getStartIndex();
-    currentRecordId = 0;
+    final RecordIdIndex.Position position = recordIdIndex == null ? null : recordIdIndex.floor(recordId);
+    if (position != null && position.getRaftIndex() >= raftLog.getStartIndex()) {
+      // Start from the log entry containing the closest indexed record
+      currentRaftIndex = position.getRaftIndex();
+      currentRecordId = position.getRecordId() - position.getOffset();
+    } else {
+      // RaftLog starting index
+      currentRaftIndex = raftLog.getStartIndex();
+      currentRecordId = 0;
+    }
+    LOG.trace("Seek from raftIndex={}, recordId={}", currentRaftIndex, currentRecordId);
 
     currentLogEntry = null;
     currentLogEntryOffset = -1;
@@ -68,16 +84,22 @@ public class LogServiceRaftLogReader implements  RaftLogReader{
 
     loadNext();
     while (currentRecordId < recordId && hasNext()) {
-      next();
+      // skip the record without copying it
+      loadNext();
       currentRecordId++;
     }
   }
 
   /**
    * Returns true if there is a log entry to read.
+   * If this reader has read off the end of the log, check again for the newly committed entries
+   * so that a positioned reader can be reused for tailing the log.
    */
   @Override
   public boolean hasNext() throws RaftLogIOException, InvalidProtocolBufferException {
+    if (currentRecord == null && currentRaftIndex <= raftLog.getLastCommittedIndex()) {
+      loadNext();
+    }
     return currentRecord != null;
   }
 
@@ -87,13 +109,22 @@ public class LogServiceRaftLogReader implements  RaftLogReader{
    */
   @Override
   public byte[] next() throws RaftLogIOException, InvalidProtocolBufferException {
+    return nextRecord().toByteArray();
+  }
+
+  /**
+   * Returns the next record without copying it; the record refers to the data of the raft log entry.
+   * Ensure {@link #hasNext()} returns true before calling this method.
+   */
+  @Override
+  public ByteString nextRecord() throws RaftLogIOException, InvalidProtocolBufferException {
     if (currentRecord == null) {
       throw new NoSuchElementException();
     }
     ByteString current = currentRecord;
     currentRecord = null;
     loadNext();
-    return current.toByteArray();
+    return current;
   }
 
   /**
@@ -137,8 +168,9 @@ public class LogServiceRaftLogReader implements  RaftLogReader{
           continue;
         }
 
-        LogServiceRequestProto logServiceProto =
-            LogServiceRequestProto.parseFrom(entry.getStateMachineLogEntry().getLogData());
+        // The records refer to the log data so that they are not copied
+        LogServiceRequestProto logServiceProto = LogServiceProtoUtil.parseWithAliasing(
+            entry.getStateMachineLogEntry().getLogData(), LogServiceRequestProto.parser());
         // TODO is it possible to get LogService messages that aren't appends?
         if (RequestCase.APPENDREQUEST != logServiceProto.getRequestCase()) {
           continue;
@@ -21,33 +21,40 @@ import static org.apache.ratis.logservice.api.LogStream.State;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 import com.codahale.metrics.Timer;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.ratis.client.RaftClient;
 import org.apache.ratis.conf.RaftProperties;
 import org.apache.ratis.logservice.api.ArchiveLogWriter;
 import org.apache.ratis.logservice.api.LogName;
 import org.apache.ratis.logservice.common.Constants;
+import org.apache.ratis.logservice.impl.ArchiveBlockCache;
 import org.apache.ratis.logservice.impl.ArchiveHdfsLogReader;
 import org.apache.ratis.logservice.impl.ArchiveHdfsLogWriter;
 import org.apache.ratis.logservice.metrics.LogServiceMetrics;
@@ -56,6 +63,7 @@ import org.apache.ratis.logservice.proto.LogServiceProtos.AppendLogEntryRequestP
 import org.apache.ratis.logservice.proto.LogServiceProtos.GetLogLengthRequestProto;
 import org.apache.ratis.logservice.proto.LogServiceProtos.GetLogSizeRequestProto;
 import org.apache.ratis.logservice.proto.LogServiceProtos.LogServiceRequestProto;
+import org.apache.ratis.logservice.proto.LogServiceProtos.ReadLogReplyProto;
 import org.apache.ratis.logservice.proto.LogServiceProtos.ReadLogRequestProto;
 import org.apache.ratis.logservice.util.LogServiceProtoUtil;
 import org.apache.ratis.logservice.util.LogServiceUtils;
@@ -76,9 +84,15 @@ import org.apache.ratis.statemachine.TransactionContext;
 import org.apache.ratis.statemachine.impl.BaseStateMachine;
 import org.apache.ratis.statemachine.impl.SimpleStateMachineStorage;
 import org.apache.ratis.statemachine.impl.SingleFileSnapshotInfo;
+import org.apache.ratis.thirdparty.com.google.common.annotations.VisibleForTesting;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
 import org.apache.ratis.thirdparty.com.google.protobuf.TextFormat;
 import org.apache.ratis.util.AutoCloseableLock;
+import org.apache.ratis.util.Daemon;
 import org.apache.ratis.util.JavaUtils;
+import org.apache.ratis.util.ReflectionUtils;
+import org.apache.ratis.util.TimeDuration;
+import org.apache.ratis.util.TimeoutScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -111,6 +125,25 @@ public class LogStateMachine extends BaseStateMachine {
 
   private State state = State.OPEN;
 
+  /** The sparse index from recordId's to raft log positions for seeking. */
+  private final RecordIdIndex recordIdIndex = new RecordIdIndex();
+
+  /** The reader sessions for continuing sequential reads without seeking again. */
+  private final ReaderSessions readerSessions;
+  private final int readBatchSize;
+  private final long readBatchBytes;
+  /** The cache of the archive blocks for reading an archived log. */
+  private final ArchiveBlockCache archiveBlockCache;
+
+  /**
+   * The reads waiting for new records.
+   * A waiter is removed and completed either when new records are applied or when it times out.
+   */
+  private final Set<CompletableFuture<Void>> recordWaiters = ConcurrentHashMap.newKeySet();
+  private final TimeDuration subscriptionWaitTimeout;
+  /** For the waiting reads so that they do not run in the state machine updater thread. */
+  private ExecutorService subscriptionExecutor;
+
   private final SimpleStateMachineStorage storage = new SimpleStateMachineStorage();
 
   private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(true);
@@ -128,6 +161,20 @@ public class LogStateMachine extends BaseStateMachine {
 
   public LogStateMachine(RaftProperties properties) {
     this.properties = properties;
+    this.readerSessions = new ReaderSessions(
+        properties.getInt(Constants.LOG_SERVICE_READER_SESSION_MAX_KEY,
+            Constants.DEFAULT_READER_SESSION_MAX),
+        properties.getLong(Constants.LOG_SERVICE_READER_SESSION_TIMEOUT_KEY,
+            Constants.DEFAULT_READER_SESSION_TIMEOUT));
+    this.readBatchSize = properties.getInt(Constants.LOG_SERVICE_READER_BATCH_SIZE_KEY,
+        Constants.DEFAULT_READER_BATCH_SIZE);
+    this.readBatchBytes = properties.getLong(Constants.LOG_SERVICE_READER_BATCH_BYTES_KEY,
+        Constants.DEFAULT_READER_BATCH_BYTES);
+    this.archiveBlockCache = new ArchiveBlockCache(properties.getLong(
+        Constants.LOG_SERVICE_ARCHIVE_BLOCK_CACHE_BYTES_KEY, Constants.DEFAULT_ARCHIVE_BLOCK_CACHE_BYTES));
+    this.subscriptionWaitTimeout = TimeDuration.valueOf(
+        properties.getLong(Constants.LOG_SERVICE_SUBSCRIPTION_WAIT_TIMEOUT_KEY,
+            Constants.DEFAULT_SUBSCRIPTION_WAIT_TIMEOUT), TimeUnit.MILLISECONDS);
   }
 
   private AutoCloseableLock readLock() {
@@ -144,6 +191,8 @@ public class LogStateMachine extends BaseStateMachine {
   void reset() {
     this.length = 0;
     this.dataRecordsSize = 0;
+    this.recordIdIndex.clear();
+    this.readerSessions.clear();
     setLastAppliedTermIndex(TermIndex.valueOf(0, -1));
   }
 
@@ -170,6 +219,7 @@ public class LogStateMachine extends BaseStateMachine {
     this.archiveLogTimer = logServiceMetrics.getTimer("archiveLogTime");
     loadSnapshot(storage.getLatestSnapshot());
     executorService = Executors.newSingleThreadExecutor();
+    subscriptionExecutor = Executors.newSingleThreadExecutor((ThreadFactory) Daemon::new);
     this.archivalInfo =
         new ArchivalInfo(properties.get(Constants.LOG_SERVICE_ARCHIVAL_LOCATION_KEY));
 
@@ -184,7 +234,11 @@ public class LogStateMachine extends BaseStateMachine {
 
   @Override
   public void reinitialize() throws IOException {
-    close();
+    // Unlike close(), keep the executors, the metrics and the client for serving after the snapshot is loaded.
+    reset();
+    completeRecordWaiters();
+    // the snapshot may have been installed from the leader
+    storage.loadLatestSnapshot();
     loadSnapshot(storage.getLatestSnapshot());
   }
 
@@ -204,6 +258,7 @@ public class LogStateMachine extends BaseStateMachine {
       out.writeLong(length);
       out.writeLong(dataRecordsSize);
       out.writeObject(state);
+      recordIdIndex.write(out);
     } catch(IOException ioe) {
       LOG.warn("Failed to write snapshot file \"" + snapshotFile
           + "\", last applied index=" + last);
@@ -238,6 +293,13 @@ public class LogStateMachine extends BaseStateMachine {
       this.length = in.readLong();
       this.dataRecordsSize = in.readLong();
       this.state = (State) in.readObject();
+      try {
+        recordIdIndex.read(in);
+      } catch (EOFException e) {
+        // the snapshot was taken before the index was added; seek from the start of the log
+        LOG.info("No record id index in snapshot {}", snapshot);
+        recordIdIndex.clear();
+      }
     } catch (ClassNotFoundException e) {
       throw new IllegalStateException(e);
     }
@@ -376,53 +438,126 @@ public class LogStateMachine extends BaseStateMachine {
       .valueOf(LogServiceProtoUtil.toGetLogLengthReplyProto(this.length, t).toByteString()));
   }
   /**
-   * Process read log entries request
+   * Process read log entries request.
+   * If the request is waiting for records and there is no record to read,
+   * the reply is sent once new records are applied or the subscription wait timeout has elapsed.
    * @param proto message
    * @return reply message
    */
   private CompletableFuture<Message> processReadRequest(LogServiceRequestProto proto) {
-    ReadLogRequestProto msgProto = proto.getReadNextQuery();
+    final ReadLogRequestProto msgProto = proto.getReadNextQuery();
+    if (!msgProto.getWaitForRecords()) {
+      return CompletableFuture.completedFuture(Message.valueOf(readRecords(msgProto).toByteString()));
+    }
+
+    // add the waiter before reading in order to not miss the records applied after the read
+    final CompletableFuture<Void> waiting = new CompletableFuture<>();
+    recordWaiters.add(waiting);
+    final ReadLogReplyProto reply = readRecords(msgProto);
+    if (reply.hasException() || reply.getLogRecordCount() > 0) {
+      recordWaiters.remove(waiting);
+      return CompletableFuture.completedFuture(Message.valueOf(reply.toByteString()));
+    }
+
+    TimeoutScheduler.getInstance().onTimeout(subscriptionWaitTimeout, () -> completeRecordWaiter(waiting),
+        LOG, () -> "Failed to complete waiting for records of " + TextFormat.shortDebugString(msgProto));
+    // continue from the cursor of the first read
+    final ReadLogRequestProto retry = msgProto.toBuilder()
+        .setCursorId(reply.getCursorId()).setWaitForRecords(false).build();
+    return waiting.thenApplyAsync(v -> Message.valueOf(readRecords(retry).toByteString()),
+        subscriptionExecutor);
+  }
+
+  @VisibleForTesting
+  public int getNumRecordWaiters() {
+    return recordWaiters.size();
+  }
+
+  private void completeRecordWaiter(CompletableFuture<Void> waiter) {
+    if (recordWaiters.remove(waiter)) {
+      waiter.complete(null);
+    }
+  }
+
+  /** Wake up all the reads waiting for new records. */
+  private void completeRecordWaiters() {
+    recordWaiters.forEach(this::completeRecordWaiter);
+  }
+
+  /**
+   * Read log records.
+   * The positioned reader is kept in a reader session
+   * so that the next read from the returned cursor does not have to seek again.
+   *
+   * The read stops at the record limit or once the byte limit is reached,
+   * so the reply may exceed the byte limit by at most one record.
+   * The reply tells the client whether there are more records to read.
+   */
+  private ReadLogReplyProto readRecords(ReadLogRequestProto msgProto) {
     // Get the recordId the user wants to start reading at
     long startRecordId = msgProto.getStartRecordId();
-    // And the number of records they want to read
-    int numRecordsToRead = msgProto.getNumRecords();
+    // And the number of records they want to read; 0 means using the server batch size
+    int numRecordsToRead = msgProto.getNumRecords() > 0 ? msgProto.getNumRecords() : readBatchSize;
+    // And the byte limit; the client may only lower the server limit
+    final long maxBytes = msgProto.getMaxBytes() > 0 ? Math.min(msgProto.getMaxBytes(), readBatchBytes)
+        : readBatchBytes;
     //Log must have been closed while Archiving , so we can let user only to
     // read when the log is either OPEN or ARCHIVED
     Throwable t = verifyState(State.OPEN, State.ARCHIVING, State.CLOSED, State.ARCHIVED);
-    List<byte[]> list = null;
+    List<ByteString> list = null;
+    ReaderSessions.Session session = null;
+    long nextRecordId = startRecordId;
+    boolean hasMore = false;
 
     if (t == null) {
-      RaftLogReader reader = null;
       try {
-        if (this.state == State.OPEN || this.state == State.CLOSED
-            || this.state == State.ARCHIVING) {
-          reader = new LogServiceRaftLogReader(log);
-        } else if (this.state == State.ARCHIVED) {
-          reader = new ArchiveHdfsLogReader(LogServiceUtils
-              .getArchiveLocationForLog(archivalInfo.getArchiveLocation(),
-                  archivalInfo.getArchiveLogName()));
-        } else {
-          //could be a race condition
-          t = verifyState(State.OPEN, State.ARCHIVED);
+        session = readerSessions.take(msgProto.getCursorId(), startRecordId);
+        if (session == null) {
+          RaftLogReader reader = null;
+          if (this.state == State.OPEN || this.state == State.CLOSED
+              || this.state == State.ARCHIVING) {
+            reader = new LogServiceRaftLogReader(log, recordIdIndex);
+          } else if (this.state == State.ARCHIVED) {
+            reader = new ArchiveHdfsLogReader(new Configuration(), LogServiceUtils
+                .getArchiveLocationForLog(archivalInfo.getArchiveLocation(),
+                    archivalInfo.getArchiveLogName()), archiveBlockCache);
+          } else {
+            //could be a race condition
+            t = verifyState(State.OPEN, State.ARCHIVED);
+          }
+          if (t == null && reader != null) {
+            session = readerSessions.newSession(reader, startRecordId);
+            reader.seek(startRecordId);
+          }
         }
-        if (t == null && reader != null) {
-          list = new ArrayList<byte[]>();
-          reader.seek(startRecordId);
-          for (int i = 0; i < numRecordsToRead; i++) {
+        if (t == null && session != null) {
+          list = new ArrayList<ByteString>();
+          final RaftLogReader reader = session.getReader();
+          long numBytes = 0;
+          for (int i = 0; i < numRecordsToRead && numBytes < maxBytes; i++) {
             if (!reader.hasNext()) {
               break;
             }
-            list.add(reader.next());
+            final ByteString record = reader.nextRecord();
+            list.add(record);
+            numBytes += record.size();
           }
+          hasMore = reader.hasNext();
+          session.advance(list.size());
+          nextRecordId = session.getNextRecordId();
+          readerSessions.putBack(session);
         }
       } catch (Exception e) {
         LOG.error("Failed to execute ReadNextQuery", e);
         t = e;
         list = null;
+        if (session != null) {
+          readerSessions.discard(session);
+        }
       }
     }
-    return CompletableFuture.completedFuture(
-      Message.valueOf(LogServiceProtoUtil.toReadLogReplyProto(list, t).toByteString()));
+    final long cursorId = t == null && session != null ? session.getCursorId() : 0;
+    return LogServiceProtoUtil.toReadLogReplyProto(list, cursorId, nextRecordId, hasMore, t);
   }
 
   /**
@@ -451,16 +586,20 @@ public class LogStateMachine extends BaseStateMachine {
     final List<Long> ids = new ArrayList<Long>();
     if (t == null) {
       try (AutoCloseableLock writeLock = writeLock()) {
-          List<byte[]> entries = LogServiceProtoUtil.toListByteArray(proto.getDataList());
-          for (byte[] bb : entries) {
+          final List<ByteString> entries = proto.getDataList();
+          recordIdIndex.add(this.length, entries.size(), index);
+          for (ByteString bb : entries) {
             ids.add(this.length);
-            newSize += bb.length;
+            newSize += bb.size();
             this.length++;
           }
           this.dataRecordsSize += newSize;
           // TODO do we need this for other write request (close, sync)
           updateLastAppliedTermIndex(entry.getTerm(), index);
       }
+      if (!ids.isEmpty()) {
+        completeRecordWaiters();
+      }
     }
     final CompletableFuture<Message> f =
         CompletableFuture.completedFuture(
@@ -476,6 +615,10 @@ public class LogStateMachine extends BaseStateMachine {
   @Override
   public void close() {
     reset();
+    completeRecordWaiters();
+    if (subscriptionExecutor != null) {
+      subscriptionExecutor.shutdown();
+    }
     logServiceMetrics.unregister();
     if (client != null) {
       try {
@@ -559,6 +702,8 @@ public class LogStateMachine extends BaseStateMachine {
                       setException(LogServiceProtoUtil.toLogException(t)).build().toByteString()));
     }
     this.state = targetState;
+    // the positioned readers may read from a different place in the new state
+    readerSessions.clear();
     return CompletableFuture.completedFuture(Message
         .valueOf(LogServiceProtos.ChangeStateReplyProto.newBuilder().build().toByteString()));
   }
@@ -641,25 +786,41 @@ public class LogStateMachine extends BaseStateMachine {
           try {
             startArchival(recordId, logName, location);
             //Init ArchiveLogWriter for writing in export/archival location
-            ArchiveLogWriter writer = new ArchiveHdfsLogWriter();
+            ArchiveLogWriter writer = newArchiveLogWriter();
             writer.init(location, logName);
 
-            LogServiceRaftLogReader reader = new LogServiceRaftLogReader(log);
-            reader.seek(recordId);
-            long records = 0;
+            // read the log segments in parallel while writing the records in order
+            final int parallelism = properties.getInt(Constants.LOG_SERVICE_ARCHIVE_READ_PARALLELISM_KEY,
+                Constants.DEFAULT_ARCHIVE_READ_PARALLELISM);
+            final ExecutorService readers = Executors.newFixedThreadPool(parallelism, (ThreadFactory) Daemon::new);
+            final ParallelLogServiceRaftLogReader reader = new ParallelLogServiceRaftLogReader(log, recordIdIndex,
+                readers, parallelism, properties.getInt(Constants.LOG_SERVICE_ARCHIVE_READ_CHUNK_RECORDS_KEY,
+                Constants.DEFAULT_ARCHIVE_READ_CHUNK_RECORDS));
             boolean isInterrupted = false;
-            while (reader.hasNext()) {
-              writer.write(ByteBuffer.wrap(reader.next()));
-              isInterrupted = Thread.currentThread().isInterrupted();
-              if (records >= DEFAULT_ARCHIVE_THRESHOLD_PER_FILE || isInterrupted) {
-                //roll writer when interuppted or no. of records threshold per file is met
-                commit(writer, logName, location);
-                if (isInterrupted) {
-                  break;
+            try {
+              reader.seek(recordId);
+              long records = 0;
+              while (hasNextRecord(reader)) {
+                writer.write(reader.nextRecord().asReadOnlyByteBuffer());
+                isInterrupted = Thread.currentThread().isInterrupted();
+                if (records >= DEFAULT_ARCHIVE_THRESHOLD_PER_FILE || isInterrupted) {
+                  //roll writer when interuppted or no. of records threshold per file is met
+                  commit(writer, logName, location);
+                  if (isInterrupted) {
+                    break;
+                  }
+                  records = 0;
                 }
-                records = 0;
+                records++;
               }
-              records++;
+              if (!isInterrupted && Thread.currentThread().isInterrupted()) {
+                // interrupted when waiting for the records; keep the records written
+                isInterrupted = true;
+                commit(writer, logName, location);
+              }
+            } finally {
+              reader.close();
+              readers.shutdownNow();
             }
             writer.close();
             if (!isInterrupted) {
@@ -696,6 +857,25 @@ public class LogStateMachine extends BaseStateMachine {
         Message.valueOf(LogServiceProtoUtil.toArchiveLogReplyProto(t).toByteString()));
   }
 
+  /**
+   * @return true if the reader has the next record;
+   *         return false if the reader has no more records or the thread is interrupted.
+   */
+  private static boolean hasNextRecord(RaftLogReader reader) throws IOException {
+    try {
+      return reader.hasNext();
+    } catch (InterruptedIOException e) {
+      // the interrupt flag is set
+      return false;
+    }
+  }
+
+  private ArchiveLogWriter newArchiveLogWriter() {
+    final Class<? extends ArchiveLogWriter> clazz = properties.getClass(
+        Constants.LOG_SERVICE_ARCHIVE_WRITER_CLASS_KEY, ArchiveHdfsLogWriter.class, ArchiveLogWriter.class);
+    return ReflectionUtils.newInstance(clazz);
+  }
+
   private void failArchival(long recordId, LogName logName, String location) throws IOException {
     updateArchivingInfo(recordId, logName, location, isArchivalRequest,
         ArchivalStatus.FAILED);
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.logservice.server;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.ratis.server.raftlog.RaftLog;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.apache.ratis.util.IOUtils;
+import org.apache.ratis.util.Preconditions;
+
+/**
+ * A sequential {@link RaftLogReader} which reads ahead the following chunks of records
+ * in parallel, each chunk with its own {@link LogServiceRaftLogReader} positioned by the {@link RecordIdIndex}.
+ * It is for reading a large range of the log such as archiving the log,
+ * where reading the log segments from the disk one at a time would be the bottleneck.
+ *
+ * At most parallelism chunks are read ahead so that the memory usage is bounded.
+ * When the index cannot position the chunks, e.g. the records were written before the index existed
+ * or the indexed entries are purged, each chunk would have to scan from the start of the log.
+ * In such case, all the records are read by a single {@link LogServiceRaftLogReader} instead.
+ * Not thread-safe.
+ */
+public class ParallelLogServiceRaftLogReader implements RaftLogReader, AutoCloseable {
+  /** A chunk of records with the raft indices of the log entries containing them. */
+  private static final class Chunk {
+    static final Chunk EMPTY = new Chunk(Collections.emptyList(), new long[0], -1);
+
+    private final List<ByteString> records;
+    private final long[] raftIndices;
+    /** The raft index of the reader after reading this chunk. */
+    private final long endRaftIndex;
+
+    Chunk(List<ByteString> records, long[] raftIndices, long endRaftIndex) {
+      this.records = records;
+      this.raftIndices = raftIndices;
+      this.endRaftIndex = endRaftIndex;
+    }
+
+    int size() {
+      return records.size();
+    }
+  }
+
+  private final RaftLog raftLog;
+  private final RecordIdIndex recordIdIndex;
+  private final ExecutorService executor;
+  private final int parallelism;
+  private final int chunkRecords;
+
+  /** The chunks being read, in the order of recordIds. */
+  private final Deque<Future<Chunk>> chunks = new ArrayDeque<>();
+  /** The recordId of the next chunk to be submitted. */
+  private long nextChunkRecordId;
+  /** Has a chunk reached the end of the log? */
+  private boolean endOfLog;
+  /** The chunk being consumed. */
+  private Chunk current = Chunk.EMPTY;
+  /** The position of the next record in the current chunk. */
+  private int position = 0;
+  /** The reader for reading all the records when the index cannot position the chunks; otherwise, null. */
+  private LogServiceRaftLogReader sequential;
+
+  public ParallelLogServiceRaftLogReader(RaftLog raftLog, RecordIdIndex recordIdIndex,
+      ExecutorService executor, int parallelism, int chunkRecords) {
+    Preconditions.assertTrue(parallelism > 0, () -> "parallelism = " + parallelism + " <= 0");
+    Preconditions.assertTrue(chunkRecords > 0, () -> "chunkRecords = " + chunkRecords + " <= 0");
+    this.raftLog = requireNonNull(raftLog);
+    this.recordIdIndex = recordIdIndex;
+    this.executor = requireNonNull(executor);
+    this.parallelism = parallelism;
+    this.chunkRecords = chunkRecords;
+  }
+
+  /**
+   * @return true if the index has a position, which is not yet purged, at or before the given recordId.
+   *         Since the positions of the larger recordIds are not purged either,
+   *         all the following chunks can then be positioned by the index.
+   */
+  private boolean isIndexed(long recordId) {
+    final RecordIdIndex.Position p = recordIdIndex == null ? null : recordIdIndex.floor(recordId);
+    return p != null && p.getRaftIndex() >= raftLog.getStartIndex();
+  }
+
+  @Override
+  public void seek(long recordId) throws IOException {
+    cancelChunks();
+    current = Chunk.EMPTY;
+    position = 0;
+    endOfLog = false;
+    if (!isIndexed(recordId)) {
+      sequential = new LogServiceRaftLogReader(raftLog, recordIdIndex);
+      sequential.seek(recordId);
+      return;
+    }
+    sequential = null;
+    nextChunkRecordId = recordId;
+    while (chunks.size() < parallelism) {
+      submitChunk();
+    }
+  }
+
+  private void submitChunk() {
+    final long start = nextChunkRecordId;
+    nextChunkRecordId += chunkRecords;
+    chunks.add(executor.submit(() -> readChunk(start)));
+  }
+
+  private Chunk readChunk(long start) throws IOException {
+    final LogServiceRaftLogReader reader = new LogServiceRaftLogReader(raftLog, recordIdIndex);
+    reader.seek(start);
+    final List<ByteString> records = new ArrayList<>();
+    final long[] raftIndices = new long[chunkRecords];
+    while (records.size() < chunkRecords && reader.hasNext()) {
+      raftIndices[records.size()] = reader.getCurrentRaftIndex();
+      records.add(reader.nextRecord());
+    }
+    return new Chunk(records, raftIndices, reader.getCurrentRaftIndex());
+  }
+
+  @Override
+  public boolean hasNext() throws IOException {
+    if (sequential != null) {
+      return sequential.hasNext();
+    }
+    while (position >= current.size()) {
+      if (endOfLog || chunks.isEmpty()) {
+        return false;
+      }
+      final Chunk chunk = getNextChunk();
+      if (chunk.size() < chunkRecords) {
+        // the following chunks are beyond the end of the log
+        endOfLog = true;
+        cancelChunks();
+      } else {
+        submitChunk();
+      }
+      current = chunk;
+      position = 0;
+    }
+    return true;
+  }
+
+  private Chunk getNextChunk() throws IOException {
+    try {
+      return chunks.poll().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw IOUtils.toInterruptedIOException("Interrupted when reading a chunk", e);
+    } catch (ExecutionException e) {
+      throw IOUtils.asIOException(e.getCause());
+    }
+  }
+
+  @Override
+  public byte[] next() throws IOException {
+    return nextRecord().toByteArray();
+  }
+
+  @Override
+  public ByteString nextRecord() throws IOException {
+    if (sequential != null) {
+      return sequential.nextRecord();
+    }
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return current.records.get(position++);
+  }
+
+  /**
+   * @return the raft index of the log entry containing the next record in the chunk being consumed,
+   *         or, if the chunk is fully consumed, the raft index after the chunk;
+   *         -1 if no chunks have been consumed.
+   */
+  @Override
+  public long getCurrentRaftIndex() {
+    if (sequential != null) {
+      return sequential.getCurrentRaftIndex();
+    }
+    return position < current.size() ? current.raftIndices[position] : current.endRaftIndex;
+  }
+
+  private void cancelChunks() {
+    for (Future<Chunk> f : chunks) {
+      f.cancel(true);
+    }
+    chunks.clear();
+  }
+
+  @Override
+  public void close() {
+    cancelChunks();
+  }
+}
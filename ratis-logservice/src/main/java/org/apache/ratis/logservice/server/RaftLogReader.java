@@ -19,6 +19,9 @@ package org.apache.ratis.logservice.server;
 
 import java.io.IOException;
 
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.apache.ratis.thirdparty.com.google.protobuf.UnsafeByteOperations;
+
 public interface RaftLogReader {
 
   /**
@@ -38,6 +41,15 @@ public interface RaftLogReader {
    */
   byte[] next() throws IOException;
 
+  /**
+   * The same as {@link #next()} except that the record is returned as a {@link ByteString}.
+   * Implementations may return the record without copying it.
+   */
+  default ByteString nextRecord() throws IOException {
+    final byte[] next = next();
+    return next == null ? null : UnsafeByteOperations.unsafeWrap(next);
+  }
+
   /**
    * Returns current raft index read
    * @return
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.logservice.server;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ratis.util.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Server-side reader sessions.
+ * A session keeps a positioned {@link RaftLogReader} so that a client reading sequentially
+ * can continue from its cursor without seeking again.
+ * The sessions are expired after a timeout and the least recently used session is evicted
+ * when the number of sessions exceeds the max.
+ * The reader of a session is closed when the session is removed.
+ */
+public class ReaderSessions {
+  private static final Logger LOG = LoggerFactory.getLogger(ReaderSessions.class);
+
+  /** A reader session. */
+  public static final class Session {
+    private final long cursorId;
+    private final RaftLogReader reader;
+    private final long generation;
+    /** The recordId of the next record to be read. */
+    private long nextRecordId;
+    private long lastAccessTime;
+
+    Session(long cursorId, RaftLogReader reader, long generation, long nextRecordId) {
+      this.cursorId = cursorId;
+      this.reader = reader;
+      this.generation = generation;
+      this.nextRecordId = nextRecordId;
+    }
+
+    public long getCursorId() {
+      return cursorId;
+    }
+
+    public RaftLogReader getReader() {
+      return reader;
+    }
+
+    public long getNextRecordId() {
+      return nextRecordId;
+    }
+
+    /** Advance the cursor for the records read. */
+    public void advance(int numRecords) {
+      nextRecordId += numRecords;
+    }
+
+    @Override
+    public String toString() {
+      return "Session-" + cursorId + ":next=" + nextRecordId;
+    }
+  }
+
+  private final int maxSessions;
+  private final long timeoutMs;
+  private final AtomicLong cursorIds = new AtomicLong();
+  /** Incremented when the sessions are cleared; guarded by this. */
+  private long generation = 0;
+  /** Map: cursorId -> session, in the order of last access since a session is re-inserted after a read. */
+  private final LinkedHashMap<Long, Session> sessions = new LinkedHashMap<>();
+
+  public ReaderSessions(int maxSessions, long timeoutMs) {
+    Preconditions.assertTrue(maxSessions > 0, () -> "maxSessions = " + maxSessions + " <= 0");
+    this.maxSessions = maxSessions;
+    this.timeoutMs = timeoutMs;
+  }
+
+  private static long now() {
+    return System.nanoTime() / 1_000_000;
+  }
+
+  /**
+   * Take the session with the given cursorId out of this object
+   * so that the session is used by only one read at a time.
+   * The caller must {@link #putBack(Session)} the session after the read.
+   *
+   * @return the session if it is positioned at the given recordId;
+   *         otherwise, return null.
+   */
+  public synchronized Session take(long cursorId, long recordId) {
+    removeExpired();
+    final Session session = cursorId == 0 ? null : sessions.remove(cursorId);
+    if (session != null && session.getNextRecordId() == recordId) {
+      return session;
+    }
+    // the client has no session or has seeked to another position
+    if (session != null) {
+      close(session);
+    }
+    return null;
+  }
+
+  /** @return a new session for the given reader positioned at the given recordId. */
+  public synchronized Session newSession(RaftLogReader reader, long recordId) {
+    return new Session(cursorIds.incrementAndGet(), reader, generation, recordId);
+  }
+
+  /** Put back the given session after a read. */
+  public synchronized void putBack(Session session) {
+    if (session.generation != generation) {
+      close(session); // the sessions were cleared during the read
+      return;
+    }
+    session.lastAccessTime = now();
+    sessions.put(session.getCursorId(), session);
+    if (sessions.size() > maxSessions) {
+      // evict the least recently used session
+      final Iterator<Session> i = sessions.values().iterator();
+      final Session evicted = i.next();
+      LOG.debug("Evict {}", evicted);
+      i.remove();
+      close(evicted);
+    }
+  }
+
+  private void removeExpired() {
+    final long expiry = now() - timeoutMs;
+    // the sessions are in access order, so the expired sessions are at the beginning
+    for (Iterator<Map.Entry<Long, Session>> i = sessions.entrySet().iterator(); i.hasNext(); ) {
+      final Session s = i.next().getValue();
+      if (s.lastAccessTime > expiry) {
+        return;
+      }
+      LOG.debug("Expire {}", s);
+      i.remove();
+      close(s);
+    }
+  }
+
+  /** Close the reader of the given session, which is not put back, for example, when the read has failed. */
+  public void discard(Session session) {
+    close(session);
+  }
+
+  private static void close(Session session) {
+    final RaftLogReader reader = session.getReader();
+    if (reader instanceof AutoCloseable) {
+      try {
+        ((AutoCloseable) reader).close();
+      } catch (Exception e) {
+        LOG.warn("Failed to close the reader of " + session, e);
+      }
+    }
+  }
+
+  public synchronized int size() {
+    return sessions.size();
+  }
+
+  public synchronized void clear() {
+    generation++;
+    sessions.values().forEach(ReaderSessions::close);
+    sessions.clear();
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.logservice.server;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.ratis.util.Preconditions;
+
+/**
+ * A sparse index from LogService recordId's to Raft log positions.
+ * For every {@link #getStride()} records, the index stores
+ * the raft index of the log entry containing the record and the offset of the record in that entry.
+ * A lookup is a binary search which returns the closest position at or before the given recordId,
+ * so that a reader only has to scan less than {@link #getStride()} records after it.
+ *
+ * The index is maintained when the append requests are applied and is saved in the state machine snapshots.
+ * Thread-safe.
+ */
+public class RecordIdIndex {
+  public static final int DEFAULT_STRIDE = 1024;
+
+  /** A position in the Raft log. */
+  public static final class Position {
+    private final long recordId;
+    private final long raftIndex;
+    private final int offset;
+
+    Position(long recordId, long raftIndex, int offset) {
+      this.recordId = recordId;
+      this.raftIndex = raftIndex;
+      this.offset = offset;
+    }
+
+    /** @return the recordId at this position. */
+    public long getRecordId() {
+      return recordId;
+    }
+
+    /** @return the raft index of the log entry containing the record. */
+    public long getRaftIndex() {
+      return raftIndex;
+    }
+
+    /** @return the offset of the record in the log entry. */
+    public int getOffset() {
+      return offset;
+    }
+
+    @Override
+    public String toString() {
+      return "(recordId=" + recordId + ", raftIndex=" + raftIndex + ", offset=" + offset + ")";
+    }
+  }
+
+  private final int stride;
+
+  private long[] recordIds = new long[16];
+  private long[] raftIndices = new long[16];
+  private int[] offsets = new int[16];
+  private int size = 0;
+
+  public RecordIdIndex() {
+    this(DEFAULT_STRIDE);
+  }
+
+  public RecordIdIndex(int stride) {
+    Preconditions.assertTrue(stride > 0, () -> "stride = " + stride + " <= 0");
+    this.stride = stride;
+  }
+
+  public int getStride() {
+    return stride;
+  }
+
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Add the records in a log entry.
+   *
+   * @param firstRecordId the recordId of the first record in the log entry.
+   * @param numRecords the number of records in the log entry.
+   * @param raftIndex the raft index of the log entry.
+   */
+  public synchronized void add(long firstRecordId, int numRecords, long raftIndex) {
+    if (numRecords <= 0) {
+      return;
+    }
+    // the first multiple of stride in [firstRecordId, firstRecordId + numRecords)
+    final long first = (firstRecordId + stride - 1) / stride * stride;
+    for (long id = first; id < firstRecordId + numRecords; id += stride) {
+      if (size > 0 && id <= recordIds[size - 1]) {
+        continue; // already indexed, e.g. the entry is re-applied
+      }
+      ensureCapacity(size + 1);
+      recordIds[size] = id;
+      raftIndices[size] = raftIndex;
+      offsets[size] = Math.toIntExact(id - firstRecordId);
+      size++;
+    }
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > recordIds.length) {
+      final int newLength = Math.max(capacity, recordIds.length << 1);
+      recordIds = Arrays.copyOf(recordIds, newLength);
+      raftIndices = Arrays.copyOf(raftIndices, newLength);
+      offsets = Arrays.copyOf(offsets, newLength);
+    }
+  }
+
+  /** @return the closest position at or before the given recordId; or null if there is no such position. */
+  public synchronized Position floor(long recordId) {
+    final int i = Arrays.binarySearch(recordIds, 0, size, recordId);
+    final int floor = i >= 0 ? i : -i - 2;
+    return floor < 0 ? null : new Position(recordIds[floor], raftIndices[floor], offsets[floor]);
+  }
+
+  public synchronized void clear() {
+    size = 0;
+  }
+
+  /** Write this index to the given output. */
+  public synchronized void write(DataOutput out) throws IOException {
+    out.writeInt(stride);
+    out.writeInt(size);
+    for (int i = 0; i < size; i++) {
+      out.writeLong(recordIds[i]);
+      out.writeLong(raftIndices[i]);
+      out.writeInt(offsets[i]);
+    }
+  }
+
+  /** Replace the content of this index with the index read from the given input. */
+  public synchronized void read(DataInput in) throws IOException {
+    final int s = in.readInt();
+    if (s != stride) {
+      throw new IOException("Stride mismatched: expected " + stride + " but read " + s);
+    }
+    final int n = in.readInt();
+    clear();
+    ensureCapacity(n);
+    for (int i = 0; i < n; i++) {
+      recordIds[i] = in.readLong();
+      raftIndices[i] = in.readLong();
+      offsets[i] = in.readInt();
+    }
+    size = n;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "RecordIdIndex(stride=" + stride + ", size=" + size + ")";
+  }
+}
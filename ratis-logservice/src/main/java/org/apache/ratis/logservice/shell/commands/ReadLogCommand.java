@@ -56,7 +56,7 @@ public class ReadLogCommand implements Command {
         }
         sb.append("\"");
         if (record != null) {
-          String strData = new String(record.array(), record.arrayOffset(), record.remaining(), StandardCharsets.UTF_8);
+          String strData = StandardCharsets.UTF_8.decode(record.duplicate()).toString();
           sb.append(strData);
         }
         sb.append("\"");
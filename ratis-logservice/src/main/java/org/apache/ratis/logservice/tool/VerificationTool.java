@@ -270,15 +270,12 @@ public class VerificationTool {
       }
 
       String parseValue(ByteBuffer buff) {
-        if (!buff.hasArray()) {
-          throw new IllegalArgumentException("Require a ByteBuffer with a backing array");
-        }
         if (valueSize == -1) {
-          return new String(buff.array(), buff.arrayOffset(), buff.remaining(), StandardCharsets.UTF_8);
+          return StandardCharsets.UTF_8.decode(buff.duplicate()).toString();
         }
-        int length = buff.limit() - buff.arrayOffset();
-        byte[] value = new byte[length];
-        System.arraycopy(buff.array(), buff.arrayOffset(), value, 0, length);
+        // the records read are read-only buffers
+        byte[] value = new byte[buff.remaining()];
+        buff.duplicate().get(value);
 
         int dividerOffset = -1;
         for (int i = 0; i < value.length; i++) {
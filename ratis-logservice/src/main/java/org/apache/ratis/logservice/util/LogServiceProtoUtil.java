@@ -31,6 +31,11 @@ import org.apache.ratis.logservice.proto.LogServiceProtos;
 import org.apache.ratis.logservice.proto.LogServiceProtos.*;
 import org.apache.ratis.logservice.server.ArchivalInfo;
 import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.apache.ratis.thirdparty.com.google.protobuf.CodedInputStream;
+import org.apache.ratis.thirdparty.com.google.protobuf.InvalidProtocolBufferException;
+import org.apache.ratis.thirdparty.com.google.protobuf.MessageLite;
+import org.apache.ratis.thirdparty.com.google.protobuf.Parser;
+import org.apache.ratis.thirdparty.com.google.protobuf.UnsafeByteOperations;
 
 public class LogServiceProtoUtil {
 
@@ -118,12 +123,41 @@ public class LogServiceProtoUtil {
   }
 
   public static LogServiceRequestProto toReadLogRequestProto(LogName name, long start, int total) {
+    return toReadLogRequestProto(name, start, total, 0);
+  }
+
+  /**
+   * @param total the number of records to read; 0 means the server chooses the batch size.
+   * @param cursorId the cursor returned by the previous read; 0 means no cursor.
+   */
+  public static LogServiceRequestProto toReadLogRequestProto(LogName name, long start, int total,
+      long cursorId) {
+    return toReadLogRequestProto(name, start, total, cursorId, false);
+  }
+
+  /**
+   * @param waitForRecords wait for new records if there is no record to read,
+   *                       i.e. it is a subscription to the tail of the log.
+   */
+  public static LogServiceRequestProto toReadLogRequestProto(LogName name, long start, int total,
+      long cursorId, boolean waitForRecords) {
+    return toReadLogRequestProto(name, start, total, 0, cursorId, waitForRecords);
+  }
+
+  /**
+   * @param maxBytes the max number of bytes of the records to read; 0 means the server default.
+   */
+  public static LogServiceRequestProto toReadLogRequestProto(LogName name, long start, int total,
+      long maxBytes, long cursorId, boolean waitForRecords) {
     LogNameProto logNameProto =
         LogNameProto.newBuilder().setName(name.getName()).build();
     ReadLogRequestProto.Builder builder = ReadLogRequestProto.newBuilder();
     builder.setLogName(logNameProto);
     builder.setStartRecordId(start);
     builder.setNumRecords(total);
+    builder.setCursorId(cursorId);
+    builder.setWaitForRecords(waitForRecords);
+    builder.setMaxBytes(maxBytes);
     return LogServiceRequestProto.newBuilder().setReadNextQuery(builder.build()).build();
   }
 
@@ -147,6 +181,16 @@ public class LogServiceProtoUtil {
     return LogServiceRequestProto.newBuilder().setAppendRequest(builder.build()).build();
   }
 
+  public static LogServiceRequestProto toAppendByteStringEntryLogRequestProto(LogName name,
+      List<ByteString> entries) {
+    LogNameProto logNameProto =
+        LogNameProto.newBuilder().setName(name.getName()).build();
+    AppendLogEntryRequestProto.Builder builder = AppendLogEntryRequestProto.newBuilder();
+    builder.setLogName(logNameProto);
+    builder.addAllData(entries);
+    return LogServiceRequestProto.newBuilder().setAppendRequest(builder.build()).build();
+  }
+
   public static LogServiceRequestProto toAppendBBEntryLogRequestProto(LogName name,
       List<ByteBuffer> entries) {
     LogNameProto logNameProto =
@@ -154,16 +198,24 @@ public class LogServiceProtoUtil {
     AppendLogEntryRequestProto.Builder builder = AppendLogEntryRequestProto.newBuilder();
     builder.setLogName(logNameProto);
     for (int i=0; i < entries.size(); i++) {
-      ByteBuffer currentBuf = entries.get(i);
-      // Save the current position
-      int pos = currentBuf.position();
-      builder.addData(ByteString.copyFrom(currentBuf));
-      // Reset it after we're done reading the bytes
-      currentBuf.position(pos);
+      // Wrap the buffer without copying; the caller must not change it until the request is sent.
+      // Use a duplicate in order to keep the position of the given buffer.
+      builder.addData(UnsafeByteOperations.unsafeWrap(entries.get(i).duplicate()));
     }
     return LogServiceRequestProto.newBuilder().setAppendRequest(builder.build()).build();
   }
 
+  /**
+   * Parse the given bytes such that the bytes fields of the returned message
+   * refer to the given bytes instead of copying them.
+   */
+  public static <T extends MessageLite> T parseWithAliasing(ByteString bytes, Parser<T> parser)
+      throws InvalidProtocolBufferException {
+    final CodedInputStream in = bytes.newCodedInput();
+    in.enableAliasing(true);
+    return parser.parseFrom(in);
+  }
+
   public static List<byte[]> toListByteArray(List<ByteString> list) {
     List<byte[]> retVal = new ArrayList<byte[]>(list.size());
     for(int i=0; i < list.size(); i++) {
@@ -220,13 +272,35 @@ public class LogServiceProtoUtil {
   }
 
   public static ReadLogReplyProto toReadLogReplyProto(List<byte[]> entries, Throwable t) {
+    List<ByteString> records = null;
+    if (entries != null) {
+      records = new ArrayList<ByteString>(entries.size());
+      for (byte[] record : entries) {
+        records.add(ByteString.copyFrom(record));
+      }
+    }
+    return toReadLogReplyProto(records, 0, t);
+  }
+
+  public static ReadLogReplyProto toReadLogReplyProto(List<ByteString> records, long cursorId,
+      Throwable t) {
+    return toReadLogReplyProto(records, cursorId, 0, false, t);
+  }
+
+  /**
+   * @param nextRecordId the recordId to continue the read from.
+   * @param hasMore the read has stopped at a limit but there are more records to read.
+   */
+  public static ReadLogReplyProto toReadLogReplyProto(List<ByteString> records, long cursorId,
+      long nextRecordId, boolean hasMore, Throwable t) {
     ReadLogReplyProto.Builder builder = ReadLogReplyProto.newBuilder();
     if (t != null) {
       builder.setException(toLogException(t));
     } else {
-      for(byte[] record: entries) {
-        builder.addLogRecord( ByteString.copyFrom(record));
-      }
+      builder.addAllLogRecord(records);
+      builder.setCursorId(cursorId);
+      builder.setNextRecordId(nextRecordId);
+      builder.setHasMore(hasMore);
     }
     return builder.build();
   }
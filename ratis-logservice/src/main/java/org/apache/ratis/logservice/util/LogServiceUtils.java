@@ -63,13 +63,17 @@ public final class LogServiceUtils {
         return path + "_recordId_" + lastWrittenId;
     }
 
-    public static Integer getRecordIdFromRolledArchiveFile(Path path) {
+    /**
+     * @return the number of records written up to the end of the given rolled archive file,
+     *         i.e. the file contains the records before the returned recordId.
+     */
+    public static Long getRecordIdFromRolledArchiveFile(Path path) {
         String[] splits = path.getName().split("_recordId_");
         if (splits.length != 2) {
             //currently written file, should be read last
-            return Integer.MAX_VALUE;
+            return Long.MAX_VALUE;
         }
-        return Integer.parseInt(splits[1]);
+        return Long.parseLong(splits[1]);
     }
 
 }
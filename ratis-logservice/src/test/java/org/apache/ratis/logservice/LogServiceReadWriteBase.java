@@ -25,6 +25,8 @@ import java.lang.management.ManagementFactory;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.LongStream;
@@ -40,15 +42,19 @@ import org.apache.ratis.client.RaftClient;
 import org.apache.ratis.conf.RaftProperties;
 import org.apache.ratis.logservice.api.LogName;
 import org.apache.ratis.logservice.api.LogReader;
+import org.apache.ratis.logservice.api.LogServiceConfiguration;
 import org.apache.ratis.logservice.api.LogStream;
 import org.apache.ratis.logservice.api.LogStream.State;
 import org.apache.ratis.logservice.api.LogWriter;
+import org.apache.ratis.logservice.api.RecordListener;
+import org.apache.ratis.logservice.common.Constants;
 import org.apache.ratis.logservice.impl.LogStreamImpl;
 import org.apache.ratis.logservice.metrics.LogServiceMetrics;
 import org.apache.ratis.logservice.server.LogStateMachine;
 import org.apache.ratis.logservice.util.TestUtils;
 import org.apache.ratis.metrics.JVMMetrics;
 import org.apache.ratis.statemachine.StateMachine;
+import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.TimeDuration;
 import org.junit.After;
 import org.junit.Before;
@@ -300,18 +306,110 @@ public abstract class LogServiceReadWriteBase<CLUSTER extends MiniRaftCluster>
     }
   }
 
+  @Test
+  public void testRecordListener() throws Exception {
+    try (final RaftClient raftClient =
+        RaftClient.newBuilder().setProperties(getProperties())
+            .setRaftGroup(cluster.getGroup()).build()) {
+      final LogName logName = LogName.of("log1");
+      final int numRecords = 100;
+      // use a dedicated client for the subscription
+      final LogStream logStream = new LogStreamImpl(logName, raftClient,
+          LogServiceConfiguration.create(), () -> RaftClient.newBuilder()
+              .setProperties(getProperties()).setRaftGroup(cluster.getGroup()).build());
+      final BlockingQueue<Integer> received = new LinkedBlockingQueue<>();
+      final RecordListener listener = new RecordListener() {
+        @Override
+        public String getName() {
+          return "testListener";
+        }
+
+        @Override
+        public void accept(ByteBuffer record) {
+          final byte[] bytes = new byte[record.remaining()];
+          record.get(bytes);
+          received.add(Integer.parseInt(new String(bytes, StandardCharsets.UTF_8)));
+        }
+      };
+
+      final LogStateMachine stateMachine = (LogStateMachine) cluster.getLeader().getStateMachine();
+      try (LogWriter writer = logStream.createWriter()) {
+        writer.write(toBytes(-1));
+        // the listener still receives the records after the state machine is reinitialized from a snapshot
+        stateMachine.takeSnapshot();
+        stateMachine.reinitialize();
+        // the listener only receives the records written after it is added
+        logStream.addRecordListener(listener);
+        for (int i = 0; i < numRecords; i++) {
+          writer.write(toBytes(i));
+        }
+      }
+      for (int i = 0; i < numRecords; i++) {
+        assertEquals(Integer.valueOf(i), received.poll(10, TimeUnit.SECONDS));
+      }
+
+      assertTrue(logStream.removeRecordListener(listener));
+      logStream.close();
+
+      // the waiting reads are removed once they time out
+      JavaUtils.attemptUntilTrue(() -> stateMachine.getNumRecordWaiters() == 0,
+          10, ONE_SECOND, "numRecordWaiters == 0", LOG);
+    }
+  }
+
+  @Test
+  public void testBulkReadWithByteLimit() throws Exception {
+    try (final RaftClient raftClient =
+        RaftClient.newBuilder().setProperties(getProperties())
+            .setRaftGroup(cluster.getGroup()).build()) {
+      final int numRecords = 100;
+      // limit each read reply to a few records
+      final LogServiceConfiguration config = LogServiceConfiguration.create();
+      config.setLong(Constants.LOG_SERVICE_READER_BATCH_BYTES_KEY, 8);
+      final LogStream logStream = new LogStreamImpl(LogName.of("log1"), raftClient, config);
+      try (LogWriter writer = logStream.createWriter()) {
+        for (int i = 0; i < numRecords; i++) {
+          writer.write(toBytes(i));
+        }
+      }
+
+      try (LogReader reader = logStream.createReader()) {
+        // a bulk read continues until the requested number of records are read
+        final List<ByteBuffer> records = reader.readBulk(numRecords);
+        assertEquals(numRecords, records.size());
+        for (int i = 0; i < numRecords; i++) {
+          assertEquals(i, fromBytes(records.get(i)));
+        }
+        assertEquals(numRecords, reader.getPosition());
+
+        // the records are copied into the given buffers
+        reader.seek(0);
+        final ByteBuffer[] buffers = new ByteBuffer[numRecords];
+        for (int i = 0; i < numRecords; i++) {
+          buffers[i] = ByteBuffer.allocate(8);
+        }
+        assertEquals(numRecords, reader.readBulk(buffers));
+        for (int i = 0; i < numRecords; i++) {
+          buffers[i].flip();
+          assertEquals(i, fromBytes(buffers[i]));
+        }
+      }
+    }
+  }
+
   @After
   public void tearDown() {
     cluster.shutdown();
   }
 
-  private ByteBuffer toBytes(int i) {
+  static ByteBuffer toBytes(int i) {
     return ByteBuffer.wrap(Integer.toString(i).getBytes(StandardCharsets.UTF_8));
   }
 
-  private int fromBytes(ByteBuffer bb) {
+  static int fromBytes(ByteBuffer bb) {
+    // the records read are read-only buffers
     byte[] bytes = new byte[bb.remaining()];
-    System.arraycopy(bb.array(), bb.arrayOffset(), bytes, 0, bb.remaining());
+    bb.duplicate().get(bytes);
     return Integer.parseInt(new String(bytes, StandardCharsets.UTF_8));
   }
 
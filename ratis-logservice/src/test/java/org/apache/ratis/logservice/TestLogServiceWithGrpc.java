@@ -17,10 +17,57 @@
  */
 package org.apache.ratis.logservice;
 
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.ratis.client.RaftClient;
 import org.apache.ratis.grpc.MiniRaftClusterWithGrpc;
+import org.apache.ratis.logservice.api.AsyncLogWriter;
+import org.apache.ratis.logservice.api.LogName;
+import org.apache.ratis.logservice.api.LogReader;
+import org.apache.ratis.logservice.api.LogStream;
+import org.apache.ratis.logservice.impl.LogStreamImpl;
+import org.junit.Test;
 
 public class TestLogServiceWithGrpc extends LogServiceReadWriteBase<MiniRaftClusterWithGrpc>
     implements MiniRaftClusterWithGrpc.FactoryGet {
 
+  /** The async api is not supported by the other rpc types. */
+  @Test
+  public void testAsyncWriter() throws Exception {
+    try (RaftClient raftClient =
+        RaftClient.newBuilder().setProperties(getProperties())
+            .setRaftGroup(cluster.getGroup()).build()) {
+      final LogStream logStream = new LogStreamImpl(LogName.of("log1"), raftClient);
+      final int numRecords = 1000;
+      final List<CompletableFuture<Long>> futures = new ArrayList<>(numRecords);
+      final List<Long> bulkIds;
+      try (AsyncLogWriter writer = logStream.createAsyncWriter()) {
+        for (int i = 0; i < numRecords; i++) {
+          futures.add(writer.write(toBytes(i)));
+        }
+        bulkIds = writer.write(Arrays.asList(toBytes(numRecords), toBytes(numRecords + 1))).get();
+        writer.sync().get();
+      }
+
+      for (int i = 0; i < numRecords; i++) {
+        assertEquals(i, futures.get(i).get().longValue());
+      }
+      assertEquals(Arrays.asList((long) numRecords, numRecords + 1L), bulkIds);
 
+      try (LogReader reader = logStream.createReader()) {
+        reader.seek(0);
+        final List<ByteBuffer> records = reader.readBulk(numRecords + 2);
+        assertEquals(numRecords + 2, records.size());
+        for (int i = 0; i < records.size(); i++) {
+          assertEquals(i, fromBytes(records.get(i)));
+        }
+      }
+    }
+  }
 }
@@ -23,6 +23,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.stream.Collectors;
@@ -149,6 +150,86 @@ public class TestArchiveHdfsLogReaderAndWriter {
     Assert.assertEquals(20, count);
   }
 
+  @Test public void testSeekAcrossRolledFiles() throws IOException {
+    String archiveLocation = location+"/testSeekAcrossRolledFiles";
+    LogName logName = LogName.of("testSeekAcrossRolledFiles");
+    DistributedFileSystem fs = cluster.getFileSystem();
+    fs.delete(new Path(archiveLocation), true);
+    ArchiveLogWriter writer = new ArchiveHdfsLogWriter(conf);
+    writer.init(archiveLocation, logName);
+    int k = 10;
+    for (int i = 0; i < 5; i++) {
+      // write read-only buffers as the archival does
+      for (int j = i * k + 1; j <= (i + 1) * k; j++) {
+        writer.write(((ByteBuffer) ByteBuffer.allocate(4).putInt(j).flip()).asReadOnlyBuffer());
+      }
+      writer.rollWriter();
+    }
+    writer.close();
+    ArchiveLogReader reader = new ArchiveHdfsLogReader(conf,
+        LogServiceUtils.getArchiveLocationForLog(archiveLocation, logName));
+    // seek forward within a file, across files, and backward
+    for (int recordId : new int[] {3, 7, 25, 10, 49, 0, 30}) {
+      reader.seek(recordId);
+      Assert.assertEquals(recordId, reader.getPosition());
+      Assert.assertEquals(recordId + 1, ByteBuffer.wrap(reader.next()).getInt());
+    }
+    reader.seek(5 * k);
+    Assert.assertFalse(reader.hasNext());
+    reader.close();
+  }
+
+  @Test public void testIndexedReadWithBlockCache() throws IOException {
+    String archiveLocation = location+"/testIndexedReadWithBlockCache";
+    LogName logName = LogName.of("testIndexedReadWithBlockCache");
+    DistributedFileSystem fs = cluster.getFileSystem();
+    fs.delete(new Path(archiveLocation), true);
+    ArchiveLogWriter writer = new ArchiveHdfsLogWriter(conf);
+    writer.init(archiveLocation, logName);
+    final int stride = ArchiveHdfsLogWriter.INDEX_STRIDE;
+    final int n = 3 * stride + 10;
+    write(writer, 1, n);
+    writer.rollWriter();
+    write(writer, n + 1, 2 * n);
+    writer.close();
+
+    final ArchiveBlockCache cache = new ArchiveBlockCache(1 << 20);
+    final String logLocation = LogServiceUtils.getArchiveLocationForLog(archiveLocation, logName);
+    ArchiveLogReader reader = new ArchiveHdfsLogReader(conf, logLocation, cache);
+    verifyRecords(reader, 2 * n);
+    reader.close();
+    // 4 blocks per file
+    Assert.assertEquals(8, cache.size());
+    Assert.assertEquals(2 * n * 8, cache.getNumBytes());
+
+    // seek with the footer index; the blocks are read from the cache
+    reader = new ArchiveHdfsLogReader(conf, logLocation, cache);
+    for (int recordId : new int[] {2 * stride + 5, n + stride, 7, 2 * n - 1, n - 1}) {
+      reader.seek(recordId);
+      Assert.assertEquals(recordId, reader.getPosition());
+      Assert.assertEquals(recordId + 1, ByteBuffer.wrap(reader.next()).getInt());
+    }
+    reader.close();
+    Assert.assertEquals(8, cache.size());
+  }
+
+  @Test public void testBlockCacheEviction() {
+    final ArchiveBlockCache cache = new ArchiveBlockCache(100);
+    cache.put("a", Collections.emptyList(), 40);
+    cache.put("b", Collections.emptyList(), 40);
+    Assert.assertNotNull(cache.get("a"));
+    // b is the least recently used
+    cache.put("c", Collections.emptyList(), 40);
+    Assert.assertNull(cache.get("b"));
+    Assert.assertNotNull(cache.get("a"));
+    Assert.assertNotNull(cache.get("c"));
+    Assert.assertEquals(80, cache.getNumBytes());
+    // a block larger than the capacity is not cached
+    cache.put("d", Collections.emptyList(), 200);
+    Assert.assertNull(cache.get("d"));
+    Assert.assertEquals(2, cache.size());
+  }
+
   @AfterClass
   public static void teardownafterclass(){
     if (cluster != null) {
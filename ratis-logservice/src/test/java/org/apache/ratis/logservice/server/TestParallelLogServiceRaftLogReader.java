@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.logservice.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.apache.ratis.logservice.api.LogName;
+import org.apache.ratis.logservice.util.LogServiceProtoUtil;
+import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.proto.RaftProtos.StateMachineLogEntryProto;
+import org.apache.ratis.protocol.ClientId;
+import org.apache.ratis.server.raftlog.LogProtoUtils;
+import org.apache.ratis.server.raftlog.RaftLog;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.junit.After;
+import org.junit.Test;
+
+public class TestParallelLogServiceRaftLogReader {
+  static final int NUM_ENTRIES = 100;
+  static final int RECORDS_PER_ENTRY = 3;
+
+  private final ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(3);
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  /** @return a log with the entries at the raft indices [1, NUM_ENTRIES], each with RECORDS_PER_ENTRY records. */
+  static RaftLog newRaftLog(long startIndex) {
+    final LogEntryProto[] entries = new LogEntryProto[NUM_ENTRIES + 1];
+    long recordId = 0;
+    for (int i = 1; i <= NUM_ENTRIES; i++) {
+      final List<ByteString> records = new ArrayList<>();
+      for (int j = 0; j < RECORDS_PER_ENTRY; j++) {
+        records.add(ByteString.copyFromUtf8("record" + recordId++));
+      }
+      final ByteString logData = LogServiceProtoUtil.toAppendByteStringEntryLogRequestProto(
+          LogName.of("log"), records).toByteString();
+      entries[i] = LogProtoUtils.toLogEntryProto(LogProtoUtils.toStateMachineLogEntryProto(
+          ClientId.randomId(), i, StateMachineLogEntryProto.Type.WRITE, logData, null), 1, i);
+    }
+
+    return (RaftLog) Proxy.newProxyInstance(RaftLog.class.getClassLoader(), new Class<?>[]{RaftLog.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "get":
+              final long index = (Long) args[0];
+              return index >= startIndex && index <= NUM_ENTRIES ? entries[(int) index] : null;
+            case "getStartIndex":
+              return startIndex;
+            case "getLastCommittedIndex":
+              return (long) NUM_ENTRIES;
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+
+  static RecordIdIndex newRecordIdIndex(int stride) {
+    final RecordIdIndex index = new RecordIdIndex(stride);
+    for (int i = 1; i <= NUM_ENTRIES; i++) {
+      index.add((long) (i - 1) * RECORDS_PER_ENTRY, RECORDS_PER_ENTRY, i);
+    }
+    return index;
+  }
+
+  /** Assert that the parallel reader reads the same records and raft indices as a sequential reader. */
+  void assertSameAsSequential(RaftLog raftLog, RecordIdIndex recordIdIndex, long seekRecordId) throws Exception {
+    final LogServiceRaftLogReader expected = new LogServiceRaftLogReader(raftLog, recordIdIndex);
+    expected.seek(seekRecordId);
+    try (ParallelLogServiceRaftLogReader reader = new ParallelLogServiceRaftLogReader(
+        raftLog, recordIdIndex, executor, 3, 7)) {
+      reader.seek(seekRecordId);
+      int n = 0;
+      for (; expected.hasNext(); n++) {
+        assertTrue(reader.hasNext());
+        assertEquals(expected.getCurrentRaftIndex(), reader.getCurrentRaftIndex());
+        assertEquals(expected.nextRecord(), reader.nextRecord());
+      }
+      assertFalse(reader.hasNext());
+      assertEquals(expected.getCurrentRaftIndex(), reader.getCurrentRaftIndex());
+      assertTrue(n > 0);
+    }
+  }
+
+  @Test
+  public void testIndexed() throws Exception {
+    final RaftLog raftLog = newRaftLog(1);
+    final RecordIdIndex recordIdIndex = newRecordIdIndex(10);
+    assertSameAsSequential(raftLog, recordIdIndex, 0);
+    assertSameAsSequential(raftLog, recordIdIndex, 123);
+    assertTrue(executor.getTaskCount() > 0);
+  }
+
+  @Test
+  public void testNotIndexed() throws Exception {
+    // the records were written before the index existed
+    assertSameAsSequential(newRaftLog(1), new RecordIdIndex(10), 123);
+    assertSameAsSequential(newRaftLog(1), null, 123);
+
+    // the indexed entries are purged
+    assertSameAsSequential(newRaftLog(50), newRecordIdIndex(1000), 10);
+
+    // all the records are read sequentially without the executor
+    assertEquals(0, executor.getTaskCount());
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.logservice.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestReaderSessions {
+  /** A reader recording if it is closed. */
+  static class TestReader implements RaftLogReader, AutoCloseable {
+    private boolean closed = false;
+
+    @Override
+    public void seek(long recordId) {
+    }
+
+    @Override
+    public boolean hasNext() {
+      return false;
+    }
+
+    @Override
+    public byte[] next() {
+      return null;
+    }
+
+    @Override
+    public long getCurrentRaftIndex() {
+      return 0;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+
+    boolean isClosed() {
+      return closed;
+    }
+  }
+
+  @Test
+  public void testTakeAndPutBack() {
+    final ReaderSessions sessions = new ReaderSessions(2, 60_000);
+    assertNull(sessions.take(0, 0));
+
+    final ReaderSessions.Session s = sessions.newSession(null, 10);
+    s.advance(5);
+    sessions.putBack(s);
+    assertEquals(1, sessions.size());
+
+    // a session is used by only one read at a time
+    assertSame(s, sessions.take(s.getCursorId(), 15));
+    assertNull(sessions.take(s.getCursorId(), 15));
+    sessions.putBack(s);
+
+    // the session is dropped if the client has seeked to another position
+    assertNull(sessions.take(s.getCursorId(), 20));
+    assertEquals(0, sessions.size());
+  }
+
+  @Test
+  public void testEvictAndClear() {
+    final ReaderSessions sessions = new ReaderSessions(2, 60_000);
+    final ReaderSessions.Session s1 = sessions.newSession(null, 0);
+    final ReaderSessions.Session s2 = sessions.newSession(null, 0);
+    final ReaderSessions.Session s3 = sessions.newSession(null, 0);
+    sessions.putBack(s1);
+    sessions.putBack(s2);
+    sessions.putBack(s3);
+    // the least recently used session is evicted
+    assertEquals(2, sessions.size());
+    assertNull(sessions.take(s1.getCursorId(), 0));
+
+    // a session taken before clear is not put back
+    assertSame(s2, sessions.take(s2.getCursorId(), 0));
+    sessions.clear();
+    sessions.putBack(s2);
+    assertEquals(0, sessions.size());
+  }
+
+  @Test
+  public void testExpire() throws InterruptedException {
+    final ReaderSessions sessions = new ReaderSessions(2, 10);
+    final ReaderSessions.Session s = sessions.newSession(null, 0);
+    sessions.putBack(s);
+    Thread.sleep(50);
+    assertNull(sessions.take(s.getCursorId(), 0));
+    assertEquals(0, sessions.size());
+  }
+
+  @Test
+  public void testCloseReaders() throws InterruptedException {
+    final ReaderSessions sessions = new ReaderSessions(1, 60_000);
+
+    // closed when evicted
+    final TestReader evicted = new TestReader();
+    sessions.putBack(sessions.newSession(evicted, 0));
+    final TestReader r1 = new TestReader();
+    final ReaderSessions.Session s1 = sessions.newSession(r1, 0);
+    sessions.putBack(s1);
+    assertTrue(evicted.isClosed());
+    assertFalse(r1.isClosed());
+
+    // closed when the client has seeked to another position
+    assertNull(sessions.take(s1.getCursorId(), 1));
+    assertTrue(r1.isClosed());
+
+    // closed when cleared, including the session taken before clear
+    final TestReader cleared = new TestReader();
+    sessions.putBack(sessions.newSession(cleared, 0));
+    final TestReader taken = new TestReader();
+    final ReaderSessions.Session s2 = sessions.newSession(taken, 0);
+    sessions.clear();
+    assertTrue(cleared.isClosed());
+    sessions.putBack(s2);
+    assertTrue(taken.isClosed());
+
+    // closed when discarded
+    final TestReader discarded = new TestReader();
+    sessions.discard(sessions.newSession(discarded, 0));
+    assertTrue(discarded.isClosed());
+
+    // closed when expired
+    final ReaderSessions expiring = new ReaderSessions(2, 10);
+    final TestReader expired = new TestReader();
+    expiring.putBack(expiring.newSession(expired, 0));
+    Thread.sleep(50);
+    assertNull(expiring.take(0, 0));
+    assertTrue(expired.isClosed());
+    assertEquals(0, expiring.size());
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.logservice.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class TestRecordIdIndex {
+
+  static void assertPosition(long recordId, long raftIndex, int offset, RecordIdIndex.Position p) {
+    assertEquals(recordId, p.getRecordId());
+    assertEquals(raftIndex, p.getRaftIndex());
+    assertEquals(offset, p.getOffset());
+  }
+
+  @Test
+  public void testFloor() {
+    final RecordIdIndex index = new RecordIdIndex(10);
+    assertNull(index.floor(0));
+
+    // raft index 1 has records [0, 7); raft index 2 has records [7, 32)
+    index.add(0, 7, 1);
+    index.add(7, 25, 2);
+    // re-applying an entry does not change the index
+    index.add(7, 25, 2);
+    assertEquals(4, index.size());
+
+    assertPosition(0, 1, 0, index.floor(0));
+    assertPosition(0, 1, 0, index.floor(9));
+    assertPosition(10, 2, 3, index.floor(10));
+    assertPosition(20, 2, 13, index.floor(29));
+    assertPosition(30, 2, 23, index.floor(1000));
+  }
+
+  @Test
+  public void testWriteRead() throws IOException {
+    final RecordIdIndex index = new RecordIdIndex(3);
+    for (int i = 0; i < 100; i++) {
+      index.add(5L * i, 5, i + 1);
+    }
+
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      index.write(out);
+    }
+    final RecordIdIndex read = new RecordIdIndex(3);
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      read.read(in);
+    }
+
+    assertEquals(index.size(), read.size());
+    for (long id = 0; id < 500; id++) {
+      final RecordIdIndex.Position expected = index.floor(id);
+      assertPosition(expected.getRecordId(), expected.getRaftIndex(), expected.getOffset(), read.floor(id));
+    }
+  }
+}
@@ -21,6 +21,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -32,6 +33,7 @@ import org.apache.ratis.logservice.api.LogStream;
 import org.apache.ratis.logservice.api.LogStream.State;
 import org.apache.ratis.logservice.proto.LogServiceProtos.*;
 import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+import org.apache.ratis.thirdparty.com.google.protobuf.UnsafeByteOperations;
 import org.junit.Test;
 
 public class TestLogServiceProtoUtil {
@@ -121,6 +123,32 @@ public class TestLogServiceProtoUtil {
     assertTrue(TestUtils.equals(e2, proto.getLogRecord(1).toByteArray()));
   }
 
+  @Test
+  public void testReadReplyWithAliasing() throws Exception {
+    final List<ByteString> records = Arrays.asList(
+        ByteString.copyFrom(new byte[] {1,1}), ByteString.copyFrom(new byte[] {2,2,2}));
+    final byte[] array = LogServiceProtoUtil.toReadLogReplyProto(records, 1, null).toByteArray();
+
+    final ReadLogReplyProto proto = LogServiceProtoUtil.parseWithAliasing(
+        UnsafeByteOperations.unsafeWrap(array), ReadLogReplyProto.parser());
+    assertEquals(1, proto.getCursorId());
+    assertEquals(records, proto.getLogRecordList());
+    // the records refer to the given bytes instead of copies
+    array[array.length - 3] = 3; // the last byte of the second record, followed by the cursorId
+    assertEquals(3, proto.getLogRecord(1).byteAt(2));
+  }
+
+  @Test
+  public void testAppendByteBufferRequest() {
+    final ByteBuffer buffer = ByteBuffer.wrap(new byte[] {0,1,1});
+    buffer.position(1);
+    final LogServiceRequestProto proto = LogServiceProtoUtil.toAppendBBEntryLogRequestProto(
+        LogName.of("test"), Collections.singletonList(buffer));
+    assertEquals(ByteString.copyFrom(new byte[] {1,1}), proto.getAppendRequest().getData(0));
+    // the position of the given buffer is unchanged
+    assertEquals(1, buffer.position());
+  }
+
   @Test
   public void testGetLengthReply() {
     long len = 100;
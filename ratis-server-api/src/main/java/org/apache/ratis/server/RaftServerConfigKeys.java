@@ -271,6 +271,21 @@ public interface RaftServerConfigKeys {
       setInt(properties::setInt, FORCE_SYNC_NUM_KEY, forceSyncNum);
     }
 
+    /**
+     * When it is enabled, a follower replies appendEntries once the entries are written to the file
+     * but before they are synced to the disk; the synced index is reported separately in the reply.
+     * The leader may then commit the entries without waiting for the followers to sync.
+     */
+    String EARLY_ACK_ENABLED_KEY = PREFIX + ".early-ack.enabled";
+    boolean EARLY_ACK_ENABLED_DEFAULT = false;
+    static boolean earlyAckEnabled(RaftProperties properties) {
+      return getBoolean(properties::getBoolean,
+          EARLY_ACK_ENABLED_KEY, EARLY_ACK_ENABLED_DEFAULT, getDefaultLog());
+    }
+    static void setEarlyAckEnabled(RaftProperties properties, boolean earlyAckEnabled) {
+      setBoolean(properties::setBoolean, EARLY_ACK_ENABLED_KEY, earlyAckEnabled);
+    }
+
     /** The policy to handle corrupted raft log. */
     enum CorruptionPolicy {
       /** Rethrow the exception. */
@@ -297,6 +312,28 @@ public interface RaftServerConfigKeys {
       set(properties::setEnum, CORRUPTION_POLICY_KEY, corruptionPolicy);
     }
 
+    /**
+     * The compression of the state machine log data in the log segments.
+     * The compression is recorded in the header of each segment file
+     * so that a segment can be read regardless of the current conf.
+     */
+    enum Compression {
+      /** No compression. */
+      NONE,
+      /** Compress with {@link java.util.zip.Deflater}. */
+      DEFLATE
+    }
+
+    /** The compression for the newly created log segments. */
+    String COMPRESSION_KEY = PREFIX + ".compression";
+    Compression COMPRESSION_DEFAULT = Compression.NONE;
+    static Compression compression(RaftProperties properties) {
+      return get(properties::getEnum, COMPRESSION_KEY, COMPRESSION_DEFAULT, getDefaultLog());
+    }
+    static void setCompression(RaftProperties properties, Compression compression) {
+      set(properties::setEnum, COMPRESSION_KEY, compression);
+    }
+
     interface StateMachineData {
       String PREFIX = Log.PREFIX + ".statemachine.data";
 
@@ -548,6 +585,19 @@ public interface RaftServerConfigKeys {
     static void setStatisticsExpiryTime(RaftProperties properties, TimeDuration expiryTime) {
       setTimeDuration(properties::setTimeDuration, STATISTICS_EXPIRY_TIME_KEY, expiryTime);
     }
+
+    /**
+     * Should the retry cache be persisted when taking a snapshot
+     * so that the retries of the requests applied before the snapshot can still be answered after a restart?
+     */
+    String PERSISTENT_KEY = PREFIX + ".persistent";
+    boolean PERSISTENT_DEFAULT = false;
+    static boolean persistent(RaftProperties properties) {
+      return getBoolean(properties::getBoolean, PERSISTENT_KEY, PERSISTENT_DEFAULT, getDefaultLog());
+    }
+    static void setPersistent(RaftProperties properties, boolean persistent) {
+      setBoolean(properties::setBoolean, PERSISTENT_KEY, persistent);
+    }
   }
 
   interface Notification {
@@ -40,6 +40,15 @@ public interface FollowerInfo {
   /** Update this follower's matchIndex. */
   boolean updateMatchIndex(long newMatchIndex);
 
+  /**
+   * @return the index synced to the disk by this follower.
+   *         It is the same as the matchIndex unless the follower replies before syncing the entries.
+   */
+  long getDurableIndex();
+
+  /** Update this follower's durableIndex reported by an early ack reply. */
+  boolean updateDurableIndex(long newDurableIndex);
+
   /** @return the commitIndex acknowledged by this follower. */
   long getCommitIndex();
 
@@ -21,6 +21,7 @@ import org.apache.ratis.proto.RaftProtos.LogEntryProto;
 import org.apache.ratis.protocol.exceptions.StateMachineException;
 import org.apache.ratis.server.RaftConfiguration;
 import org.apache.ratis.statemachine.TransactionContext;
+import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.Preconditions;
 import org.apache.ratis.util.StringUtils;
 import org.apache.ratis.util.function.CheckedSupplier;
@@ -129,6 +130,16 @@ interface RaftLogSequentialOps {
    */
   List<CompletableFuture<Long>> append(LogEntryProto... entries);
 
+  /**
+   * The same as {@link #append(LogEntryProto...)}
+   * except that this method returns a single future for all the given entries.
+   *
+   * @return a future, which completes when all the given entries are appended.
+   */
+  default CompletableFuture<Void> appendAll(LogEntryProto... entries) {
+    return JavaUtils.allOf(append(entries));
+  }
+
   /**
    * Truncate asynchronously the log entries till the given index (inclusively).
    * Used by the leader and the followers.
@@ -37,12 +37,21 @@ class CommitInfoCache {
 
   CommitInfoProto update(RaftPeer peer, long newCommitIndex) {
     Objects.requireNonNull(peer, "peer == null");
+    final CommitInfoProto current = map.get(peer.getId());
+    if (current != null && newCommitIndex <= current.getCommitIndex()) {
+      return current; // fast path: no change
+    }
     return map.compute(peer.getId(), (id, old) ->
         old == null || newCommitIndex > old.getCommitIndex()? ProtoUtils.toCommitInfoProto(peer, newCommitIndex): old);
   }
 
   CommitInfoProto update(CommitInfoProto newInfo) {
-    return map.compute(RaftPeerId.valueOf(newInfo.getServer().getId()),
+    final RaftPeerId peerId = RaftPeerId.valueOf(newInfo.getServer().getId());
+    final CommitInfoProto current = map.get(peerId);
+    if (current != null && newInfo.getCommitIndex() <= current.getCommitIndex()) {
+      return current; // fast path: no change
+    }
+    return map.compute(peerId,
         (id, old) -> old == null || newInfo.getCommitIndex() > old.getCommitIndex()? newInfo: old);
   }
 
@@ -37,6 +37,9 @@ class FollowerInfoImpl implements FollowerInfo {
   private final AtomicReference<Timestamp> lastRpcSendTime;
   private final RaftLogIndex nextIndex;
   private final RaftLogIndex matchIndex = new RaftLogIndex("matchIndex", 0L);
+  /** Only used when the follower replies before syncing the entries; see {@link #getDurableIndex()}. */
+  private final RaftLogIndex durableIndex = new RaftLogIndex("durableIndex", 0L);
+  private volatile boolean earlyAck;
   private final RaftLogIndex commitIndex = new RaftLogIndex("commitIndex", RaftLog.INVALID_LOG_INDEX);
   private final RaftLogIndex snapshotIndex = new RaftLogIndex("snapshotIndex", 0L);
   private volatile boolean attendVote;
@@ -63,6 +66,18 @@ class FollowerInfoImpl implements FollowerInfo {
     return matchIndex.updateToMax(newMatchIndex, debugIndexChange);
   }
 
+  @Override
+  public long getDurableIndex() {
+    final long match = getMatchIndex();
+    return earlyAck? Math.min(durableIndex.get(), match): match;
+  }
+
+  @Override
+  public boolean updateDurableIndex(long newDurableIndex) {
+    earlyAck = true;
+    return durableIndex.updateToMax(newDurableIndex, debugIndexChange);
+  }
+
   @Override
   public long getCommitIndex() {
     return commitIndex.get();
@@ -107,6 +122,7 @@ class FollowerInfoImpl implements FollowerInfo {
   public void setSnapshotIndex(long newSnapshotIndex) {
     snapshotIndex.setUnconditionally(newSnapshotIndex, infoIndexChange);
     matchIndex.setUnconditionally(newSnapshotIndex, infoIndexChange);
+    durableIndex.setUnconditionally(newSnapshotIndex, infoIndexChange);
     nextIndex.setUnconditionally(newSnapshotIndex + 1, infoIndexChange);
   }
 
@@ -117,7 +133,8 @@ class FollowerInfoImpl implements FollowerInfo {
 
   @Override
   public String toString() {
-    return name + "(c" + getCommitIndex() + ",m" + getMatchIndex() + ",n" + getNextIndex()
+    return name + "(c" + getCommitIndex() + ",m" + getMatchIndex() + (earlyAck? ",d" + durableIndex.get(): "")
+        + ",n" + getNextIndex()
         + ", attendVote=" + attendVote +
         ", lastRpcSendTime=" + lastRpcSendTime.get().elapsedTimeMs() +
         ", lastRpcResponseTime=" + lastRpcResponseTime.get().elapsedTimeMs() + ")";
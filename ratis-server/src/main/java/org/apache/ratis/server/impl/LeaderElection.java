@@ -272,7 +272,8 @@ class LeaderElection implements Runnable {
   private ResultAndTerm submitRequestAndWaitResult(Phase phase, RaftConfigurationImpl conf, long electionTerm)
       throws InterruptedException {
     final ResultAndTerm r;
-    final Collection<RaftPeer> others = conf.getOtherPeers(server.getId());
+    // only the voting members are asked for votes; the listeners never vote
+    final Collection<RaftPeer> others = conf.getOtherVoters(server.getId());
     if (others.isEmpty()) {
       r = new ResultAndTerm(Result.PASSED, electionTerm);
     } else {
@@ -351,7 +352,7 @@ class LeaderElection implements Runnable {
     final Collection<RaftPeer> peers = conf.getAllPeers();
 
     for (RaftPeer peer : peers) {
-      if (peer.getPriority() > currPriority) {
+      if (!peer.isListener() && !peer.isWitness() && peer.getPriority() > currPriority) {
         higherPriorityPeers.add(peer.getId());
       }
     }
@@ -20,6 +20,7 @@ package org.apache.ratis.server.impl;
 import org.apache.ratis.conf.RaftProperties;
 import org.apache.ratis.proto.RaftProtos.AppendEntriesRequestProto;
 import org.apache.ratis.proto.RaftProtos.CommitInfoProto;
+import org.apache.ratis.proto.RaftProtos.FlowControlHintProto;
 import org.apache.ratis.proto.RaftProtos.LogEntryProto;
 import org.apache.ratis.proto.RaftProtos.LogEntryProto.LogEntryBodyCase;
 import org.apache.ratis.proto.RaftProtos.ReplicationLevel;
@@ -35,6 +36,7 @@ import org.apache.ratis.protocol.exceptions.LeaderNotReadyException;
 import org.apache.ratis.protocol.exceptions.NotLeaderException;
 import org.apache.ratis.protocol.exceptions.NotReplicatedException;
 import org.apache.ratis.protocol.exceptions.ReconfigurationTimeoutException;
+import org.apache.ratis.protocol.exceptions.StateMachineException;
 import org.apache.ratis.server.RaftServerConfigKeys;
 import org.apache.ratis.server.leader.FollowerInfo;
 import org.apache.ratis.server.leader.LeaderState;
@@ -71,6 +73,8 @@ import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 import java.util.function.LongSupplier;
 import java.util.function.Predicate;
@@ -245,8 +249,21 @@ class LeaderStateImpl implements LeaderState {
   private final WatchRequests watchRequests;
   private final MessageStreamRequests messageStreamRequests;
   private volatile boolean running = true;
+  /**
+   * Serialize the log appends of this leader.
+   * The client transactions are appended with only this lock
+   * but not the RaftServer's lock; see {@link #appendTransaction(TransactionContext)}.
+   * The lock order is the RaftServer's lock and then this lock.
+   */
+  private final Lock appendLock = new ReentrantLock();
 
   private final int stagingCatchupGap;
+  /**
+   * When the followers reply before syncing the entries,
+   * the ALL and MAJORITY watch requests are updated with the durable indices
+   * so that the watches still guarantee that the entries are synced to the disks.
+   */
+  private final boolean earlyAck;
   private final long placeHolderIndex;
   private final RaftServerMetricsImpl raftServerMetrics;
   private final LogAppenderMetrics logAppenderMetrics;
@@ -257,6 +274,7 @@ class LeaderStateImpl implements LeaderState {
 
     final RaftProperties properties = server.getRaftServer().getProperties();
     stagingCatchupGap = RaftServerConfigKeys.stagingCatchupGap(properties);
+    earlyAck = RaftServerConfigKeys.Log.earlyAckEnabled(properties);
 
     final ServerState state = server.getState();
     this.raftLog = state.getLog();
@@ -287,7 +305,12 @@ class LeaderStateImpl implements LeaderState {
         server.getRaftConf(), server.getState().getCurrentTerm(), raftLog.getNextIndex());
     CodeInjectionForTesting.execute(APPEND_PLACEHOLDER,
         server.getId().toString(), null);
-    raftLog.append(placeHolder);
+    appendLock.lock();
+    try {
+      raftLog.append(placeHolder);
+    } finally {
+      appendLock.unlock();
+    }
     processor.start();
     senders.forEach(LogAppender::start);
     return placeHolder;
@@ -298,7 +321,13 @@ class LeaderStateImpl implements LeaderState {
   }
 
   void stop() {
-    this.running = false;
+    // wait for the ongoing appendTransaction calls, if there are any
+    appendLock.lock();
+    try {
+      this.running = false;
+    } finally {
+      appendLock.unlock();
+    }
     // do not interrupt event processor since it may be in the middle of logSync
     senders.forEach(LogAppender::stop);
     final NotLeaderException nle = server.generateNotLeaderException();
@@ -370,12 +399,50 @@ class LeaderStateImpl implements LeaderState {
     return pendingRequests.tryAcquire(message);
   }
 
-  PendingRequest addPendingRequest(PendingRequests.Permit permit, RaftClientRequest request, TransactionContext entry) {
-    if (LOG.isDebugEnabled()) {
-      LOG.debug("{}: addPendingRequest at {}, entry={}", this, request,
-          LogProtoUtils.toLogEntryString(entry.getLogEntry()));
+  FlowControlHintProto getFlowControlHint() {
+    return pendingRequests.getFlowControlHint();
+  }
+
+  /**
+   * Add a pending request and then append the given transaction to the log in the term of this leader.
+   * Since all the log appends of this leader hold the append lock, the index of the entry is known in advance.
+   * The pending request is added before the append so that it is present when the entry is applied.
+   *
+   * This method is invoked without holding the RaftServer's lock
+   * so that the client transactions do not contend with the other operations using the RaftServer's lock.
+   *
+   * @return the pending request; or null if this leader has been stopped.
+   */
+  PendingRequest appendTransaction(PendingRequests.Permit permit, RaftClientRequest request,
+      TransactionContext context) throws StateMachineException {
+    appendLock.lock();
+    try {
+      if (!running) {
+        return null;
+      }
+      final long index = raftLog.getNextIndex();
+      final PendingRequest pending = pendingRequests.add(permit, index, request, context);
+      if (pending == null) {
+        return null;
+      }
+      final long appended;
+      try {
+        appended = raftLog.append(currentTerm, context);
+      } catch (StateMachineException | RuntimeException e) {
+        // the entry is not appended, so the pending request at the index must not be left behind
+        pendingRequests.remove(index);
+        throw e;
+      }
+      Preconditions.assertTrue(appended == index,
+          () -> this + ": Unexpected index " + appended + " != " + index + " for " + request);
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("{}: appendTransaction {}, entry={}", this, request,
+            LogProtoUtils.toLogEntryString(context.getLogEntry()));
+      }
+      return pending;
+    } finally {
+      appendLock.unlock();
     }
-    return pendingRequests.add(permit, request, entry);
   }
 
   CompletableFuture<RaftClientReply> streamAsync(RaftClientRequest request) {
@@ -427,7 +494,9 @@ class LeaderStateImpl implements LeaderState {
       // be behind some followers in the beginning.
       watchRequests.update(ReplicationLevel.ALL_COMMITTED, m.min);
       watchRequests.update(ReplicationLevel.MAJORITY_COMMITTED, m.majority);
-      watchRequests.update(ReplicationLevel.MAJORITY, m.max);
+      if (!earlyAck) {
+        watchRequests.update(ReplicationLevel.MAJORITY, m.max);
+      }
     });
     notifySenders();
   }
@@ -435,10 +504,15 @@ class LeaderStateImpl implements LeaderState {
   private void applyOldNewConf() {
     final ServerState state = server.getState();
     final RaftConfigurationImpl current = state.getRaftConf();
-    final RaftConfigurationImpl oldNewConf= stagingState.generateOldNewConf(current, state.getLog().getNextIndex());
-    // apply the (old, new) configuration to log, and use it as the current conf
-    long index = state.getLog().append(state.getCurrentTerm(), oldNewConf);
-    updateConfiguration(index, oldNewConf);
+    appendLock.lock();
+    try {
+      final RaftConfigurationImpl oldNewConf = stagingState.generateOldNewConf(current, state.getLog().getNextIndex());
+      // apply the (old, new) configuration to log, and use it as the current conf
+      long index = state.getLog().append(state.getCurrentTerm(), oldNewConf);
+      updateConfiguration(index, oldNewConf);
+    } finally {
+      appendLock.unlock();
+    }
 
     this.stagingState = null;
     notifySenders();
@@ -706,6 +780,12 @@ class LeaderStateImpl implements LeaderState {
   private void updateCommit() {
     getMajorityMin(FollowerInfo::getMatchIndex, raftLog::getFlushIndex)
         .ifPresent(m -> updateCommit(m.majority, m.min));
+    if (earlyAck) {
+      getMajorityMin(FollowerInfo::getDurableIndex, raftLog::getFlushIndex).ifPresent(m -> {
+        watchRequests.update(ReplicationLevel.ALL, m.min);
+        watchRequests.update(ReplicationLevel.MAJORITY, m.majority);
+      });
+    }
   }
 
   private Optional<MinMajorityMax> getMajorityMin(ToLongFunction<FollowerInfo> followerIndex, LongSupplier logIndex) {
@@ -713,7 +793,7 @@ class LeaderStateImpl implements LeaderState {
     final RaftConfigurationImpl conf = server.getRaftConf();
 
     final List<RaftPeerId> followers = voterLists.get(0);
-    final boolean includeSelf = conf.containsInConf(selfId);
+    final boolean includeSelf = conf.containsVoterInConf(selfId);
     if (followers.isEmpty() && !includeSelf) {
       return Optional.empty();
     }
@@ -725,7 +805,7 @@ class LeaderStateImpl implements LeaderState {
       return Optional.of(newConf);
     } else { // configuration is in transitional state
       final List<RaftPeerId> oldFollowers = voterLists.get(1);
-      final boolean includeSelfInOldConf = conf.containsInOldConf(selfId);
+      final boolean includeSelfInOldConf = conf.containsVoterInOldConf(selfId);
       if (oldFollowers.isEmpty() && !includeSelfInOldConf) {
         return Optional.empty();
       }
@@ -764,11 +844,18 @@ class LeaderStateImpl implements LeaderState {
         updateCommit(entriesToCommit);
       }
     }
-    watchRequests.update(ReplicationLevel.ALL, min);
+    if (!earlyAck) {
+      watchRequests.update(ReplicationLevel.ALL, min);
+    }
   }
 
   private void logMetadata(long commitIndex) {
-    raftLog.appendMetadata(currentTerm, commitIndex);
+    appendLock.lock();
+    try {
+      raftLog.appendMetadata(currentTerm, commitIndex);
+    } finally {
+      appendLock.unlock();
+    }
     notifySenders();
   }
 
@@ -803,14 +890,19 @@ class LeaderStateImpl implements LeaderState {
    */
   private void replicateNewConf() {
     final RaftConfigurationImpl conf = server.getRaftConf();
-    final RaftConfigurationImpl newConf = RaftConfigurationImpl.newBuilder()
-        .setConf(conf)
-        .setLogEntryIndex(raftLog.getNextIndex())
-        .build();
-    // stop the LogAppender if the corresponding follower is no longer in the conf
-    updateSenders(newConf);
-    long index = raftLog.append(server.getState().getCurrentTerm(), newConf);
-    updateConfiguration(index, newConf);
+    appendLock.lock();
+    try {
+      final RaftConfigurationImpl newConf = RaftConfigurationImpl.newBuilder()
+          .setConf(conf)
+          .setLogEntryIndex(raftLog.getNextIndex())
+          .build();
+      // stop the LogAppender if the corresponding follower is no longer in the conf
+      updateSenders(newConf);
+      long index = raftLog.append(server.getState().getCurrentTerm(), newConf);
+      updateConfiguration(index, newConf);
+    } finally {
+      appendLock.unlock();
+    }
     notifySenders();
   }
 
@@ -856,13 +948,13 @@ class LeaderStateImpl implements LeaderState {
     List<List<RaftPeerId>> lists = new ArrayList<>(2);
     List<RaftPeerId> listForNew = senders.stream()
         .map(LogAppender::getFollowerId)
-        .filter(conf::containsInConf)
+        .filter(conf::containsVoterInConf)
         .collect(Collectors.toList());
     lists.add(listForNew);
     if (conf.isTransitional()) {
       List<RaftPeerId> listForOld = senders.stream()
           .map(LogAppender::getFollowerId)
-          .filter(conf::containsInOldConf)
+          .filter(conf::containsVoterInOldConf)
           .collect(Collectors.toList());
       lists.add(listForOld);
     }
@@ -880,7 +972,11 @@ class LeaderStateImpl implements LeaderState {
     for (LogAppender logAppender : senders.getSenders()) {
       FollowerInfo followerInfo = logAppender.getFollower();
       RaftPeerId followerID = followerInfo.getPeer().getId();
-      int followerPriority = conf.getPeer(followerID).getPriority();
+      final RaftPeer follower = conf.getPeer(followerID);
+      if (follower == null || follower.isListener() || follower.isWitness()) {
+        continue;
+      }
+      int followerPriority = follower.getPriority();
 
       if (followerPriority <= leaderPriority) {
         continue;
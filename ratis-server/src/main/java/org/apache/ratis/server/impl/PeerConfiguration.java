@@ -32,10 +32,15 @@ import java.util.Objects;
 /**
  * The peer configuration of a raft cluster.
  *
+ * The peers include both the voting members and the non-voting members, i.e. the listeners.
+ * The listeners replicate the log but they are not counted in any majority.
+ *
  * The objects of this class are immutable.
  */
 class PeerConfiguration {
   private final Map<RaftPeerId, RaftPeer> peers;
+  /** The number of the voting members. */
+  private final int voterCount;
 
   PeerConfiguration(Iterable<RaftPeer> peers) {
     Objects.requireNonNull(peers);
@@ -47,16 +52,23 @@ class PeerConfiguration {
       }
     }
     this.peers = Collections.unmodifiableMap(map);
+    this.voterCount = (int) map.values().stream().filter(p -> !p.isListener()).count();
   }
 
   Collection<RaftPeer> getPeers() {
     return Collections.unmodifiableCollection(peers.values());
   }
 
+  /** @return the number of all the peers including the listeners. */
   int size() {
     return peers.size();
   }
 
+  /** @return the number of the voting members. */
+  int getVoterCount() {
+    return voterCount;
+  }
+
   @Override
   public String toString() {
     return peers.values().toString();
@@ -70,6 +82,12 @@ class PeerConfiguration {
     return peers.containsKey(id);
   }
 
+  /** @return true iff the given id is a voting member, i.e. a peer which is not a listener. */
+  boolean containsVoter(RaftPeerId id) {
+    final RaftPeer peer = peers.get(id);
+    return peer != null && !peer.isListener();
+  }
+
   List<RaftPeer> getOtherPeers(RaftPeerId selfId) {
     List<RaftPeer> others = new ArrayList<>();
     for (Map.Entry<RaftPeerId, RaftPeer> entry : peers.entrySet()) {
@@ -80,28 +98,38 @@ class PeerConfiguration {
     return others;
   }
 
+  List<RaftPeer> getOtherVoters(RaftPeerId selfId) {
+    List<RaftPeer> others = new ArrayList<>();
+    for (RaftPeer p : peers.values()) {
+      if (!p.isListener() && !selfId.equals(p.getId())) {
+        others.add(p);
+      }
+    }
+    return others;
+  }
+
   boolean hasMajority(Collection<RaftPeerId> others, RaftPeerId selfId) {
     Preconditions.assertTrue(!others.contains(selfId));
     int num = 0;
-    if (contains(selfId)) {
+    if (containsVoter(selfId)) {
       num++;
     }
     for (RaftPeerId other : others) {
-      if (contains(other)) {
+      if (containsVoter(other)) {
         num++;
       }
     }
-    return num > size() / 2;
+    return num > voterCount / 2;
   }
 
   boolean majorityRejectVotes(Collection<RaftPeerId> rejected) {
-    int num = size();
+    int num = voterCount;
     for (RaftPeerId other : rejected) {
-      if (contains(other)) {
+      if (containsVoter(other)) {
         num --;
       }
     }
-    return num <= size() / 2;
+    return num <= voterCount / 2;
   }
 
   @Override
@@ -19,6 +19,7 @@ package org.apache.ratis.server.impl;
 
 import org.apache.ratis.conf.RaftProperties;
 import org.apache.ratis.proto.RaftProtos.CommitInfoProto;
+import org.apache.ratis.proto.RaftProtos.FlowControlHintProto;
 import org.apache.ratis.protocol.Message;
 import org.apache.ratis.protocol.exceptions.NotLeaderException;
 import org.apache.ratis.protocol.RaftClientReply;
@@ -38,13 +39,13 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Function;
 
 class PendingRequests {
@@ -70,6 +71,10 @@ class PendingRequests {
       return get(0).used();
     }
 
+    int getElementCredit() {
+      return Math.max(0, get(0).availablePermits());
+    }
+
     int getMegaByteSize() {
       return get(1).used();
     }
@@ -87,13 +92,30 @@ class PendingRequests {
     }
   }
 
+  /**
+   * The pending requests indexed by their log indices.
+   *
+   * Since the log indices are dense and increasing,
+   * a request is stored in the slot (index mod capacity) of a ring buffer without boxing and hashing.
+   * When the slot is occupied by another request,
+   * which happens only if the pending indices span more than the capacity,
+   * the request is stored in an overflow map instead.
+   */
   private static class RequestMap {
+    /** The maximum number of slots in the ring buffer. */
+    private static final int MAX_CAPACITY = 1 << 16;
+
+    static int capacity(int elementLimit) {
+      final long n = Math.min(2L * Math.max(elementLimit, 1), MAX_CAPACITY);
+      return Integer.highestOneBit(Math.toIntExact(n - 1)) << 1;
+    }
+
     private final Object name;
-    private final ConcurrentMap<Long, PendingRequest> map = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<PendingRequest> slots;
+    private final int mask;
+    private final ConcurrentMap<Long, PendingRequest> overflow = new ConcurrentHashMap<>();
     private final RaftServerMetricsImpl raftServerMetrics;
 
-    /** Permits to put new requests, always synchronized. */
-    private final Map<Permit, Permit> permits = new HashMap<>();
     /** Track and limit the number of requests and the total message size. */
     private final RequestLimits resource;
     /** The size (in byte) of all the requests in this map. */
@@ -105,10 +127,21 @@ class PendingRequests {
       this.resource = new RequestLimits(elementLimit, megabyteLimit);
       this.raftServerMetrics = raftServerMetrics;
 
+      final int capacity = capacity(elementLimit);
+      this.slots = new AtomicReferenceArray<>(capacity);
+      this.mask = capacity - 1;
+
       raftServerMetrics.addNumPendingRequestsGauge(resource::getElementCount);
       raftServerMetrics.addNumPendingRequestsMegaByteSize(resource::getMegaByteSize);
     }
 
+    FlowControlHintProto getFlowControlHint() {
+      return FlowControlHintProto.newBuilder()
+          .setCredit(resource.getElementCredit())
+          .setQueueDepth(resource.getElementCount())
+          .build();
+    }
+
     Permit tryAcquire(Message message) {
       final int messageSize = Message.getSize(message);
       final int messageSizeMb = roundUpMb(messageSize );
@@ -131,38 +164,50 @@ class PendingRequests {
       if (messageSizeMb > diffMb) {
         resource.releaseExtraMb(messageSizeMb - diffMb);
       }
-      return putPermit();
+      return resource.isClosed()? null: new Permit();
     }
 
-    private synchronized Permit putPermit() {
-      if (resource.isClosed()) {
-        return null;
-      }
-      final Permit permit = new Permit();
-      permits.put(permit, permit);
-      return permit;
+    private int slot(long index) {
+      return (int) index & mask;
     }
 
-    synchronized PendingRequest put(Permit permit, long index, PendingRequest p) {
+    PendingRequest put(Permit permit, long index, PendingRequest p) {
       LOG.debug("{}: PendingRequests.put {} -> {}", name, index, p);
-      final Permit removed = permits.remove(permit);
-      if (removed == null) {
+      Objects.requireNonNull(permit, "permit == null");
+      if (resource.isClosed()) {
+        return null;
+      }
+      if (!slots.compareAndSet(slot(index), null, p)) {
+        final PendingRequest previous = overflow.put(index, p);
+        Preconditions.assertTrue(previous == null);
+      }
+      // recheck since setNotLeaderException may have drained the requests concurrently.
+      if (resource.isClosed() && removeRequest(index) == p) {
         return null;
       }
-      Preconditions.assertTrue(removed == permit);
-      final PendingRequest previous = map.put(index, p);
-      Preconditions.assertTrue(previous == null);
       return p;
     }
 
     PendingRequest get(long index) {
-      final PendingRequest r = map.get(index);
+      final PendingRequest slot = slots.get(slot(index));
+      final PendingRequest r = slot != null && slot.getIndex() == index? slot
+          : overflow.isEmpty()? null: overflow.get(index);
       LOG.debug("{}: PendingRequests.get {} returns {}", name, index, r);
       return r;
     }
 
+    private PendingRequest removeRequest(long index) {
+      final int i = slot(index);
+      for(PendingRequest slot; (slot = slots.get(i)) != null && slot.getIndex() == index; ) {
+        if (slots.compareAndSet(i, slot, null)) {
+          return slot;
+        }
+      }
+      return overflow.isEmpty()? null: overflow.remove(index);
+    }
+
     PendingRequest remove(long index) {
-      final PendingRequest r = map.remove(index);
+      final PendingRequest r = removeRequest(index);
       LOG.debug("{}: PendingRequests.remove {} returns {}", name, index, r);
       if (r == null) {
         return null;
@@ -178,24 +223,23 @@ class PendingRequests {
 
     Collection<TransactionContext> setNotLeaderException(NotLeaderException nle,
                                                          Collection<CommitInfoProto> commitInfos) {
-      synchronized (this) {
-        resource.close();
-        permits.clear();
-      }
+      // close the resource first so that no more requests can be put.
+      resource.close();
 
       LOG.debug("{}: PendingRequests.setNotLeaderException", name);
-      final List<TransactionContext> transactions = new ArrayList<>(map.size());
-      for(;;) {
-        final Iterator<Long> i = map.keySet().iterator();
-        if (!i.hasNext()) { // the map is empty
-          return transactions;
-        }
-
-        final PendingRequest pending = map.remove(i.next());
+      final List<TransactionContext> transactions = new ArrayList<>();
+      for(int i = 0; i < slots.length(); i++) {
+        final PendingRequest pending = slots.getAndSet(i, null);
         if (pending != null) {
           transactions.add(pending.setNotLeaderException(nle, commitInfos));
         }
       }
+      for(Iterator<PendingRequest> i = overflow.values().iterator(); i.hasNext(); ) {
+        final PendingRequest pending = i.next();
+        i.remove();
+        transactions.add(pending.setNotLeaderException(nle, commitInfos));
+      }
+      return transactions;
     }
 
     void close() {
@@ -224,9 +268,11 @@ class PendingRequests {
     return pendingRequests.tryAcquire(message);
   }
 
-  PendingRequest add(Permit permit, RaftClientRequest request, TransactionContext entry) {
-    // externally synced for now
-    final long index = entry.getLogEntry().getIndex();
+  FlowControlHintProto getFlowControlHint() {
+    return pendingRequests.getFlowControlHint();
+  }
+
+  PendingRequest add(Permit permit, long index, RaftClientRequest request, TransactionContext entry) {
     LOG.debug("{}: addPendingRequest at index={}, request={}", name, index, request);
     final PendingRequest pending = new PendingRequest(index, request, entry);
     return pendingRequests.put(permit, index, pending);
@@ -265,6 +311,11 @@ class PendingRequests {
     return pendingRequest != null ? pendingRequest.getEntry() : null;
   }
 
+  /** Remove the pending request at the given index without replying, e.g. it has failed to append to the log. */
+  void remove(long index) {
+    pendingRequests.remove(index);
+  }
+
   void replyPendingRequest(long index, RaftClientReply reply) {
     final PendingRequest pending = pendingRequests.remove(index);
     if (pending != null) {
@@ -145,13 +145,20 @@ final class RaftConfigurationImpl implements RaftConfiguration {
     return conf.contains(peerId);
   }
 
+  boolean containsVoterInConf(RaftPeerId peerId) {
+    return conf.containsVoter(peerId);
+  }
+
   boolean isHighestPriority(RaftPeerId peerId) {
     RaftPeer target = getPeer(peerId);
-    if (target == null) {
+    if (target == null || target.isListener() || target.isWitness()) {
       return false;
     }
     Collection<RaftPeer> peers = getCurrentPeers();
     for (RaftPeer peer : peers) {
+      if (peer.isListener() || peer.isWitness()) {
+        continue;
+      }
       if (peer.getPriority() >= target.getPriority() && !peer.equals(target)) {
         return false;
       }
@@ -163,6 +170,39 @@ final class RaftConfigurationImpl implements RaftConfiguration {
     return oldConf != null && oldConf.contains(peerId);
   }
 
+  boolean containsVoterInOldConf(RaftPeerId peerId) {
+    return oldConf != null && oldConf.containsVoter(peerId);
+  }
+
+  /**
+   * @return true iff the given peer is a voting member in conf or, if old conf exists, in old conf.
+   */
+  boolean isVoter(RaftPeerId peerId) {
+    return containsVoterInConf(peerId) || containsVoterInOldConf(peerId);
+  }
+
+  /**
+   * @return true iff the given peer is a member of this configuration
+   *         but it is not a voting member in neither conf nor old conf.
+   */
+  boolean isListener(RaftPeerId peerId) {
+    return getPeer(peerId) != null && !isVoter(peerId);
+  }
+
+  /** @return true iff the given peer is a witness, which stores only the log entry headers. */
+  boolean isWitness(RaftPeerId peerId) {
+    final RaftPeer peer = getPeer(peerId);
+    return peer != null && peer.isWitness();
+  }
+
+  /**
+   * @return true iff the given peer is a voting member which stores the full log,
+   *         i.e. it is neither a listener nor a witness.
+   */
+  boolean canBeLeader(RaftPeerId peerId) {
+    return isVoter(peerId) && !isWitness(peerId);
+  }
+
   /**
    * @return true iff the given peer is contained in conf and,
    *         if old conf exists, is contained in old conf.
@@ -210,6 +250,20 @@ final class RaftConfigurationImpl implements RaftConfiguration {
     return others;
   }
 
+  /**
+   * @return all the voting members other than the given self id from the conf,
+   *         and the old conf if it exists.
+   */
+  Collection<RaftPeer> getOtherVoters(RaftPeerId selfId) {
+    Collection<RaftPeer> others = conf.getOtherVoters(selfId);
+    if (oldConf != null) {
+      oldConf.getOtherVoters(selfId).stream()
+          .filter(p -> !others.contains(p))
+          .forEach(others::add);
+    }
+    return others;
+  }
+
   /** @return true if the self id together with the others are in the majority. */
   boolean hasMajority(Collection<RaftPeerId> others, RaftPeerId selfId) {
     Preconditions.assertTrue(!others.contains(selfId));
@@ -233,7 +287,9 @@ final class RaftConfigurationImpl implements RaftConfiguration {
       return false;
     }
     for (RaftPeer peer : newMembers) {
-      if (!conf.contains(peer.getId()) || conf.getPeer(peer.getId()).getPriority() != peer.getPriority()) {
+      final RaftPeer existing = conf.getPeer(peer.getId());
+      if (existing == null || existing.getPriority() != peer.getPriority()
+          || existing.getStartupRole() != peer.getStartupRole()) {
         return false;
       }
     }
@@ -31,6 +31,7 @@ import org.apache.ratis.protocol.exceptions.RaftException;
 import org.apache.ratis.protocol.exceptions.ReconfigurationInProgressException;
 import org.apache.ratis.protocol.exceptions.ResourceUnavailableException;
 import org.apache.ratis.protocol.exceptions.ServerNotReadyException;
+import org.apache.ratis.protocol.exceptions.SetConfigurationException;
 import org.apache.ratis.protocol.exceptions.StaleReadException;
 import org.apache.ratis.protocol.exceptions.StateMachineException;
 import org.apache.ratis.protocol.exceptions.TransferLeadershipException;
@@ -149,6 +150,8 @@ class RaftServerImpl implements RaftServer.Division,
   private final TimeDuration leaderStepDownWaitTime;
   private final TimeDuration sleepDeviationThreshold;
   private final boolean installSnapshotEnabled;
+  /** Reply appendEntries once the entries are written, i.e. before they are synced to the disk. */
+  private final boolean earlyAck;
 
   private final LifeCycle lifeCycle;
   private final ServerState state;
@@ -159,6 +162,7 @@ class RaftServerImpl implements RaftServer.Division,
   private final MemoizedSupplier<RaftClient> raftClient;
 
   private final RetryCacheImpl retryCache;
+  private final boolean retryCachePersistent;
   private final CommitInfoCache commitInfoCache = new CommitInfoCache();
 
   private final RaftServerJmxAdapter jmxAdapter;
@@ -189,10 +193,13 @@ class RaftServerImpl implements RaftServer.Division,
     leaderStepDownWaitTime = RaftServerConfigKeys.LeaderElection.leaderStepDownWaitTime(properties);
     this.sleepDeviationThreshold = RaftServerConfigKeys.sleepDeviationThreshold(properties);
     installSnapshotEnabled = RaftServerConfigKeys.Log.Appender.installSnapshotEnabled(properties);
+    this.earlyAck = RaftServerConfigKeys.Log.earlyAckEnabled(properties)
+        && !RaftServerConfigKeys.Log.useMemory(properties);
     this.proxy = proxy;
 
     this.state = new ServerState(id, group, properties, this, stateMachine);
     this.retryCache = new RetryCacheImpl(properties);
+    this.retryCachePersistent = RaftServerConfigKeys.RetryCache.persistent(properties);
     this.inProgressInstallSnapshotRequest = new AtomicReference<>(null);
     this.dataStreamMap = new DataStreamMapImpl(id);
 
@@ -301,6 +308,7 @@ class RaftServerImpl implements RaftServer.Division,
     }
 
     registerMBean(getId(), getMemberId().getGroupId(), jmxAdapter, jmxAdapter);
+    loadRetryCache();
     state.start();
     startComplete.compareAndSet(false, true);
     return true;
@@ -587,9 +595,11 @@ class RaftServerImpl implements RaftServer.Division,
   }
 
   RaftClientReply.Builder newReplyBuilder(RaftClientRequest request) {
-    return RaftClientReply.newBuilder()
+    final RaftClientReply.Builder b = RaftClientReply.newBuilder()
         .setRequest(request)
         .setCommitInfos(getCommitInfos());
+    // only the write requests are limited by the pending requests
+    return request.is(TypeCase.WRITE)? b.setFlowControlHint(getFlowControlHint()): b;
   }
 
   private RaftClientReply.Builder newReplyBuilder(ClientInvocationId invocationId, long logIndex) {
@@ -597,7 +607,13 @@ class RaftServerImpl implements RaftServer.Division,
         .setClientInvocationId(invocationId)
         .setLogIndex(logIndex)
         .setServerId(getMemberId())
-        .setCommitInfos(getCommitInfos());
+        .setCommitInfos(getCommitInfos())
+        .setFlowControlHint(getFlowControlHint());
+  }
+
+  /** @return the flow control hint if this server is the leader; otherwise, return null. */
+  private FlowControlHintProto getFlowControlHint() {
+    return role.getLeaderState().map(LeaderStateImpl::getFlowControlHint).orElse(null);
   }
 
   RaftClientReply newSuccessReply(RaftClientRequest request) {
@@ -680,52 +696,64 @@ class RaftServerImpl implements RaftServer.Division,
   /**
    * Handle a normal update request from client.
    */
+  /**
+   * Append the transaction to the log and add it to the pending requests.
+   *
+   * This method does not hold the lock of this server.
+   * The transaction is appended in the term of the {@link LeaderStateImpl} obtained at the beginning.
+   * If the leader state is stopped concurrently, the transaction fails with a {@link NotLeaderException}.
+   */
   private CompletableFuture<RaftClientReply> appendTransaction(
       RaftClientRequest request, TransactionContext context, CacheEntry cacheEntry) throws IOException {
     assertLifeCycleState(LifeCycle.States.RUNNING);
-    CompletableFuture<RaftClientReply> reply;
-
-    final PendingRequest pending;
-    synchronized (this) {
-      reply = checkLeaderState(request, cacheEntry, true);
-      if (reply != null) {
-        return reply;
-      }
 
-      // append the message to its local log
-      final LeaderStateImpl leaderState = role.getLeaderStateNonNull();
-      final PendingRequests.Permit permit = leaderState.tryAcquirePendingRequest(request.getMessage());
-      if (permit == null) {
-        cacheEntry.failWithException(new ResourceUnavailableException(
-            getMemberId() + ": Failed to acquire a pending write request for " + request));
-        return cacheEntry.getReplyFuture();
-      }
-      try {
-        state.appendLog(context);
-      } catch (StateMachineException e) {
-        // the StateMachineException is thrown by the SM in the preAppend stage.
-        // Return the exception in a RaftClientReply.
-        RaftClientReply exceptionReply = newExceptionReply(request, e);
-        cacheEntry.failWithReply(exceptionReply);
-        // leader will step down here
-        if (e.leaderShouldStepDown() && getInfo().isLeader()) {
-          leaderState.submitStepDownEvent(LeaderState.StepDownReason.STATE_MACHINE_EXCEPTION);
-        }
-        return CompletableFuture.completedFuture(exceptionReply);
-      }
+    final CompletableFuture<RaftClientReply> reply = checkLeaderState(request, cacheEntry, true);
+    if (reply != null) {
+      return reply;
+    }
+    final LeaderStateImpl leaderState = role.getLeaderState().orElse(null);
+    if (leaderState == null) {
+      return failWithNotLeader(request, cacheEntry);
+    }
 
-      // put the request into the pending queue
-      pending = leaderState.addPendingRequest(permit, request, context);
-      if (pending == null) {
-        cacheEntry.failWithException(new ResourceUnavailableException(
-            getMemberId() + ": Failed to add a pending write request for " + request));
-        return cacheEntry.getReplyFuture();
+    final PendingRequests.Permit permit = leaderState.tryAcquirePendingRequest(request.getMessage());
+    if (permit == null) {
+      cacheEntry.failWithException(new ResourceUnavailableException(
+          getMemberId() + ": Failed to acquire a pending write request for " + request));
+      return cacheEntry.getReplyFuture();
+    }
+    // put the request into the pending queue and append the message to its local log
+    final PendingRequest pending;
+    try {
+      pending = leaderState.appendTransaction(permit, request, context);
+    } catch (StateMachineException e) {
+      // the StateMachineException is thrown by the SM in the preAppend stage.
+      // Return the exception in a RaftClientReply.
+      RaftClientReply exceptionReply = newExceptionReply(request, e);
+      cacheEntry.failWithReply(exceptionReply);
+      // leader will step down here
+      if (e.leaderShouldStepDown() && getInfo().isLeader()) {
+        leaderState.submitStepDownEvent(LeaderState.StepDownReason.STATE_MACHINE_EXCEPTION);
       }
-      leaderState.notifySenders();
+      return CompletableFuture.completedFuture(exceptionReply);
+    } catch (RuntimeException e) {
+      // fail the retry cache entry so that a retry of the request will not wait for it
+      cacheEntry.failWithException(e);
+      throw e;
     }
+    if (pending == null) {
+      // the leader state has been stopped and the permits have been cleared
+      return failWithNotLeader(request, cacheEntry);
+    }
+    leaderState.notifySenders();
     return pending.getFuture();
   }
 
+  private CompletableFuture<RaftClientReply> failWithNotLeader(RaftClientRequest request, CacheEntry cacheEntry) {
+    final RaftClientReply reply = newExceptionReply(request, generateNotLeaderException());
+    return RetryCacheImpl.failWithReply(reply, cacheEntry);
+  }
+
   void stepDownOnJvmPause() {
     if (getInfo().isLeader()) {
       role.getLeaderState().ifPresent(leader -> leader.submitStepDownEvent(LeaderState.StepDownReason.JVM_PAUSE));
@@ -779,11 +807,17 @@ class RaftServerImpl implements RaftServer.Division,
         replyFuture = watchAsync(request);
       } else if (type.is(TypeCase.MESSAGESTREAM)) {
         replyFuture = streamAsync(request);
+      } else if (type.is(TypeCase.WRITE) && type.getWrite().getBatch()) {
+        replyFuture = batchWriteAsync(request);
       } else {
         // query the retry cache
-        final RetryCacheImpl.CacheQueryResult queryResult = retryCache.queryCache(ClientInvocationId.valueOf(request));
+        final RetryCacheImpl.CacheQueryResult queryResult = retryCache.queryCache(request);
         final CacheEntry cacheEntry = queryResult.getEntry();
-        if (queryResult.isRetry()) {
+        if (queryResult.isAcknowledged()) {
+          // the entry may have been removed, so the request must not be applied again
+          replyFuture = JavaUtils.completeExceptionally(new RaftException(getMemberId() + ": "
+              + ClientInvocationId.valueOf(request) + " is already acknowledged by the client"));
+        } else if (queryResult.isRetry()) {
           // if the previous attempt is still pending or it succeeded, return its
           // future
           replyFuture = cacheEntry.getReplyFuture();
@@ -816,6 +850,59 @@ class RaftServerImpl implements RaftServer.Division,
     return replyFuture;
   }
 
+  /**
+   * Submit each message of the given batch request as a separate write request, in order,
+   * so that each message has its own transaction, log entry and retry cache entry.
+   * The batch reply has the result of each message,
+   * so that a failed message does not fail the other messages in the batch.
+   * When a message is rejected since this server is not a ready leader,
+   * the batch is failed with the same exception so that the client retries it with the leader;
+   * the retried batch gets the cached replies of the messages already submitted.
+   *
+   * @return a batch reply with the result of each message; or the exception reply for a leader change.
+   */
+  private CompletableFuture<RaftClientReply> batchWriteAsync(RaftClientRequest batch) throws IOException {
+    final BatchMessageProto proto = ClientProtoUtils.toBatchMessageProto(batch.getMessage());
+    if (proto.getMessagesCount() == 0 || proto.getMessagesCount() != proto.getCallIdsCount()) {
+      throw new IllegalArgumentException(getMemberId() + ": Unexpected batch request with "
+          + proto.getMessagesCount() + " messages and " + proto.getCallIdsCount() + " call ids");
+    }
+    final List<CompletableFuture<RaftClientReply>> futures = new ArrayList<>(proto.getMessagesCount());
+    for (int i = 0; i < proto.getMessagesCount(); i++) {
+      final RaftClientRequest request = RaftClientRequest.newBuilder()
+          .setClientId(batch.getClientId())
+          .setServerId(batch.getServerId())
+          .setGroupId(batch.getRaftGroupId())
+          .setCallId(proto.getCallIds(i))
+          .setMessage(Message.valueOf(proto.getMessages(i)))
+          .setType(RaftClientRequest.writeRequestType())
+          .setRoutingTable(batch.getRoutingTable())
+          .setTimeoutMs(batch.getTimeoutMs())
+          .setFirstUnackedCallId(batch.getFirstUnackedCallId())
+          .build();
+      futures.add(submitClientRequestAsync(request));
+    }
+    final List<CompletableFuture<BatchReplyEntryProto>> results = futures.stream()
+        .map(f -> f.handle((r, e) -> ClientProtoUtils.toBatchReplyEntryProto(r,
+            e != null? JavaUtils.unwrapCompletionException(e): null)))
+        .collect(Collectors.toList());
+    return JavaUtils.allOf(results).thenApply(v -> {
+      final List<BatchReplyEntryProto> replies = new ArrayList<>(results.size());
+      for (int i = 0; i < results.size(); i++) {
+        replies.add(results.get(i).join());
+        final CompletableFuture<RaftClientReply> f = futures.get(i);
+        final RaftException e = f.isCompletedExceptionally()? null: f.join().getException();
+        if (e instanceof NotLeaderException || e instanceof LeaderNotReadyException) {
+          return newExceptionReply(batch, e);
+        }
+      }
+      return newReplyBuilder(batch)
+          .setSuccess()
+          .setMessage(ClientProtoUtils.toBatchReplyMessage(replies))
+          .build();
+    });
+  }
+
   private CompletableFuture<RaftClientReply> watchAsync(RaftClientRequest request) {
     return role.getLeaderState()
         .map(ls -> ls.addWatchReqeust(request))
@@ -950,6 +1037,12 @@ class RaftServerImpl implements RaftServer.Division,
         return logAndReturnTransferLeadershipFail(request, msg);
       }
 
+      if (!conf.containsVoterInConf(request.getNewLeader()) || conf.isWitness(request.getNewLeader())) {
+        String msg = getMemberId() + " refused to transfer leadership to peer " + request.getNewLeader() +
+            " as it is a listener or a witness in " + conf;
+        return logAndReturnTransferLeadershipFail(request, msg);
+      }
+
       if (!conf.isHighestPriority(request.getNewLeader())) {
         String msg = getMemberId() + " refused to transfer leadership to peer " + request.getNewLeader() +
             " as it does not has highest priority " + conf;
@@ -993,6 +1086,25 @@ class RaftServerImpl implements RaftServer.Division,
             "Reconfiguration is already in progress: " + current);
       }
 
+      // the leader cannot be demoted to a listener or a witness,
+      // and the new conf must have at least one voting member storing the full log
+      final Optional<RaftPeer> self = peersInNewConf.stream().filter(p -> p.getId().equals(getId())).findAny();
+      if (self.filter(p -> p.isListener() || p.isWitness()).isPresent()) {
+        throw new SetConfigurationException(getMemberId() + ": The leader cannot be a listener or a witness"
+            + " in the new conf " + peersInNewConf + ", please transfer the leadership first.");
+      } else if (peersInNewConf.stream().allMatch(p -> p.isListener() || p.isWitness())) {
+        throw new SetConfigurationException(getMemberId() + ": There is no voting member storing the full log"
+            + " in the new conf " + peersInNewConf);
+      }
+      // a witness does not have the state machine data, so it cannot be changed to another role
+      final Optional<RaftPeer> changedWitness = peersInNewConf.stream()
+          .filter(p -> !p.isWitness() && current.isWitness(p.getId())).findAny();
+      if (changedWitness.isPresent()) {
+        throw new SetConfigurationException(getMemberId() + ": The witness " + changedWitness.get().getId()
+            + " cannot be changed to another role in the new conf " + peersInNewConf
+            + ", please remove it and then add it back.");
+      }
+
       // return success with a null message if the new conf is the same as the current
       if (current.hasNoChange(peersInNewConf)) {
         pending = new PendingRequest(request);
@@ -1243,33 +1355,49 @@ class RaftServerImpl implements RaftServer.Division,
       state.updateConfiguration(entries);
     }
 
-    final List<CompletableFuture<Long>> futures = entries.length == 0 ? Collections.emptyList()
-        : state.getLog().append(entries);
     commitInfos.forEach(commitInfoCache::update);
-
-    if (!isHeartbeat) {
-      CodeInjectionForTesting.execute(LOG_SYNC, getId(), null);
+    if (isHeartbeat) {
+      // fast path: there is nothing to append, reply immediately
+      followerState.ifPresent(fs -> fs.updateLastRpcTime(FollowerState.UpdateType.APPEND_COMPLETE));
+      return CompletableFuture.completedFuture(
+          appendEntriesSuccess(leaderId, currentTerm, previous, leaderCommit, callId, timer, entries));
     }
-    return JavaUtils.allOf(futures).whenCompleteAsync(
+
+    final CompletableFuture<Void> appended = state.getLog().appendAll(entries);
+    CodeInjectionForTesting.execute(LOG_SYNC, getId(), null);
+    // The log future is completed by the log worker thread.
+    // Build and send the reply asynchronously so that it does not delay the log I/O.
+    return appended.whenCompleteAsync(
         (r, t) -> followerState.ifPresent(fs -> fs.updateLastRpcTime(FollowerState.UpdateType.APPEND_COMPLETE))
-    ).thenApply(v -> {
-      final AppendEntriesReplyProto reply;
-      synchronized(this) {
-        final long commitIndex = ServerImplUtils.effectiveCommitIndex(leaderCommit, previous, entries.length);
-        state.updateCommitIndex(commitIndex, currentTerm, false);
-        updateCommitInfoCache();
-        final long n = isHeartbeat? state.getLog().getNextIndex(): entries[entries.length - 1].getIndex() + 1;
-        final long matchIndex = entries.length != 0 ? entries[entries.length - 1].getIndex() :
-            RaftLog.INVALID_LOG_INDEX;
-        reply = ServerProtoUtils.toAppendEntriesReplyProto(leaderId, getMemberId(), currentTerm,
-            state.getLog().getLastCommittedIndex(), n, SUCCESS, callId, matchIndex,
-            isHeartbeat);
-      }
-      logAppendEntries(isHeartbeat, () -> getMemberId() + ": succeeded to handle AppendEntries. Reply: "
-          + ServerStringUtils.toAppendEntriesReplyString(reply));
-      timer.stop();  // TODO: future never completes exceptionally?
-      return reply;
-    });
+    ).thenApply(v -> appendEntriesSuccess(leaderId, currentTerm, previous, leaderCommit, callId, timer, entries));
+  }
+
+  @SuppressWarnings("checkstyle:parameternumber")
+  private AppendEntriesReplyProto appendEntriesSuccess(RaftPeerId leaderId, long currentTerm, TermIndex previous,
+      long leaderCommit, long callId, Timer.Context timer, LogEntryProto... entries) {
+    final boolean isHeartbeat = entries.length == 0;
+    final long commitIndex = ServerImplUtils.effectiveCommitIndex(leaderCommit, previous, entries.length);
+    state.updateCommitIndex(commitIndex, currentTerm, false);
+    updateCommitInfoCache();
+    final long followerCommit = state.getLog().getLastCommittedIndex();
+    final long n = isHeartbeat? state.getLog().getNextIndex(): entries[entries.length - 1].getIndex() + 1;
+    final long matchIndex = isHeartbeat? RaftLog.INVALID_LOG_INDEX: entries[entries.length - 1].getIndex();
+    final AppendEntriesReplyProto reply;
+    if (earlyAck) {
+      // The entries up to the previous entry or the last appended entry are consistent with the leader.
+      final long consistentIndex = !isHeartbeat? matchIndex
+          : previous != null? previous.getIndex(): RaftLog.INVALID_LOG_INDEX;
+      final long durableIndex = Math.min(state.getLog().getFlushIndex(), consistentIndex);
+      reply = ServerProtoUtils.toEarlyAckAppendEntriesReplyProto(leaderId, getMemberId(),
+          currentTerm, followerCommit, n, callId, matchIndex, isHeartbeat, durableIndex);
+    } else {
+      reply = ServerProtoUtils.toAppendEntriesReplyProto(leaderId, getMemberId(),
+          currentTerm, followerCommit, n, SUCCESS, callId, matchIndex, isHeartbeat);
+    }
+    logAppendEntries(isHeartbeat, () -> getMemberId() + ": succeeded to handle AppendEntries. Reply: "
+        + ServerStringUtils.toAppendEntriesReplyString(reply));
+    timer.stop();  // TODO: future never completes exceptionally?
+    return reply;
   }
 
   private AppendEntriesReplyProto checkInconsistentAppendEntries(RaftPeerId leaderId, long currentTerm,
@@ -1416,6 +1544,12 @@ class RaftServerImpl implements RaftServer.Division,
         return ServerProtoUtils.toStartLeaderElectionReplyProto(leaderId, getMemberId(), false);
       }
 
+      if (!getRaftConf().canBeLeader(getId())) {
+        LOG.warn("{} refused StartLeaderElectionRequest from {}, because it is a listener or a witness",
+            getMemberId(), leaderId);
+        return ServerProtoUtils.toStartLeaderElectionReplyProto(leaderId, getMemberId(), false);
+      }
+
       if (ServerState.compareLog(state.getLastEntry(), leaderLastEntry) < 0) {
         LOG.warn("{} refused StartLeaderElectionRequest from {}, because lastEntry:{} less than leaderEntry:{}",
             getMemberId(), leaderId, leaderLastEntry, state.getLastEntry());
@@ -1630,9 +1764,10 @@ class RaftServerImpl implements RaftServer.Division,
   private CompletableFuture<Message> replyPendingRequest(
       LogEntryProto logEntry, CompletableFuture<Message> stateMachineFuture) {
     Preconditions.assertTrue(logEntry.hasStateMachineLogEntry());
-    final ClientInvocationId invocationId = ClientInvocationId.valueOf(logEntry.getStateMachineLogEntry());
+    final StateMachineLogEntryProto smLog = logEntry.getStateMachineLogEntry();
+    final ClientInvocationId invocationId = ClientInvocationId.valueOf(smLog);
     // update the retry cache
-    final CacheEntry cacheEntry = retryCache.getOrCreateEntry(invocationId);
+    final CacheEntry cacheEntry = retryCache.getOrCreateEntry(invocationId, smLog.getFirstUnackedCallId());
     if (getInfo().isLeader()) {
       Preconditions.assertTrue(cacheEntry != null && !cacheEntry.isCompletedNormally(),
               "retry cache entry should be pending: %s", cacheEntry);
@@ -1664,6 +1799,39 @@ class RaftServerImpl implements RaftServer.Division,
     });
   }
 
+  /** Persist the retry cache, if it is enabled, when a snapshot is taken at the given index. */
+  void persistRetryCache(long snapshotIndex) {
+    if (!retryCachePersistent) {
+      return;
+    }
+    try {
+      state.writeRetryCache(retryCache.toProto(snapshotIndex));
+    } catch (IOException e) {
+      LOG.warn("{}: Failed to persist the retry cache at snapshot index {}", getMemberId(), snapshotIndex, e);
+    }
+  }
+
+  /**
+   * Load the persisted retry cache, if it is enabled, for the log entries included in the latest snapshot.
+   * The retry cache entries of the other log entries will be created when the entries are applied.
+   */
+  private void loadRetryCache() {
+    if (!retryCachePersistent) {
+      return;
+    }
+    final long snapshotIndex = state.getLog().getSnapshotIndex();
+    try {
+      final RetryCacheSnapshotProto proto = state.readRetryCache();
+      if (proto != null) {
+        retryCache.load(proto, snapshotIndex);
+        LOG.info("{}: Loaded {} retry cache entries persisted at snapshot index {}, the latest snapshot index is {}",
+            getMemberId(), proto.getRepliesCount(), proto.getSnapshotIndex(), snapshotIndex);
+      }
+    } catch (IOException e) {
+      LOG.warn("{}: Failed to load the retry cache", getMemberId(), e);
+    }
+  }
+
   CompletableFuture<Message> applyLogToStateMachine(LogEntryProto next) throws RaftLogIOException {
     if (!next.hasStateMachineLogEntry()) {
       stateMachine.event().notifyTermIndexUpdated(next.getTerm(), next.getIndex());
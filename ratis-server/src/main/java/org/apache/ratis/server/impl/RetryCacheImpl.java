@@ -17,27 +17,53 @@
  */
 package org.apache.ratis.server.impl;
 
+import org.apache.ratis.client.impl.ClientProtoUtils;
 import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.proto.RaftProtos.RaftClientReplyProto;
+import org.apache.ratis.proto.RaftProtos.RetryCacheSnapshotProto;
+import org.apache.ratis.protocol.ClientId;
 import org.apache.ratis.protocol.ClientInvocationId;
 import org.apache.ratis.protocol.RaftClientReply;
+import org.apache.ratis.protocol.RaftClientRequest;
 import org.apache.ratis.server.RaftServerConfigKeys;
 import org.apache.ratis.server.RetryCache;
-import org.apache.ratis.thirdparty.com.google.common.cache.Cache;
-import org.apache.ratis.thirdparty.com.google.common.cache.CacheBuilder;
-import org.apache.ratis.thirdparty.com.google.common.cache.CacheStats;
 import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.TimeDuration;
+import org.apache.ratis.util.TimeoutScheduler;
 import org.apache.ratis.util.Timestamp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+/**
+ * A {@link RetryCache} partitioned by {@link ClientId}.
+ *
+ * Each client has its own {@link ClientCache} storing the entries in a ring sorted by the call id.
+ * The entries of the calls acknowledged by the client,
+ * i.e. the calls with id less than {@link RaftClientRequest#getFirstUnackedCallId()},
+ * are removed once they are done.
+ * A retry of an acknowledged call is still detected after its entry is removed.
+ * The expired entries and the idle clients are removed by a background task.
+ * Each {@link ClientCache} is protected by its own lock;
+ * requests from different clients do not contend with each other.
+ */
 class RetryCacheImpl implements RetryCache {
+  public static final Logger LOG = LoggerFactory.getLogger(RetryCacheImpl.class);
+
   static class CacheEntry implements Entry {
     private final ClientInvocationId key;
     private final CompletableFuture<RaftClientReply> replyFuture = new CompletableFuture<>();
+    /** The time when this entry is written to the cache, guarded by the {@link ClientCache} lock. */
+    private Timestamp writeTime;
 
     /**
      * "failed" means we failed to commit the request into the raft group, or
@@ -93,9 +119,20 @@ class RetryCacheImpl implements RetryCache {
     public ClientInvocationId getKey() {
       return key;
     }
+
+    private long getCallId() {
+      return key.getLongId();
+    }
+
+    private boolean isExpired(TimeDuration expiryTime) {
+      return writeTime.elapsedTime().compareTo(expiryTime) >= 0;
+    }
   }
 
   static class CacheQueryResult {
+    /** The result for a call already acknowledged by the client. */
+    static final CacheQueryResult ACKNOWLEDGED = new CacheQueryResult(null, true);
+
     private final CacheEntry entry;
     private final boolean isRetry;
 
@@ -111,16 +148,194 @@ class RetryCacheImpl implements RetryCache {
     public boolean isRetry() {
       return isRetry;
     }
+
+    /** @return is this a retry of a call already acknowledged by the client? */
+    public boolean isAcknowledged() {
+      return entry == null;
+    }
+  }
+
+  /**
+   * The cache entries of a client in a ring sorted by the call id.
+   * Since the call ids are increasing, a new entry is usually appended to the tail
+   * and the entries of the acknowledged calls are removed from the head.
+   */
+  static class ClientCache {
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** The ring of entries, where the length is a power of two. */
+    private CacheEntry[] ring = new CacheEntry[INITIAL_CAPACITY];
+    /** The ring position of the entry with the smallest call id. */
+    private int head = 0;
+    private int size = 0;
+    /** The calls with id less than this are acknowledged by the client. */
+    private long firstUnacked = 0;
+    /** The last time when this client accesses the cache. */
+    private Timestamp lastAccessTime = Timestamp.currentTime();
+    /** Is this removed from the {@link RetryCacheImpl}? */
+    private boolean removed = false;
+
+    /** @return the ring position of the i-th entry. */
+    private int position(int i) {
+      return (head + i) & (ring.length - 1);
+    }
+
+    private CacheEntry entry(int i) {
+      return ring[position(i)];
+    }
+
+    /**
+     * @return the index of the entry with the given call id, if it exists;
+     *         otherwise, return (-(insertion point) - 1).
+     */
+    private int search(long callId) {
+      if (size == 0 || callId > entry(size - 1).getCallId()) {
+        return -size - 1;
+      }
+      int low = 0;
+      int high = size - 1;
+      while (low <= high) {
+        final int mid = (low + high) >>> 1;
+        final long midId = entry(mid).getCallId();
+        if (midId < callId) {
+          low = mid + 1;
+        } else if (midId > callId) {
+          high = mid - 1;
+        } else {
+          return mid;
+        }
+      }
+      return -low - 1;
+    }
+
+    private boolean isAcknowledged(long callId) {
+      return callId < firstUnacked;
+    }
+
+    /** @return the unexpired entry of the given call, or null if it does not exist. */
+    private CacheEntry get(long callId, TimeDuration expiryTime) {
+      final int i = search(callId);
+      if (i < 0) {
+        return null;
+      }
+      final CacheEntry entry = entry(i);
+      return entry.isExpired(expiryTime)? null: entry;
+    }
+
+    /**
+     * Put the given entry, replacing the existing entry of the same call, if there is any.
+     * The entry of an acknowledged call is not put since the client will not retry the call.
+     */
+    private CacheEntry put(CacheEntry entry) {
+      entry.writeTime = Timestamp.currentTime();
+      if (isAcknowledged(entry.getCallId())) {
+        return entry;
+      }
+
+      final int i = search(entry.getCallId());
+      if (i >= 0) {
+        ring[position(i)] = entry;
+        return entry;
+      }
+      if (size == ring.length) {
+        resize(ring.length << 1);
+      }
+      // shift the entries after the insertion point; it is a no-op when appending to the tail.
+      final int insertion = -i - 1;
+      for (int j = size; j > insertion; j--) {
+        ring[position(j)] = entry(j - 1);
+      }
+      ring[position(insertion)] = entry;
+      size++;
+      return entry;
+    }
+
+    /** Remove the done entries from the head with the call id less than the given first unacknowledged call id. */
+    private void acknowledge(long firstUnackedCallId) {
+      if (firstUnackedCallId <= firstUnacked) {
+        return;
+      }
+      firstUnacked = firstUnackedCallId;
+      for (; size > 0; size--) {
+        final CacheEntry first = ring[head];
+        if (!isAcknowledged(first.getCallId()) || !first.isDone()) {
+          // the remaining acknowledged entries are removed by evictExpired
+          return;
+        }
+        ring[head] = null;
+        head = position(1);
+      }
+    }
+
+    private void resize(int capacity) {
+      final CacheEntry[] resized = new CacheEntry[capacity];
+      for (int i = 0; i < size; i++) {
+        resized[i] = entry(i);
+      }
+      ring = resized;
+      head = 0;
+    }
+
+    private void forEach(TimeDuration expiryTime, Consumer<CacheEntry> action) {
+      for (int i = 0; i < size; i++) {
+        final CacheEntry entry = entry(i);
+        if (!entry.isExpired(expiryTime)) {
+          action.accept(entry);
+        }
+      }
+    }
+
+    synchronized int size() {
+      return size;
+    }
+
+    /**
+     * Remove the expired entries and the done entries of the acknowledged calls.
+     * Then, shrink the ring if it is sparse.
+     * Mark this as removed if it has no entries and it has been idle for the expiry time.
+     *
+     * @return true if this is marked as removed.
+     */
+    synchronized boolean evictExpired(TimeDuration expiryTime) {
+      int remaining = 0;
+      for (int i = 0; i < size; i++) {
+        final CacheEntry entry = entry(i);
+        if (!entry.isExpired(expiryTime) && !(isAcknowledged(entry.getCallId()) && entry.isDone())) {
+          ring[position(remaining++)] = entry;
+        }
+      }
+      for (int i = remaining; i < size; i++) {
+        ring[position(i)] = null;
+      }
+      size = remaining;
+
+      if (ring.length > INITIAL_CAPACITY && size * 4 <= ring.length) {
+        resize(Math.max(INITIAL_CAPACITY, ring.length / 2));
+      }
+      if (size == 0) {
+        removed = lastAccessTime.elapsedTime().compareTo(expiryTime) >= 0;
+      }
+      return removed;
+    }
+
+    synchronized void clear() {
+      ring = new CacheEntry[INITIAL_CAPACITY];
+      head = 0;
+      size = 0;
+      removed = true;
+    }
   }
 
   class StatisticsImpl implements Statistics {
     private final long size;
-    private final CacheStats cacheStats;
+    private final long hitCount;
+    private final long missCount;
     private final Timestamp creation = Timestamp.currentTime();
 
-    StatisticsImpl(Cache<?, ?> cache) {
-      this.size = cache.size();
-      this.cacheStats = cache.stats();
+    StatisticsImpl() {
+      this.size = windows.values().stream().mapToLong(ClientCache::size).sum();
+      this.hitCount = hits.sum();
+      this.missCount = misses.sum();
     }
 
     boolean isExpired() {
@@ -134,31 +349,40 @@ class RetryCacheImpl implements RetryCache {
 
     @Override
     public long hitCount() {
-      return cacheStats.hitCount();
+      return hitCount;
     }
 
     @Override
     public double hitRate() {
-      return cacheStats.hitRate();
+      final long requestCount = hitCount + missCount;
+      return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
     }
 
     @Override
     public long missCount() {
-      return cacheStats.missCount();
+      return missCount;
     }
 
     @Override
     public double missRate() {
-      return cacheStats.missRate();
+      final long requestCount = hitCount + missCount;
+      return requestCount == 0 ? 0.0 : (double) missCount / requestCount;
     }
 
     @Override
     public String toString() {
-      return creation + ":size=" + size + "," + cacheStats;
+      return creation + ":size=" + size + ",hitCount=" + hitCount + ",missCount=" + missCount;
     }
   }
 
-  private final Cache<ClientInvocationId, CacheEntry> cache;
+  private final Map<ClientId, ClientCache> windows = new ConcurrentHashMap<>();
+  private final TimeDuration cacheExpiryTime;
+  private final TimeoutScheduler scheduler = TimeoutScheduler.getInstance();
+  /** Is the task to evict the expired entries and the idle clients scheduled? */
+  private final AtomicBoolean evictionScheduled = new AtomicBoolean();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
   /** Cache statistics to reduce the number of expensive statistics computations. */
   private final AtomicReference<StatisticsImpl> statistics = new AtomicReference<>();
   private final TimeDuration statisticsExpiryTime;
@@ -173,77 +397,159 @@ class RetryCacheImpl implements RetryCache {
    * @param statisticsExpiryTime time for a {@link RetryCache.Statistics} object to expire.
    */
   RetryCacheImpl(TimeDuration cacheExpiryTime, TimeDuration statisticsExpiryTime) {
-    this.cache = CacheBuilder.newBuilder()
-        .recordStats()
-        .expireAfterWrite(cacheExpiryTime.getDuration(), cacheExpiryTime.getUnit())
-        .build();
+    this.cacheExpiryTime = cacheExpiryTime;
     this.statisticsExpiryTime = statisticsExpiryTime;
   }
 
-  CacheEntry getOrCreateEntry(ClientInvocationId key) {
-    final CacheEntry entry;
-    try {
-      entry = cache.get(key, () -> new CacheEntry(key));
-    } catch (ExecutionException e) {
-      throw new IllegalStateException(e);
+  /**
+   * Apply the given function to the {@link ClientCache} of the given client while holding its lock.
+   * The acknowledged entries of the client are removed before applying the function.
+   */
+  private <T> T applyToClient(ClientId clientId, long firstUnackedCallId, Function<ClientCache, T> function) {
+    for(;;) {
+      final ClientCache client = windows.computeIfAbsent(clientId, key -> new ClientCache());
+      scheduleEviction();
+      synchronized (client) {
+        if (!client.removed) {
+          client.lastAccessTime = Timestamp.currentTime();
+          client.acknowledge(firstUnackedCallId);
+          return function.apply(client);
+        }
+      }
+      // the client cache was removed concurrently, retry with a new one.
+    }
+  }
+
+  private void scheduleEviction() {
+    if (!evictionScheduled.get() && evictionScheduled.compareAndSet(false, true)) {
+      scheduler.onTimeout(cacheExpiryTime, this::evictExpired, LOG, () -> "Failed to evict expired entries");
+    }
+  }
+
+  /** Remove the expired entries and the idle clients, and then reschedule if there are remaining clients. */
+  private void evictExpired() {
+    windows.entrySet().removeIf(e -> e.getValue().evictExpired(cacheExpiryTime));
+    evictionScheduled.set(false);
+    if (!windows.isEmpty()) {
+      scheduleEviction();
+    }
+  }
+
+  private CacheEntry recordHit(CacheEntry entry) {
+    if (entry != null) {
+      hits.increment();
+    } else {
+      misses.increment();
     }
     return entry;
   }
 
+  CacheEntry getOrCreateEntry(ClientInvocationId key) {
+    return getOrCreateEntry(key, 0);
+  }
+
+  /**
+   * Get or create the entry of the given call.
+   * The returned entry is not stored in the cache if the call is already acknowledged.
+   */
+  CacheEntry getOrCreateEntry(ClientInvocationId key, long firstUnackedCallId) {
+    return applyToClient(key.getClientId(), firstUnackedCallId, client -> {
+      final CacheEntry entry = recordHit(client.get(key.getLongId(), cacheExpiryTime));
+      return entry != null? entry: client.put(new CacheEntry(key));
+    });
+  }
+
   CacheEntry refreshEntry(CacheEntry newEntry) {
-    cache.put(newEntry.getKey(), newEntry);
-    return newEntry;
+    return applyToClient(newEntry.getKey().getClientId(), 0, client -> client.put(newEntry));
+  }
+
+  CacheQueryResult queryCache(RaftClientRequest request) {
+    final ClientInvocationId key = ClientInvocationId.valueOf(request);
+    return applyToClient(key.getClientId(), request.getFirstUnackedCallId(), client -> {
+      final CacheEntry cacheEntry = client.get(key.getLongId(), cacheExpiryTime);
+      if (cacheEntry != null && (!cacheEntry.isDone() || !cacheEntry.isFailed())) {
+        // the previous attempt is either pending or successful
+        hits.increment();
+        return new CacheQueryResult(cacheEntry, true);
+      } else if (client.isAcknowledged(key.getLongId())) {
+        // the client has already received or given up the reply
+        hits.increment();
+        return CacheQueryResult.ACKNOWLEDGED;
+      }
+      recordHit(cacheEntry);
+      // either there is no previous attempt or it failed, put a new entry.
+      // Other retry attempts of the same client are serialized by the client lock.
+      return new CacheQueryResult(client.put(new CacheEntry(key)), false);
+    });
+  }
+
+  /**
+   * @return the replies of the entries which are completed normally
+   *         with log index less than or equal to the given snapshot index.
+   */
+  RetryCacheSnapshotProto toProto(long snapshotIndex) {
+    final RetryCacheSnapshotProto.Builder b = RetryCacheSnapshotProto.newBuilder().setSnapshotIndex(snapshotIndex);
+    for (ClientCache client : windows.values()) {
+      synchronized (client) {
+        client.forEach(cacheExpiryTime, entry -> {
+          if (!entry.isCompletedNormally()) {
+            return;
+          }
+          final RaftClientReply reply = entry.getReplyFuture().join();
+          if (reply.getLogIndex() <= snapshotIndex) {
+            // the commit infos and the flow control hint are only meaningful at the reply time.
+            b.addReplies(ClientProtoUtils.toRaftClientReplyProto(reply).toBuilder()
+                .clearCommitInfos()
+                .clearFlowControlHint());
+          }
+        });
+      }
+    }
+    return b.build();
   }
 
-  CacheQueryResult queryCache(ClientInvocationId key) {
-    final CacheEntry newEntry = new CacheEntry(key);
-    final CacheEntry cacheEntry;
-    try {
-      cacheEntry = cache.get(key, () -> newEntry);
-    } catch (ExecutionException e) {
-      throw new IllegalStateException(e);
-    }
-
-    if (cacheEntry == newEntry) {
-      // this is the entry we just newly created
-      return new CacheQueryResult(cacheEntry, false);
-    } else if (!cacheEntry.isDone() || !cacheEntry.isFailed()){
-      // the previous attempt is either pending or successful
-      return new CacheQueryResult(cacheEntry, true);
-    }
-
-    // the previous attempt failed, replace it with a new one.
-    synchronized (this) {
-      // need to recheck, since there may be other retry attempts being
-      // processed at the same time. The recheck+replacement should be protected
-      // by lock.
-      final CacheEntry currentEntry = cache.getIfPresent(key);
-      if (currentEntry == cacheEntry || currentEntry == null) {
-        // if the failed entry has not got replaced by another retry, or the
-        // failed entry got invalidated, we add a new cache entry
-        return new CacheQueryResult(refreshEntry(newEntry), false);
-      } else {
-        return new CacheQueryResult(currentEntry, true);
+  /**
+   * Load the replies from the given proto.
+   * Only the replies with log index less than or equal to the given applied index are loaded
+   * since the other log entries will be applied again.
+   */
+  void load(RetryCacheSnapshotProto proto, long appliedIndex) {
+    for (RaftClientReplyProto replyProto : proto.getRepliesList()) {
+      if (replyProto.getLogIndex() > appliedIndex) {
+        continue;
       }
+      final RaftClientReply reply = ClientProtoUtils.toRaftClientReply(replyProto);
+      final ClientInvocationId key = ClientInvocationId.valueOf(reply.getClientId(), reply.getCallId());
+      applyToClient(key.getClientId(), 0, client -> {
+        if (client.get(key.getLongId(), cacheExpiryTime) == null) {
+          client.put(new CacheEntry(key)).updateResult(reply);
+        }
+        return null;
+      });
     }
   }
 
   @Override
   public Statistics getStatistics() {
-    return statistics.updateAndGet(old -> old == null || old.isExpired()? new StatisticsImpl(cache): old);
+    return statistics.updateAndGet(old -> old == null || old.isExpired()? new StatisticsImpl(): old);
   }
 
   @Override
   public CacheEntry getIfPresent(ClientInvocationId key) {
-    return cache.getIfPresent(key);
+    final ClientCache client = windows.get(key.getClientId());
+    if (client == null) {
+      return recordHit(null);
+    }
+    synchronized (client) {
+      return recordHit(client.get(key.getLongId(), cacheExpiryTime));
+    }
   }
 
   @Override
-  public synchronized void close() {
-    if (cache != null) {
-      cache.invalidateAll();
-      statistics.set(null);
-    }
+  public void close() {
+    windows.values().forEach(ClientCache::clear);
+    windows.clear();
+    statistics.set(null);
   }
 
   static CompletableFuture<RaftClientReply> failWithReply(
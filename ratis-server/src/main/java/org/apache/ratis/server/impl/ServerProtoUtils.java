@@ -115,6 +115,26 @@ final class ServerProtoUtils {
       RaftPeerId requestorId, RaftGroupMemberId replyId, long term,
       long followerCommit, long nextIndex, AppendResult result, long callId,
       long matchIndex, boolean isHeartbeat) {
+    return toAppendEntriesReplyProtoBuilder(requestorId, replyId, term, followerCommit, nextIndex, result, callId,
+        matchIndex, isHeartbeat).build();
+  }
+
+  /** The same as the above except that the reply is sent before syncing the entries to the disk. */
+  @SuppressWarnings("checkstyle:parameternumber")
+  static AppendEntriesReplyProto toEarlyAckAppendEntriesReplyProto(
+      RaftPeerId requestorId, RaftGroupMemberId replyId, long term,
+      long followerCommit, long nextIndex, long callId, long matchIndex, boolean isHeartbeat, long durableIndex) {
+    return toAppendEntriesReplyProtoBuilder(requestorId, replyId, term, followerCommit, nextIndex,
+        AppendResult.SUCCESS, callId, matchIndex, isHeartbeat)
+        .setEarlyAck(true)
+        .setDurableIndex(durableIndex)
+        .build();
+  }
+
+  private static AppendEntriesReplyProto.Builder toAppendEntriesReplyProtoBuilder(
+      RaftPeerId requestorId, RaftGroupMemberId replyId, long term,
+      long followerCommit, long nextIndex, AppendResult result, long callId,
+      long matchIndex, boolean isHeartbeat) {
     RaftRpcReplyProto.Builder rpcReply = toRaftRpcReplyProtoBuilder(
         requestorId, replyId, result == AppendResult.SUCCESS)
         .setCallId(callId);
@@ -125,8 +145,7 @@ final class ServerProtoUtils {
         .setMatchIndex(matchIndex)
         .setFollowerCommit(followerCommit)
         .setResult(result)
-        .setIsHearbeat(isHeartbeat)
-        .build();
+        .setIsHearbeat(isHeartbeat);
   }
 
   @SuppressWarnings("checkstyle:parameternumber")
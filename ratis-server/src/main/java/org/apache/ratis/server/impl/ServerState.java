@@ -19,7 +19,6 @@ package org.apache.ratis.server.impl;
 
 import org.apache.ratis.conf.RaftProperties;
 import org.apache.ratis.protocol.*;
-import org.apache.ratis.protocol.exceptions.StateMachineException;
 import org.apache.ratis.server.RaftConfiguration;
 import org.apache.ratis.server.RaftServerConfigKeys;
 import org.apache.ratis.server.impl.LeaderElection.Phase;
@@ -31,9 +30,9 @@ import org.apache.ratis.server.raftlog.segmented.SegmentedRaftLog;
 import org.apache.ratis.server.storage.*;
 import org.apache.ratis.proto.RaftProtos.InstallSnapshotRequestProto;
 import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.proto.RaftProtos.RetryCacheSnapshotProto;
 import org.apache.ratis.statemachine.SnapshotInfo;
 import org.apache.ratis.statemachine.StateMachine;
-import org.apache.ratis.statemachine.TransactionContext;
 import org.apache.ratis.util.TimeDuration;
 import org.apache.ratis.util.Timestamp;
 
@@ -188,6 +187,14 @@ class ServerState implements Closeable {
     storage.writeRaftConfiguration(conf);
   }
 
+  void writeRetryCache(RetryCacheSnapshotProto retryCache) throws IOException {
+    storage.writeRetryCache(retryCache);
+  }
+
+  RetryCacheSnapshotProto readRetryCache() throws IOException {
+    return storage.readRetryCache();
+  }
+
   void start() {
     stateMachineUpdater.start();
   }
@@ -323,11 +330,6 @@ class ServerState implements Closeable {
     return lastEntry;
   }
 
-  void appendLog(TransactionContext operation) throws StateMachineException {
-    log.append(currentTerm.get(), operation);
-    Objects.requireNonNull(operation.getLogEntry());
-  }
-
   /**
    * Check if accept the leader selfId and term from the incoming AppendEntries rpc.
    * If accept, update the current state.
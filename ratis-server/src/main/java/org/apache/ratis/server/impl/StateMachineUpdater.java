@@ -280,6 +280,7 @@ class StateMachineUpdater implements Runnable {
     if (i >= 0) {
       LOG.info("{}: Took a snapshot at index {}", name, i);
       snapshotIndex.updateIncreasingly(i, infoIndexChange);
+      server.persistRetryCache(i);
 
       final long purgeIndex;
       if (purgeUptoSnapshotIndex) {
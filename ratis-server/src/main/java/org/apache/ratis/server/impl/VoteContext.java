@@ -55,6 +55,12 @@ class VoteContext {
     if (!conf.containsInConf(candidateId)) {
       reject(candidateId + " is not in current conf " + conf.getCurrentPeers());
       return null;
+    } else if (!conf.containsVoterInConf(candidateId)) {
+      reject(candidateId + " is a listener in current conf " + conf.getCurrentPeers());
+      return null;
+    } else if (conf.isWitness(candidateId)) {
+      reject(candidateId + " is a witness in current conf " + conf.getCurrentPeers());
+      return null;
     }
     return conf.getPeer(candidateId);
   }
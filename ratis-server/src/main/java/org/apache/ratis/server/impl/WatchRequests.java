@@ -29,11 +29,13 @@ import org.apache.ratis.util.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.SortedMap;
+import java.util.NavigableMap;
 import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
@@ -44,11 +46,13 @@ class WatchRequests {
 
   static class PendingWatch {
     private final WatchRequestTypeProto watch;
+    private final long callId;
     private final Timestamp creationTime;
     private final Supplier<CompletableFuture<Void>> future = JavaUtils.memoize(CompletableFuture::new);
 
-    PendingWatch(WatchRequestTypeProto watch, Timestamp creationTime) {
+    PendingWatch(WatchRequestTypeProto watch, long callId, Timestamp creationTime) {
       this.watch = watch;
+      this.callId = callId;
       this.creationTime = creationTime;
     }
 
@@ -60,6 +64,10 @@ class WatchRequests {
       return watch.getIndex();
     }
 
+    long getCallId() {
+      return callId;
+    }
+
     Timestamp getCreationTime() {
       return creationTime;
     }
@@ -71,10 +79,21 @@ class WatchRequests {
     }
   }
 
+  /**
+   * The pending watches of a {@link ReplicationLevel}.
+   *
+   * The watches are grouped by their indices
+   * so that an index update removes all the satisfied groups at once.
+   * Since the creation times are rounded up to the watch timeout denomination,
+   * the watches are also grouped by their creation times
+   * so that a single timeout task is scheduled for each group, instead of for each watch.
+   */
   private class WatchQueue {
     private final ReplicationLevel replication;
-    private final SortedMap<PendingWatch, PendingWatch> q = new TreeMap<>(
-        Comparator.comparingLong(PendingWatch::getIndex).thenComparing(PendingWatch::getCreationTime));
+    /** index -> (creation time -> watch) */
+    private final NavigableMap<Long, Map<Timestamp, PendingWatch>> q = new TreeMap<>();
+    /** creation time -> the watches to be timed out together, which may include the completed watches. */
+    private final Map<Timestamp, List<PendingWatch>> timeoutGroups = new HashMap<>();
     private final ResourceSemaphore resource;
     private volatile long index; //Invariant: q.isEmpty() or index < any element q
 
@@ -90,78 +109,116 @@ class WatchRequests {
     CompletableFuture<Void> add(RaftClientRequest request) {
       final long currentTime = Timestamp.currentTimeNanos();
       final long roundUp = watchTimeoutDenominationNanos.roundUpNanos(currentTime);
-      final PendingWatch pending = new PendingWatch(request.getType().getWatch(), Timestamp.valueOf(roundUp));
+      final Timestamp creationTime = Timestamp.valueOf(roundUp);
+      final WatchRequestTypeProto watch = request.getType().getWatch();
 
-      final PendingWatch computed;
+      final PendingWatch pending;
+      final boolean newTimeoutGroup;
       synchronized (this) {
-        if (pending.getIndex() <= getIndex()) { // compare again synchronized
+        if (watch.getIndex() <= getIndex()) { // compare again synchronized
           // watch condition already satisfied
           return null;
         }
-        computed = q.compute(pending, (key, old) -> old != null? old: resource.tryAcquire()? pending: null);
-      }
+        final Map<Timestamp, PendingWatch> group = q.get(watch.getIndex());
+        final PendingWatch existing = group == null? null: group.get(creationTime);
+        if (existing != null) {
+          return existing.getFuture();
+        }
+        if (!resource.tryAcquire()) {
+          return JavaUtils.completeExceptionally(new ResourceUnavailableException(
+              "Failed to acquire a pending watch request in " + name + " for " + request));
+        }
 
-      if (computed == null) {
-        // failed to acquire
-        return JavaUtils.completeExceptionally(new ResourceUnavailableException(
-            "Failed to acquire a pending watch request in " + name + " for " + request));
-      }
-      if (computed != pending) {
-        // already exists in q
-        return computed.getFuture();
+        pending = new PendingWatch(watch, request.getCallId(), creationTime);
+        (group != null? group: q.computeIfAbsent(watch.getIndex(), k -> new HashMap<>(2)))
+            .put(creationTime, pending);
+        final List<PendingWatch> timeoutGroup = timeoutGroups.get(creationTime);
+        newTimeoutGroup = timeoutGroup == null;
+        (newTimeoutGroup? timeoutGroups.computeIfAbsent(creationTime, k -> new ArrayList<>()): timeoutGroup)
+            .add(pending);
       }
 
-      // newly added to q
-      final TimeDuration timeout = watchTimeoutNanos.apply(duration -> duration + roundUp - currentTime);
-      scheduler.onTimeout(timeout, () -> handleTimeout(request, pending),
-          LOG, () -> name + ": Failed to timeout " + request);
+      if (newTimeoutGroup) {
+        final TimeDuration timeout = watchTimeoutNanos.apply(duration -> duration + roundUp - currentTime);
+        scheduler.onTimeout(timeout, () -> handleTimeout(creationTime),
+            LOG, () -> name + ": Failed to timeout " + replication + " watches created at " + creationTime);
+      }
       return pending.getFuture();
     }
 
-    void handleTimeout(RaftClientRequest request, PendingWatch pending) {
-      if (removeExisting(pending)) {
+    void handleTimeout(Timestamp creationTime) {
+      final List<PendingWatch> timeout = new ArrayList<>();
+      synchronized (this) {
+        final List<PendingWatch> group = timeoutGroups.remove(creationTime);
+        if (group == null) {
+          return;
+        }
+        for (PendingWatch pending : group) {
+          if (removeExisting(pending)) {
+            timeout.add(pending);
+          }
+        }
+      }
+
+      for (PendingWatch pending : timeout) {
         pending.getFuture().completeExceptionally(
-            new NotReplicatedException(request.getCallId(), replication, pending.getIndex()));
-        LOG.debug("{}: timeout {}, {}", name, pending, request);
+            new NotReplicatedException(pending.getCallId(), replication, pending.getIndex()));
+        LOG.debug("{}: timeout {}", name, pending);
       }
     }
 
-    synchronized boolean removeExisting(PendingWatch pending) {
-      final PendingWatch removed = q.remove(pending);
-      if (removed == null) {
+    private synchronized boolean removeExisting(PendingWatch pending) {
+      final Map<Timestamp, PendingWatch> group = q.get(pending.getIndex());
+      if (group == null || group.get(pending.getCreationTime()) != pending) {
         return false;
       }
-      Preconditions.assertTrue(removed == pending);
+      group.remove(pending.getCreationTime());
+      if (group.isEmpty()) {
+        q.remove(pending.getIndex());
+      }
       resource.release();
       return true;
     }
 
-    @SuppressFBWarnings("NP_NULL_PARAM_DEREF")
-    synchronized void updateIndex(final long newIndex) {
-      if (newIndex <= getIndex()) { // compare again synchronized
-        return;
-      }
-      LOG.debug("{}: update {} index from {} to {}", name, replication, index, newIndex);
-      index = newIndex;
+    void updateIndex(final long newIndex) {
+      final List<Map<Timestamp, PendingWatch>> completed;
+      synchronized (this) {
+        if (newIndex <= getIndex()) { // compare again synchronized
+          return;
+        }
+        LOG.debug("{}: update {} index from {} to {}", name, replication, index, newIndex);
+        index = newIndex;
 
-      for(; !q.isEmpty();) {
-        final PendingWatch first = q.firstKey();
-        if (first.getIndex() > newIndex) {
+        final Map<Long, Map<Timestamp, PendingWatch>> satisfied = q.headMap(newIndex, true);
+        if (satisfied.isEmpty()) {
           return;
         }
-        final boolean removed = removeExisting(first);
-        Preconditions.assertTrue(removed);
-        LOG.debug("{}: complete {}", name, first);
-        first.getFuture().complete(null);
+        completed = new ArrayList<>(satisfied.values());
+        satisfied.clear();
+        resource.release(completed.stream().mapToInt(Map::size).sum());
+      }
+
+      for (Map<Timestamp, PendingWatch> group : completed) {
+        for (PendingWatch pending : group.values()) {
+          LOG.debug("{}: complete {}", name, pending);
+          pending.getFuture().complete(null);
+        }
       }
     }
 
-    synchronized void failAll(Exception e) {
-      for(PendingWatch pending : q.values()) {
-        pending.getFuture().completeExceptionally(e);
+    void failAll(Exception e) {
+      final List<Map<Timestamp, PendingWatch>> failed;
+      synchronized (this) {
+        failed = new ArrayList<>(q.values());
+        q.clear();
+        timeoutGroups.clear();
+        resource.close();
+      }
+      for (Map<Timestamp, PendingWatch> group : failed) {
+        for (PendingWatch pending : group.values()) {
+          pending.getFuture().completeExceptionally(e);
+        }
       }
-      q.clear();
-      resource.close();
     }
   }
 
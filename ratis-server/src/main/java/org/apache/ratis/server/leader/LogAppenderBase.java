@@ -21,9 +21,13 @@ import org.apache.ratis.conf.RaftProperties;
 import org.apache.ratis.proto.RaftProtos.AppendEntriesRequestProto;
 import org.apache.ratis.proto.RaftProtos.InstallSnapshotRequestProto;
 import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.proto.RaftProtos.LogEntryProto.LogEntryBodyCase;
+import org.apache.ratis.protocol.RaftPeer;
 import org.apache.ratis.server.RaftServer;
 import org.apache.ratis.server.RaftServerConfigKeys;
 import org.apache.ratis.server.protocol.TermIndex;
+import org.apache.ratis.server.raftlog.LogEntryHeader;
+import org.apache.ratis.server.raftlog.LogProtoUtils;
 import org.apache.ratis.server.raftlog.RaftLog;
 import org.apache.ratis.server.raftlog.RaftLog.EntryWithData;
 import org.apache.ratis.server.raftlog.RaftLogIOException;
@@ -32,6 +36,7 @@ import org.apache.ratis.util.DataQueue;
 import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.Preconditions;
 import org.apache.ratis.util.SizeInBytes;
+import org.apache.ratis.util.TimeDuration;
 
 import java.util.Collections;
 import java.util.List;
@@ -138,8 +143,9 @@ public abstract class LogAppenderBase implements LogAppender {
     final long leaderNext = getRaftLog().getNextIndex();
     final long followerNext = follower.getNextIndex();
     final long halfMs = heartbeatRemainingMs/2;
+    final boolean witness = isWitness();
     for (long next = followerNext; leaderNext > next && getHeartbeatRemainingTimeMs() - halfMs > 0; ) {
-      if (!buffer.offer(getRaftLog().getEntryWithData(next++))) {
+      if (!buffer.offer(witness? getHeaderOnlyEntry(next++): getRaftLog().getEntryWithData(next++))) {
         break;
       }
     }
@@ -155,6 +161,41 @@ public abstract class LogAppenderBase implements LogAppender {
     return leaderState.newAppendEntriesRequestProto(follower, protos, previous, callId);
   }
 
+  /** @return true iff the follower is a witness, which stores only the log entry headers. */
+  private boolean isWitness() {
+    final RaftPeer peer = server.getRaftConf().getPeer(getFollowerId());
+    return peer != null && peer.isWitness();
+  }
+
+  /**
+   * For a witness, send only the header of a state machine entry.
+   * The header is built from the cached {@link LogEntryHeader}
+   * so that neither the log entry nor the state machine data is read.
+   * The other entries, such as configuration entries, are sent as is.
+   */
+  private EntryWithData getHeaderOnlyEntry(long index) throws RaftLogIOException {
+    final LogEntryHeader[] headers = getRaftLog().getEntries(index, index + 1);
+    if (headers.length == 0) {
+      throw new RaftLogIOException("Log entry header not found: index = " + index);
+    }
+    final LogEntryHeader header = headers[0];
+    if (header.getLogEntryBodyCase() != LogEntryBodyCase.STATEMACHINELOGENTRY) {
+      return getRaftLog().getEntryWithData(index);
+    }
+    final LogEntryProto headerOnly = LogProtoUtils.toHeaderOnlyLogEntryProto(header.getTermIndex());
+    return new EntryWithData() {
+      @Override
+      public int getSerializedSize() {
+        return headerOnly.getSerializedSize();
+      }
+
+      @Override
+      public LogEntryProto getEntry(TimeDuration timeout) {
+        return headerOnly;
+      }
+    };
+  }
+
   private void assertProtos(List<LogEntryProto> protos, long nextIndex, TermIndex previous, long snapshotIndex) {
     if (protos.isEmpty()) {
       return;
@@ -157,10 +157,14 @@ class LogAppenderDefault extends LogAppenderBase {
                 + ", reply=" + ServerStringUtils.toAppendEntriesReplyString(reply));
           }
 
+          final boolean durableUpdated = reply.getEarlyAck()
+              && getFollower().updateDurableIndex(reply.getDurableIndex());
           if (nextIndex > oldNextIndex) {
             getFollower().updateMatchIndex(nextIndex - 1);
             getFollower().increaseNextIndex(nextIndex);
             getLeaderState().onFollowerSuccessAppendEntries(getFollower());
+          } else if (durableUpdated) {
+            getLeaderState().onFollowerSuccessAppendEntries(getFollower());
           }
           break;
         case NOT_LEADER:
@@ -119,6 +119,11 @@ public final class LogProtoUtils {
         .orElse(entry);
   }
 
+  /** @return the header-only entry, which has only the given term and index, for a state machine entry. */
+  public static LogEntryProto toHeaderOnlyLogEntryProto(TermIndex ti) {
+    return LogEntryProto.newBuilder().setTerm(ti.getTerm()).setIndex(ti.getIndex()).build();
+  }
+
   private static LogEntryProto replaceStateMachineDataWithSerializedSize(LogEntryProto entry) {
     return replaceStateMachineEntry(entry,
         StateMachineEntryProto.newBuilder().setLogEntryProtoSerializedSize(entry.getSerializedSize()));
@@ -180,11 +185,19 @@ public final class LogProtoUtils {
       logData = request.getMessage().getContent();
     }
     final StateMachineLogEntryProto.Type type = toStateMachineLogEntryProtoType(request.getType().getTypeCase());
-    return toStateMachineLogEntryProto(request.getClientId(), request.getCallId(), type, logData, stateMachineData);
+    return toStateMachineLogEntryProtoBuilder(request.getClientId(), request.getCallId(), type, logData,
+        stateMachineData)
+        .setFirstUnackedCallId(request.getFirstUnackedCallId())
+        .build();
   }
 
   public static StateMachineLogEntryProto toStateMachineLogEntryProto(ClientId clientId, long callId,
       StateMachineLogEntryProto.Type type, ByteString logData, ByteString stateMachineData) {
+    return toStateMachineLogEntryProtoBuilder(clientId, callId, type, logData, stateMachineData).build();
+  }
+
+  private static StateMachineLogEntryProto.Builder toStateMachineLogEntryProtoBuilder(ClientId clientId, long callId,
+      StateMachineLogEntryProto.Type type, ByteString logData, ByteString stateMachineData) {
     final StateMachineLogEntryProto.Builder b = StateMachineLogEntryProto.newBuilder()
         .setClientId(clientId.toByteString())
         .setCallId(callId)
@@ -193,7 +206,7 @@ public final class LogProtoUtils {
     Optional.ofNullable(stateMachineData)
         .map(StateMachineEntryProto.newBuilder()::setStateMachineData)
         .ifPresent(b::setStateMachineEntry);
-    return b.build();
+    return b;
   }
 
   public static RaftConfiguration toRaftConfiguration(LogEntryProto entry) {
@@ -114,19 +114,18 @@ public abstract class RaftLogBase implements RaftLog {
 
   @Override
   public boolean updateCommitIndex(long majorityIndex, long currentTerm, boolean isLeader) {
+    if (!isLeader) {
+      // A follower does not need the write lock since it does not look up the term of the entry.
+      return commitIndex.updateToMax(Math.min(majorityIndex, getFlushIndex()), traceIndexChange);
+    }
     try(AutoCloseableLock writeLock = writeLock()) {
       final long oldCommittedIndex = getLastCommittedIndex();
       final long newCommitIndex = Math.min(majorityIndex, getFlushIndex());
       if (oldCommittedIndex < newCommitIndex) {
-        if (!isLeader) {
-          commitIndex.updateIncreasingly(newCommitIndex, traceIndexChange);
-          return true;
-        }
-
         // Only update last committed index for current term. See §5.4.2 in paper for details.
         final TermIndex entry = getTermIndex(newCommitIndex);
         if (entry != null && entry.getTerm() == currentTerm) {
-          commitIndex.updateIncreasingly(newCommitIndex, traceIndexChange);
+          commitIndex.updateToMax(newCommitIndex, traceIndexChange);
           return true;
         }
       }
@@ -145,10 +144,7 @@ public abstract class RaftLogBase implements RaftLog {
       if (oldSnapshotIndex < newSnapshotIndex) {
         snapshotIndex.updateIncreasingly(newSnapshotIndex, infoIndexChange);
       }
-      final long oldCommitIndex = getLastCommittedIndex();
-      if (oldCommitIndex < newSnapshotIndex) {
-        commitIndex.updateIncreasingly(newSnapshotIndex, traceIndexChange);
-      }
+      commitIndex.updateToMax(newSnapshotIndex, traceIndexChange);
     }
   }
 
@@ -330,6 +326,15 @@ public abstract class RaftLogBase implements RaftLog {
 
   protected abstract List<CompletableFuture<Long>> appendImpl(LogEntryProto... entries);
 
+  @Override
+  public final CompletableFuture<Void> appendAll(LogEntryProto... entries) {
+    return runner.runSequentially(() -> appendAllImpl(entries));
+  }
+
+  protected CompletableFuture<Void> appendAllImpl(LogEntryProto... entries) {
+    return JavaUtils.allOf(appendImpl(entries));
+  }
+
   @Override
   public String toString() {
     return getName() + ":" + state + ":c" + getLastCommittedIndex();
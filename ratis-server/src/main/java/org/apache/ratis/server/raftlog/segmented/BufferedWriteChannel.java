@@ -19,6 +19,7 @@ package org.apache.ratis.server.raftlog.segmented;
 
 import org.apache.ratis.util.Preconditions;
 import org.apache.ratis.util.function.CheckedBiFunction;
+import org.apache.ratis.util.function.CheckedConsumer;
 
 import java.io.Closeable;
 import java.io.File;
@@ -66,6 +67,28 @@ class BufferedWriteChannel implements Closeable {
     }
   }
 
+  /**
+   * Let the given writer write exactly the given number of bytes directly to the buffer, if the buffer is large enough.
+   *
+   * @return true if the writer has been applied; otherwise, return false and the caller should use
+   *         {@link #write(byte[])}.
+   */
+  boolean writeToBuffer(int size, CheckedConsumer<ByteBuffer, IOException> writer) throws IOException {
+    if (size > writeBuffer.capacity()) {
+      return false;
+    }
+    if (size > writeBuffer.remaining()) {
+      flushBuffer();
+    }
+    final int end = writeBuffer.position() + size;
+    writer.accept(writeBuffer);
+    Preconditions.assertSame(end, writeBuffer.position(), "writeBuffer.position");
+    if (writeBuffer.remaining() == 0) {
+      flushBuffer();
+    }
+    return true;
+  }
+
   void preallocateIfNecessary(long size, CheckedBiFunction<FileChannel, Long, Long, IOException> preallocate)
       throws IOException {
     final long outstanding = writeBuffer.position() + size;
@@ -93,7 +116,7 @@ class BufferedWriteChannel implements Closeable {
    *
    * @throws IOException if the write fails.
    */
-  private void flushBuffer() throws IOException {
+  void flushBuffer() throws IOException {
     if (writeBuffer.position() == 0) {
       return; // nothing to flush
     }
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.raftlog.segmented;
+
+import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.proto.RaftProtos.StateMachineLogEntryProto;
+import org.apache.ratis.server.RaftServerConfigKeys.Log.Compression;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compress/decompress the state machine log data of the log entries stored in a segment.
+ * Only the log data is compressed; the other fields such as the term and the index are unchanged
+ * so that the entries can be indexed without decompression.
+ */
+final class LogEntryCompressor {
+  private LogEntryCompressor() {
+  }
+
+  private static ByteString getLogData(LogEntryProto entry) {
+    return entry.hasStateMachineLogEntry()? entry.getStateMachineLogEntry().getLogData(): ByteString.EMPTY;
+  }
+
+  private static LogEntryProto replaceLogData(LogEntryProto entry, ByteString logData) {
+    return LogEntryProto.newBuilder(entry).setStateMachineLogEntry(
+        StateMachineLogEntryProto.newBuilder(entry.getStateMachineLogEntry()).setLogData(logData)
+    ).build();
+  }
+
+  /** @return the entry to be stored in a segment with the given compression. */
+  static LogEntryProto compress(LogEntryProto entry, Compression compression) {
+    final ByteString logData = getLogData(entry);
+    if (compression == Compression.NONE || logData.isEmpty()) {
+      return entry;
+    }
+    final ByteString.Output out = ByteString.newOutput(logData.size() / 2 + 16);
+    try (OutputStream deflater = new DeflaterOutputStream(out)) {
+      logData.writeTo(deflater);
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to compress the log data of " + entry.getIndex(), e);
+    }
+    return replaceLogData(entry, out.toByteString());
+  }
+
+  /** @return the entry with the original log data of the given entry stored in a segment. */
+  static LogEntryProto decompress(LogEntryProto stored, Compression compression) throws IOException {
+    final ByteString logData = getLogData(stored);
+    if (compression == Compression.NONE || logData.isEmpty()) {
+      return stored;
+    }
+    try (InputStream inflater = new InflaterInputStream(logData.newInput())) {
+      return replaceLogData(stored, ByteString.readFrom(inflater));
+    } catch (IOException e) {
+      throw new IOException("Failed to decompress the log data of " + stored.getIndex(), e);
+    }
+  }
+}
@@ -19,6 +19,7 @@ package org.apache.ratis.server.raftlog.segmented;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.server.RaftServerConfigKeys.Log.Compression;
 import org.apache.ratis.server.RaftServerConfigKeys.Log.CorruptionPolicy;
 import org.apache.ratis.server.metrics.SegmentedRaftLogMetrics;
 import org.apache.ratis.server.protocol.TermIndex;
@@ -31,6 +32,7 @@ import org.apache.ratis.thirdparty.com.google.common.cache.CacheLoader;
 import org.apache.ratis.thirdparty.com.google.protobuf.CodedOutputStream;
 import org.apache.ratis.util.FileUtils;
 import org.apache.ratis.util.Preconditions;
+import org.apache.ratis.util.function.CheckedBiConsumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -75,7 +77,12 @@ public final class LogSegment implements Comparable<Long> {
       Preconditions.assertTrue(op == Op.WRITE_CACHE_WITHOUT_STATE_MACHINE_CACHE || op == Op.REMOVE_CACHE,
           () -> "Unexpected op " + op + ", entry=" + entry);
     }
-    final int serialized = e.getSerializedSize();
+    return getStoredEntrySize(e);
+  }
+
+  /** @return the size of the given entry, as it is stored, in the segment file. */
+  static long getStoredEntrySize(LogEntryProto stored) {
+    final int serialized = stored.getSerializedSize();
     return serialized + CodedOutputStream.computeUInt32SizeNoTag(serialized) + 4L;
   }
 
@@ -103,15 +110,20 @@ public final class LogSegment implements Comparable<Long> {
   }
 
   static LogSegment newOpenSegment(RaftStorage storage, long start, SegmentedRaftLogMetrics raftLogMetrics) {
+    return newOpenSegment(storage, start, Compression.NONE, raftLogMetrics);
+  }
+
+  static LogSegment newOpenSegment(RaftStorage storage, long start, Compression compression,
+      SegmentedRaftLogMetrics raftLogMetrics) {
     Preconditions.assertTrue(start >= 0);
-    return new LogSegment(storage, true, start, start - 1, raftLogMetrics);
+    return new LogSegment(storage, true, start, start - 1, compression, raftLogMetrics);
   }
 
   @VisibleForTesting
   static LogSegment newCloseSegment(RaftStorage storage,
       long start, long end, SegmentedRaftLogMetrics raftLogMetrics) {
     Preconditions.assertTrue(start >= 0 && end >= start);
-    return new LogSegment(storage, false, start, end, raftLogMetrics);
+    return new LogSegment(storage, false, start, end, Compression.NONE, raftLogMetrics);
   }
 
   static LogSegment newLogSegment(RaftStorage storage, LogSegmentStartEnd startEnd, SegmentedRaftLogMetrics metrics) {
@@ -123,22 +135,27 @@ public final class LogSegment implements Comparable<Long> {
       CorruptionPolicy corruptionPolicy, SegmentedRaftLogMetrics raftLogMetrics, Consumer<LogEntryProto> entryConsumer)
       throws IOException {
     return readSegmentFile(file, startEnd.getStartIndex(), startEnd.getEndIndex(), startEnd.isOpen(),
-        corruptionPolicy, raftLogMetrics, entryConsumer);
+        corruptionPolicy, raftLogMetrics, entryConsumer == null? null
+            : (stored, compression) -> entryConsumer.accept(LogEntryCompressor.decompress(stored, compression)));
   }
 
+  /**
+   * Read the segment file and pass the entries, as they are stored, to the given consumer
+   * so that an entry is decompressed only if it is needed.
+   */
   private static int readSegmentFile(File file, long start, long end, boolean isOpen,
-      CorruptionPolicy corruptionPolicy, SegmentedRaftLogMetrics raftLogMetrics, Consumer<LogEntryProto> entryConsumer)
-      throws IOException {
+      CorruptionPolicy corruptionPolicy, SegmentedRaftLogMetrics raftLogMetrics,
+      CheckedBiConsumer<LogEntryProto, Compression, IOException> entryConsumer) throws IOException {
     int count = 0;
     try (SegmentedRaftLogInputStream in = new SegmentedRaftLogInputStream(file, start, end, isOpen, raftLogMetrics)) {
-      for(LogEntryProto prev = null, next; (next = in.nextEntry()) != null; prev = next) {
+      for(LogEntryProto prev = null, next; (next = in.nextStoredEntry()) != null; prev = next) {
         if (prev != null) {
           Preconditions.assertTrue(next.getIndex() == prev.getIndex() + 1,
               "gap between entry %s and entry %s", prev, next);
         }
 
         if (entryConsumer != null) {
-          entryConsumer.accept(next);
+          entryConsumer.accept(next, in.getCompression());
         }
         count++;
       }
@@ -164,8 +181,13 @@ public final class LogSegment implements Comparable<Long> {
     final LogSegment segment = newLogSegment(storage, startEnd, raftLogMetrics);
     final CorruptionPolicy corruptionPolicy = CorruptionPolicy.get(storage, RaftStorage::getLogCorruptionPolicy);
     final boolean isOpen = startEnd.isOpen();
-    final int entryCount = readSegmentFile(file, startEnd, corruptionPolicy, raftLogMetrics, entry -> {
-      segment.append(keepEntryInCache || isOpen, entry, Op.LOAD_SEGMENT_FILE);
+    final boolean keepInCache = keepEntryInCache || isOpen;
+    final int entryCount = readSegmentFile(file, startEnd.getStartIndex(), startEnd.getEndIndex(), isOpen,
+        corruptionPolicy, raftLogMetrics, (stored, compression) -> {
+      segment.compression = compression;
+      final LogEntryProto entry = keepInCache || logConsumer != null?
+          LogEntryCompressor.decompress(stored, compression): stored;
+      segment.append(keepInCache, entry, getStoredEntrySize(stored), Op.LOAD_SEGMENT_FILE);
       if (logConsumer != null) {
         logConsumer.accept(entry);
       }
@@ -235,7 +257,9 @@ public final class LogSegment implements Comparable<Long> {
       // note the loading should not exceed the endIndex: it is possible that
       // the on-disk log file should be truncated but has not been done yet.
       final AtomicReference<LogEntryProto> toReturn = new AtomicReference<>();
-      readSegmentFile(file, startIndex, endIndex, isOpen, getLogCorruptionPolicy(), raftLogMetrics, entry -> {
+      readSegmentFile(file, startIndex, endIndex, isOpen, getLogCorruptionPolicy(), raftLogMetrics,
+          (stored, compression) -> {
+        final LogEntryProto entry = LogEntryCompressor.decompress(stored, compression);
         final TermIndex ti = TermIndex.valueOf(entry);
         putEntryCache(ti, entry, Op.LOAD_SEGMENT_FILE);
         if (ti.equals(key.getTermIndex())) {
@@ -252,6 +276,8 @@ public final class LogSegment implements Comparable<Long> {
   }
 
   private volatile boolean isOpen;
+  /** The compression of the entries stored in the segment file. */
+  private volatile Compression compression;
   private long totalFileSize = SegmentedRaftLogFormat.getHeaderLength();
   private AtomicLong totalCacheSize = new AtomicLong(0);
   /** Segment start index, inclusive. */
@@ -272,10 +298,11 @@ public final class LogSegment implements Comparable<Long> {
    */
   private final Map<TermIndex, LogEntryProto> entryCache = new ConcurrentHashMap<>();
 
-  private LogSegment(RaftStorage storage, boolean isOpen, long start, long end,
+  private LogSegment(RaftStorage storage, boolean isOpen, long start, long end, Compression compression,
       SegmentedRaftLogMetrics raftLogMetrics) {
     this.storage = storage;
     this.isOpen = isOpen;
+    this.compression = compression;
     this.startIndex = start;
     this.endIndex = end;
     this.cacheLoader = new LogEntryLoader(raftLogMetrics);
@@ -301,12 +328,30 @@ public final class LogSegment implements Comparable<Long> {
     return CorruptionPolicy.get(storage, RaftStorage::getLogCorruptionPolicy);
   }
 
+  Compression getCompression() {
+    return compression;
+  }
+
+  /** @return the given entry in the form to be stored in the segment file. */
+  LogEntryProto toStoredEntry(LogEntryProto entry) {
+    return LogEntryCompressor.compress(LogProtoUtils.removeStateMachineData(entry), compression);
+  }
+
   void appendToOpenSegment(LogEntryProto entry, Op op) {
     Preconditions.assertTrue(isOpen(), "The log segment %s is not open for append", this);
-    append(true, entry, op);
+    append(true, entry, getEntrySize(entry, op), op);
+  }
+
+  /**
+   * Append the given entry with the stored entry, which is computed by {@link #toStoredEntry(LogEntryProto)}.
+   */
+  void appendToOpenSegment(LogEntryProto entry, LogEntryProto stored, Op op) {
+    Preconditions.assertTrue(isOpen(), "The log segment %s is not open for append", this);
+    final long size = compression == Compression.NONE? getEntrySize(entry, op): getStoredEntrySize(stored);
+    append(true, entry, size, op);
   }
 
-  private void append(boolean keepEntryInCache, LogEntryProto entry, Op op) {
+  private void append(boolean keepEntryInCache, LogEntryProto entry, long storedEntrySize, Op op) {
     Objects.requireNonNull(entry, "entry == null");
     if (records.isEmpty()) {
       Preconditions.assertTrue(entry.getIndex() == startIndex,
@@ -325,7 +370,7 @@ public final class LogSegment implements Comparable<Long> {
     if (keepEntryInCache) {
       putEntryCache(record.getTermIndex(), entry, op);
     }
-    totalFileSize += getEntrySize(entry, op);
+    totalFileSize += storedEntrySize;
     endIndex = entry.getIndex();
   }
 
@@ -46,6 +46,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.LongSupplier;
 
@@ -89,6 +90,19 @@ public class SegmentedRaftLog extends RaftLogBase {
       return future;
     }
 
+    /**
+     * @return the future of the log I/O of this task, excluding the other operations such as the state machine.
+     *         Since the I/O tasks are executed in order, the futures are also completed in order.
+     */
+    final CompletableFuture<Long> getLogFuture() {
+      return future;
+    }
+
+    /** @return the future of the state machine operation of this task, or null if there is no such operation. */
+    CompletableFuture<?> getStateMachineFuture() {
+      return null;
+    }
+
     void done() {
       completeFuture();
     }
@@ -372,6 +386,10 @@ public class SegmentedRaftLog extends RaftLogBase {
 
   @Override
   protected CompletableFuture<Long> appendEntryImpl(LogEntryProto entry) {
+    return appendEntryTask(entry).getFuture();
+  }
+
+  private Task appendEntryTask(LogEntryProto entry) {
     final Timer.Context context = getRaftLogMetrics().getRaftLogAppendEntryTimer().time();
     checkLogState();
     if (LOG.isTraceEnabled()) {
@@ -403,16 +421,17 @@ public class SegmentedRaftLog extends RaftLogBase {
       // If the entry has state machine data, then the entry should be inserted
       // to statemachine first and then to the cache. Not following the order
       // will leave a spurious entry in the cache.
-      CompletableFuture<Long> writeFuture =
-          fileLogWorker.writeLogEntry(entry).getFuture();
+      // The entry is compressed once for both writing the segment file and computing the file size.
+      final LogEntryProto stored = cache.getOpenSegment().toStoredEntry(entry);
+      final Task writeTask = fileLogWorker.writeLogEntry(entry, stored);
       if (stateMachineCachingEnabled) {
         // The stateMachineData will be cached inside the StateMachine itself.
-        cache.appendEntry(LogProtoUtils.removeStateMachineData(entry),
+        cache.appendEntry(LogProtoUtils.removeStateMachineData(entry), stored,
             LogSegment.Op.WRITE_CACHE_WITH_STATE_MACHINE_CACHE);
       } else {
-        cache.appendEntry(entry, LogSegment.Op.WRITE_CACHE_WITHOUT_STATE_MACHINE_CACHE);
+        cache.appendEntry(entry, stored, LogSegment.Op.WRITE_CACHE_WITHOUT_STATE_MACHINE_CACHE);
       }
-      return writeFuture;
+      return writeTask;
     } catch (Exception e) {
       LOG.error("{}: Failed to append {}", getName(), LogProtoUtils.toLogEntryString(entry), e);
       throw e;
@@ -433,32 +452,68 @@ public class SegmentedRaftLog extends RaftLogBase {
     }
   }
 
-  @Override
-  public List<CompletableFuture<Long>> appendImpl(LogEntryProto... entries) {
-    checkLogState();
-    if (entries == null || entries.length == 0) {
-      return Collections.emptyList();
-    }
+  /**
+   * Truncate the log from the first entry conflicting with the given entries, if there is any,
+   * and then append the new entries.
+   *
+   * @param onTruncate to consume the truncation future, if there is a truncation.
+   * @param onAppend to consume the task of each appended entry.
+   */
+  private void truncateAndAppend(LogEntryProto[] entries,
+      Consumer<CompletableFuture<Long>> onTruncate, Consumer<Task> onAppend) {
     try(AutoCloseableLock writeLock = writeLock()) {
       final TruncateIndices ti = cache.computeTruncateIndices(server::notifyTruncatedLogEntry, entries);
       final long truncateIndex = ti.getTruncateIndex();
       final int index = ti.getArrayIndex();
       LOG.debug("truncateIndex={}, arrayIndex={}", truncateIndex, index);
 
-      final List<CompletableFuture<Long>> futures;
       if (truncateIndex != -1) {
-        futures = new ArrayList<>(entries.length - index + 1);
-        futures.add(truncate(truncateIndex));
-      } else {
-        futures = new ArrayList<>(entries.length - index);
+        onTruncate.accept(truncate(truncateIndex));
       }
       for (int i = index; i < entries.length; i++) {
-        futures.add(appendEntry(entries[i]));
+        onAppend.accept(appendEntryTask(entries[i]));
       }
-      return futures;
     }
   }
 
+  @Override
+  public List<CompletableFuture<Long>> appendImpl(LogEntryProto... entries) {
+    checkLogState();
+    if (entries == null || entries.length == 0) {
+      return Collections.emptyList();
+    }
+    final List<CompletableFuture<Long>> futures = new ArrayList<>(entries.length + 1);
+    truncateAndAppend(entries, futures::add, task -> futures.add(task.getFuture()));
+    return futures;
+  }
+
+  /**
+   * Since the log I/O tasks are completed in order,
+   * the log future of the last task already covers all the previous tasks in the batch.
+   * Only the state machine futures, if there are any, have to be combined.
+   */
+  @Override
+  protected CompletableFuture<Void> appendAllImpl(LogEntryProto... entries) {
+    checkLogState();
+    if (entries == null || entries.length == 0) {
+      return CompletableFuture.completedFuture(null);
+    }
+    final AtomicReference<CompletableFuture<?>> last = new AtomicReference<>();
+    final List<CompletableFuture<?>> stateMachineFutures = new ArrayList<>(0);
+    truncateAndAppend(entries, last::set, task -> {
+      last.set(task.getLogFuture());
+      Optional.ofNullable(task.getStateMachineFuture()).ifPresent(stateMachineFutures::add);
+    });
+
+    if (last.get() == null) {
+      return CompletableFuture.completedFuture(null);
+    } else if (stateMachineFutures.isEmpty()) {
+      return last.get().thenApply(i -> null);
+    }
+    stateMachineFutures.add(last.get());
+    return CompletableFuture.allOf(stateMachineFutures.toArray(new CompletableFuture<?>[0]));
+  }
+
 
   @Override
   public long getFlushIndex() {
@@ -20,6 +20,7 @@ package org.apache.ratis.server.raftlog.segmented;
 import org.apache.ratis.conf.RaftProperties;
 import org.apache.ratis.proto.RaftProtos.LogEntryProto;
 import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.server.RaftServerConfigKeys.Log.Compression;
 import org.apache.ratis.server.metrics.SegmentedRaftLogMetrics;
 import org.apache.ratis.server.protocol.TermIndex;
 import org.apache.ratis.server.raftlog.LogEntryHeader;
@@ -363,6 +364,8 @@ public class SegmentedRaftLogCache {
   private final int maxCachedSegments;
   private final CacheInvalidationPolicy evictionPolicy = new CacheInvalidationPolicyDefault();
   private final long maxSegmentCacheSize;
+  /** The compression of the new open segments. */
+  private final Compression compression;
 
   SegmentedRaftLogCache(Object name, RaftStorage storage, RaftProperties properties,
       SegmentedRaftLogMetrics raftLogMetrics) {
@@ -375,6 +378,7 @@ public class SegmentedRaftLogCache {
     this.raftLogMetrics.addOpenSegmentSizeInBytes(this);
     this.maxCachedSegments = RaftServerConfigKeys.Log.segmentCacheNumMax(properties);
     this.maxSegmentCacheSize = RaftServerConfigKeys.Log.segmentCacheSizeMax(properties).getSize();
+    this.compression = RaftServerConfigKeys.Log.compression(properties);
   }
 
   int getMaxCachedSegments() {
@@ -437,7 +441,7 @@ public class SegmentedRaftLogCache {
   }
 
   void addOpenSegment(long startIndex) {
-    setOpenSegment(LogSegment.newOpenSegment(storage, startIndex,raftLogMetrics));
+    setOpenSegment(LogSegment.newOpenSegment(storage, startIndex, compression, raftLogMetrics));
   }
 
   private void setOpenSegment(LogSegment openSegment) {
@@ -548,6 +552,12 @@ public class SegmentedRaftLogCache {
     openSegment.appendToOpenSegment(entry, op);
   }
 
+  /** The same as {@link #appendEntry(LogEntryProto, LogSegment.Op)} with the entry as it is stored. */
+  void appendEntry(LogEntryProto entry, LogEntryProto stored, LogSegment.Op op) {
+    Preconditions.assertTrue(openSegment != null);
+    openSegment.appendToOpenSegment(entry, stored, op);
+  }
+
   /**
    * truncate log entries starting from the given index (inclusive)
    */
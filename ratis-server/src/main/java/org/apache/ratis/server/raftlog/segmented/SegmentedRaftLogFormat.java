@@ -17,6 +17,7 @@
  */
 package org.apache.ratis.server.raftlog.segmented;
 
+import org.apache.ratis.server.RaftServerConfigKeys.Log.Compression;
 import org.apache.ratis.util.Preconditions;
 import org.apache.ratis.util.function.CheckedFunction;
 
@@ -28,10 +29,23 @@ public interface SegmentedRaftLogFormat {
   class Internal {
     private static final byte[] HEADER_BYTES = "RaftLog1".getBytes(StandardCharsets.UTF_8);
     private static final byte[] HEADER_BYTES_CLONE = HEADER_BYTES.clone();
+    /** The same as {@link #HEADER_BYTES} except for the last byte, which indicates the compression. */
+    private static final byte[] DEFLATE_HEADER_BYTES = "RaftLogD".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DEFLATE_HEADER_BYTES_CLONE = DEFLATE_HEADER_BYTES.clone();
     private static final byte TERMINATOR_BYTE = 0;
 
     private static void assertHeader() {
       Preconditions.assertTrue(Arrays.equals(HEADER_BYTES, HEADER_BYTES_CLONE));
+      Preconditions.assertTrue(Arrays.equals(DEFLATE_HEADER_BYTES, DEFLATE_HEADER_BYTES_CLONE));
+    }
+
+    private static byte[] getHeaderBytes(Compression compression) {
+      switch (compression) {
+        case NONE: return HEADER_BYTES;
+        case DEFLATE: return DEFLATE_HEADER_BYTES;
+        default:
+          throw new IllegalArgumentException("Unexpected compression " + compression);
+      }
     }
   }
 
@@ -40,9 +54,14 @@ public interface SegmentedRaftLogFormat {
   }
 
   static int matchHeader(byte[] bytes, int offset, int length) {
+    return matchHeader(Compression.NONE, bytes, offset, length);
+  }
+
+  static int matchHeader(Compression compression, byte[] bytes, int offset, int length) {
     Preconditions.assertTrue(length <= getHeaderLength());
+    final byte[] header = Internal.getHeaderBytes(compression);
     for(int i = 0; i < length; i++) {
-      if (bytes[offset + i] != Internal.HEADER_BYTES[i]) {
+      if (bytes[offset + i] != header[i]) {
         return i;
       }
     }
@@ -50,7 +69,12 @@ public interface SegmentedRaftLogFormat {
   }
 
   static <T> T applyHeaderTo(CheckedFunction<byte[], T, IOException> function) throws IOException {
-    final T t = function.apply(Internal.HEADER_BYTES);
+    return applyHeaderTo(Compression.NONE, function);
+  }
+
+  static <T> T applyHeaderTo(Compression compression, CheckedFunction<byte[], T, IOException> function)
+      throws IOException {
+    final T t = function.apply(Internal.getHeaderBytes(compression));
     Internal.assertHeader(); // assert that the header is unmodified by the function.
     return t;
   }
@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.util.Optional;
 
 import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.server.RaftServerConfigKeys.Log.Compression;
 import org.apache.ratis.server.metrics.SegmentedRaftLogMetrics;
 import org.apache.ratis.util.IOUtils;
 import org.apache.ratis.util.OpenCloseState;
@@ -115,6 +116,20 @@ public class SegmentedRaftLogInputStream implements Closeable {
   }
 
   public LogEntryProto nextEntry() throws IOException {
+    final LogEntryProto stored = nextStoredEntry();
+    return stored == null? null: LogEntryCompressor.decompress(stored, getCompression());
+  }
+
+  /** @return the compression of this segment, which is available after reading the first entry. */
+  Compression getCompression() {
+    return reader != null? reader.getCompression(): Compression.NONE;
+  }
+
+  /**
+   * The same as {@link #nextEntry()} except that the entry is returned as it is stored,
+   * i.e. the log data is not decompressed.
+   */
+  LogEntryProto nextStoredEntry() throws IOException {
     if (state.isUnopened()) {
         try {
           init();
@@ -18,11 +18,12 @@
 package org.apache.ratis.server.raftlog.segmented;
 
 import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.server.RaftServerConfigKeys.Log.Compression;
 import org.apache.ratis.thirdparty.com.google.protobuf.CodedOutputStream;
+import org.apache.ratis.util.ChecksumUtils;
 import org.apache.ratis.util.IOUtils;
 import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.Preconditions;
-import org.apache.ratis.util.PureJavaCrc32C;
 import org.apache.ratis.util.function.CheckedConsumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,8 +58,18 @@ public class SegmentedRaftLogOutputStream implements Closeable {
   public SegmentedRaftLogOutputStream(File file, boolean append, long segmentMaxSize,
       long preallocatedSize, ByteBuffer byteBuffer)
       throws IOException {
+    this(file, append, segmentMaxSize, preallocatedSize, byteBuffer, Compression.NONE);
+  }
+
+  /**
+   * @param compression the compression recorded in the header of a new file.
+   *                    The entries to be written must be compressed accordingly by the caller.
+   */
+  public SegmentedRaftLogOutputStream(File file, boolean append, long segmentMaxSize,
+      long preallocatedSize, ByteBuffer byteBuffer, Compression compression)
+      throws IOException {
     this.file = file;
-    this.checksum = new PureJavaCrc32C();
+    this.checksum = ChecksumUtils.newCrc32C();
     this.segmentMaxSize = segmentMaxSize;
     this.preallocatedSize = preallocatedSize;
     this.out = BufferedWriteChannel.open(file, append, byteBuffer);
@@ -66,7 +77,7 @@ public class SegmentedRaftLogOutputStream implements Closeable {
     if (!append) {
       // write header
       preallocateIfNecessary(SegmentedRaftLogFormat.getHeaderLength());
-      SegmentedRaftLogFormat.applyHeaderTo(CheckedConsumer.asCheckedFunction(out::write));
+      SegmentedRaftLogFormat.applyHeaderTo(compression, CheckedConsumer.asCheckedFunction(out::write));
       out.flush();
     }
   }
@@ -86,8 +97,16 @@ public class SegmentedRaftLogOutputStream implements Closeable {
   public void write(LogEntryProto entry) throws IOException {
     final int serialized = entry.getSerializedSize();
     final int proto = CodedOutputStream.computeUInt32SizeNoTag(serialized) + serialized;
-    final byte[] buf = new byte[proto + 4]; // proto and 4-byte checksum
-    preallocateIfNecessary(buf.length);
+    final int total = proto + 4; // proto and 4-byte checksum
+    preallocateIfNecessary(total);
+
+    // serialize and checksum the entry directly in the write buffer in order to avoid copying
+    if (out.writeToBuffer(total, buffer -> writeTo(buffer, entry, serialized, proto))) {
+      return;
+    }
+
+    // the entry is larger than the write buffer
+    final byte[] buf = new byte[total];
 
     CodedOutputStream cout = CodedOutputStream.newInstance(buf);
     cout.writeUInt32NoTag(serialized);
@@ -100,6 +119,19 @@ public class SegmentedRaftLogOutputStream implements Closeable {
     out.write(buf);
   }
 
+  private void writeTo(ByteBuffer buffer, LogEntryProto entry, int serialized, int proto) throws IOException {
+    final ByteBuffer protoBuffer = buffer.duplicate();
+    final CodedOutputStream cout = CodedOutputStream.newInstance(buffer);
+    cout.writeUInt32NoTag(serialized);
+    entry.writeTo(cout);
+    cout.flush();
+
+    protoBuffer.limit(protoBuffer.position() + proto);
+    checksum.reset();
+    ChecksumUtils.update(checksum, protoBuffer);
+    buffer.putInt((int) checksum.getValue());
+  }
+
   @Override
   public void close() throws IOException {
     try {
@@ -121,6 +153,15 @@ public class SegmentedRaftLogOutputStream implements Closeable {
     }
   }
 
+  /** Write the buffered data to the file without syncing it to the disk. */
+  public void flushBuffer() throws IOException {
+    try {
+      out.flushBuffer();
+    } catch (IOException ioe) {
+      throw new IOException("Failed to flushBuffer " + this, ioe);
+    }
+  }
+
   private static long actualPreallocateSize(long outstandingData, long remainingSpace, long preallocate) {
     return outstandingData > remainingSpace? outstandingData
         : outstandingData > preallocate? outstandingData
@@ -19,14 +19,15 @@ package org.apache.ratis.server.raftlog.segmented;
 
 import org.apache.ratis.io.CorruptedFileException;
 import org.apache.ratis.protocol.exceptions.ChecksumException;
+import org.apache.ratis.server.RaftServerConfigKeys.Log.Compression;
 import org.apache.ratis.server.metrics.SegmentedRaftLogMetrics;
 import org.apache.ratis.server.raftlog.RaftLog;
 import org.apache.ratis.thirdparty.com.google.protobuf.CodedInputStream;
 import org.apache.ratis.thirdparty.com.google.protobuf.CodedOutputStream;
 import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.util.ChecksumUtils;
 import org.apache.ratis.util.IOUtils;
 import org.apache.ratis.util.Preconditions;
-import org.apache.ratis.util.PureJavaCrc32C;
 import org.apache.ratis.util.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -141,13 +142,15 @@ class SegmentedRaftLogReader implements Closeable {
   private byte[] temp = new byte[4096];
   private final Checksum checksum;
   private final SegmentedRaftLogMetrics raftLogMetrics;
+  /** The compression specified in the header. */
+  private Compression compression = Compression.NONE;
 
   SegmentedRaftLogReader(File file, SegmentedRaftLogMetrics raftLogMetrics) throws FileNotFoundException {
     this.file = file;
     this.limiter = new LimitedInputStream(
         new BufferedInputStream(new FileInputStream(file)));
     in = new DataInputStream(limiter);
-    checksum = new PureJavaCrc32C();
+    checksum = ChecksumUtils.newCrc32C();
     this.raftLogMetrics = raftLogMetrics;
   }
 
@@ -155,7 +158,7 @@ class SegmentedRaftLogReader implements Closeable {
    * Read header from the log file:
    *
    * (1) The header in file is verified successfully.
-   *     Then, return true.
+   *     Then, set the compression specified in the header and return true.
    *
    * (2) The header in file is partially written.
    *     Then, return false.
@@ -167,13 +170,19 @@ class SegmentedRaftLogReader implements Closeable {
     final int headerLength = SegmentedRaftLogFormat.getHeaderLength();
     final int readLength = in.read(temp, 0, headerLength);
     Preconditions.assertTrue(readLength <= headerLength);
-    final int matchLength = SegmentedRaftLogFormat.matchHeader(temp, 0, readLength);
-    Preconditions.assertTrue(matchLength <= readLength);
+    int matchLength = 0;
+    for (Compression c : Compression.values()) {
+      final int m = SegmentedRaftLogFormat.matchHeader(c, temp, 0, readLength);
+      Preconditions.assertTrue(m <= readLength);
+      if (readLength == headerLength && m == readLength) {
+        // The header is matched successfully
+        compression = c;
+        return true;
+      }
+      matchLength = Math.max(matchLength, m);
+    }
 
-    if (readLength == headerLength && matchLength == readLength) {
-      // The header is matched successfully
-      return true;
-    } else if (SegmentedRaftLogFormat.isTerminator(temp, matchLength, readLength - matchLength)) {
+    if (SegmentedRaftLogFormat.isTerminator(temp, matchLength, readLength - matchLength)) {
       // The header is partially written
       return false;
     }
@@ -184,8 +193,14 @@ class SegmentedRaftLogReader implements Closeable {
         + ", expected header=" + SegmentedRaftLogFormat.applyHeaderTo(StringUtils::bytes2HexString));
   }
 
+  Compression getCompression() {
+    return compression;
+  }
+
   /**
-   * Read a log entry from the input stream.
+   * Read a log entry, as it is stored, from the input stream.
+   * When the segment is compressed, the log data of the entry returned is still compressed;
+   * see {@link LogEntryCompressor#decompress(LogEntryProto, Compression)}.
    *
    * @return the operation read from the stream, or null at the end of the
    *         file
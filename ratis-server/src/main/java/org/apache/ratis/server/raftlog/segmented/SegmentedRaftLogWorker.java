@@ -27,6 +27,7 @@ import org.apache.ratis.protocol.RaftGroupMemberId;
 import org.apache.ratis.protocol.exceptions.TimeoutIOException;
 import org.apache.ratis.server.RaftServer;
 import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.server.RaftServerConfigKeys.Log.Compression;
 import org.apache.ratis.server.metrics.SegmentedRaftLogMetrics;
 import org.apache.ratis.server.raftlog.LogProtoUtils;
 import org.apache.ratis.server.raftlog.RaftLog;
@@ -167,9 +168,13 @@ class SegmentedRaftLogWorker {
   private final RaftLogIndex safeCacheEvictIndex = new RaftLogIndex("safeCacheEvictIndex", 0);
 
   private final int forceSyncNum;
+  /** Complete the write futures once the entries are written to the file, i.e. before syncing. */
+  private final boolean earlyAck;
 
   private final long segmentMaxSize;
   private final long preallocatedSize;
+  /** The compression of the new segments. */
+  private final Compression compression;
   private final RaftServer.Division server;
   private int flushBatchSize;
 
@@ -193,7 +198,9 @@ class SegmentedRaftLogWorker {
 
     this.segmentMaxSize = RaftServerConfigKeys.Log.segmentSizeMax(properties).getSize();
     this.preallocatedSize = RaftServerConfigKeys.Log.preallocatedSize(properties).getSize();
+    this.compression = RaftServerConfigKeys.Log.compression(properties);
     this.forceSyncNum = RaftServerConfigKeys.Log.forceSyncNum(properties);
+    this.earlyAck = RaftServerConfigKeys.Log.earlyAckEnabled(properties);
     this.flushBatchSize = 0;
 
     this.stateMachineDataPolicy = new StateMachineDataPolicy(properties);
@@ -357,6 +364,10 @@ class SegmentedRaftLogWorker {
         if (stateMachineDataPolicy.isSync()) {
           stateMachineDataPolicy.getFromFuture(f, () -> this + "-flushStateMachineData");
         }
+        if (earlyAck) {
+          out.flushBuffer();
+          writeTasks.updateIndex(lastWrittenIndex);
+        }
         final Timer.Context logSyncTimerContext = raftLogSyncTimer.time();
         flushBatchSize = (int)(lastWrittenIndex - flushIndex.get());
         out.flush();
@@ -402,8 +413,13 @@ class SegmentedRaftLogWorker {
     addIOTask(new StartLogSegment(segmentToClose.getEndIndex() + 1));
   }
 
-  Task writeLogEntry(LogEntryProto entry) {
-    return addIOTask(new WriteLog(entry));
+  /**
+   * @param entry the entry to be appended.
+   * @param stored the entry to be written to the segment,
+   *               i.e. the entry without state machine data and compressed as the segment.
+   */
+  Task writeLogEntry(LogEntryProto entry, LogEntryProto stored) {
+    return addIOTask(new WriteLog(entry, stored));
   }
 
   Task truncate(TruncationSegments ts, long index) {
@@ -447,11 +463,13 @@ class SegmentedRaftLogWorker {
 
   private class WriteLog extends Task {
     private final LogEntryProto entry;
+    private final LogEntryProto stored;
     private final CompletableFuture<?> stateMachineFuture;
     private final CompletableFuture<Long> combined;
 
-    WriteLog(LogEntryProto entry) {
+    WriteLog(LogEntryProto entry, LogEntryProto stored) {
       this.entry = LogProtoUtils.removeStateMachineData(entry);
+      this.stored = stored;
       if (this.entry == entry) {
         final StateMachineLogEntryProto proto = entry.hasStateMachineLogEntry()? entry.getStateMachineLogEntry(): null;
         if (stateMachine != null && proto != null && proto.getType() == StateMachineLogEntryProto.Type.DATASTREAM) {
@@ -484,7 +502,12 @@ class SegmentedRaftLogWorker {
 
     @Override
     int getSerializedSize() {
-      return LogProtoUtils.getSerializedSize(entry);
+      return LogProtoUtils.getSerializedSize(stored);
+    }
+
+    @Override
+    CompletableFuture<?> getStateMachineFuture() {
+      return stateMachineFuture;
     }
 
     @Override
@@ -507,7 +530,7 @@ class SegmentedRaftLogWorker {
       Preconditions.assertTrue(out != null);
       Preconditions.assertTrue(lastWrittenIndex + 1 == entry.getIndex(),
           "lastWrittenIndex == %s, entry == %s", lastWrittenIndex, entry);
-      out.write(entry);
+      out.write(stored);
       lastWrittenIndex = entry.getIndex();
       pendingFlushNum++;
       if (shouldFlush()) {
@@ -699,6 +722,6 @@ class SegmentedRaftLogWorker {
   private void allocateSegmentedRaftLogOutputStream(File file, boolean append) throws IOException {
     Preconditions.assertTrue(out == null && writeBuffer.position() == 0);
     out = new SegmentedRaftLogOutputStream(file, append, segmentMaxSize,
-            preallocatedSize, writeBuffer);
+            preallocatedSize, writeBuffer, compression);
   }
 }
@@ -39,6 +39,7 @@ class RaftStorageDirectoryImpl implements RaftStorageDirectory {
   private static final String IN_USE_LOCK_NAME = "in_use.lock";
   private static final String META_FILE_NAME = "raft-meta";
   private static final String CONF_EXTENSION = ".conf";
+  private static final String RETRY_CACHE_FILE_NAME = "retry-cache";
 
   enum StorageState {
     NON_EXISTENT,
@@ -103,6 +104,10 @@ class RaftStorageDirectoryImpl implements RaftStorageDirectory {
     return new File(getCurrentDir(), META_FILE_NAME + CONF_EXTENSION);
   }
 
+  File getRetryCacheFile() {
+    return new File(getCurrentDir(), RETRY_CACHE_FILE_NAME);
+  }
+
   /**
    * Check to see if current/ directory is empty.
    */
@@ -18,18 +18,24 @@
 package org.apache.ratis.server.storage;
 
 import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.proto.RaftProtos.RetryCacheSnapshotProto;
 import org.apache.ratis.server.RaftConfiguration;
 import org.apache.ratis.server.RaftServerConfigKeys.Log.CorruptionPolicy;
 import org.apache.ratis.server.raftlog.LogProtoUtils;
 import org.apache.ratis.server.storage.RaftStorageDirectoryImpl.StorageState;
+import org.apache.ratis.util.AtomicFileOutputStream;
 import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.Preconditions;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.util.Optional;
 
@@ -155,6 +161,27 @@ public class RaftStorageImpl implements RaftStorage {
     }
   }
 
+  /** Atomically write the given retry cache, which replaces the previously written retry cache. */
+  public void writeRetryCache(RetryCacheSnapshotProto retryCache) throws IOException {
+    final File file = storageDir.getRetryCacheFile();
+    try (OutputStream out = new BufferedOutputStream(new AtomicFileOutputStream(file))) {
+      retryCache.writeTo(out);
+    }
+  }
+
+  /** @return the retry cache previously written; or null if it does not exist. */
+  public RetryCacheSnapshotProto readRetryCache() throws IOException {
+    final File file = storageDir.getRetryCacheFile();
+    if (!file.exists()) {
+      return null;
+    }
+    try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+      return RetryCacheSnapshotProto.parseFrom(in);
+    } catch (IOException e) {
+      throw new IOException("Failed to read the retry cache from " + file, e);
+    }
+  }
+
   @Override
   public String toString() {
     return JavaUtils.getClassSimpleName(getClass()) + ":" + getStorageDir();
@@ -31,6 +31,7 @@ import org.apache.ratis.protocol.RaftClientReply;
 import org.apache.ratis.protocol.RaftGroup;
 import org.apache.ratis.protocol.RaftPeerId;
 import org.apache.ratis.protocol.exceptions.RaftRetryFailureException;
+import org.apache.ratis.protocol.exceptions.StaleReadException;
 import org.apache.ratis.protocol.exceptions.StateMachineException;
 import org.apache.ratis.retry.RetryPolicies;
 import org.apache.ratis.retry.RetryPolicies.RetryLimited;
@@ -55,7 +56,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
@@ -354,6 +357,154 @@ public abstract class RaftAsyncTests<CLUSTER extends MiniRaftCluster> extends Ba
     }
   }
 
+  @Test
+  public void testHedgedStaleReadAsync() throws Exception {
+    final RaftProperties p = getProperties();
+    // hedge immediately so that both the first and the second requests are sent
+    RaftClientConfigKeys.Async.HedgedRead.setDelay(p, TimeDuration.ZERO);
+    try {
+      runWithNewCluster(NUM_SERVERS, this::runTestHedgedStaleReadAsync);
+    } finally {
+      RaftClientConfigKeys.Async.HedgedRead.setDelay(p, RaftClientConfigKeys.Async.HedgedRead.DELAY_DEFAULT);
+    }
+  }
+
+  void runTestHedgedStaleReadAsync(CLUSTER cluster) throws Exception {
+    final int numMesssages = 10;
+    RaftTestUtil.waitForLeader(cluster);
+    try (RaftClient client = cluster.createClient()) {
+      final List<RaftClientReply> replies = new ArrayList<>();
+      for (int i = 0; i < numMesssages; i++) {
+        final RaftClientReply r = client.async().send(new SimpleMessage("" + i)).get();
+        Assert.assertTrue(r.isSuccess());
+        replies.add(r);
+      }
+
+      for (int i = 0; i < numMesssages; i++) {
+        final Message query = new SimpleMessage("" + i);
+        final ByteString expected = client.async().sendReadOnly(query).get().getMessage().getContent();
+        final RaftClientReply reply = client.async().sendStaleRead(query, replies.get(i).getLogIndex()).get();
+        Assert.assertTrue(reply.isSuccess());
+        Assert.assertEquals("log entry mismatch for query=" + query, expected, reply.getMessage().getContent());
+      }
+
+      // no servers have committed the index
+      testFailureCaseAsync("sendStaleRead(..) with a larger min index",
+          () -> client.async().sendStaleRead(new SimpleMessage("0"), Long.MAX_VALUE),
+          StateMachineException.class, StaleReadException.class);
+    }
+  }
+
+  @Test
+  public void testBatchAsync() throws Exception {
+    final RaftProperties p = getProperties();
+    RaftClientConfigKeys.Async.Batch.setEnabled(p, true);
+    RaftClientConfigKeys.Async.Batch.setElementLimit(p, 10);
+    RaftClientConfigKeys.Async.Batch.setLinger(p, TimeDuration.ONE_SECOND);
+    try {
+      runWithNewCluster(NUM_SERVERS, this::runTestBatchAsync);
+    } finally {
+      RaftClientConfigKeys.Async.Batch.setEnabled(p, RaftClientConfigKeys.Async.Batch.ENABLED_DEFAULT);
+    }
+  }
+
+  void runTestBatchAsync(CLUSTER cluster) throws Exception {
+    final int numBatches = 3;
+    final int batchSize = RaftClientConfigKeys.Async.Batch.elementLimit(getProperties());
+    RaftTestUtil.waitForLeader(cluster);
+    try (RaftClient client = cluster.createClient()) {
+      final SimpleMessage[] messages = SimpleMessage.create(numBatches * batchSize);
+      final List<CompletableFuture<RaftClientReply>> futures = new ArrayList<>();
+      for (SimpleMessage m : messages) {
+        futures.add(client.async().send(m));
+      }
+
+      final Set<Long> callIds = new HashSet<>();
+      long previousIndex = -1;
+      for (CompletableFuture<RaftClientReply> f : futures) {
+        final RaftClientReply reply = f.get();
+        Assert.assertTrue(reply.isSuccess());
+        // each message in a batch has its own call id and is applied at its own log index in order
+        Assert.assertTrue(callIds.add(reply.getCallId()));
+        Assert.assertTrue(reply.getLogIndex() > previousIndex);
+        previousIndex = reply.getLogIndex();
+        Assert.assertEquals(reply.getLogIndex() + " OK", reply.getMessage().getContent().toStringUtf8());
+      }
+    }
+  }
+
+  @Test
+  public void testAdaptiveLimitAsync() throws Exception {
+    final RaftProperties p = getProperties();
+    RaftClientConfigKeys.Async.AdaptiveLimit.setEnabled(p, true);
+    RaftClientConfigKeys.Async.AdaptiveLimit.setMin(p, 1);
+    final int elementLimit = RaftServerConfigKeys.Write.elementLimit(p);
+    RaftServerConfigKeys.Write.setElementLimit(p, 8);
+    try {
+      runWithNewCluster(NUM_SERVERS, this::runTestAdaptiveLimitAsync);
+    } finally {
+      RaftClientConfigKeys.Async.AdaptiveLimit.setEnabled(p, RaftClientConfigKeys.Async.AdaptiveLimit.ENABLED_DEFAULT);
+      RaftClientConfigKeys.Async.AdaptiveLimit.setMin(p, RaftClientConfigKeys.Async.AdaptiveLimit.MIN_DEFAULT);
+      RaftServerConfigKeys.Write.setElementLimit(p, elementLimit);
+    }
+  }
+
+  void runTestAdaptiveLimitAsync(CLUSTER cluster) throws Exception {
+    final RaftServer.Division leader = waitForLeader(cluster);
+    try (RaftClient client = cluster.createClient(leader.getId())) {
+      // the limit increases in slow start
+      for (CompletableFuture<RaftClientReply> f : sendAsync(client, "warmUp", 5)) {
+        final RaftClientReply reply = f.get();
+        Assert.assertTrue(reply.isSuccess());
+        // the leader sends flow control hints for the write requests
+        Assert.assertNotNull(reply.getFlowControlHint());
+      }
+      Assert.assertTrue(RaftClientTestUtil.getAdaptiveRequestLimit(client) > 1);
+      Assert.assertNull(client.async().sendReadOnly(new SimpleMessage("warmUp0")).get().getFlowControlHint());
+
+      // build leader backpressure by slowing down the followers and flooding the leader from another client
+      final RaftProperties p = cluster.getProperties();
+      RaftClientConfigKeys.Async.AdaptiveLimit.setEnabled(p, false);
+      final List<CompletableFuture<RaftClientReply>> futures = new ArrayList<>();
+      try (RaftClient flooding = cluster.createClient(leader.getId())) {
+        cluster.getServerAliveStream()
+            .filter(impl -> !impl.getInfo().isLeader())
+            .forEach(impl -> logSyncDelay.setDelayMs(impl.getId().toString(), 50));
+        try {
+          futures.addAll(sendAsync(flooding, "flooding", 100));
+          futures.addAll(sendAsync(client, "overloaded", 20));
+          // the limit drops to the min
+          JavaUtils.attemptUntilTrue(() -> RaftClientTestUtil.getAdaptiveRequestLimit(client) == 1,
+              50, HUNDRED_MILLIS, "limit drops", LOG);
+        } finally {
+          logSyncDelay.clear();
+        }
+        // some of the requests may fail with ResourceUnavailableException
+        for (CompletableFuture<RaftClientReply> f : futures) {
+          f.handle((r, e) -> null).get();
+        }
+      } finally {
+        RaftClientConfigKeys.Async.AdaptiveLimit.setEnabled(p, true);
+      }
+
+      // the limit recovers once the backpressure is gone
+      final AtomicInteger count = new AtomicInteger();
+      JavaUtils.attemptUntilTrue(() -> {
+        Assert.assertTrue(client.async().send(new SimpleMessage("recover" + count.incrementAndGet())).join()
+            .isSuccess());
+        return RaftClientTestUtil.getAdaptiveRequestLimit(client) > 1;
+      }, 20, HUNDRED_MILLIS, "limit recovers", LOG);
+    }
+  }
+
+  static List<CompletableFuture<RaftClientReply>> sendAsync(RaftClient client, String prefix, int n) {
+    final List<CompletableFuture<RaftClientReply>> futures = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      futures.add(client.async().send(new SimpleMessage(prefix + i)));
+    }
+    return futures;
+  }
+
   @Test
   public void testRequestTimeout() throws Exception {
     final TimeDuration oldExpiryTime = RaftServerConfigKeys.RetryCache.expiryTime(getProperties());
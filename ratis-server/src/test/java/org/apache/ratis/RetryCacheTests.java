@@ -23,21 +23,26 @@ import org.apache.ratis.server.impl.MiniRaftCluster.PeerChanges;
 import org.apache.ratis.RaftTestUtil.SimpleMessage;
 import org.apache.ratis.client.RaftClient;
 import org.apache.ratis.client.RaftClientRpc;
+import org.apache.ratis.conf.RaftProperties;
 import org.apache.ratis.protocol.ClientId;
 import org.apache.ratis.protocol.RaftClientReply;
 import org.apache.ratis.protocol.RaftClientRequest;
 import org.apache.ratis.protocol.RaftPeer;
 import org.apache.ratis.protocol.RaftPeerId;
 import org.apache.ratis.server.RaftServer;
+import org.apache.ratis.server.RaftServerConfigKeys;
 import org.apache.ratis.server.impl.RetryCacheTestUtil;
 import org.apache.ratis.server.raftlog.RaftLog;
 import org.apache.ratis.server.raftlog.RaftLogIOException;
+import org.apache.ratis.statemachine.SimpleStateMachine4Testing;
+import org.apache.ratis.statemachine.StateMachine;
 import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.Log4jUtils;
 import org.apache.ratis.util.TimeDuration;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
@@ -166,4 +171,134 @@ public abstract class RetryCacheTests<CLUSTER extends MiniRaftCluster>
       Assert.assertEquals(0, count(cluster.getLeader().getRaftLog(), oldLastApplied + 1));
     }
   }
+
+  /**
+   * Test retry after all the servers are restarted,
+   * where the request was applied before the snapshot.
+   */
+  @Test
+  public void testRetryAfterRestart() throws Exception {
+    final RaftProperties p = new RaftProperties(getProperties());
+    p.setClass(MiniRaftCluster.STATEMACHINE_CLASS_KEY, SimpleStateMachine4Testing.class, StateMachine.class);
+    RaftServerConfigKeys.RetryCache.setPersistent(p, true);
+    RaftServerConfigKeys.Snapshot.setAutoTriggerEnabled(p, true);
+    RaftServerConfigKeys.Snapshot.setAutoTriggerThreshold(p, 10L);
+
+    final CLUSTER cluster = getFactory().newCluster(NUM_SERVERS, p);
+    cluster.start();
+    try {
+      runTestRetryAfterRestart(cluster);
+    } finally {
+      cluster.shutdown();
+    }
+  }
+
+  void runTestRetryAfterRestart(CLUSTER cluster) throws Exception {
+    final RaftPeerId leaderId = RaftTestUtil.waitForLeader(cluster).getId();
+    try (final RaftClient client = cluster.createClient(leaderId)) {
+      final RaftClientRpc rpc = client.getClientRpc();
+      final long callId = 999;
+      final RaftClientReply reply = rpc.sendRequest(cluster.newRaftClientRequest(client.getId(), leaderId,
+          callId, new SimpleMessage("message")));
+      assertReply(reply, client, callId);
+      final long logIndex = reply.getLogIndex();
+
+      // send more messages to trigger snapshots.
+      // Use another client so that the call above is not acknowledged.
+      try (final RaftClient another = cluster.createClient(leaderId)) {
+        for (int i = 0; i < 20; i++) {
+          Assert.assertTrue(another.io().send(new SimpleMessage("m" + i)).isSuccess());
+        }
+      }
+      for (RaftServer.Division server : cluster.iterateDivisions()) {
+        JavaUtils.attemptRepeatedly(() -> {
+          Assert.assertTrue(server.getStateMachine().getLatestSnapshot().getIndex() >= logIndex);
+          return null;
+        }, 10, TimeDuration.ONE_SECOND, "wait for snapshot at " + server.getId(), LOG);
+      }
+
+      cluster.restart(false);
+      for (RaftServer.Division server : cluster.iterateDivisions()) {
+        Assert.assertNotNull(RetryCacheTestUtil.get(server, client.getId(), callId));
+      }
+
+      // the retry is answered by the retry cache instead of being applied again
+      final RaftPeerId newLeaderId = RaftTestUtil.waitForLeader(cluster).getId();
+      final RaftClientReply retry = rpc.sendRequest(cluster.newRaftClientRequest(client.getId(), newLeaderId,
+          callId, new SimpleMessage("message")));
+      assertReply(retry, client, callId);
+      Assert.assertEquals(logIndex, retry.getLogIndex());
+    }
+  }
+
+  /**
+   * Test that the entries of the calls acknowledged by the client,
+   * i.e. the calls before the first unacknowledged call, are removed from the retry caches.
+   */
+  @Test
+  public void testEvictAcknowledged() throws Exception {
+    runWithNewCluster(NUM_SERVERS, this::runTestEvictAcknowledged);
+  }
+
+  void runTestEvictAcknowledged(CLUSTER cluster) throws Exception {
+    final RaftPeerId leaderId = RaftTestUtil.waitForLeader(cluster).getId();
+    try (final RaftClient client = cluster.createClient(leaderId)) {
+      final long[] callIds = new long[5];
+      long logIndex = 0;
+      for (int i = 0; i < callIds.length; i++) {
+        final RaftClientReply reply = client.io().send(new SimpleMessage("m" + i));
+        Assert.assertTrue(reply.isSuccess());
+        callIds[i] = reply.getCallId();
+        logIndex = reply.getLogIndex();
+      }
+
+      // each request acknowledges the previous calls
+      final long lastIndex = logIndex;
+      for (RaftServer.Division server : cluster.iterateDivisions()) {
+        JavaUtils.attemptRepeatedly(() -> {
+          Assert.assertTrue(server.getInfo().getLastAppliedIndex() >= lastIndex);
+          return null;
+        }, 10, TimeDuration.valueOf(100, TimeUnit.MILLISECONDS), "wait for " + server.getId() + " to apply", LOG);
+        for (int i = 0; i < callIds.length - 1; i++) {
+          Assert.assertNull(RetryCacheTestUtil.get(server, client.getId(), callIds[i]));
+        }
+        Assert.assertNotNull(RetryCacheTestUtil.get(server, client.getId(), callIds[callIds.length - 1]));
+      }
+    }
+  }
+
+  /**
+   * Test that a retry of an acknowledged call is detected as a duplicate
+   * after its entry is removed from the retry cache.
+   */
+  @Test
+  public void testRetryAfterEviction() throws Exception {
+    runWithNewCluster(NUM_SERVERS, this::runTestRetryAfterEviction);
+  }
+
+  void runTestRetryAfterEviction(CLUSTER cluster) throws Exception {
+    final RaftPeerId leaderId = RaftTestUtil.waitForLeader(cluster).getId();
+    try (final RaftClient client = cluster.createClient(leaderId)) {
+      final SimpleMessage message = new SimpleMessage("message");
+      final long callId = client.io().send(message).getCallId();
+      // the next request acknowledges the previous call
+      Assert.assertTrue(client.io().send(new SimpleMessage("next")).isSuccess());
+
+      final RaftServer.Division leader = cluster.getLeader();
+      Assert.assertNull(RetryCacheTestUtil.get(leader, client.getId(), callId));
+      final long oldLastApplied = leader.getInfo().getLastAppliedIndex();
+
+      // retry the acknowledged call
+      final RaftClientRequest r = cluster.newRaftClientRequest(client.getId(), leaderId, callId, message);
+      try {
+        client.getClientRpc().sendRequest(r);
+        Assert.fail("The retry of an acknowledged call should fail: " + r);
+      } catch (IOException e) {
+        LOG.info("Got an expected exception", e);
+      }
+
+      // make sure the retry did not get committed
+      Assert.assertEquals(0, count(leader.getRaftLog(), oldLastApplied + 1));
+    }
+  }
 }
@@ -20,10 +20,13 @@ package org.apache.ratis.server.impl;
 import org.apache.log4j.Level;
 import org.apache.ratis.BaseTest;
 import org.apache.ratis.RaftTestUtil;
+import org.apache.ratis.client.MultiRaftClient;
 import org.apache.ratis.client.RaftClient;
 import org.apache.ratis.client.api.GroupManagementApi;
+import org.apache.ratis.client.impl.RaftClientTestUtil;
 import org.apache.ratis.conf.RaftProperties;
 import org.apache.ratis.protocol.exceptions.AlreadyExistsException;
+import org.apache.ratis.protocol.exceptions.GroupMismatchException;
 import org.apache.ratis.protocol.RaftClientReply;
 import org.apache.ratis.protocol.RaftGroup;
 import org.apache.ratis.protocol.RaftGroupId;
@@ -44,10 +47,12 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.Random;
@@ -211,6 +216,62 @@ public abstract class GroupManagementBaseTest extends BaseTest {
     cluster.shutdown();
   }
 
+  @Test
+  public void testMultiRaftClient() throws Exception {
+    final MiniRaftCluster cluster = getCluster(3);
+    cluster.start();
+    try {
+      final RaftGroup group1 = cluster.getGroup();
+      final RaftServer.Division leader1 = RaftTestUtil.waitForLeader(cluster);
+
+      // add another group to the same servers
+      final RaftGroup group2 = RaftGroup.valueOf(RaftGroupId.randomId(), cluster.getPeers());
+      try (final RaftClient client = cluster.createClient(group2)) {
+        for (RaftPeer p : group2.getPeers()) {
+          client.getGroupManagementApi(p.getId()).add(group2);
+        }
+      }
+      final RaftServer.Division leader2 = RaftTestUtil.waitForLeader(cluster, group2.getGroupId());
+
+      try (final MultiRaftClient multi = cluster.createMultiRaftClient()) {
+        final RaftClient client1 = multi.addGroup(group1);
+        final RaftClient client2 = multi.addGroup(group2);
+        Assert.assertSame(client1, multi.getClient(group1.getGroupId()));
+        Assert.assertSame(multi.getClientRpc(), client1.getClientRpc());
+        Assert.assertSame(multi.getClientRpc(), client2.getClientRpc());
+        Assert.assertEquals(multi.getId(), client1.getId());
+        Assert.assertEquals(multi.getId(), client2.getId());
+        Assert.assertTrue(RaftClientTestUtil.isOrderedAsyncShared(client1, client2));
+
+        for (int i = 0; i < 5; i++) {
+          Assert.assertTrue(client1.io().send(new RaftTestUtil.SimpleMessage("g1-" + i)).isSuccess());
+          Assert.assertTrue(client2.io().send(new RaftTestUtil.SimpleMessage("g2-" + i)).isSuccess());
+        }
+
+        // the ordered requests of the groups are sent through their own sliding windows
+        final List<CompletableFuture<RaftClientReply>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+          futures.add(client1.async().send(new RaftTestUtil.SimpleMessage("g1-async-" + i)));
+          futures.add(client2.async().send(new RaftTestUtil.SimpleMessage("g2-async-" + i)));
+        }
+        for (CompletableFuture<RaftClientReply> f : futures) {
+          Assert.assertTrue(f.get().isSuccess());
+        }
+        Assert.assertEquals(leader1.getId(), multi.getLeaderId(group1.getGroupId()));
+        Assert.assertEquals(leader2.getId(), multi.getLeaderId(group2.getGroupId()));
+        Assert.assertEquals(leader2.getId(), multi.refreshLeader(group2.getGroupId()));
+
+        // closing a group client must not affect the other groups
+        client1.close();
+        testFailureCase("group1 is removed", () -> multi.getClient(group1.getGroupId()),
+            GroupMismatchException.class);
+        Assert.assertTrue(client2.io().send(new RaftTestUtil.SimpleMessage("g2-after-close")).isSuccess());
+      }
+    } finally {
+      cluster.shutdown();
+    }
+  }
+
   @Test
   public void testMultiGroup5Nodes() throws Exception {
     final int[] idIndex = {3, 4, 5};
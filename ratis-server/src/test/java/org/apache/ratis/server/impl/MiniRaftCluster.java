@@ -19,6 +19,7 @@ package org.apache.ratis.server.impl;
 
 import org.apache.ratis.BaseTest;
 import org.apache.ratis.RaftTestUtil;
+import org.apache.ratis.client.MultiRaftClient;
 import org.apache.ratis.client.RaftClient;
 import org.apache.ratis.conf.Parameters;
 import org.apache.ratis.conf.RaftProperties;
@@ -719,6 +720,14 @@ public abstract class MiniRaftCluster implements Closeable {
     return builder.build();
   }
 
+  public MultiRaftClient createMultiRaftClient() {
+    return MultiRaftClient.newBuilder()
+        .setProperties(properties)
+        .setParameters(parameters)
+        .setRetryPolicy(getDefaultRetryPolicy())
+        .build();
+  }
+
   public RaftClientRequest newRaftClientRequest(
       ClientId clientId, RaftPeerId leaderId, Message message) {
     return newRaftClientRequest(clientId, leaderId, CallId.getDefault(), message);
@@ -24,6 +24,7 @@ import org.apache.ratis.RaftTestUtil.SimpleMessage;
 import org.apache.ratis.client.RaftClient;
 import org.apache.ratis.client.RaftClientRpc;
 import org.apache.ratis.proto.RaftProtos.LogEntryProto;
+import org.apache.ratis.proto.RaftProtos.RaftPeerRole;
 import org.apache.ratis.protocol.RaftClientReply;
 import org.apache.ratis.protocol.RaftClientRequest;
 import org.apache.ratis.protocol.RaftGroup;
@@ -34,6 +35,7 @@ import org.apache.ratis.protocol.SetConfigurationRequest;
 import org.apache.ratis.protocol.exceptions.LeaderNotReadyException;
 import org.apache.ratis.protocol.exceptions.ReconfigurationInProgressException;
 import org.apache.ratis.protocol.exceptions.ReconfigurationTimeoutException;
+import org.apache.ratis.protocol.exceptions.SetConfigurationException;
 import org.apache.ratis.server.RaftConfiguration;
 import org.apache.ratis.server.RaftServer;
 import org.apache.ratis.server.RaftServerConfigKeys;
@@ -143,6 +145,132 @@ public abstract class RaftReconfigurationBaseTest<CLUSTER extends MiniRaftCluste
     });
   }
 
+  /**
+   * add 2 new listeners (3 voters -> 3 voters + 2 listeners), no leader change.
+   * The listeners are not counted in the majority.
+   */
+  @Test
+  public void testAddListeners() throws Exception {
+    runWithNewCluster(3, cluster -> {
+      RaftTestUtil.waitForLeader(cluster);
+
+      // add new peers as listeners
+      final PeerChanges changes = cluster.addNewPeers(2, true);
+      final List<RaftPeer> allPeers = new ArrayList<>();
+      final List<RaftPeerId> listeners = new ArrayList<>();
+      for (RaftPeer p : changes.allPeersInNewConf) {
+        if (Arrays.asList(changes.newPeers).contains(p)) {
+          allPeers.add(RaftPeer.newBuilder(p).setStartupRole(RaftPeerRole.LISTENER).build());
+          listeners.add(p.getId());
+        } else {
+          allPeers.add(p);
+        }
+      }
+      final RaftPeer[] newConf = allPeers.toArray(RaftPeer.emptyArray());
+
+      // trigger setConfiguration
+      cluster.setConfiguration(newConf);
+
+      // wait for the new configuration to take effect
+      waitAndCheckNewConf(cluster, newConf, 0, null);
+      for (RaftPeerId listener : listeners) {
+        Assert.assertTrue(((RaftServerImpl) cluster.getDivision(listener)).getRaftConf().isListener(listener));
+      }
+
+      // kill the listeners and a follower; the remaining 2 of the 3 voters are still a majority.
+      final RaftPeerId leaderId = cluster.getLeader().getId();
+      final RaftPeerId follower = cluster.getFollowers().stream().map(RaftServer.Division::getId)
+          .filter(id -> !listeners.contains(id)).findFirst().orElseThrow(IllegalStateException::new);
+      for (RaftPeerId listener : listeners) {
+        cluster.killServer(listener);
+      }
+      cluster.killServer(follower);
+      try (final RaftClient client = cluster.createClient(leaderId)) {
+        Assert.assertTrue(client.io().send(new SimpleMessage("m")).isSuccess());
+      }
+    });
+  }
+
+  /**
+   * change a follower to a witness (3 voters -> 2 voters + 1 witness), no leader change.
+   * The witness stores only the headers of the state machine entries but it is still counted in the majority.
+   */
+  @Test
+  public void testChangeToWitness() throws Exception {
+    runWithNewCluster(3, cluster -> {
+      final RaftPeerId leaderId = RaftTestUtil.waitForLeader(cluster).getId();
+      final List<RaftServer.Division> followers = cluster.getFollowers();
+      final RaftPeerId witnessId = followers.get(0).getId();
+      final RaftPeerId followerId = followers.get(1).getId();
+
+      final RaftPeer[] newConf = cluster.getPeers().stream()
+          .map(p -> !p.getId().equals(witnessId)? p
+              : RaftPeer.newBuilder(p).setStartupRole(RaftPeerRole.WITNESS).build())
+          .toArray(RaftPeer[]::new);
+      cluster.setConfiguration(newConf);
+      waitAndCheckNewConf(cluster, newConf, 0, null);
+      final long confIndex = cluster.getLeader().getRaftConf().getLogEntryIndex();
+
+      // kill the other follower; the leader and the witness are still a majority.
+      cluster.killServer(followerId);
+      try (final RaftClient client = cluster.createClient(leaderId)) {
+        for (int i = 0; i < 5; i++) {
+          Assert.assertTrue(client.io().send(new SimpleMessage("m" + i)).isSuccess());
+        }
+      }
+
+      // the witness has the headers only
+      final RaftLog leaderLog = cluster.getLeader().getRaftLog();
+      final RaftLog witnessLog = cluster.getDivision(witnessId).getRaftLog();
+      final long lastIndex = leaderLog.getLastCommittedIndex();
+      JavaUtils.attempt(() -> Assert.assertTrue(witnessLog.getLastCommittedIndex() >= lastIndex),
+          10, ONE_SECOND, "witness commit", LOG);
+      int stateMachineEntries = 0;
+      for (long i = confIndex + 1; i <= lastIndex; i++) {
+        final LogEntryProto leaderEntry = leaderLog.get(i);
+        final LogEntryProto witnessEntry = witnessLog.get(i);
+        Assert.assertEquals(leaderEntry.getTerm(), witnessEntry.getTerm());
+        Assert.assertFalse(witnessEntry.hasStateMachineLogEntry());
+        if (leaderEntry.hasStateMachineLogEntry()) {
+          stateMachineEntries++;
+        } else {
+          Assert.assertEquals(leaderEntry, witnessEntry);
+        }
+      }
+      Assert.assertEquals(5, stateMachineEntries);
+    });
+  }
+
+  /** A witness does not have the state machine data, so it cannot be changed to another role. */
+  @Test
+  public void testChangeWitnessToOtherRoles() throws Exception {
+    runWithNewCluster(3, cluster -> {
+      final RaftPeerId leaderId = RaftTestUtil.waitForLeader(cluster).getId();
+      final RaftPeerId witnessId = cluster.getFollowers().get(0).getId();
+
+      final RaftPeer[] witnessConf = changeRole(cluster.getPeers(), witnessId, RaftPeerRole.WITNESS);
+      cluster.setConfiguration(witnessConf);
+      waitAndCheckNewConf(cluster, witnessConf, 0, null);
+
+      try (final RaftClient client = cluster.createClient(leaderId)) {
+        final RaftClientRpc sender = client.getClientRpc();
+        for (RaftPeerRole role : new RaftPeerRole[]{RaftPeerRole.FOLLOWER, RaftPeerRole.LISTENER}) {
+          final RaftPeer[] newConf = changeRole(Arrays.asList(witnessConf), witnessId, role);
+          testFailureCase("change the witness to " + role,
+              () -> sender.sendRequest(cluster.newSetConfigurationRequest(client.getId(), leaderId, newConf)),
+              SetConfigurationException.class);
+        }
+      }
+      Assert.assertTrue(cluster.getLeader().getRaftConf().getPeer(witnessId).isWitness());
+    });
+  }
+
+  private static RaftPeer[] changeRole(Collection<RaftPeer> peers, RaftPeerId id, RaftPeerRole role) {
+    return peers.stream()
+        .map(p -> !p.getId().equals(id)? p : RaftPeer.newBuilder(p).setStartupRole(role).build())
+        .toArray(RaftPeer[]::new);
+  }
+
   /**
    * remove 2 peers (5 peers -> 3 peers), no leader change
    */
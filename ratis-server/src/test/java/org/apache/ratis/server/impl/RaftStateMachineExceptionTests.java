@@ -22,6 +22,7 @@ import org.apache.ratis.BaseTest;
 import org.apache.ratis.RaftTestUtil;
 import org.apache.ratis.RaftTestUtil.SimpleMessage;
 import org.apache.ratis.client.RaftClient;
+import org.apache.ratis.client.RaftClientConfigKeys;
 import org.apache.ratis.client.RaftClientRpc;
 import org.apache.ratis.conf.RaftProperties;
 import org.apache.ratis.protocol.*;
@@ -34,12 +35,16 @@ import org.apache.ratis.statemachine.StateMachine;
 import org.apache.ratis.statemachine.TransactionContext;
 import org.apache.ratis.util.JavaUtils;
 import org.apache.ratis.util.Log4jUtils;
+import org.apache.ratis.util.TimeDuration;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import static org.junit.Assert.fail;
 
@@ -52,12 +57,17 @@ public abstract class RaftStateMachineExceptionTests<CLUSTER extends MiniRaftClu
   }
 
   private static volatile boolean failPreAppend = false;
+  private static volatile boolean runtimeExceptionInPreAppend = false;
+  private static volatile boolean failApplyOnlyAtEvenIndices = false;
 
   protected static class StateMachineWithException extends
       SimpleStateMachine4Testing {
 
     @Override
     public CompletableFuture<Message> applyTransaction(TransactionContext trx) {
+      if (failApplyOnlyAtEvenIndices && trx.getLogEntry().getIndex() % 2 == 1) {
+        return super.applyTransaction(trx);
+      }
       CompletableFuture<Message> future = new CompletableFuture<>();
       future.completeExceptionally(new StateMachineException("Fake Exception"));
       return future;
@@ -68,6 +78,8 @@ public abstract class RaftStateMachineExceptionTests<CLUSTER extends MiniRaftClu
         throws IOException {
       if (failPreAppend) {
         throw new IOException("Fake Exception in preAppend");
+      } else if (runtimeExceptionInPreAppend) {
+        throw new IllegalStateException("Fake RuntimeException in preAppend");
       } else {
         return trx;
       }
@@ -97,6 +109,49 @@ public abstract class RaftStateMachineExceptionTests<CLUSTER extends MiniRaftClu
     cluster.shutdown();
   }
 
+  /** Batching requires async requests, which are not supported by all the rpcs. */
+  protected void testBatchWithStateMachineException() throws Exception {
+    final RaftProperties p = getProperties();
+    RaftClientConfigKeys.Async.Batch.setEnabled(p, true);
+    RaftClientConfigKeys.Async.Batch.setElementLimit(p, 10);
+    RaftClientConfigKeys.Async.Batch.setLinger(p, TimeDuration.ONE_SECOND);
+    failApplyOnlyAtEvenIndices = true;
+    try {
+      runWithNewCluster(3, this::runTestBatchWithStateMachineException);
+    } finally {
+      failApplyOnlyAtEvenIndices = false;
+      RaftClientConfigKeys.Async.Batch.setEnabled(p, RaftClientConfigKeys.Async.Batch.ENABLED_DEFAULT);
+    }
+  }
+
+  private void runTestBatchWithStateMachineException(CLUSTER cluster) throws Exception {
+    final RaftPeerId leaderId = RaftTestUtil.waitForLeader(cluster).getId();
+
+    try (final RaftClient client = cluster.createClient(leaderId)) {
+      final List<CompletableFuture<RaftClientReply>> futures = new ArrayList<>();
+      for (SimpleMessage m : SimpleMessage.create(RaftClientConfigKeys.Async.Batch.elementLimit(getProperties()))) {
+        futures.add(client.async().send(m));
+      }
+
+      // a failed message does not fail the other messages in the same batch
+      int numSucceeded = 0;
+      int numFailed = 0;
+      for (CompletableFuture<RaftClientReply> f : futures) {
+        try {
+          final RaftClientReply reply = f.get();
+          Assert.assertTrue(reply.isSuccess());
+          Assert.assertEquals(1, reply.getLogIndex() % 2);
+          numSucceeded++;
+        } catch (ExecutionException e) {
+          Assert.assertTrue(JavaUtils.unwrapCompletionException(e.getCause()) instanceof StateMachineException);
+          numFailed++;
+        }
+      }
+      Assert.assertTrue(numSucceeded > 0);
+      Assert.assertTrue(numFailed > 0);
+    }
+  }
+
   @Test
   public void testRetryOnStateMachineException() throws Exception {
     runWithNewCluster(3, this::runTestRetryOnStateMachineException);
@@ -142,6 +197,46 @@ public abstract class RaftStateMachineExceptionTests<CLUSTER extends MiniRaftClu
     }
   }
 
+  @Test
+  public void testRuntimeExceptionInPreAppend() throws Exception {
+    runWithNewCluster(3, this::runTestRuntimeExceptionInPreAppend);
+  }
+
+  private void runTestRuntimeExceptionInPreAppend(CLUSTER cluster) throws Exception {
+    final RaftPeerId leaderId = RaftTestUtil.waitForLeader(cluster).getId();
+
+    try (final RaftClient client = cluster.createClient(leaderId)) {
+      final RaftClientRpc rpc = client.getClientRpc();
+      final long callId = 999;
+      final RaftClientRequest r = cluster.newRaftClientRequest(client.getId(), leaderId, callId,
+          new SimpleMessage("message"));
+      // the append fails with a RuntimeException while holding the append lock of the leader
+      runtimeExceptionInPreAppend = true;
+      try {
+        final RaftClientReply reply = rpc.sendRequest(r);
+        Assert.assertFalse(reply.isSuccess());
+      } catch (IOException e) {
+        LOG.info("Got an expected exception", e);
+      } finally {
+        runtimeExceptionInPreAppend = false;
+      }
+    }
+
+    // the failed request is not left pending at its index,
+    // so the requests appended afterward get their replies.
+    // Use a new client since some rpc clients, such as netty, cannot recover from a request without reply.
+    try (final RaftClient client = cluster.createClient(leaderId)) {
+      final RaftClientRpc rpc = client.getClientRpc();
+      for (int i = 1; i <= 5; i++) {
+        final RaftClientReply reply = rpc.sendRequest(cluster.newRaftClientRequest(
+            client.getId(), leaderId, i, new SimpleMessage("m" + i)));
+        Assert.assertEquals(i, reply.getCallId());
+        Assert.assertNotNull(reply.getStateMachineException());
+      }
+      Assert.assertEquals(leaderId, cluster.getLeader().getId());
+    }
+  }
+
   @Test
   public void testRetryOnExceptionDuringReplication() throws Exception {
     runWithNewCluster(3, this::runTestRetryOnExceptionDuringReplication);
@@ -24,10 +24,12 @@ import org.apache.ratis.RaftTestUtil;
 import org.apache.ratis.client.RaftClient;
 import org.apache.ratis.conf.RaftProperties;
 import org.apache.ratis.grpc.metrics.GrpcServerMetrics;
+import org.apache.ratis.proto.RaftProtos.ReplicationLevel;
 import org.apache.ratis.protocol.RaftClientReply;
 import org.apache.ratis.server.RaftServer;
 import org.apache.ratis.server.RaftServerConfigKeys;
 import org.apache.ratis.server.leader.FollowerInfo;
+import org.apache.ratis.server.leader.LogAppender;
 import org.apache.ratis.server.impl.RaftServerTestUtil;
 import org.apache.ratis.statemachine.SimpleStateMachine4Testing;
 import org.apache.ratis.statemachine.StateMachine;
@@ -92,6 +94,37 @@ public class TestLogAppenderWithGrpc
     }
   }
 
+  @Test
+  public void testEarlyAck() throws Exception {
+    final RaftProperties properties = new RaftProperties(getProperties());
+    RaftServerConfigKeys.Log.setEarlyAckEnabled(properties, true);
+    final MiniRaftClusterWithGrpc cluster = getFactory().newCluster(3, properties);
+    cluster.start();
+
+    try (RaftClient client = cluster.createClient(waitForLeader(cluster).getId())) {
+      long lastIndex = -1;
+      for (int i = 0; i < 10; i++) {
+        final RaftClientReply reply = client.io().send(new RaftTestUtil.SimpleMessage("m" + i));
+        Assert.assertTrue(reply.isSuccess());
+        lastIndex = reply.getLogIndex();
+      }
+      // the ALL watch completes only after the entries are synced in all the followers
+      Assert.assertTrue(client.io().watch(lastIndex, ReplicationLevel.ALL).isSuccess());
+      for (RaftServer.Division follower : cluster.getFollowers()) {
+        Assert.assertTrue(follower.getRaftLog().getFlushIndex() >= lastIndex);
+      }
+
+      final long index = lastIndex;
+      final RaftServer.Division leader = waitForLeader(cluster);
+      JavaUtils.attemptUntilTrue(() -> RaftServerTestUtil.getLogAppenders(leader)
+          .map(LogAppender::getFollower)
+          .allMatch(f -> f.getMatchIndex() >= index && f.getDurableIndex() >= index),
+          10, ONE_SECOND, "durableIndex", LOG);
+    } finally {
+      cluster.shutdown();
+    }
+  }
+
   @Test
   public void testRestartLogAppender() throws Exception {
     runWithNewCluster(2, this::runTestRestartLogAppender);
@@ -201,6 +201,54 @@ public class TestRaftServerWithGrpc extends BaseTest implements MiniRaftClusterW
 
   }
 
+  @Test
+  public void testSharedClientChannels() throws Exception {
+    final RaftProperties p = getProperties();
+    GrpcConfigKeys.Client.setChannelPoolSize(p, 3);
+    GrpcConfigKeys.Client.setSharedChannelsEnabled(p, true);
+    try {
+      runWithNewCluster(3, this::runTestSharedClientChannels);
+    } finally {
+      GrpcConfigKeys.Client.setChannelPoolSize(p, GrpcConfigKeys.Client.CHANNEL_POOL_SIZE_DEFAULT);
+      GrpcConfigKeys.Client.setSharedChannelsEnabled(p, GrpcConfigKeys.Client.SHARED_CHANNELS_ENABLED_DEFAULT);
+    }
+  }
+
+  void runTestSharedClientChannels(MiniRaftClusterWithGrpc cluster) throws Exception {
+    RaftTestUtil.waitForLeader(cluster);
+
+    final List<RaftClient> clients = new ArrayList<>();
+    try {
+      for (int i = 0; i < 5; i++) {
+        clients.add(cluster.createClient());
+      }
+      final List<CompletableFuture<RaftClientReply>> futures = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        for (RaftClient client : clients) {
+          futures.add(client.async().send(new SimpleMessage("m" + i)));
+        }
+      }
+      for (CompletableFuture<RaftClientReply> f : futures) {
+        Assert.assertTrue(f.get().isSuccess());
+      }
+
+      // the remaining clients must still work after a client is closed
+      clients.remove(0).close();
+      for (RaftClient client : clients) {
+        Assert.assertTrue(client.io().send(new SimpleMessage("after-close")).isSuccess());
+      }
+    } finally {
+      for (RaftClient client : clients) {
+        client.close();
+      }
+    }
+
+    // a new client must work after all the shared channels are closed
+    try (RaftClient client = cluster.createClient()) {
+      Assert.assertTrue(client.io().send(new SimpleMessage("new-client")).isSuccess());
+    }
+  }
+
   @Test
   public void testRaftClientMetrics() throws Exception {
     runWithNewCluster(3, this::testRaftClientRequestMetrics);
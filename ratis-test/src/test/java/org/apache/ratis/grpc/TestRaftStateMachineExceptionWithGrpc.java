@@ -18,9 +18,15 @@
 package org.apache.ratis.grpc;
 
 import org.apache.ratis.server.impl.RaftStateMachineExceptionTests;
+import org.junit.Test;
 
 public class TestRaftStateMachineExceptionWithGrpc
     extends RaftStateMachineExceptionTests<MiniRaftClusterWithGrpc>
     implements MiniRaftClusterWithGrpc.FactoryGet {
 
+  @Test
+  @Override
+  public void testBatchWithStateMachineException() throws Exception {
+    super.testBatchWithStateMachineException();
+  }
 }
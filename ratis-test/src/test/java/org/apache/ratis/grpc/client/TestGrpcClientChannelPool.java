@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.grpc.client;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.RaftTestUtil;
+import org.apache.ratis.RaftTestUtil.SimpleMessage;
+import org.apache.ratis.client.RaftClient;
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.grpc.GrpcConfigKeys;
+import org.apache.ratis.grpc.MiniRaftClusterWithGrpc;
+import org.apache.ratis.proto.RaftProtos.ReplicationLevel;
+import org.apache.ratis.protocol.RaftClientReply;
+import org.apache.ratis.protocol.RaftPeerId;
+import org.apache.ratis.util.JavaUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class TestGrpcClientChannelPool extends BaseTest implements MiniRaftClusterWithGrpc.FactoryGet {
+  static final int POOL_SIZE = 4;
+
+  @Test
+  public void testSingleClientUsesAllChannels() throws Exception {
+    final RaftProperties p = getProperties();
+    GrpcConfigKeys.Client.setChannelPoolSize(p, POOL_SIZE);
+    try {
+      runWithNewCluster(3, this::runTestSingleClientUsesAllChannels);
+    } finally {
+      GrpcConfigKeys.Client.setChannelPoolSize(p, GrpcConfigKeys.Client.CHANNEL_POOL_SIZE_DEFAULT);
+    }
+  }
+
+  void runTestSingleClientUsesAllChannels(MiniRaftClusterWithGrpc cluster) throws Exception {
+    final RaftPeerId leaderId = RaftTestUtil.waitForLeader(cluster).getId();
+    try (RaftClient client = cluster.createClient(leaderId)) {
+      final RaftClientReply reply = client.async().send(new SimpleMessage("m")).get();
+      Assert.assertTrue(reply.isSuccess());
+      final GrpcClientChannelPool pool = ((GrpcClientRpc) client.getClientRpc())
+          .getProxies().getProxy(leaderId).getClientChannels();
+      Assert.assertEquals(POOL_SIZE, pool.getSize());
+
+      // the load of a channel is the number of its outstanding requests
+      final int numRequests = 2 * POOL_SIZE;
+      final List<CompletableFuture<RaftClientReply>> futures = new ArrayList<>();
+      for (int i = 0; i < numRequests; i++) {
+        futures.add(client.async().watch(reply.getLogIndex(), ReplicationLevel.MAJORITY));
+      }
+      for (CompletableFuture<RaftClientReply> f : futures) {
+        Assert.assertTrue(f.get().isSuccess());
+      }
+      JavaUtils.attemptUntilTrue(() -> getTotalLoad(pool) == 0, 10, ONE_SECOND, "totalLoad == 0", LOG);
+
+      // each unordered request is sent over the least loaded channel,
+      // so the requests waiting for an uncommitted index are spread evenly over the channels
+      for (int i = 0; i < numRequests; i++) {
+        client.async().watch(reply.getLogIndex() + 1000, ReplicationLevel.MAJORITY);
+      }
+      for (int i = 0; i < pool.getSize(); i++) {
+        Assert.assertEquals(numRequests / POOL_SIZE, pool.getLoad(i));
+      }
+    }
+  }
+
+  static int getTotalLoad(GrpcClientChannelPool pool) {
+    int total = 0;
+    for (int i = 0; i < pool.getSize(); i++) {
+      total += pool.getLoad(i);
+    }
+    return total;
+  }
+}
@@ -18,6 +18,7 @@
 package org.apache.ratis.server.impl;
 
 import org.apache.ratis.BaseTest;
+import org.apache.ratis.proto.RaftProtos.RaftPeerRole;
 import org.apache.ratis.protocol.RaftPeer;
 import org.apache.ratis.protocol.RaftPeerId;
 import org.junit.Test;
@@ -26,6 +27,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.stream.Collectors;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -69,6 +71,35 @@ public class TestPeerConfiguration extends BaseTest {
     assertTrue(conf.majorityRejectVotes(raftPeerIds(node1, node2)));
   }
 
+  @Test
+  public void testListenersNotInQuorum() {
+    String localId = "0";
+    String node1 = "1";
+    String node2 = "2";
+    String listener1 = "3";
+    String listener2 = "4";
+    final Collection<RaftPeer> peers = raftPeers(localId, node1, node2);
+    peers.add(listener(listener1));
+    peers.add(listener(listener2));
+    PeerConfiguration conf = new PeerConfiguration(peers);
+    assertEquals(5, conf.size());
+    assertEquals(3, conf.getVoterCount());
+    assertTrue(conf.contains(RaftPeerId.valueOf(listener1)));
+    assertFalse(conf.containsVoter(RaftPeerId.valueOf(listener1)));
+    assertEquals(2, conf.getOtherVoters(RaftPeerId.valueOf(localId)).size());
+    assertEquals(4, conf.getOtherPeers(RaftPeerId.valueOf(localId)).size());
+
+    // the listeners are not counted
+    assertFalse(conf.hasMajority(raftPeerIds(listener1, listener2), RaftPeerId.valueOf(localId)));
+    assertTrue(conf.hasMajority(raftPeerIds(node1), RaftPeerId.valueOf(localId)));
+    assertFalse(conf.majorityRejectVotes(raftPeerIds(node1, listener1, listener2)));
+    assertTrue(conf.majorityRejectVotes(raftPeerIds(node1, node2)));
+  }
+
+  private static RaftPeer listener(String id) {
+    return RaftPeer.newBuilder().setId(id).setStartupRole(RaftPeerRole.LISTENER).build();
+  }
+
   private Collection<RaftPeer> raftPeers(String... voters) {
     return Arrays.stream(voters)
         .map(id -> RaftPeer.newBuilder().setId(id).build())
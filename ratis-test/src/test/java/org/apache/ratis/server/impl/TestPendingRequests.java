@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.server.impl;
+
+import org.apache.ratis.BaseTest;
+import org.apache.ratis.conf.RaftProperties;
+import org.apache.ratis.protocol.ClientId;
+import org.apache.ratis.protocol.Message;
+import org.apache.ratis.protocol.RaftClientReply;
+import org.apache.ratis.protocol.RaftClientRequest;
+import org.apache.ratis.protocol.RaftGroupId;
+import org.apache.ratis.protocol.RaftGroupMemberId;
+import org.apache.ratis.protocol.RaftPeerId;
+import org.apache.ratis.protocol.exceptions.NotLeaderException;
+import org.apache.ratis.server.RaftServerConfigKeys;
+import org.apache.ratis.server.metrics.RaftServerMetricsImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class TestPendingRequests extends BaseTest {
+  private static final int ELEMENT_LIMIT = 4;
+
+  private final RaftGroupMemberId memberId = RaftGroupMemberId.valueOf(
+      RaftPeerId.valueOf("s0"), RaftGroupId.randomId());
+  private final ClientId clientId = ClientId.randomId();
+  private final Map<Long, PendingRequest> added = new HashMap<>();
+
+  private PendingRequest add(PendingRequests pending, long index) {
+    final PendingRequests.Permit permit = pending.tryAcquire(Message.EMPTY);
+    Assert.assertNotNull(permit);
+    final RaftClientRequest request = RaftClientRequest.newBuilder()
+        .setClientId(clientId)
+        .setServerId(memberId.getPeerId())
+        .setGroupId(memberId.getGroupId())
+        .setCallId(index)
+        .setMessage(Message.EMPTY)
+        .setType(RaftClientRequest.writeRequestType())
+        .build();
+    final PendingRequest p = pending.add(permit, index, request, null);
+    Assert.assertNotNull(p);
+    Assert.assertEquals(index, p.getIndex());
+    added.put(index, p);
+    return p;
+  }
+
+  private void reply(PendingRequests pending, long index) {
+    final PendingRequest p = added.get(index);
+    Assert.assertFalse(p.getFuture().isDone());
+    pending.replyPendingRequest(index, RaftClientReply.newBuilder()
+        .setRequest(p.getRequest())
+        .setLogIndex(index)
+        .setSuccess()
+        .build());
+    Assert.assertEquals(index, p.getFuture().join().getLogIndex());
+  }
+
+  @Test
+  public void testPendingRequests() {
+    final RaftProperties properties = new RaftProperties();
+    RaftServerConfigKeys.Write.setElementLimit(properties, ELEMENT_LIMIT);
+    final RaftServerMetricsImpl metrics = RaftServerMetricsImpl.computeIfAbsentRaftServerMetrics(
+        memberId, () -> null, () -> null);
+    final PendingRequests pending = new PendingRequests(memberId, properties, metrics);
+
+    // the ring buffer has 8 slots; 9 and 17 collide with 1, and 18 collides with 2.
+    add(pending, 1);
+    add(pending, 2);
+    add(pending, 9);
+    add(pending, 17);
+    Assert.assertNull(pending.tryAcquire(Message.EMPTY));
+
+    reply(pending, 1);
+    add(pending, 18);
+    reply(pending, 9);
+
+    final NotLeaderException nle = new NotLeaderException(memberId, null, Collections.emptyList());
+    Assert.assertEquals(3, pending.sendNotLeaderResponses(nle, Collections.emptyList()).size());
+    for (long index : new long[]{2, 17, 18}) {
+      Assert.assertSame(nle, added.get(index).getFuture().join().getNotLeaderException());
+    }
+    Assert.assertNull(pending.tryAcquire(Message.EMPTY));
+    pending.close();
+  }
+}
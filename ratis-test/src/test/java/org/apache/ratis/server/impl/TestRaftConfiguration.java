@@ -18,14 +18,18 @@
 package org.apache.ratis.server.impl;
 
 import org.apache.ratis.BaseTest;
+import org.apache.ratis.proto.RaftProtos.RaftPeerRole;
 import org.apache.ratis.protocol.RaftPeer;
 import org.apache.ratis.protocol.RaftPeerId;
 import org.apache.ratis.server.RaftConfiguration;
+import org.apache.ratis.util.ProtoUtils;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.stream.Collectors;
 
 
@@ -51,6 +55,56 @@ public class TestRaftConfiguration extends BaseTest {
     Assert.assertFalse(RaftServerTestUtil.isHighestPriority(config, RaftPeerId.valueOf("123456789")));
   }
 
+  @Test
+  public void testListener() {
+    final RaftPeer listener = RaftPeer.newBuilder().setId("listener").setPriority(10)
+        .setStartupRole(RaftPeerRole.LISTENER).build();
+    final Collection<RaftPeer> peers = raftPeersWithPriority(0, 1, 2);
+    peers.add(listener);
+    final RaftConfigurationImpl config = RaftConfigurationImpl.newBuilder().setConf(peers).build();
+
+    Assert.assertTrue(config.containsInConf(listener.getId()));
+    Assert.assertFalse(config.containsVoterInConf(listener.getId()));
+    Assert.assertTrue(config.isListener(listener.getId()));
+    Assert.assertFalse(config.isListener(RaftPeerId.valueOf("0")));
+    Assert.assertEquals(2, config.getOtherVoters(RaftPeerId.valueOf("0")).size());
+
+    // a listener never has the highest priority
+    Assert.assertFalse(config.isHighestPriority(listener.getId()));
+    Assert.assertTrue(config.isHighestPriority(RaftPeerId.valueOf("2")));
+
+    // the role is preserved in the proto
+    final RaftPeer converted = ProtoUtils.toRaftPeer(listener.getRaftPeerProto());
+    Assert.assertEquals(RaftPeerRole.LISTENER, converted.getStartupRole());
+    Assert.assertTrue(config.hasNoChange(peers));
+    final List<RaftPeer> promoted = peers.stream()
+        .map(p -> RaftPeer.newBuilder(p).setStartupRole(RaftPeerRole.FOLLOWER).build())
+        .collect(Collectors.toList());
+    Assert.assertFalse(config.hasNoChange(promoted));
+  }
+
+  @Test
+  public void testWitness() {
+    final RaftPeer witness = RaftPeer.newBuilder().setId("witness").setPriority(10)
+        .setStartupRole(RaftPeerRole.WITNESS).build();
+    final Collection<RaftPeer> peers = raftPeersWithPriority(0, 1);
+    peers.add(witness);
+    final RaftConfigurationImpl config = RaftConfigurationImpl.newBuilder().setConf(peers).build();
+
+    // a witness is a voter but it cannot be the leader
+    Assert.assertTrue(config.containsVoterInConf(witness.getId()));
+    Assert.assertFalse(config.isListener(witness.getId()));
+    Assert.assertTrue(config.isWitness(witness.getId()));
+    Assert.assertFalse(config.canBeLeader(witness.getId()));
+    Assert.assertTrue(config.canBeLeader(RaftPeerId.valueOf("0")));
+    Assert.assertFalse(config.isHighestPriority(witness.getId()));
+    Assert.assertTrue(config.isHighestPriority(RaftPeerId.valueOf("1")));
+    Assert.assertTrue(config.hasMajority(Collections.singletonList(witness.getId()), RaftPeerId.valueOf("0")));
+
+    final RaftPeer converted = ProtoUtils.toRaftPeer(witness.getRaftPeerProto());
+    Assert.assertEquals(RaftPeerRole.WITNESS, converted.getStartupRole());
+  }
+
   private Collection<RaftPeer> raftPeersWithPriority(Integer... voters) {
     return Arrays.stream(voters)
         .map(id -> RaftPeer.newBuilder().setPriority(id).setId(id.toString()).build())
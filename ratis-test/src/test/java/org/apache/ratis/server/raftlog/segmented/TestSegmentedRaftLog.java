@@ -55,8 +55,10 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -359,6 +361,54 @@ public class TestSegmentedRaftLog extends BaseTest {
     }
   }
 
+  /**
+   * Append compressible entries with compression, make sure that the entries are compressed in the segment files
+   * and the offsets are correct for truncation.
+   */
+  @Test
+  public void testAppendTruncateWithCompression() throws Exception {
+    RaftServerConfigKeys.Log.setPreallocatedSize(properties, SizeInBytes.valueOf("16KB"));
+    RaftServerConfigKeys.Log.setSegmentSizeMax(properties, SizeInBytes.valueOf("128KB"));
+    RaftServerConfigKeys.Log.setCompression(properties, RaftServerConfigKeys.Log.Compression.DEFLATE);
+
+    List<SegmentRange> ranges = prepareRanges(0, 1, 1024, 0);
+    final byte[] content = new byte[1024];
+    List<LogEntryProto> entries = prepareLogEntries(ranges,
+        () -> new String(content));
+
+    try (SegmentedRaftLog raftLog = newSegmentedRaftLog()) {
+      raftLog.open(RaftLog.INVALID_LOG_INDEX, null);
+      entries.subList(0, 512).stream().map(raftLog::appendEntry).forEach(CompletableFuture::join);
+    }
+
+    // change the conf; the existing open segment should still be appended with compression
+    RaftServerConfigKeys.Log.setCompression(properties, RaftServerConfigKeys.Log.Compression.NONE);
+    try (SegmentedRaftLog raftLog = newSegmentedRaftLog()) {
+      raftLog.open(RaftLog.INVALID_LOG_INDEX, null);
+      entries.subList(512, entries.size()).stream().map(raftLog::appendEntry).forEach(CompletableFuture::join);
+    }
+
+    try (SegmentedRaftLog raftLog = newSegmentedRaftLog()) {
+      raftLog.open(RaftLog.INVALID_LOG_INDEX, null);
+      checkEntries(raftLog, entries, 0, entries.size());
+      // uncompressed, the entries take 9 segments as in testAppendAndRoll
+      Assert.assertEquals(1, raftLog.getRaftLogCache().getNumOfSegments());
+    }
+
+    final File openSegment = new SegmentRange(0, 0, 0, true).getFile(storage);
+    SegmentedRaftLogFormat.applyHeaderTo(RaftServerConfigKeys.Log.Compression.DEFLATE, header -> {
+      final byte[] bytes = new byte[header.length];
+      try (InputStream in = Files.newInputStream(openSegment.toPath())) {
+        Assert.assertEquals(bytes.length, in.read(bytes));
+      }
+      Assert.assertArrayEquals(header, bytes);
+      return null;
+    });
+
+    testTruncate(entries, 700);
+    testTruncate(entries, 300);
+  }
+
   @Test
   public void testTruncate() throws Exception {
     // prepare the log for truncation
@@ -376,6 +426,32 @@ public class TestSegmentedRaftLog extends BaseTest {
     }
   }
 
+  /**
+   * Append the entries in batches with {@link SegmentedRaftLog#appendAll(LogEntryProto...)},
+   * where the last batch conflicts with the existing entries.
+   */
+  @Test
+  public void testAppendAll() throws Exception {
+    final List<LogEntryProto> entries = prepareLogEntries(prepareRanges(0, 3, 100, 0), null);
+    final List<LogEntryProto> conflicts = prepareLogEntries(
+        Collections.singletonList(new SegmentRange(250, 349, 5, false)), null);
+
+    try (SegmentedRaftLog raftLog = newSegmentedRaftLog()) {
+      raftLog.open(RaftLog.INVALID_LOG_INDEX, null);
+      for (int i = 0; i < entries.size(); i += 50) {
+        raftLog.appendAll(entries.subList(i, i + 50).toArray(new LogEntryProto[0])).join();
+        // the single future completes only after all the entries in the batch are flushed
+        Assert.assertEquals(i + 49, raftLog.getFlushIndex());
+      }
+      checkEntries(raftLog, entries, 0, entries.size());
+
+      raftLog.appendAll(conflicts.toArray(new LogEntryProto[0])).join();
+      Assert.assertEquals(349, raftLog.getFlushIndex());
+      checkEntries(raftLog, entries, 0, 250);
+      checkEntries(raftLog, conflicts, 0, conflicts.size());
+    }
+  }
+
   private void testTruncate(List<LogEntryProto> entries, long fromIndex)
       throws Exception {
     try (SegmentedRaftLog raftLog = newSegmentedRaftLog()) {
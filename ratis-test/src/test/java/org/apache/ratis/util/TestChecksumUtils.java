@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ratis.util;
+
+import org.apache.ratis.BaseTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.Checksum;
+
+public class TestChecksumUtils extends BaseTest {
+  @Test(timeout = 10000)
+  public void testCrc32C() {
+    LOG.info("JDK CRC32C available? {}", ChecksumUtils.isJdkCrc32CAvailable());
+    for(int length = 0; length < 10000; length = length * 2 + 1) {
+      final byte[] bytes = new byte[length];
+      ThreadLocalRandom.current().nextBytes(bytes);
+      final int offset = length / 3;
+      final int n = length - offset;
+
+      final Checksum expected = new PureJavaCrc32C();
+      expected.update(bytes, offset, n);
+
+      final Checksum array = ChecksumUtils.newCrc32C();
+      array.update(bytes, offset, n);
+      Assert.assertEquals(expected.getValue(), array.getValue());
+
+      final Checksum heap = ChecksumUtils.newCrc32C();
+      final ByteBuffer heapBuffer = ByteBuffer.wrap(bytes, offset, n);
+      ChecksumUtils.update(heap, heapBuffer);
+      Assert.assertEquals(expected.getValue(), heap.getValue());
+      Assert.assertEquals(offset, heapBuffer.position());
+
+      final Checksum direct = ChecksumUtils.newCrc32C();
+      final ByteBuffer directBuffer = ByteBuffer.allocateDirect(length);
+      directBuffer.put(bytes).position(offset);
+      ChecksumUtils.update(direct, directBuffer);
+      Assert.assertEquals(expected.getValue(), direct.getValue());
+      Assert.assertEquals(offset, directBuffer.position());
+    }
+  }
+}
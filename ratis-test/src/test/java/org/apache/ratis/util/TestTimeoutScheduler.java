@@ -22,8 +22,11 @@ import org.apache.ratis.BaseTest;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 public class TestTimeoutScheduler extends BaseTest {
@@ -210,6 +213,45 @@ public class TestTimeoutScheduler extends BaseTest {
     errorHandler.assertNoError();
   }
 
+  @Test(timeout = 1000)
+  public void testCancel() throws Exception {
+    final TimeoutScheduler scheduler = TimeoutScheduler.newInstance();
+    final TimeDuration grace = TimeDuration.valueOf(100, TimeUnit.MILLISECONDS);
+    scheduler.setGracePeriod(grace);
+
+    final ErrorHandler errorHandler = new ErrorHandler();
+
+    final AtomicBoolean[] fired = new AtomicBoolean[2];
+    final TimeoutScheduler.Timeout[] timeouts = new TimeoutScheduler.Timeout[fired.length];
+    for(int i = 0; i < fired.length; i++) {
+      final AtomicBoolean f = fired[i] = new AtomicBoolean(false);
+      timeouts[i] = scheduler.onTimeout(TimeDuration.valueOf(150, TimeUnit.MILLISECONDS), () -> {
+        Assert.assertFalse(f.get());
+        f.set(true);
+      }, errorHandler);
+    }
+    Assert.assertEquals(2, scheduler.getQueueSize());
+
+    Thread.sleep(50);
+    Assert.assertTrue(timeouts[0].cancel());
+    Assert.assertFalse(timeouts[0].cancel());
+    Assert.assertTrue(timeouts[0].isCancelled());
+    Assert.assertEquals(1, scheduler.getQueueSize());
+
+    Thread.sleep(150);
+    Assert.assertFalse(fired[0].get());
+    Assert.assertTrue(fired[1].get());
+    // cannot cancel a task which has already run
+    Assert.assertFalse(timeouts[1].cancel());
+    Assert.assertFalse(timeouts[1].isCancelled());
+
+    // the cancelled task is also counted as completed, so the scheduler shuts down after the grace period
+    Thread.sleep(grace.toLong(TimeUnit.MILLISECONDS) + 50);
+    Assert.assertFalse(scheduler.hasScheduler());
+
+    errorHandler.assertNoError();
+  }
+
   @Test(timeout = 10_000)
   public void testShutdown() throws Exception {
     final TimeoutScheduler scheduler = TimeoutScheduler.newInstance();
@@ -239,4 +281,41 @@ public class TestTimeoutScheduler extends BaseTest {
 
     errorHandler.assertNoError();
   }
+
+  @Test(timeout = 10_000)
+  public void testConcurrentScheduleAndCancel() throws Exception {
+    final TimeoutScheduler scheduler = TimeoutScheduler.newInstance();
+    final TimeDuration grace = TimeDuration.valueOf(10, TimeUnit.MILLISECONDS);
+    scheduler.setGracePeriod(grace);
+    final ErrorHandler errorHandler = new ErrorHandler();
+
+    // the scheduler is shutdown and restarted concurrently with the scheduling
+    final int numThreads = 8;
+    final int numTasksPerThread = 1000;
+    final AtomicInteger numFired = new AtomicInteger();
+    final AtomicInteger numCancelled = new AtomicInteger();
+    final List<Thread> threads = new ArrayList<>();
+    for(int t = 0; t < numThreads; t++) {
+      threads.add(new Thread(() -> {
+        for(int i = 0; i < numTasksPerThread; i++) {
+          final TimeoutScheduler.Timeout timeout = scheduler.onTimeout(
+              TimeDuration.valueOf(i % 20, TimeUnit.MILLISECONDS), numFired::incrementAndGet, errorHandler);
+          if (i % 2 == 0 && timeout.cancel()) {
+            numCancelled.incrementAndGet();
+          }
+        }
+      }));
+    }
+    threads.forEach(Thread::start);
+    for(Thread t : threads) {
+      t.join();
+    }
+
+    // each task either runs or is cancelled
+    JavaUtils.attempt(() -> Assert.assertEquals(numThreads * numTasksPerThread, numFired.get() + numCancelled.get()),
+        50, HUNDRED_MILLIS, "all tasks are done", LOG);
+    JavaUtils.attempt(() -> Assert.assertFalse(scheduler.hasScheduler()),
+        50, HUNDRED_MILLIS, "the scheduler is shutdown", LOG);
+    errorHandler.assertNoError();
+  }
 }